@@ -121,6 +121,8 @@ public class ApiClientFactory {
         }
         final String apiName = getApiName(apiClass);
         final ApiClientHandler handler = getHandler(endpoint, apiName);
+        // compile the methods now so their calls don't use reflection
+        handler.compile(apiClass);
         final Object proxy = Proxy.newProxyInstance(apiClass.getClassLoader(),
                 new Class<?>[] {
                     apiClass
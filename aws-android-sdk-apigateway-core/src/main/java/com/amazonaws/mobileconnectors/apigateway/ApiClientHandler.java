@@ -28,26 +28,24 @@ import com.amazonaws.http.HttpRequestFactory;
 import com.amazonaws.http.HttpResponse;
 import com.amazonaws.http.UrlHttpClient;
 import com.amazonaws.mobileconnectors.apigateway.annotation.Operation;
-import com.amazonaws.mobileconnectors.apigateway.annotation.Parameter;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.IOUtils;
 import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.json.DateDeserializer;
+import com.amazonaws.util.json.JsonByteSink;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
 import java.net.URI;
-import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Invocation handler responsible for serializing a request and deserializing a
@@ -79,6 +77,10 @@ class ApiClientHandler implements InvocationHandler {
     private final HttpRequestFactory requestFactory;
     private final ClientConfiguration clientConfiguration;
 
+    // compiled plans of the methods of the API, by method
+    private final Map<Method, ApiInvocationPlan> plans =
+            new ConcurrentHashMap<Method, ApiInvocationPlan>();
+
     ApiClientHandler(String endpoint, String apiName,
             Signer signer, AWSCredentialsProvider provider, String apiKey,
             ClientConfiguration clientConfiguration) {
@@ -93,22 +95,54 @@ class ApiClientHandler implements InvocationHandler {
         requestFactory = new HttpRequestFactory();
     }
 
+    /**
+     * Compiles the plans of the methods of an API ahead of their first call.
+     * Methods that can't be invoked are left to fail when they're called.
+     *
+     * @param apiClass API class defined in API Gateway
+     */
+    void compile(Class<?> apiClass) {
+        for (final Method method : apiClass.getMethods()) {
+            try {
+                getPlan(method);
+            } catch (final RuntimeException e) {
+                // reported when the method is invoked
+            }
+        }
+    }
+
+    /**
+     * Gets the compiled plan of a method, compiling it on first use.
+     *
+     * @param method a method of the API
+     * @return the plan of the method
+     */
+    ApiInvocationPlan getPlan(Method method) {
+        ApiInvocationPlan plan = plans.get(method);
+        if (plan == null) {
+            plan = ApiInvocationPlan.compile(method, GSON_WITH_DATE_FORMATTER);
+            plans.put(method, plan);
+        }
+        return plan;
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args)
             throws Throwable {
 
         try {
+            final ApiInvocationPlan plan = getPlan(method);
             // the execute method call flow
-            if (isExecuteMethod(method)) {
+            if (plan.isExecute()) {
                 final HttpRequest httpRequest = invokeExecuteMethod(args);
                 final HttpResponse response = client.execute(httpRequest);
 
                 return new ApiResponse(response);
             } else {
-                final HttpRequest httpRequest = createHttpRequest(method, args);
+                final HttpRequest httpRequest = createHttpRequest(plan, args);
                 final HttpResponse response = client.execute(httpRequest);
 
-                return handleResponse(response, method);
+                return handleResponse(response, plan);
             }
 
         } catch (final ApiClientException ace) {
@@ -127,7 +161,11 @@ class ApiClientHandler implements InvocationHandler {
      * @return a {@link HttpRequest} object
      */
     HttpRequest createHttpRequest(Method method, Object[] args) {
-        final Request<?> request = buildRequest(method, args);
+        return createHttpRequest(getPlan(method), args);
+    }
+
+    private HttpRequest createHttpRequest(ApiInvocationPlan plan, Object[] args) {
+        final Request<?> request = buildRequest(plan, args);
 
         final ExecutionContext context = new ExecutionContext();
         String userAgent = apiName;
@@ -147,43 +185,32 @@ class ApiClientHandler implements InvocationHandler {
      * @return a {@link Request} object
      */
     Request<?> buildRequest(Method method, Object[] args) {
-        final Operation op = method.getAnnotation(Operation.class);
-        if (op == null) {
+        final ApiInvocationPlan plan = getPlan(method);
+        if (plan.isExecute()) {
             throw new IllegalArgumentException("Method isn't annotated with Operation");
         }
+        return buildRequest(plan, args);
+    }
 
+    private Request<?> buildRequest(ApiInvocationPlan plan, Object[] args) {
         final Request<?> request = new DefaultRequest<Object>(apiName);
-        request.setResourcePath(op.path());
+        request.setResourcePath(plan.resourcePath(args));
         request.setEndpoint(URI.create(endpoint));
 
-        String content = null;
-        final Annotation[][] annotations = method.getParameterAnnotations();
-        final int length = annotations.length;
-        for (int i = 0; i < length; i++) {
-            // content body
-            if (annotations[i].length == 0) {
-                if (content != null) {
-                    throw new IllegalStateException("Can't have more than one Body");
-                }
-                content = args[i] == null ? null : GSON_WITH_DATE_FORMATTER.toJson(args[i]);
-                continue;
-            }
-
-            for (final Annotation annotation : annotations[i]) {
-                if (annotation instanceof Parameter) {
-                    processParameter(request, (Parameter) annotation, args[i]);
-                    break;
-                }
-            }
+        plan.bindParameters(request, args);
+        final JsonByteSink content;
+        try {
+            content = plan.serializeBody(args);
+        } catch (final IOException e) {
+            throw new ApiClientException("Failed to serialize the request body", e);
         }
 
         final boolean hasContent = content != null;
-        setHttpMethod(request, op.method(), hasContent);
+        setHttpMethod(request, plan, hasContent);
 
         if (hasContent) {
-            final byte[] contentBytes = content.getBytes(StringUtils.UTF8);
-            request.setContent(new ByteArrayInputStream(contentBytes));
-            request.addHeader("Content-Length", String.valueOf(contentBytes.length));
+            request.setContent(content.toInputStream());
+            request.addHeader("Content-Length", String.valueOf(content.size()));
         }
 
         request.addHeader("Content-Type", "application/json");
@@ -201,61 +228,23 @@ class ApiClientHandler implements InvocationHandler {
         return request;
     }
 
-    /**
-     * Process an argument annotated with {@link Parameter}.
-     *
-     * @param request request to be set
-     * @param p annotation
-     * @param arg argument
-     */
-    void processParameter(Request<?> request, Parameter p, Object arg) {
-        final String name = p.name();
-        final String location = p.location();
-
-        if (arg == null) {
-            return;
-        }
-
-        if ("header".equals(location)) {
-            request.addHeader(name, String.valueOf(arg));
-        } else if ("path".equals(location)) {
-            String path = request.getResourcePath();
-            path = path.replaceAll("\\{" + name + "\\}", String.valueOf(arg));
-            request.setResourcePath(path);
-        } else if ("query".equals(location)) {
-            if (Map.class.isAssignableFrom(arg.getClass())) {
-                @SuppressWarnings("unchecked")
-                final Map<String, Object> map = (Map<String, Object>) arg;
-                for (final Map.Entry<String, Object> entry : map.entrySet()) {
-                    request.addParameter(entry.getKey(), String.valueOf(entry.getValue()));
-                }
-            } else if (Collection.class.isAssignableFrom(arg.getClass())) {
-                request.addParameter(name, joinList((Collection<?>) arg));
-            } else {
-                request.addParameter(name, String.valueOf(arg));
-            }
-        } else {
-            throw new IllegalArgumentException("unknown parameter location: " + location);
-        }
-    }
-
     /**
      * Sets HTTP method to the {@link Request} object. If the given method is
      * none of GET, POST, PUT, DELETE, and HEAD, then it will be tunneled via
      * X-HTTP-Method-Override. Note that not all servers support this header.
      *
      * @param request request to be set
-     * @param httpMethod given http method
+     * @param plan plan of the invoked method
      * @param hasContent indicate whether the request has content body
      */
-    void setHttpMethod(Request<?> request, String httpMethod, boolean hasContent) {
-        try {
-            request.setHttpMethod(HttpMethodName.valueOf(httpMethod));
-        } catch (final IllegalArgumentException iae) {
+    void setHttpMethod(Request<?> request, ApiInvocationPlan plan, boolean hasContent) {
+        if (plan.getHttpMethodName() != null) {
+            request.setHttpMethod(plan.getHttpMethodName());
+        } else {
             // if an HTTP method is unsupported, then 'tunnel' it through
             // another method by setting the intended method in the
             // X-HTTP-Method-Override header.
-            request.addHeader("X-HTTP-Method-Override", httpMethod);
+            request.addHeader("X-HTTP-Method-Override", plan.getHttpMethod());
             // depending on whether the request has content or not, choose an
             // appropriate method.
             request.setHttpMethod(hasContent ? HttpMethodName.POST : HttpMethodName.GET);
@@ -266,20 +255,19 @@ class ApiClientHandler implements InvocationHandler {
      * Converts response to method's declared returned object
      *
      * @param response http response
-     * @param method method
+     * @param plan plan of the invoked method
      * @return object of method's declared returned type
      * @throws Throwable
      */
-    Object handleResponse(HttpResponse response, Method method) throws Throwable {
+    Object handleResponse(HttpResponse response, ApiInvocationPlan plan) throws Throwable {
         final int code = response.getStatusCode();
         final InputStream content = response.getContent();
         // successful request if code is 2xx
         if (code >= HTTP_RESPONSE_OK && code < HTTP_RESPONSE_LAST_SUCCESS_STATUSCODE) {
-            final Type t = method.getReturnType();
-            if (t != void.class && content != null) {
+            if (!plan.isVoid() && content != null) {
                 final Reader reader = new InputStreamReader(response.getContent(),
                         StringUtils.UTF8);
-                final Object obj = GSON_WITH_DATE_FORMATTER.fromJson(reader, t);
+                final Object obj = plan.deserializeResult(reader);
                 reader.close();
                 return obj;
             } else {
@@ -303,11 +291,7 @@ class ApiClientHandler implements InvocationHandler {
     }
 
     boolean isExecuteMethod(Method method) {
-        final Operation op = method.getAnnotation(Operation.class);
-        return op == null && "execute".equalsIgnoreCase(method.getName())
-                && method.getReturnType().isAssignableFrom(ApiResponse.class)
-                && method.getParameterTypes().length == 1
-                && method.getParameterTypes()[0].isAssignableFrom(ApiRequest.class);
+        return ApiInvocationPlan.isExecuteMethod(method);
     }
 
     HttpRequest invokeExecuteMethod(Object[] args) {
@@ -338,23 +322,6 @@ class ApiClientHandler implements InvocationHandler {
         return requestFactory.createHttpRequest(request, clientConfiguration, context);
     }
 
-    private String joinList(Collection<?> objects) {
-        if (objects == null || objects.isEmpty()) {
-            return "";
-        }
-        final StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (final Object object : objects) {
-            if (first) {
-                first = false;
-            } else {
-                sb.append(",");
-            }
-            sb.append(object);
-        }
-        return sb.toString();
-    }
-
     void setClient(HttpClient client) {
         this.client = client;
     }
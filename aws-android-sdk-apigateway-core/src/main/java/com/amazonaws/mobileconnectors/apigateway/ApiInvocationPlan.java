@@ -0,0 +1,396 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.apigateway;
+
+import com.amazonaws.Request;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.mobileconnectors.apigateway.annotation.Operation;
+import com.amazonaws.mobileconnectors.apigateway.annotation.Parameter;
+import com.amazonaws.util.json.JsonByteSink;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a method of an API client interface does with its arguments and its
+ * result, worked out once from its annotations and types so invoking the
+ * method doesn't use reflection.
+ */
+class ApiInvocationPlan {
+
+    /** Argument is the request body. */
+    private static final int BODY = 0;
+    /** Argument is ignored, it has annotations but no {@link Parameter}. */
+    private static final int IGNORED = 1;
+    private static final int HEADER = 2;
+    private static final int PATH = 3;
+    /** Query parameter whose type is only known from the argument. */
+    private static final int QUERY = 4;
+    private static final int QUERY_MAP = 5;
+    private static final int QUERY_COLLECTION = 6;
+    private static final int QUERY_VALUE = 7;
+    /** Parameter with an unknown location, rejected if it has a value. */
+    private static final int UNKNOWN = 8;
+
+    private final Gson gson;
+    private final boolean execute;
+
+    /** Literal parts of the path, around the path parameters. */
+    private final String[] pathLiterals;
+    /** Placeholders of the path parameters, kept if they have no value. */
+    private final String[] pathPlaceholders;
+    /** Indexes of the arguments for each path parameter, first one set wins. */
+    private final int[][] pathArguments;
+
+    private final int[] kinds;
+    private final String[] names;
+    private final String[] locations;
+
+    private final int bodyIndex;
+    private final Class<?> bodyType;
+    private final TypeAdapter<Object> bodyAdapter;
+
+    private final String httpMethod;
+    /** Method to send, or null if it's tunneled. */
+    private final HttpMethodName httpMethodName;
+
+    private final Class<?> returnType;
+    private final TypeAdapter<?> returnAdapter;
+
+    /**
+     * Compiles the plan of a method.
+     *
+     * @param method method annotated with {@link Operation}, or the execute
+     *            method taking an {@link ApiRequest}
+     * @param gson serializer of request and response bodies
+     * @return the plan of the method
+     * @throws IllegalArgumentException if the method isn't annotated with
+     *             {@link Operation}
+     * @throws IllegalStateException if the method has more than one body
+     */
+    static ApiInvocationPlan compile(Method method, Gson gson) {
+        return new ApiInvocationPlan(method, gson);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ApiInvocationPlan(Method method, Gson gson) {
+        this.gson = gson;
+        final Operation op = method.getAnnotation(Operation.class);
+        execute = op == null && isExecuteMethod(method);
+        returnType = method.getReturnType();
+        if (execute) {
+            pathLiterals = null;
+            pathPlaceholders = null;
+            pathArguments = null;
+            kinds = null;
+            names = null;
+            locations = null;
+            bodyIndex = -1;
+            bodyType = null;
+            bodyAdapter = null;
+            httpMethod = null;
+            httpMethodName = null;
+            returnAdapter = null;
+            return;
+        }
+        if (op == null) {
+            throw new IllegalArgumentException("Method isn't annotated with Operation");
+        }
+
+        final Annotation[][] annotations = method.getParameterAnnotations();
+        final Class<?>[] types = method.getParameterTypes();
+        kinds = new int[annotations.length];
+        names = new String[annotations.length];
+        locations = new String[annotations.length];
+        int body = -1;
+        for (int i = 0; i < annotations.length; i++) {
+            if (annotations[i].length == 0) {
+                if (body >= 0) {
+                    throw new IllegalStateException("Can't have more than one Body");
+                }
+                body = i;
+                kinds[i] = BODY;
+                continue;
+            }
+            kinds[i] = IGNORED;
+            for (final Annotation annotation : annotations[i]) {
+                if (annotation instanceof Parameter) {
+                    final Parameter p = (Parameter) annotation;
+                    names[i] = p.name();
+                    locations[i] = p.location();
+                    kinds[i] = kindOf(p.location(), types[i]);
+                    break;
+                }
+            }
+        }
+        bodyIndex = body;
+        if (body >= 0) {
+            bodyType = types[body];
+            bodyAdapter = (TypeAdapter<Object>) gson.getAdapter(bodyType);
+        } else {
+            bodyType = null;
+            bodyAdapter = null;
+        }
+
+        final List<String> literals = new ArrayList<String>();
+        final List<String> placeholders = new ArrayList<String>();
+        final List<int[]> arguments = new ArrayList<int[]>();
+        final String path = op.path();
+        int start = 0;
+        int open = path.indexOf('{');
+        while (open >= 0) {
+            final int close = path.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            final String name = path.substring(open + 1, close);
+            literals.add(path.substring(start, open));
+            placeholders.add(path.substring(open, close + 1));
+            arguments.add(pathArguments(name));
+            start = close + 1;
+            open = path.indexOf('{', start);
+        }
+        literals.add(path.substring(start));
+        pathLiterals = literals.toArray(new String[literals.size()]);
+        pathPlaceholders = placeholders.toArray(new String[placeholders.size()]);
+        pathArguments = arguments.toArray(new int[arguments.size()][]);
+
+        httpMethod = op.method();
+        HttpMethodName name;
+        try {
+            name = HttpMethodName.valueOf(httpMethod);
+        } catch (final IllegalArgumentException iae) {
+            name = null;
+        }
+        httpMethodName = name;
+
+        returnAdapter = returnType == void.class ? null : gson.getAdapter(returnType);
+    }
+
+    private static int kindOf(String location, Class<?> type) {
+        if ("header".equals(location)) {
+            return HEADER;
+        } else if ("path".equals(location)) {
+            return PATH;
+        } else if ("query".equals(location)) {
+            if (Map.class.isAssignableFrom(type)) {
+                return QUERY_MAP;
+            } else if (Collection.class.isAssignableFrom(type)) {
+                return QUERY_COLLECTION;
+            } else if (type.isAssignableFrom(Map.class)
+                    || type.isAssignableFrom(Collection.class)) {
+                // e.g. Object, decided by each argument
+                return QUERY;
+            }
+            return QUERY_VALUE;
+        }
+        return UNKNOWN;
+    }
+
+    private int[] pathArguments(String name) {
+        int count = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == PATH && name.equals(names[i])) {
+                count++;
+            }
+        }
+        final int[] indexes = new int[count];
+        count = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == PATH && name.equals(names[i])) {
+                indexes[count++] = i;
+            }
+        }
+        return indexes;
+    }
+
+    static boolean isExecuteMethod(Method method) {
+        final Operation op = method.getAnnotation(Operation.class);
+        return op == null && "execute".equalsIgnoreCase(method.getName())
+                && method.getReturnType().isAssignableFrom(ApiResponse.class)
+                && method.getParameterTypes().length == 1
+                && method.getParameterTypes()[0].isAssignableFrom(ApiRequest.class);
+    }
+
+    /**
+     * @return whether the method is the execute method taking an
+     *         {@link ApiRequest}
+     */
+    boolean isExecute() {
+        return execute;
+    }
+
+    /**
+     * @param args arguments of the method
+     * @return the resource path, with the values of the path parameters
+     */
+    String resourcePath(Object[] args) {
+        if (pathPlaceholders.length == 0) {
+            return pathLiterals[0];
+        }
+        final StringBuilder path = new StringBuilder(pathLiterals[0]);
+        for (int i = 0; i < pathPlaceholders.length; i++) {
+            Object value = null;
+            for (final int index : pathArguments[i]) {
+                if (args[index] != null) {
+                    value = args[index];
+                    break;
+                }
+            }
+            path.append(value == null ? pathPlaceholders[i] : String.valueOf(value));
+            path.append(pathLiterals[i + 1]);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Adds the header and query parameters to a request.
+     *
+     * @param request request to be set
+     * @param args arguments of the method
+     */
+    void bindParameters(Request<?> request, Object[] args) {
+        for (int i = 0; i < kinds.length; i++) {
+            final Object arg = args[i];
+            if (arg == null) {
+                continue;
+            }
+            int kind = kinds[i];
+            if (kind == QUERY) {
+                kind = arg instanceof Map ? QUERY_MAP
+                        : arg instanceof Collection ? QUERY_COLLECTION : QUERY_VALUE;
+            }
+            switch (kind) {
+                case HEADER:
+                    request.addHeader(names[i], String.valueOf(arg));
+                    break;
+                case QUERY_MAP:
+                    @SuppressWarnings("unchecked")
+                    final Map<String, Object> map = (Map<String, Object>) arg;
+                    for (final Map.Entry<String, Object> entry : map.entrySet()) {
+                        request.addParameter(entry.getKey(), String.valueOf(entry.getValue()));
+                    }
+                    break;
+                case QUERY_COLLECTION:
+                    request.addParameter(names[i], joinList((Collection<?>) arg));
+                    break;
+                case QUERY_VALUE:
+                    request.addParameter(names[i], String.valueOf(arg));
+                    break;
+                case UNKNOWN:
+                    throw new IllegalArgumentException("unknown parameter location: "
+                            + locations[i]);
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Serializes the body of a request, the same as {@link Gson#toJson(Object)}.
+     *
+     * @param args arguments of the method
+     * @return the UTF-8 encoded body, or null if the method has no body or
+     *         its value is null
+     * @throws IOException if the body can't be serialized
+     */
+    JsonByteSink serializeBody(Object[] args) throws IOException {
+        if (bodyIndex < 0 || args[bodyIndex] == null) {
+            return null;
+        }
+        final Object body = args[bodyIndex];
+        @SuppressWarnings("unchecked")
+        final TypeAdapter<Object> adapter = body.getClass() == bodyType ? bodyAdapter
+                : (TypeAdapter<Object>) gson.getAdapter(body.getClass());
+        final JsonByteSink sink = new JsonByteSink();
+        final JsonWriter writer = new JsonWriter(sink);
+        writer.setLenient(true);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        adapter.write(writer, body);
+        writer.close();
+        return sink;
+    }
+
+    /**
+     * @return the HTTP method of the operation
+     */
+    String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * @return the HTTP method to send, or null if the operation's method
+     *         isn't supported and has to be tunneled
+     */
+    HttpMethodName getHttpMethodName() {
+        return httpMethodName;
+    }
+
+    /**
+     * @return whether the method returns nothing
+     */
+    boolean isVoid() {
+        return returnAdapter == null;
+    }
+
+    /**
+     * Deserializes a response body into the return type of the method, the
+     * same as {@link Gson#fromJson(Reader, java.lang.reflect.Type)}.
+     *
+     * @param reader the response body
+     * @return the result, or null if the body is empty
+     * @throws IOException if the body can't be read or deserialized
+     */
+    Object deserializeResult(Reader reader) throws IOException {
+        final JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        try {
+            jsonReader.peek();
+        } catch (final EOFException e) {
+            return null;
+        }
+        return returnAdapter.read(jsonReader);
+    }
+
+    private static String joinList(Collection<?> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (final Object object : objects) {
+            if (first) {
+                first = false;
+            } else {
+                sb.append(",");
+            }
+            sb.append(object);
+        }
+        return sb.toString();
+    }
+}
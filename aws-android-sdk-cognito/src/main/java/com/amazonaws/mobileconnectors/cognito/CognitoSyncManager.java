@@ -89,6 +89,9 @@ public class CognitoSyncManager {
     private final CognitoCachingCredentialsProvider provider;
     private final AmazonCognitoSyncClient syncClient;
     private final String identityPoolId;
+    private volatile boolean streamingSyncEnabled;
+    private final SyncScheduler syncScheduler =
+            new SyncScheduler(SyncScheduler.DEFAULT_MAX_PARALLEL_SYNCS);
 
     /**
      * Constructs a CognitoSyncManager object.
@@ -218,10 +221,71 @@ public class CognitoSyncManager {
     public Dataset openOrCreateDataset(String datasetName) {
         DatasetUtils.validateDatasetName(datasetName);
         local.createDataset(getIdentityId(), datasetName);
-        Dataset dataset = new DefaultDataset(context, datasetName, provider, local, remote);
+        DefaultDataset dataset = new DefaultDataset(context, datasetName, provider, local, remote);
+        dataset.setStreamingSync(streamingSyncEnabled);
+        dataset.setSyncScheduler(syncScheduler);
         return dataset;
     }
 
+    /**
+     * Sets whether datasets opened after this call save the remote updates
+     * page by page during synchronization. Each page is saved in its own
+     * transaction once its conflicts are handled, so large datasets aren't
+     * held in memory, and an interrupted synchronization resumes from the
+     * page it stopped at instead of starting over. In this mode
+     * {@link Dataset.SyncCallback#onSuccess(Dataset, List)} only receives the
+     * records of the last page. Disabled by default.
+     *
+     * @param streamingSyncEnabled true to save remote updates page by page
+     */
+    public void setStreamingSyncEnabled(boolean streamingSyncEnabled) {
+        this.streamingSyncEnabled = streamingSyncEnabled;
+    }
+
+    /**
+     * Returns whether datasets save the remote updates page by page during
+     * synchronization.
+     *
+     * @return true if remote updates are saved page by page
+     */
+    public boolean isStreamingSyncEnabled() {
+        return streamingSyncEnabled;
+    }
+
+    /**
+     * Sets how many datasets are synchronized at once. Synchronizations of
+     * other datasets wait for a free thread, datasets with local
+     * modifications first. Calling {@link Dataset#synchronize(Dataset.SyncCallback)}
+     * on a dataset that's waiting to be synchronized doesn't run another
+     * synchronization, the callback is told about the outcome of the waiting
+     * one, whose first callback handles the conflicts. Defaults to 2.
+     *
+     * @param maxParallelSyncs number of datasets synchronized at once, at
+     *            least 1
+     */
+    public void setMaxParallelSyncs(int maxParallelSyncs) {
+        syncScheduler.setMaxParallelSyncs(maxParallelSyncs);
+    }
+
+    /**
+     * Returns how many datasets are synchronized at once.
+     *
+     * @return number of datasets synchronized at once
+     */
+    public int getMaxParallelSyncs() {
+        return syncScheduler.getMaxParallelSyncs();
+    }
+
+    /**
+     * Sets a listener receiving the timing of each synchronization of the
+     * datasets of this manager.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setSyncMetricsListener(SyncMetrics.Listener listener) {
+        syncScheduler.setMetricsListener(listener);
+    }
+
     /**
      * Retrieves a list of datasets from local storage. It may not reflects
      * latest dataset on the remote storage until refreshDatasetMetadata is
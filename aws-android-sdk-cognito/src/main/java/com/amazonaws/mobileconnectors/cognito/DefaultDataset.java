@@ -32,6 +32,8 @@ import com.amazonaws.mobileconnectors.cognito.exceptions.DatasetNotFoundExceptio
 import com.amazonaws.mobileconnectors.cognito.exceptions.NetworkException;
 import com.amazonaws.mobileconnectors.cognito.internal.storage.CognitoSyncStorage;
 import com.amazonaws.mobileconnectors.cognito.internal.storage.LocalStorage;
+import com.amazonaws.mobileconnectors.cognito.internal.storage.PagedRemoteDataStorage;
+import com.amazonaws.mobileconnectors.cognito.internal.storage.PagedRemoteDataStorage.DatasetUpdatesPage;
 import com.amazonaws.mobileconnectors.cognito.internal.storage.RemoteDataStorage;
 import com.amazonaws.mobileconnectors.cognito.internal.storage.RemoteDataStorage.DatasetUpdates;
 import com.amazonaws.mobileconnectors.cognito.internal.storage.SQLiteLocalStorage;
@@ -45,6 +47,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
@@ -86,6 +89,29 @@ class DefaultDataset implements Dataset {
      */
     private final CognitoCachingCredentialsProvider provider;
 
+    /**
+     * Whether remote updates are saved page by page
+     */
+    private volatile boolean streamingSync;
+
+    /**
+     * Runs the synchronizations, or null to run each on its own thread.
+     */
+    private volatile SyncScheduler syncScheduler;
+
+    /**
+     * Counts the local modifications made through this dataset. It starts
+     * ahead of syncedModifications, as records modified before the dataset
+     * was opened may not have been synchronized.
+     */
+    private final AtomicLong modifications = new AtomicLong(1);
+
+    /**
+     * Value of modifications when the last successful synchronization
+     * started.
+     */
+    private volatile long syncedModifications;
+
     /**
      * Constructs a DefaultDataset object
      * 
@@ -105,16 +131,46 @@ class DefaultDataset implements Dataset {
         this.remote = remote;
     }
 
+    /**
+     * Sets whether remote updates are saved page by page during
+     * synchronization, see
+     * {@link CognitoSyncManager#setStreamingSyncEnabled(boolean)}.
+     *
+     * @param streamingSync true to save remote updates page by page
+     */
+    void setStreamingSync(boolean streamingSync) {
+        this.streamingSync = streamingSync;
+    }
+
+    /**
+     * Sets the scheduler running the synchronizations of this dataset.
+     *
+     * @param syncScheduler the scheduler, or null to run each
+     *            synchronization on its own thread
+     */
+    void setSyncScheduler(SyncScheduler syncScheduler) {
+        this.syncScheduler = syncScheduler;
+    }
+
+    /**
+     * @return name of this dataset
+     */
+    String getDatasetName() {
+        return datasetName;
+    }
+
     @Override
     public void put(String key, String value) {
         local.putValue(getIdentityId(), datasetName,
                 DatasetUtils.validateRecordKey(key), value);
+        modifications.incrementAndGet();
     }
 
     @Override
     public void remove(String key) {
         local.putValue(getIdentityId(), datasetName,
                 DatasetUtils.validateRecordKey(key), null);
+        modifications.incrementAndGet();
     }
 
     @Override
@@ -136,33 +192,52 @@ class DefaultDataset implements Dataset {
 
         discardPendingSyncRequest();
 
+        final SyncScheduler scheduler = syncScheduler;
+        if (scheduler != null) {
+            scheduler.schedule(this, callback);
+            return;
+        }
+
         new Thread(new Runnable() {
             @Override
             public void run() {
-                LOGGER.debug("start to synchronize " + datasetName);
+                runSynchronize(callback);
+            }
+        }).start();
+    }
 
-                boolean result = false;
-                try {
-                    List<String> mergedDatasets = getLocalMergedDatasets();
-                    boolean doSync = true;
-                    if (!mergedDatasets.isEmpty()) {
-                        LOGGER.info("detected merge datasets " + datasetName);
-                        doSync = callback.onDatasetsMerged(DefaultDataset.this, mergedDatasets);
-                    }
-                    if (doSync) {
-                        result = synchronizeInternal(callback, MAX_RETRY);
-                    }
-                } catch (Exception e) {
-                    callback.onFailure(new DataStorageException("Unknown exception", e));
-                }
+    /**
+     * Synchronizes the dataset on the calling thread.
+     *
+     * @param callback callback of the synchronization
+     * @return true if the synchronization succeeded
+     */
+    boolean runSynchronize(SyncCallback callback) {
+        LOGGER.debug("start to synchronize " + datasetName);
 
-                if (result) {
-                    LOGGER.debug("successfully synchronize " + datasetName);
-                } else {
-                    LOGGER.debug("failed to synchronize " + datasetName);
-                }
+        final long startModifications = modifications.get();
+        boolean result = false;
+        try {
+            List<String> mergedDatasets = getLocalMergedDatasets();
+            boolean doSync = true;
+            if (!mergedDatasets.isEmpty()) {
+                LOGGER.info("detected merge datasets " + datasetName);
+                doSync = callback.onDatasetsMerged(DefaultDataset.this, mergedDatasets);
             }
-        }).start();
+            if (doSync) {
+                result = synchronizeInternal(callback, MAX_RETRY);
+            }
+        } catch (Exception e) {
+            callback.onFailure(new DataStorageException("Unknown exception", e));
+        }
+
+        if (result) {
+            syncedModifications = startModifications;
+            LOGGER.debug("successfully synchronize " + datasetName);
+        } else {
+            LOGGER.debug("failed to synchronize " + datasetName);
+        }
+        return result;
     }
 
     /**
@@ -250,40 +325,8 @@ class DefaultDataset implements Dataset {
         List<Record> remoteRecords = datasetUpdates.getRecords();
 
         if (!remoteRecords.isEmpty()) {
-
-            // if conflict, prompt developer/user with callback
-            List<SyncConflict> conflicts = new ArrayList<SyncConflict>();
-            Iterator<Record> iter = remoteRecords.iterator();
-            while (iter.hasNext()) {
-                Record remoteRecord = iter.next();
-                Record localRecord = local.getRecord(getIdentityId(),
-                        datasetName,
-                        remoteRecord.getKey());
-                // only when local is changed and its value is different
-                if (localRecord != null && localRecord.isModified()
-                        && localRecord.getSyncCount() != remoteRecord.getSyncCount()
-                        && !StringUtils.equals(localRecord.getValue(), remoteRecord.getValue())) {
-                    conflicts.add(new SyncConflict(remoteRecord, localRecord));
-                    // remove it from remote changes, it has been marked as a
-                    // conflict
-                    // and will be updated by conflict resolution
-                    iter.remove();
-                }
-            }
-            if (!conflicts.isEmpty()) {
-                LOGGER.info(String.format("%d records in conflict!", conflicts.size()));
-                if (!callback.onConflict(DefaultDataset.this, conflicts)) {
-                    // if they didn't want to continue on resolving conflicts
-                    // return
-                    return false;
-                }
-            }
-
-            // if there are non-conflicting records from the remote, update them
-            // in local
-            if (!remoteRecords.isEmpty()) {
-                LOGGER.info(String.format("save %d records to local", remoteRecords.size()));
-                local.putRecords(getIdentityId(), datasetName, remoteRecords);
+            if (!saveRemoteRecords(callback, remoteRecords)) {
+                return false;
             }
             // new last sync count
             LOGGER.info(String.format("updated sync count %d", datasetUpdates.getSyncCount()));
@@ -294,6 +337,53 @@ class DefaultDataset implements Dataset {
         return true;
     }
 
+    /**
+     * Handles conflicts of remote records, and updates the local store with
+     * the non-conflicting ones
+     *
+     * @param callback
+     * @param remoteRecords remote records, the conflicting ones are removed
+     * @return True, unless the developer does not want to continue syncing upon
+     *         a sync conflict
+     */
+    boolean saveRemoteRecords(final SyncCallback callback, final List<Record> remoteRecords) {
+        // if conflict, prompt developer/user with callback
+        List<SyncConflict> conflicts = new ArrayList<SyncConflict>();
+        Iterator<Record> iter = remoteRecords.iterator();
+        while (iter.hasNext()) {
+            Record remoteRecord = iter.next();
+            Record localRecord = local.getRecord(getIdentityId(),
+                    datasetName,
+                    remoteRecord.getKey());
+            // only when local is changed and its value is different
+            if (localRecord != null && localRecord.isModified()
+                    && localRecord.getSyncCount() != remoteRecord.getSyncCount()
+                    && !StringUtils.equals(localRecord.getValue(), remoteRecord.getValue())) {
+                conflicts.add(new SyncConflict(remoteRecord, localRecord));
+                // remove it from remote changes, it has been marked as a
+                // conflict
+                // and will be updated by conflict resolution
+                iter.remove();
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            LOGGER.info(String.format("%d records in conflict!", conflicts.size()));
+            if (!callback.onConflict(DefaultDataset.this, conflicts)) {
+                // if they didn't want to continue on resolving conflicts
+                // return
+                return false;
+            }
+        }
+
+        // if there are non-conflicting records from the remote, update them
+        // in local
+        if (!remoteRecords.isEmpty()) {
+            LOGGER.info(String.format("save %d records to local", remoteRecords.size()));
+            local.putRecords(getIdentityId(), datasetName, remoteRecords);
+        }
+        return true;
+    }
+
     /**
      * Handles local modifications by: A. Pushing local changes to remote B.
      * Putting the result of the remote push to the local store C. Updating the
@@ -386,6 +476,10 @@ class DefaultDataset implements Dataset {
             return deleteLocalAndPurgeRemoteDataset(callback);
         }
 
+        if (streamingSync && remote instanceof PagedRemoteDataStorage) {
+            return synchronizeStreaming(callback, lastSyncCount, retry);
+        }
+
         // get latest modified records from remote
         LOGGER.debug("get latest modified records since " + lastSyncCount);
         DatasetUpdates datasetUpdates = null;
@@ -413,6 +507,113 @@ class DefaultDataset implements Dataset {
         return handleLocalModifications(callback, datasetUpdates, retry);
     }
 
+    /**
+     * Synchronizes with the remote updates saved page by page. Each page is
+     * saved in its own transaction, after its conflicts are handled, and the
+     * token of the next page is kept so an interrupted synchronization resumes
+     * from there. The last sync count is only updated once all the pages are
+     * saved.
+     *
+     * @param callback callback during synchronization
+     * @param lastSyncCount the local last sync count
+     * @param retry number of retries before it's considered failure
+     * @return true if synchronize successfully, false otherwise
+     */
+    private boolean synchronizeStreaming(final SyncCallback callback, long lastSyncCount,
+            int retry) {
+        PagedRemoteDataStorage pagedRemote = (PagedRemoteDataStorage) remote;
+        String nextToken = getSyncCheckpoint(lastSyncCount);
+        if (nextToken != null) {
+            LOGGER.debug("resume getting modified records since " + lastSyncCount);
+        } else {
+            LOGGER.debug("get latest modified records since " + lastSyncCount);
+        }
+        boolean hasRecords = false;
+        DatasetUpdatesPage page;
+        while (true) {
+            try {
+                page = pagedRemote.listUpdatesPage(datasetName, lastSyncCount, nextToken);
+            } catch (DataStorageException e) {
+                if (nextToken != null && !(e instanceof NetworkException)) {
+                    // the checkpoint may be too old, start over
+                    LOGGER.info("failed to resume synchronization, starting over");
+                    clearSyncCheckpoint();
+                    nextToken = null;
+                    continue;
+                }
+                callback.onFailure(e);
+                return false;
+            }
+
+            if (!page.getMergedDatasetNameList().isEmpty()) {
+                clearSyncCheckpoint();
+                return handleDatasetMerge(callback, page, retry);
+            }
+
+            // if the dataset doesn't exist or is deleted, trigger onDelete
+            if (lastSyncCount != 0 && !page.isExists() || page.isDeleted()) {
+                clearSyncCheckpoint();
+                return removeLocalDataset(callback, page);
+            }
+
+            if (!page.getRecords().isEmpty()) {
+                hasRecords = true;
+                if (!saveRemoteRecords(callback, page.getRecords())) {
+                    // resumes from this page next time
+                    return false;
+                }
+            }
+
+            nextToken = page.getNextToken();
+            if (nextToken == null) {
+                break;
+            }
+            saveSyncCheckpoint(lastSyncCount, nextToken);
+        }
+
+        if (hasRecords) {
+            // new last sync count
+            LOGGER.info(String.format("updated sync count %d", page.getSyncCount()));
+            local.updateLastSyncCount(getIdentityId(), datasetName, page.getSyncCount());
+        }
+        clearSyncCheckpoint();
+
+        return handleLocalModifications(callback, page, retry);
+    }
+
+    /**
+     * Gets the token of the next page of an interrupted synchronization.
+     *
+     * @param lastSyncCount the local last sync count
+     * @return the token, or null if the synchronization since lastSyncCount
+     *         wasn't interrupted
+     */
+    String getSyncCheckpoint(long lastSyncCount) {
+        SharedPreferences sp = getSharedPreferences();
+        if (sp.getLong(namespaceId(datasetName + ".checkpointSyncCount"), -1) != lastSyncCount) {
+            return null;
+        }
+        return sp.getString(namespaceId(datasetName + ".checkpointNextToken"), null);
+    }
+
+    void saveSyncCheckpoint(long lastSyncCount, String nextToken) {
+        getSharedPreferences().edit()
+                .putLong(namespaceId(datasetName + ".checkpointSyncCount"), lastSyncCount)
+                .putString(namespaceId(datasetName + ".checkpointNextToken"), nextToken)
+                .apply();
+    }
+
+    void clearSyncCheckpoint() {
+        SharedPreferences sp = getSharedPreferences();
+        String countKey = namespaceId(datasetName + ".checkpointSyncCount");
+        if (sp.contains(countKey)) {
+            sp.edit()
+                    .remove(countKey)
+                    .remove(namespaceId(datasetName + ".checkpointNextToken"))
+                    .apply();
+        }
+    }
+
     @Override
     public List<Record> getAllRecords() {
         return local.getRecords(getIdentityId(), datasetName);
@@ -443,6 +644,7 @@ class DefaultDataset implements Dataset {
     @Override
     public void delete() {
         local.deleteDataset(getIdentityId(), datasetName);
+        modifications.incrementAndGet();
     }
 
     @Override
@@ -453,6 +655,7 @@ class DefaultDataset implements Dataset {
     @Override
     public void resolve(List<Record> remoteRecords) {
         local.putRecords(getIdentityId(), datasetName, remoteRecords);
+        modifications.incrementAndGet();
     }
 
     @Override
@@ -461,6 +664,7 @@ class DefaultDataset implements Dataset {
             DatasetUtils.validateRecordKey(key);
         }
         local.putAllValues(getIdentityId(), datasetName, values);
+        modifications.incrementAndGet();
     }
 
     @Override
@@ -478,6 +682,17 @@ class DefaultDataset implements Dataset {
         return DatasetUtils.getIdentityId(provider);
     }
 
+    /**
+     * Whether the dataset may have local modifications to push, without
+     * querying the local storage. It's true until a synchronization succeeds,
+     * and again once the dataset is modified.
+     *
+     * @return true if the dataset may have local modifications
+     */
+    boolean hasLocalModifications() {
+        return modifications.get() != syncedModifications;
+    }
+
     /**
      * Gets a list of records that have been modified (marking as deleted
      * included).
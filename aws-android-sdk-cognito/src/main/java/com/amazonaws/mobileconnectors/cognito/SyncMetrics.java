@@ -0,0 +1,109 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+/**
+ * Timing of a synchronization run by {@link CognitoSyncManager}, see
+ * {@link CognitoSyncManager#setSyncMetricsListener(SyncMetrics.Listener)}.
+ * @deprecated The Amazon Cognito Sync SDK for Android is deprecated as of release 2.9.0. Please use the AWS AppSync SDK for Android along with AWS AppSync service instead.
+ */
+@Deprecated
+public class SyncMetrics {
+
+    /**
+     * Receives the metrics of each synchronization once it's done.
+     */
+    public interface Listener {
+        /**
+         * Called on the synchronization thread once a synchronization is
+         * done, after its callbacks.
+         *
+         * @param metrics metrics of the synchronization
+         */
+        void onSyncCompleted(SyncMetrics metrics);
+    }
+
+    private final String datasetName;
+    private final long queueTimeMillis;
+    private final long syncTimeMillis;
+    private final int requestCount;
+    private final boolean localModifications;
+    private final boolean successful;
+
+    SyncMetrics(String datasetName, long queueTimeMillis, long syncTimeMillis,
+            int requestCount, boolean localModifications, boolean successful) {
+        this.datasetName = datasetName;
+        this.queueTimeMillis = queueTimeMillis;
+        this.syncTimeMillis = syncTimeMillis;
+        this.requestCount = requestCount;
+        this.localModifications = localModifications;
+        this.successful = successful;
+    }
+
+    /**
+     * @return name of the synchronized dataset
+     */
+    public String getDatasetName() {
+        return datasetName;
+    }
+
+    /**
+     * @return time in milliseconds between the first request and the start
+     *         of the synchronization
+     */
+    public long getQueueTimeMillis() {
+        return queueTimeMillis;
+    }
+
+    /**
+     * @return time in milliseconds the synchronization took
+     */
+    public long getSyncTimeMillis() {
+        return syncTimeMillis;
+    }
+
+    /**
+     * @return number of {@link Dataset#synchronize(Dataset.SyncCallback)}
+     *         calls served by this synchronization
+     */
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return whether the dataset had local modifications when the
+     *         synchronization was requested
+     */
+    public boolean hadLocalModifications() {
+        return localModifications;
+    }
+
+    /**
+     * @return whether the synchronization succeeded
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncMetrics [datasetName=" + datasetName + ", queueTimeMillis=" + queueTimeMillis
+                + ", syncTimeMillis=" + syncTimeMillis + ", requestCount=" + requestCount
+                + ", localModifications=" + localModifications + ", successful=" + successful + "]";
+    }
+}
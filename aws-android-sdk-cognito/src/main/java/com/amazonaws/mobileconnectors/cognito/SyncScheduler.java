@@ -0,0 +1,237 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.mobileconnectors.cognito.Dataset.SyncCallback;
+import com.amazonaws.mobileconnectors.cognito.exceptions.DataStorageException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the synchronizations of the datasets of a {@link CognitoSyncManager}
+ * on a bounded number of threads, so they don't all contend on the local
+ * storage at once. Requests for a dataset that's waiting to be synchronized
+ * join the waiting synchronization instead of running another one, and
+ * datasets with local modifications are synchronized first.
+ */
+class SyncScheduler {
+
+    private static final Log LOGGER = LogFactory.getLog(SyncScheduler.class);
+
+    /**
+     * Default number of datasets synchronized at once.
+     */
+    static final int DEFAULT_MAX_PARALLEL_SYNCS = 2;
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final ThreadPoolExecutor executor;
+    /** Synchronizations that haven't started yet, by dataset name. */
+    private final Map<String, SyncTask> pending = new HashMap<String, SyncTask>();
+    private long sequence;
+    private volatile SyncMetrics.Listener metricsListener;
+
+    SyncScheduler(int maxParallelSyncs) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxParallelSyncs, maxParallelSyncs,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "CognitoSync-" + threadCount.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the number of datasets synchronized at once.
+     *
+     * @param maxParallelSyncs number of threads, at least 1
+     */
+    synchronized void setMaxParallelSyncs(int maxParallelSyncs) {
+        if (maxParallelSyncs < 1) {
+            throw new IllegalArgumentException("maxParallelSyncs must be at least 1");
+        }
+        if (maxParallelSyncs > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(maxParallelSyncs);
+            executor.setCorePoolSize(maxParallelSyncs);
+        } else {
+            executor.setCorePoolSize(maxParallelSyncs);
+            executor.setMaximumPoolSize(maxParallelSyncs);
+        }
+    }
+
+    /**
+     * @return number of datasets synchronized at once
+     */
+    int getMaxParallelSyncs() {
+        return executor.getMaximumPoolSize();
+    }
+
+    void setMetricsListener(SyncMetrics.Listener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Schedules the synchronization of a dataset. If the dataset is already
+     * waiting to be synchronized, the callback joins that synchronization.
+     *
+     * @param dataset dataset to synchronize
+     * @param callback callback of the synchronization
+     */
+    void schedule(DefaultDataset dataset, SyncCallback callback) {
+        // tracked in memory, the local storage isn't queried on the calling thread
+        final boolean modified = dataset.hasLocalModifications();
+        synchronized (this) {
+            final SyncTask waiting = pending.get(dataset.getDatasetName());
+            if (waiting != null) {
+                waiting.callbacks.add(callback);
+                if (modified && !waiting.modified && executor.remove(waiting)) {
+                    // re-queued to be ordered by its new priority
+                    waiting.modified = true;
+                    executor.execute(waiting);
+                }
+                LOGGER.debug("joined pending synchronization of " + dataset.getDatasetName());
+                return;
+            }
+            final SyncTask task = new SyncTask(dataset, callback, modified, sequence++);
+            pending.put(dataset.getDatasetName(), task);
+            executor.execute(task);
+        }
+    }
+
+    private synchronized List<SyncCallback> start(SyncTask task) {
+        task.started = true;
+        if (pending.get(task.dataset.getDatasetName()) == task) {
+            pending.remove(task.dataset.getDatasetName());
+        }
+        return new ArrayList<SyncCallback>(task.callbacks);
+    }
+
+    /**
+     * A synchronization of a dataset, ordered by whether the dataset has
+     * local modifications, then by the time it was requested.
+     */
+    private class SyncTask implements Runnable, Comparable<SyncTask> {
+        private final DefaultDataset dataset;
+        /** Guarded by the scheduler. */
+        private final List<SyncCallback> callbacks = new ArrayList<SyncCallback>();
+        private final long sequence;
+        private final long queuedAt;
+        /** Guarded by the scheduler. */
+        private boolean modified;
+        /** Guarded by the scheduler. */
+        private boolean started;
+
+        SyncTask(DefaultDataset dataset, SyncCallback callback, boolean modified, long sequence) {
+            this.dataset = dataset;
+            this.callbacks.add(callback);
+            this.modified = modified;
+            this.sequence = sequence;
+            this.queuedAt = System.nanoTime();
+        }
+
+        @Override
+        public int compareTo(SyncTask other) {
+            if (modified != other.modified) {
+                return modified ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+
+        @Override
+        public void run() {
+            final List<SyncCallback> joined = start(this);
+            final boolean hadModifications;
+            synchronized (SyncScheduler.this) {
+                hadModifications = modified;
+            }
+            final long startedAt = System.nanoTime();
+            final boolean result = dataset.runSynchronize(joined.size() == 1 ? joined.get(0)
+                    : new JoinedSyncCallback(joined));
+            final long finishedAt = System.nanoTime();
+
+            final SyncMetrics metrics = new SyncMetrics(dataset.getDatasetName(),
+                    TimeUnit.NANOSECONDS.toMillis(startedAt - queuedAt),
+                    TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt),
+                    joined.size(), hadModifications, result);
+            LOGGER.debug(metrics.toString());
+            final SyncMetrics.Listener listener = metricsListener;
+            if (listener != null) {
+                try {
+                    listener.onSyncCompleted(metrics);
+                } catch (final RuntimeException e) {
+                    LOGGER.error("sync metrics listener failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Callback of a synchronization requested several times. The first
+     * callback decides how conflicts, deletions and merges are handled, all
+     * callbacks are told about the outcome.
+     */
+    private static class JoinedSyncCallback implements SyncCallback {
+        private final List<SyncCallback> callbacks;
+
+        JoinedSyncCallback(List<SyncCallback> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onSuccess(Dataset dataset, List<Record> updatedRecords) {
+            for (final SyncCallback callback : callbacks) {
+                callback.onSuccess(dataset, updatedRecords);
+            }
+        }
+
+        @Override
+        public boolean onConflict(Dataset dataset, List<SyncConflict> conflicts) {
+            return callbacks.get(0).onConflict(dataset, conflicts);
+        }
+
+        @Override
+        public boolean onDatasetDeleted(Dataset dataset, String datasetName) {
+            return callbacks.get(0).onDatasetDeleted(dataset, datasetName);
+        }
+
+        @Override
+        public boolean onDatasetsMerged(Dataset dataset, List<String> datasetNames) {
+            return callbacks.get(0).onDatasetsMerged(dataset, datasetNames);
+        }
+
+        @Override
+        public void onFailure(DataStorageException dse) {
+            for (final SyncCallback callback : callbacks) {
+                callback.onFailure(dse);
+            }
+        }
+    }
+}
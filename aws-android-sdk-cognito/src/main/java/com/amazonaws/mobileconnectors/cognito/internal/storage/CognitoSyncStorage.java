@@ -64,7 +64,7 @@ import java.util.List;
  * @deprecated The Amazon Cognito Sync SDK for Android is deprecated as of release 2.9.0. Please use the AWS AppSync SDK for Android along with AWS AppSync service instead.
  */
 @Deprecated
-public class CognitoSyncStorage implements RemoteDataStorage {
+public class CognitoSyncStorage implements PagedRemoteDataStorage {
 
     private static final String TAG = "CognitoSyncStorage";
 
@@ -138,29 +138,8 @@ public class CognitoSyncStorage implements RemoteDataStorage {
 
         String nextToken = null;
         do {
-            ListRecordsRequest request = new ListRecordsRequest();
-            appendUserAgent(request, userAgent);
-            request.setIdentityPoolId(identityPoolId);
-            request.setDatasetName(datasetName);
-            request.setLastSyncCount(lastSyncCount);
-            // mark it large enough to reduce # of requests
-            request.setMaxResults(1024);
-            request.setNextToken(nextToken);
-            ListRecordsResult result = null;
-            try {
-                request.setIdentityId(getIdentityId());
-                result = client.listRecords(request);
-            } catch (AmazonClientException ace) {
-                throw handleException(ace, "Failed to list records in dataset: " + datasetName);
-            }
-            for (com.amazonaws.services.cognitosync.model.Record remoteRecord : result.getRecords()) {
-                builder.addRecord(modelToRecord(remoteRecord));
-            }
-            builder.syncSessionToken(result.getSyncSessionToken())
-                    .syncCount(result.getDatasetSyncCount())
-                    .exists(result.isDatasetExists())
-                    .deleted(result.isDatasetDeletedAfterRequestedSyncCount())
-                    .mergedDatasetNameList(result.getMergedDatasetNames());
+            ListRecordsResult result = listRecords(datasetName, lastSyncCount, nextToken);
+            addPage(builder, result);
 
             // update last evaluated key
             nextToken = result.getNextToken();
@@ -169,6 +148,44 @@ public class CognitoSyncStorage implements RemoteDataStorage {
         return builder.build();
     }
 
+    @Override
+    public DatasetUpdatesPage listUpdatesPage(String datasetName, long lastSyncCount,
+            String nextToken) {
+        DatasetUpdatesImpl.Builder builder = new DatasetUpdatesImpl.Builder(datasetName);
+        ListRecordsResult result = listRecords(datasetName, lastSyncCount, nextToken);
+        addPage(builder, result);
+        return builder.nextToken(result.getNextToken()).build();
+    }
+
+    private ListRecordsResult listRecords(String datasetName, long lastSyncCount,
+            String nextToken) {
+        ListRecordsRequest request = new ListRecordsRequest();
+        appendUserAgent(request, userAgent);
+        request.setIdentityPoolId(identityPoolId);
+        request.setDatasetName(datasetName);
+        request.setLastSyncCount(lastSyncCount);
+        // mark it large enough to reduce # of requests
+        request.setMaxResults(1024);
+        request.setNextToken(nextToken);
+        try {
+            request.setIdentityId(getIdentityId());
+            return client.listRecords(request);
+        } catch (AmazonClientException ace) {
+            throw handleException(ace, "Failed to list records in dataset: " + datasetName);
+        }
+    }
+
+    private void addPage(DatasetUpdatesImpl.Builder builder, ListRecordsResult result) {
+        for (com.amazonaws.services.cognitosync.model.Record remoteRecord : result.getRecords()) {
+            builder.addRecord(modelToRecord(remoteRecord));
+        }
+        builder.syncSessionToken(result.getSyncSessionToken())
+                .syncCount(result.getDatasetSyncCount())
+                .exists(result.isDatasetExists())
+                .deleted(result.isDatasetDeletedAfterRequestedSyncCount())
+                .mergedDatasetNameList(result.getMergedDatasetNames());
+    }
+
     /*
      * (non-Javadoc)
      * @see com.amazonaws.cognitov2.RemoteStorage#saveRecords(java.lang.String,
@@ -374,7 +391,7 @@ public class CognitoSyncStorage implements RemoteDataStorage {
                 .build();
     }
 
-    static class DatasetUpdatesImpl implements DatasetUpdates {
+    static class DatasetUpdatesImpl implements DatasetUpdatesPage {
         private final String datasetName;
         private final List<Record> records;
         private final long syncCount;
@@ -382,6 +399,7 @@ public class CognitoSyncStorage implements RemoteDataStorage {
         private final boolean exists;
         private final boolean deleted;
         private final List<String> mergedDatasetNameList;
+        private final String nextToken;
 
         @Override
         public String getDatasetName() {
@@ -418,6 +436,11 @@ public class CognitoSyncStorage implements RemoteDataStorage {
             return mergedDatasetNameList;
         }
 
+        @Override
+        public String getNextToken() {
+            return nextToken;
+        }
+
         private DatasetUpdatesImpl(Builder builder) {
             this.datasetName = builder.datasetName;
             this.records = builder.records;
@@ -426,6 +449,7 @@ public class CognitoSyncStorage implements RemoteDataStorage {
             this.exists = builder.exists;
             this.deleted = builder.deleted;
             this.mergedDatasetNameList = builder.mergedDatasetNameList;
+            this.nextToken = builder.nextToken;
         }
 
         static class Builder {
@@ -436,6 +460,7 @@ public class CognitoSyncStorage implements RemoteDataStorage {
             private boolean exists = true;
             private boolean deleted = false;
             private final List<String> mergedDatasetNameList = new ArrayList<String>();
+            private String nextToken;
 
             Builder(String datasetName) {
                 this.datasetName = datasetName;
@@ -473,7 +498,12 @@ public class CognitoSyncStorage implements RemoteDataStorage {
                 return this;
             }
 
-            DatasetUpdates build() {
+            Builder nextToken(String nextToken) {
+                this.nextToken = nextToken;
+                return this;
+            }
+
+            DatasetUpdatesImpl build() {
                 return new DatasetUpdatesImpl(this);
             }
         }
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2019 Amazon.com, 
+ * Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Amazon Software License (the "License"). 
+ * You may not use this file except in compliance with the 
+ * License. A copy of the License is located at
+ * 
+ *     http://aws.amazon.com/asl/
+ * 
+ * or in the "license" file accompanying this file. This file is 
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, express or implied. See the License 
+ * for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito.internal.storage;
+
+import com.amazonaws.mobileconnectors.cognito.exceptions.DataStorageException;
+
+/**
+ * A {@link RemoteDataStorage} that lists the updates of a dataset one page at
+ * a time, so they can be saved as they arrive instead of all at once.
+ */
+@Deprecated
+public interface PagedRemoteDataStorage extends RemoteDataStorage {
+
+    /**
+     * Gets a page of the records which have been updated since lastSyncCount
+     * (inclusive). The pages of the same lastSyncCount add up to
+     * {@link #listUpdates(String, long)}.
+     *
+     * @param datasetName the dataset name
+     * @param lastSyncCount non negative long integer
+     * @param nextToken the token of the page from
+     *            {@link DatasetUpdatesPage#getNextToken()}, or null for the
+     *            first page
+     * @return A page of the records which have been updated since
+     *         lastSyncCount.
+     */
+    public DatasetUpdatesPage listUpdatesPage(String datasetName, long lastSyncCount,
+            String nextToken) throws DataStorageException;
+
+    public interface DatasetUpdatesPage extends DatasetUpdates {
+
+        /**
+         * Gets the token of the next page
+         *
+         * @return the token, or null if this is the last page
+         */
+        public String getNextToken();
+    }
+}
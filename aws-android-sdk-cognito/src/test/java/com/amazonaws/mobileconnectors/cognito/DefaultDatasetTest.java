@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.auth.CognitoCachingCredentialsProvider;
+import com.amazonaws.mobileconnectors.cognito.Dataset.SyncCallback;
+import com.amazonaws.mobileconnectors.cognito.exceptions.DataStorageException;
+import com.amazonaws.mobileconnectors.cognito.exceptions.NetworkException;
+import com.amazonaws.mobileconnectors.cognito.internal.storage.LocalStorage;
+import com.amazonaws.mobileconnectors.cognito.internal.storage.PagedRemoteDataStorage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 16, reportSdk = 16)
+public class DefaultDatasetTest {
+
+    private static final String IDENTITY_ID = "us-east-1:identity";
+    private static final String DATASET_NAME = "dataset";
+    private static final long SYNC_COUNT = 7;
+
+    private LocalStorage local;
+    private FakePagedRemoteStorage remote;
+    private SyncCallback callback;
+    private DefaultDataset dataset;
+
+    @Before
+    public void setUp() {
+        final CognitoCachingCredentialsProvider provider =
+                mock(CognitoCachingCredentialsProvider.class);
+        when(provider.getCachedIdentityId()).thenReturn(IDENTITY_ID);
+        when(provider.getIdentityId()).thenReturn(IDENTITY_ID);
+
+        // a dataset synchronized before, without local modifications
+        local = mock(LocalStorage.class);
+        when(local.getLastSyncCount(IDENTITY_ID, DATASET_NAME)).thenReturn(1L);
+        when(local.getDatasets(IDENTITY_ID)).thenReturn(Collections.<DatasetMetadata>emptyList());
+        when(local.getModifiedRecords(IDENTITY_ID, DATASET_NAME))
+                .thenReturn(Collections.<Record>emptyList());
+
+        remote = new FakePagedRemoteStorage(
+                Arrays.asList(record("a"), record("b")),
+                Arrays.asList(record("c"), record("d")),
+                Arrays.asList(record("e")));
+        callback = mock(SyncCallback.class);
+
+        dataset = new DefaultDataset(Robolectric.application, DATASET_NAME, provider,
+                local, remote);
+        dataset.setStreamingSync(true);
+    }
+
+    @Test
+    public void testStreamingSyncSavesEachPage() {
+        assertTrue(dataset.runSynchronize(callback));
+
+        final InOrder inOrder = inOrder(local);
+        inOrder.verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(0));
+        inOrder.verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(1));
+        inOrder.verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(2));
+        inOrder.verify(local).updateLastSyncCount(IDENTITY_ID, DATASET_NAME, SYNC_COUNT);
+        assertEquals(Arrays.asList(null, "1", "2"), remote.requestedTokens);
+        verify(callback).onSuccess(dataset, remote.pages.get(2));
+        assertNull(dataset.getSyncCheckpoint(1));
+    }
+
+    @Test
+    public void testInterruptedStreamingSyncResumes() {
+        remote.failingTokens.add("2");
+        assertFalse(dataset.runSynchronize(callback));
+
+        // the saved pages stay, but the sync count waits for the last page
+        verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(0));
+        verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(1));
+        verify(local, never()).updateLastSyncCount(anyString(), anyString(), anyLong());
+        verify(callback).onFailure(any(NetworkException.class));
+        assertEquals("2", dataset.getSyncCheckpoint(1));
+
+        remote.requestedTokens.clear();
+        assertTrue(dataset.runSynchronize(callback));
+        assertEquals(Arrays.asList("2"), remote.requestedTokens);
+        verify(local).putRecords(IDENTITY_ID, DATASET_NAME, remote.pages.get(2));
+        verify(local).updateLastSyncCount(IDENTITY_ID, DATASET_NAME, SYNC_COUNT);
+        verify(callback).onSuccess(dataset, remote.pages.get(2));
+        assertNull(dataset.getSyncCheckpoint(1));
+    }
+
+    @Test
+    public void testRejectedCheckpointStartsOver() {
+        dataset.saveSyncCheckpoint(1, "expired");
+        assertTrue(dataset.runSynchronize(callback));
+
+        assertEquals(Arrays.asList("expired", null, "1", "2"), remote.requestedTokens);
+        verify(local).updateLastSyncCount(IDENTITY_ID, DATASET_NAME, SYNC_COUNT);
+        verify(callback, never()).onFailure(any(DataStorageException.class));
+        assertNull(dataset.getSyncCheckpoint(1));
+    }
+
+    @Test
+    public void testCheckpointOfAnotherSyncCountIsIgnored() {
+        dataset.saveSyncCheckpoint(0, "2");
+        assertTrue(dataset.runSynchronize(callback));
+
+        assertEquals(Arrays.asList(null, "1", "2"), remote.requestedTokens);
+        verify(local, times(3)).putRecords(eq(IDENTITY_ID), eq(DATASET_NAME),
+                anyListOf(Record.class));
+    }
+
+    private static Record record(String key) {
+        return new Record.Builder(key).value(key).syncCount(SYNC_COUNT).build();
+    }
+
+    /**
+     * Remote storage listing the updates of the dataset in pages whose tokens
+     * are their indexes. Requests for the tokens in failingTokens fail once
+     * with a {@link NetworkException}, and unknown tokens are rejected.
+     */
+    private static final class FakePagedRemoteStorage implements PagedRemoteDataStorage {
+        final List<List<Record>> pages;
+        final List<String> requestedTokens = new ArrayList<String>();
+        final Set<String> failingTokens = new HashSet<String>();
+
+        FakePagedRemoteStorage(List<Record>... pages) {
+            this.pages = Arrays.asList(pages);
+        }
+
+        @Override
+        public DatasetUpdatesPage listUpdatesPage(String datasetName, long lastSyncCount,
+                String nextToken) {
+            requestedTokens.add(nextToken);
+            if (failingTokens.remove(nextToken)) {
+                throw new NetworkException("Network connectivity unavailable.");
+            }
+            final int index;
+            try {
+                index = nextToken == null ? 0 : Integer.parseInt(nextToken);
+            } catch (final NumberFormatException e) {
+                throw new DataStorageException("Invalid next token");
+            }
+            final String pageToken = index + 1 < pages.size() ? String.valueOf(index + 1) : null;
+            return new Page(datasetName, new ArrayList<Record>(pages.get(index)), pageToken);
+        }
+
+        @Override
+        public DatasetUpdates listUpdates(String datasetName, long lastSyncCount) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DatasetMetadata> getDatasets() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DatasetMetadata getDatasetMetadata(String datasetName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Record> putRecords(String datasetName, List<Record> records,
+                String syncSessionToken, String deviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void unsubscribeFromDataset(String datasetName, String deviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void subscribeToDataset(String datasetName, String deviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteDataset(String datasetName) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Page implements PagedRemoteDataStorage.DatasetUpdatesPage {
+        private final String datasetName;
+        private final List<Record> records;
+        private final String nextToken;
+
+        Page(String datasetName, List<Record> records, String nextToken) {
+            this.datasetName = datasetName;
+            this.records = records;
+            this.nextToken = nextToken;
+        }
+
+        @Override
+        public String getDatasetName() {
+            return datasetName;
+        }
+
+        @Override
+        public List<Record> getRecords() {
+            return records;
+        }
+
+        @Override
+        public String getSyncSessionToken() {
+            return "session";
+        }
+
+        @Override
+        public long getSyncCount() {
+            return SYNC_COUNT;
+        }
+
+        @Override
+        public boolean isExists() {
+            return true;
+        }
+
+        @Override
+        public boolean isDeleted() {
+            return false;
+        }
+
+        @Override
+        public List<String> getMergedDatasetNameList() {
+            return Collections.<String>emptyList();
+        }
+
+        @Override
+        public String getNextToken() {
+            return nextToken;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.mobileconnectors.cognito.Dataset.SyncCallback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 16, reportSdk = 16)
+public class SyncSchedulerTest {
+
+    private SyncScheduler scheduler;
+    /** Names of the synchronized datasets, in the order they were synchronized. */
+    private final List<String> synchronizedDatasets = new ArrayList<String>();
+    /** Awaited by the synchronization occupying the scheduler's only thread. */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CountDownLatch finished;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new SyncScheduler(1);
+
+        // keeps the datasets scheduled meanwhile waiting
+        final CountDownLatch started = new CountDownLatch(1);
+        final DefaultDataset blocker = dataset("blocker", false);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return true;
+            }
+        }).when(blocker).runSynchronize(any(SyncCallback.class));
+        scheduler.schedule(blocker, mock(SyncCallback.class));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void testRequestsForPendingDatasetJoin() throws Exception {
+        finished = new CountDownLatch(1);
+        final DefaultDataset dataset = dataset("dataset", false);
+        final SyncCallback first = mock(SyncCallback.class);
+        final SyncCallback second = mock(SyncCallback.class);
+        scheduler.schedule(dataset, first);
+        scheduler.schedule(dataset, second);
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        verify(dataset, times(1)).runSynchronize(any(SyncCallback.class));
+        verify(first).onSuccess(dataset, Collections.<Record>emptyList());
+        verify(second).onSuccess(dataset, Collections.<Record>emptyList());
+    }
+
+    @Test
+    public void testModifiedDatasetsSynchronizeFirst() throws Exception {
+        finished = new CountDownLatch(3);
+        scheduler.schedule(dataset("first", false), mock(SyncCallback.class));
+        scheduler.schedule(dataset("second", false), mock(SyncCallback.class));
+        scheduler.schedule(dataset("modified", true), mock(SyncCallback.class));
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("modified", "first", "second"), synchronizedDatasets);
+    }
+
+    @Test
+    public void testPendingDatasetModifiedMovesAhead() throws Exception {
+        finished = new CountDownLatch(2);
+        scheduler.schedule(dataset("first", false), mock(SyncCallback.class));
+        final DefaultDataset dataset = dataset("second", false);
+        final SyncCallback callback = mock(SyncCallback.class);
+        scheduler.schedule(dataset, callback);
+
+        // modified while waiting, the next request re-queues it ahead
+        when(dataset.hasLocalModifications()).thenReturn(true);
+        final SyncCallback joined = mock(SyncCallback.class);
+        scheduler.schedule(dataset, joined);
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("second", "first"), synchronizedDatasets);
+        verify(dataset, times(1)).runSynchronize(any(SyncCallback.class));
+        verify(callback).onSuccess(dataset, Collections.<Record>emptyList());
+        verify(joined).onSuccess(dataset, Collections.<Record>emptyList());
+    }
+
+    /**
+     * Returns a dataset whose synchronizations succeed without updates and
+     * are recorded in {@link #synchronizedDatasets}.
+     */
+    private DefaultDataset dataset(final String name, boolean modified) {
+        final DefaultDataset dataset = mock(DefaultDataset.class);
+        when(dataset.getDatasetName()).thenReturn(name);
+        when(dataset.hasLocalModifications()).thenReturn(modified);
+        when(dataset.runSynchronize(any(SyncCallback.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                synchronized (synchronizedDatasets) {
+                    synchronizedDatasets.add(name);
+                }
+                final SyncCallback callback = (SyncCallback) invocation.getArguments()[0];
+                callback.onSuccess(dataset, Collections.<Record>emptyList());
+                finished.countDown();
+                return true;
+            }
+        });
+        return dataset;
+    }
+}
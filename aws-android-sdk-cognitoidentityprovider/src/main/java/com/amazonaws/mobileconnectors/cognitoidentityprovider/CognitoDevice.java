@@ -197,7 +197,7 @@ public class CognitoDevice {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        user.getUserPool().getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -221,7 +221,7 @@ public class CognitoDevice {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -258,7 +258,7 @@ public class CognitoDevice {
         if (callback == null) {
             throw  new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        user.getUserPool().getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -281,7 +281,7 @@ public class CognitoDevice {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -314,7 +314,7 @@ public class CognitoDevice {
         if (callback == null) {
             throw  new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        user.getUserPool().getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -337,7 +337,7 @@ public class CognitoDevice {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -371,7 +371,7 @@ public class CognitoDevice {
             throw  new CognitoParameterInvalidException("callback is null");
         }
 
-        new Thread(new Runnable() {
+        user.getUserPool().getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -394,7 +394,7 @@ public class CognitoDevice {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -115,6 +115,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -186,12 +190,14 @@ public class CognitoUser {
     /**
      * The current session.
      */
-    private CognitoUserSession cipSession;
+    private volatile CognitoUserSession cipSession;
 
     /**
-     * Lock for getCachedSession.
+     * Session refreshes in progress, by client id and user id, so concurrent
+     * callers of getCachedSession share one refresh-token call.
      */
-    private static final Object GET_CACHED_SESSION_LOCK = new Object();
+    private static final ConcurrentHashMap<String, FutureTask<CognitoUserSession>> SESSION_REFRESHES =
+            new ConcurrentHashMap<String, FutureTask<CognitoUserSession>>();
 
     /**
      * Constructs a new Cognito User from a Cognito user identity pool
@@ -238,6 +244,15 @@ public class CognitoUser {
         return pool.getUserPoolId();
     }
 
+    /**
+     * Returns the user pool of this user.
+     *
+     * @return the {@link CognitoUserPool} of this user.
+     */
+    public CognitoUserPool getUserPool() {
+        return pool;
+    }
+
     /**
      * Method low-level client for Amazon Cognito Identity Provider.
      *
@@ -269,7 +284,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -292,7 +307,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -361,7 +376,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -385,7 +400,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -454,7 +469,7 @@ public class CognitoUser {
 
         final CognitoUser cognitoUser = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -482,7 +497,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -564,7 +579,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -587,7 +602,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -673,7 +688,7 @@ public class CognitoUser {
 
         final CognitoUser cognitoUser = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -707,7 +722,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -829,38 +844,76 @@ public class CognitoUser {
      *         otherwise.
      */
     protected CognitoUserSession getCachedSession() {
-        synchronized (GET_CACHED_SESSION_LOCK) {
-            if (userId == null) {
-                throw new CognitoNotAuthorizedException("User-ID is null");
+        if (userId == null) {
+            throw new CognitoNotAuthorizedException("User-ID is null");
+        }
+
+        final CognitoUserSession currentSession = cipSession;
+        if (currentSession != null && currentSession.isValidForThreshold()) {
+            return currentSession;
+        }
+
+        // The first caller loads or refreshes the session, callers for the
+        // same user meanwhile wait for its result.
+        final String refreshKey = clientId + "." + userId;
+        final FutureTask<CognitoUserSession> refresh = new FutureTask<CognitoUserSession>(
+                new Callable<CognitoUserSession>() {
+                    @Override
+                    public CognitoUserSession call() {
+                        return loadSession();
+                    }
+                });
+        FutureTask<CognitoUserSession> inProgress = SESSION_REFRESHES.putIfAbsent(refreshKey,
+                refresh);
+        if (inProgress == null) {
+            inProgress = refresh;
+            try {
+                refresh.run();
+            } finally {
+                SESSION_REFRESHES.remove(refreshKey, refresh);
             }
+        }
 
-            if (cipSession != null) {
-                if (cipSession.isValidForThreshold()) {
-                    return cipSession;
-                }
+        try {
+            cipSession = inProgress.get();
+            return cipSession;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CognitoInternalErrorException("Interrupted while getting the session", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new CognitoInternalErrorException("Failed to authenticate user", e.getCause());
+        }
+    }
 
-            final CognitoUserSession cachedTokens = readCachedTokens();
+    /**
+     * Reads the cached tokens of this user, refreshing them if they're no
+     * longer valid.
+     *
+     * @return Valid tokens {@link CognitoUserSession}.
+     */
+    private CognitoUserSession loadSession() {
+        final CognitoUserSession cachedTokens = readCachedTokens();
 
-            if (cachedTokens.isValidForThreshold()) {
-                cipSession = cachedTokens;
-                return cipSession;
-            }
+        if (cachedTokens.isValidForThreshold()) {
+            return cachedTokens;
+        }
 
-            if (cachedTokens.getRefreshToken() != null) {
-                try {
-                    cipSession = refreshSession(cachedTokens);
-                    cacheTokens(cipSession);
-                    return cipSession;
-                } catch (final NotAuthorizedException nae) {
-                    clearCachedTokens();
-                    throw new CognitoNotAuthorizedException("User is not authenticated", nae);
-                } catch (final Exception e) {
-                    throw new CognitoInternalErrorException("Failed to authenticate user", e);
-                }
+        if (cachedTokens.getRefreshToken() != null) {
+            try {
+                final CognitoUserSession session = refreshSession(cachedTokens);
+                cacheTokens(session);
+                return session;
+            } catch (final NotAuthorizedException nae) {
+                clearCachedTokens();
+                throw new CognitoNotAuthorizedException("User is not authenticated", nae);
+            } catch (final Exception e) {
+                throw new CognitoInternalErrorException("Failed to authenticate user", e);
             }
-            throw new CognitoNotAuthorizedException("User is not authenticated");
         }
+        throw new CognitoNotAuthorizedException("User is not authenticated");
     }
 
     /**
@@ -884,7 +937,7 @@ public class CognitoUser {
 
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -908,7 +961,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -975,7 +1028,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -999,7 +1052,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1069,7 +1122,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1096,7 +1149,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1177,7 +1230,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1201,7 +1254,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1269,7 +1322,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1314,7 +1367,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1403,7 +1456,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1448,7 +1501,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1555,7 +1608,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1590,7 +1643,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1663,7 +1716,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1687,7 +1740,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1771,7 +1824,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1796,7 +1849,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1855,7 +1908,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1879,7 +1932,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1941,7 +1994,7 @@ public class CognitoUser {
         }
         final CognitoUserSession session = this.getCachedSession();
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1964,7 +2017,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2028,7 +2081,7 @@ public class CognitoUser {
         }
         final CognitoUserSession session = this.getCachedSession();
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2051,7 +2104,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -3009,7 +3062,7 @@ public class CognitoUser {
 
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        pool.getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -3038,7 +3091,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
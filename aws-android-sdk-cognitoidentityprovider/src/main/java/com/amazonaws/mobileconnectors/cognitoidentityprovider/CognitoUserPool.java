@@ -43,6 +43,11 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This represents a user-pool in a Cognito identity provider account. The user-pools are called as
@@ -67,6 +72,17 @@ import java.util.Map;
  * On a user-pool new user's can sign-up and create new {@link CognitoUser}.
  */
 public class CognitoUserPool {
+    /**
+     * Number of threads of the default executor running the background
+     * operations of user pools, users and devices.
+     */
+    public static final int DEFAULT_BACKGROUND_THREADS = 4;
+
+    /**
+     * Seconds an idle thread of the default executor is kept alive.
+     */
+    private static final long BACKGROUND_THREAD_KEEP_ALIVE_SECONDS = 60;
+
     /**
      * Cognito Your Identity Pool ID
      */
@@ -108,6 +124,40 @@ public class CognitoUserPool {
      */
     private boolean advancedSecurityDataCollectionFlag = true;
 
+    /**
+     * Runs the background operations, {@code null} for the default executor.
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * Holds the executor shared by all user pools without their own, created
+     * the first time it's needed. Its queue is unbounded on purpose: the
+     * background operations used to each start a thread and were never
+     * refused, so operations beyond the running ones wait their turn rather
+     * than fail with a {@link java.util.concurrent.RejectedExecutionException}.
+     * Apps needing another policy can set their own executor.
+     */
+    private static final class DefaultExecutor {
+        static final ExecutorService INSTANCE = createDefaultExecutor();
+
+        private static ExecutorService createDefaultExecutor() {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    DEFAULT_BACKGROUND_THREADS, DEFAULT_BACKGROUND_THREADS,
+                    BACKGROUND_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread t = new Thread(r);
+                            t.setName("aws-cognito-user-pool-background-thread");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
     /**
      * @deprecated use {@link CognitoUserPool#CognitoUserPool(Context, String, String, String, ClientConfiguration, Regions)}
      * <p>
@@ -303,6 +353,30 @@ public class CognitoUserPool {
         return userPoolId;
     }
 
+    /**
+     * Returns the executor running the background operations of this pool,
+     * its users and their devices, such as
+     * {@link CognitoUser#getSessionInBackground}. Unless set, this is an
+     * executor shared by all pools with {@link #DEFAULT_BACKGROUND_THREADS}
+     * threads and an unbounded queue.
+     *
+     * @return the executor of the background operations.
+     */
+    public ExecutorService getExecutor() {
+        final ExecutorService current = executor;
+        return current != null ? current : DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Sets the executor running the background operations of this pool, its
+     * users and their devices. The executor isn't shut down by the pool.
+     *
+     * @param executor the executor, or {@code null} to use the default one.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * This method sets context data collection for the user. This data is
      * sent to the server for risk evaluation. By default data collection
@@ -327,7 +401,7 @@ public class CognitoUserPool {
                                          final CognitoUserAttributes userAttributes,
                                          final Map<String, String> validationData,
                                          final SignUpHandler callback) {
-        new Thread(new Runnable() {
+        getExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -354,7 +428,7 @@ public class CognitoUserPool {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
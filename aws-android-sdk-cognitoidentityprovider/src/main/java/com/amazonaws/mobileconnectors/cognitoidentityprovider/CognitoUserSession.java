@@ -23,8 +23,6 @@ import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoIdTo
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoRefreshToken;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoIdentityProviderClientConfig;
 
-import java.util.Date;
-
 /**
  * This wraps all Cognito tokens for a user.
  */
@@ -92,11 +90,11 @@ public class CognitoUserSession {
      * @return boolean to indicate if the access and id tokens have not expired.
      */
     public boolean isValid() {
-        final Date currentTimeStamp = new Date();
+        final long currentTime = System.currentTimeMillis();
 
         try {
-            return (currentTimeStamp.before(idToken.getExpiration())
-                    & currentTimeStamp.before(accessToken.getExpiration()));
+            return (currentTime < idToken.getClaims().getExpirationMillis()
+                    & currentTime < accessToken.getClaims().getExpirationMillis());
         } catch (final Exception e) {
             return false;
         }
@@ -111,7 +109,7 @@ public class CognitoUserSession {
         try {
             final long currentTime = System.currentTimeMillis()
                     - SDKGlobalConfiguration.getGlobalTimeOffset() * SECS_CONVERSION;
-            final long expiresInMilliSeconds = idToken.getExpiration().getTime() - currentTime;
+            final long expiresInMilliSeconds = idToken.getClaims().getExpirationMillis() - currentTime;
             return (expiresInMilliSeconds > CognitoIdentityProviderClientConfig.getRefreshThreshold());
         } catch (final Exception e) {
             return false;
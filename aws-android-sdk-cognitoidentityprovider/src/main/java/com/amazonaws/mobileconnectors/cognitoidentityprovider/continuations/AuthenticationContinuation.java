@@ -91,7 +91,7 @@ public class AuthenticationContinuation implements CognitoIdentityProviderContin
     @Override
     public void continueTask() {
         if (runInBackground) {
-            new Thread(new Runnable() {
+            user.getUserPool().getExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
                     final Handler handler = new Handler(context.getMainLooper());
@@ -108,7 +108,7 @@ public class AuthenticationContinuation implements CognitoIdentityProviderContin
                     }
                     handler.post(nextStep);
                 }
-            }).start();
+            });
         } else {
             Runnable nextStep;
             try {
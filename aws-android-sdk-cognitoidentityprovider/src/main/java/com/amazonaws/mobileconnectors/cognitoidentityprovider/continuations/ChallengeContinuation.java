@@ -141,7 +141,7 @@ public class ChallengeContinuation implements CognitoIdentityProviderContinuatio
         respondToAuthChallengeRequest.setClientId(clientId);
         respondToAuthChallengeRequest.setChallengeResponses(challengeResponses);
         if (runInBackground) {
-            new Thread(new Runnable() {
+            user.getUserPool().getExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
                     final Handler handler = new Handler(context.getMainLooper());
@@ -158,7 +158,7 @@ public class ChallengeContinuation implements CognitoIdentityProviderContinuatio
                     }
                     handler.post(nextStep);
                 }
-            }).start();
+            });
         } else {
             Runnable nextStep;
             try {
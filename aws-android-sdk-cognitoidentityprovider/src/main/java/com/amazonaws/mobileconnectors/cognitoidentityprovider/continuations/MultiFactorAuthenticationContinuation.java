@@ -97,7 +97,7 @@ public class MultiFactorAuthenticationContinuation implements CognitoIdentityPro
     @Override
     public void continueTask() {
         if (runInBackground) {
-            new Thread(new Runnable() {
+            user.getUserPool().getExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
                     final Handler handler = new Handler(context.getMainLooper());
@@ -116,7 +116,7 @@ public class MultiFactorAuthenticationContinuation implements CognitoIdentityPro
                     }
                     handler.post(nextStep);
                 }
-            }).start();
+            });
         } else {
             Runnable nextStep;
             try {
@@ -18,7 +18,7 @@
 package com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens;
 
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoInternalErrorException;
-import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTParser;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTClaims;
 
 import java.util.Date;
 
@@ -28,8 +28,6 @@ import java.util.Date;
 
 public class CognitoAccessToken extends CognitoUserToken {
 
-    private static final int SECS = 1000;
-
     /**
      * Create a new access token.
      *
@@ -48,6 +46,15 @@ public class CognitoAccessToken extends CognitoUserToken {
         return super.getToken();
     }
 
+    /**
+     * Returns the claims of this access token, parsed once.
+     *
+     * @return the claims of the access token.
+     */
+    public CognitoJWTClaims getClaims() {
+        return getTokenClaims();
+    }
+
     /**
      * Returns expiration of this access token.
      *
@@ -55,13 +62,7 @@ public class CognitoAccessToken extends CognitoUserToken {
      */
     public Date getExpiration() {
         try {
-            final String claim = CognitoJWTParser.getClaim(super.getToken(), "exp");
-            if (claim == null) {
-                return null;
-            }
-            final long epocTimeSec = Long.parseLong(claim);
-            final long epocTimeMilliSec = epocTimeSec * SECS;
-            return new Date(epocTimeMilliSec);
+            return new Date(getTokenClaims().getExpirationMillis());
         } catch (final Exception e) {
             throw new CognitoInternalErrorException(e.getMessage());
         }
@@ -72,6 +73,6 @@ public class CognitoAccessToken extends CognitoUserToken {
      * @return Username.
      */
     public String getUsername() throws Exception {
-        return CognitoJWTParser.getClaim(super.getToken(), "username");
+        return getTokenClaims().getClaim("username");
     }
 }
@@ -18,7 +18,7 @@
 package com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens;
 
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoInternalErrorException;
-import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTParser;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTClaims;
 
 import java.util.Date;
 
@@ -27,8 +27,6 @@ import java.util.Date;
  */
 public class CognitoIdToken extends CognitoUserToken {
 
-    private static final int SECS = 1000;
-
     /**
      * Create a new id token.
      *
@@ -47,6 +45,15 @@ public class CognitoIdToken extends CognitoUserToken {
         return super.getToken();
     }
 
+    /**
+     * Returns the claims of this id token, parsed once.
+     *
+     * @return the claims of the id token.
+     */
+    public CognitoJWTClaims getClaims() {
+        return getTokenClaims();
+    }
+
     /**
      * Returns expiration of this id token.
      *
@@ -54,13 +61,7 @@ public class CognitoIdToken extends CognitoUserToken {
      */
     public Date getExpiration() {
         try {
-            final String claim = CognitoJWTParser.getClaim(super.getToken(), "exp");
-            if (claim == null) {
-                return null;
-            }
-            final long epocTimeSec = Long.parseLong(claim);
-            final long epocTimeMilliSec = epocTimeSec * SECS;
-            return new Date(epocTimeMilliSec);
+            return new Date(getTokenClaims().getExpirationMillis());
         } catch (final Exception e) {
             throw new CognitoInternalErrorException(e.getMessage(), e);
         }
@@ -73,13 +74,7 @@ public class CognitoIdToken extends CognitoUserToken {
      */
     public Date getNotBefore() {
         try {
-            final String claim = CognitoJWTParser.getClaim(super.getToken(), "nbf");
-            if (claim == null) {
-                return null;
-            }
-            final long epocTimeSec = Long.parseLong(claim);
-            final long epocTimeMilliSec = epocTimeSec * SECS;
-            return new Date(epocTimeMilliSec);
+            return new Date(getTokenClaims().getNotBeforeMillis());
         } catch (final Exception e) {
             throw new CognitoInternalErrorException(e.getMessage(), e);
         }
@@ -92,13 +87,7 @@ public class CognitoIdToken extends CognitoUserToken {
      */
     public Date getIssuedAt() {
         try {
-            final String claim = CognitoJWTParser.getClaim(super.getToken(), "iat");
-            if (claim == null) {
-                return null;
-            }
-            final long epocTimeSec = Long.parseLong(claim);
-            final long epocTimeMilliSec = epocTimeSec * SECS;
-            return new Date(epocTimeMilliSec);
+            return new Date(getTokenClaims().getIssuedAtMillis());
         } catch (final Exception e) {
             throw new CognitoInternalErrorException(e.getMessage(), e);
         }
@@ -17,12 +17,16 @@
 
 package com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens;
 
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTClaims;
+
 /**
  * Base class for Cognito tokens.
  */
 public class CognitoUserToken {
     // A Cognito Token - can be an Access, Id or Refresh token
     private final String token;
+    // Claims of the token, parsed on first use
+    private volatile CognitoJWTClaims claims;
 
     /**
      * Constructor.
@@ -37,4 +41,20 @@ public class CognitoUserToken {
         return token;
     }
 
+    /**
+     * Returns the claims of this token, parsing it the first time they are
+     * read. Only valid for tokens that are JWTs.
+     *
+     * @return the parsed claims.
+     */
+    protected CognitoJWTClaims getTokenClaims() {
+        CognitoJWTClaims parsed = claims;
+        if (parsed == null) {
+            // Tokens are immutable, racing threads parse the same claims
+            parsed = CognitoJWTClaims.parse(token);
+            claims = parsed;
+        }
+        return parsed;
+    }
+
 }
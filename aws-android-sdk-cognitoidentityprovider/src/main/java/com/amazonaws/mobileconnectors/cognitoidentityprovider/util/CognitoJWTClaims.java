@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoParameterInvalidException;
+
+import org.json.JSONObject;
+
+/**
+ * The claims of a JWT, parsed once. The time claims are kept as milliseconds
+ * since the epoch, so checking them doesn't allocate. Other claims are read
+ * from the parsed payload when they're requested.
+ */
+public final class CognitoJWTClaims {
+    private static final int SECS = 1000;
+
+    private final JSONObject payload;
+    private final long expiration;
+    private final long issuedAt;
+    private final long notBefore;
+    private final boolean hasExpiration;
+    private final boolean hasIssuedAt;
+    private final boolean hasNotBefore;
+
+    private CognitoJWTClaims(JSONObject payload) {
+        this.payload = payload;
+        hasExpiration = payload.has("exp");
+        expiration = hasExpiration ? timeClaim("exp") : 0;
+        hasIssuedAt = payload.has("iat");
+        issuedAt = hasIssuedAt ? timeClaim("iat") : 0;
+        hasNotBefore = payload.has("nbf");
+        notBefore = hasNotBefore ? timeClaim("nbf") : 0;
+    }
+
+    /**
+     * Parses the claims of a JWT.
+     *
+     * @param jwt REQUIRED: valid JSON Web Token as String.
+     * @return the claims of the JWT.
+     * @throws CognitoParameterInvalidException if the JWT or one of its time
+     *             claims can't be parsed.
+     */
+    public static CognitoJWTClaims parse(String jwt) {
+        return new CognitoJWTClaims(CognitoJWTParser.getPayload(jwt));
+    }
+
+    private long timeClaim(String claim) {
+        try {
+            return Long.parseLong(payload.get(claim).toString()) * SECS;
+        } catch (final Exception e) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+    }
+
+    /**
+     * Returns the "exp" claim.
+     *
+     * @return expiration in milliseconds since the epoch.
+     * @throws CognitoParameterInvalidException if the JWT has no such claim.
+     */
+    public long getExpirationMillis() {
+        if (!hasExpiration) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+        return expiration;
+    }
+
+    /**
+     * Returns the "iat" claim.
+     *
+     * @return issue time in milliseconds since the epoch.
+     * @throws CognitoParameterInvalidException if the JWT has no such claim.
+     */
+    public long getIssuedAtMillis() {
+        if (!hasIssuedAt) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+        return issuedAt;
+    }
+
+    /**
+     * Returns the "nbf" claim.
+     *
+     * @return not before time in milliseconds since the epoch.
+     * @throws CognitoParameterInvalidException if the JWT has no such claim.
+     */
+    public long getNotBeforeMillis() {
+        if (!hasNotBefore) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+        return notBefore;
+    }
+
+    /**
+     * Returns a claim as a String, the same as
+     * {@link CognitoJWTParser#getClaim(String, String)}.
+     *
+     * @param claim REQUIRED: claim name as String.
+     * @return claim from the JWT as a String.
+     * @throws CognitoParameterInvalidException if the JWT has no such claim.
+     */
+    public String getClaim(String claim) {
+        try {
+            final Object claimValue = payload.get(claim);
+            return claimValue == null ? null : claimValue.toString();
+        } catch (final Exception e) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+    }
+}
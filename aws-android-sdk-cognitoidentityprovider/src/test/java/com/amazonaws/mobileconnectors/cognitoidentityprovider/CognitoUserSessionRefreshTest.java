@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.util.Base64;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoInternalErrorException;
+import com.amazonaws.services.cognitoidentityprovider.AmazonCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidentityprovider.model.AuthenticationResultType;
+import com.amazonaws.services.cognitoidentityprovider.model.InitiateAuthRequest;
+import com.amazonaws.services.cognitoidentityprovider.model.InitiateAuthResult;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 16, reportSdk = 16)
+public class CognitoUserSessionRefreshTest {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String USER_ID = "user";
+    private static final String CACHE_KEY = "CognitoIdentityProvider." + CLIENT_ID + "." + USER_ID;
+    private static final long HOUR_SECONDS = 60 * 60;
+    private static final int CALLERS = 8;
+
+    private Context context;
+    private CognitoUserPool pool;
+    private AmazonCognitoIdentityProvider client;
+    private ExecutorService executor;
+
+    /** Counted down when a refresh-token call starts. */
+    private final CountDownLatch refreshStarted = new CountDownLatch(1);
+    /** Awaited by refresh-token calls before they return. */
+    private final CountDownLatch finishRefresh = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        context = Robolectric.application;
+        pool = mock(CognitoUserPool.class);
+        client = mock(AmazonCognitoIdentityProvider.class);
+        executor = Executors.newFixedThreadPool(CALLERS);
+
+        // cached tokens that have expired, so the next session is refreshed
+        final long now = System.currentTimeMillis() / 1000;
+        context.getSharedPreferences("CognitoIdentityProviderCache", 0).edit()
+                .putString(CACHE_KEY + ".idToken", jwt(now - HOUR_SECONDS))
+                .putString(CACHE_KEY + ".accessToken", jwt(now - HOUR_SECONDS))
+                .putString(CACHE_KEY + ".refreshToken", "refresh-token")
+                .commit();
+    }
+
+    @After
+    public void tearDown() {
+        finishRefresh.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneRefresh() throws Exception {
+        when(client.initiateAuth(any(InitiateAuthRequest.class))).thenAnswer(refresh());
+
+        final List<Future<CognitoUserSession>> callers = new ArrayList<Future<CognitoUserSession>>();
+        for (int i = 0; i < CALLERS; i++) {
+            callers.add(executor.submit(getCachedSession(newUser())));
+        }
+        assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+        finishRefresh.countDown();
+
+        for (final Future<CognitoUserSession> caller : callers) {
+            final CognitoUserSession session = caller.get(5, TimeUnit.SECONDS);
+            assertTrue(session.isValidForThreshold());
+        }
+        verify(client, times(1)).initiateAuth(any(InitiateAuthRequest.class));
+
+        // the refreshed tokens are cached for new users of the same id
+        assertTrue(newUser().getCachedSession().isValidForThreshold());
+        verify(client, times(1)).initiateAuth(any(InitiateAuthRequest.class));
+    }
+
+    @Test
+    public void testFailedRefreshIsNotShared() throws Exception {
+        finishRefresh.countDown();
+        when(client.initiateAuth(any(InitiateAuthRequest.class)))
+                .thenThrow(new AmazonClientException("Unable to reach the service"))
+                .thenAnswer(refresh());
+
+        try {
+            newUser().getCachedSession();
+            fail("expected the refresh to fail");
+        } catch (final CognitoInternalErrorException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+        }
+
+        // the failed refresh is no longer registered, the next caller retries
+        assertTrue(newUser().getCachedSession().isValidForThreshold());
+        verify(client, times(2)).initiateAuth(any(InitiateAuthRequest.class));
+    }
+
+    private CognitoUser newUser() {
+        return new CognitoUser(pool, USER_ID, CLIENT_ID, null, null, client, context);
+    }
+
+    private static Callable<CognitoUserSession> getCachedSession(final CognitoUser user) {
+        return new Callable<CognitoUserSession>() {
+            @Override
+            public CognitoUserSession call() {
+                return user.getCachedSession();
+            }
+        };
+    }
+
+    /**
+     * Answers refresh-token calls with tokens valid for an hour, once
+     * {@link #finishRefresh} is counted down.
+     */
+    private Answer<InitiateAuthResult> refresh() {
+        return new Answer<InitiateAuthResult>() {
+            @Override
+            public InitiateAuthResult answer(InvocationOnMock invocation) throws Throwable {
+                refreshStarted.countDown();
+                finishRefresh.await();
+                final long now = System.currentTimeMillis() / 1000;
+                return new InitiateAuthResult().withAuthenticationResult(
+                        new AuthenticationResultType()
+                                .withIdToken(jwt(now + HOUR_SECONDS))
+                                .withAccessToken(jwt(now + HOUR_SECONDS)));
+            }
+        };
+    }
+
+    /**
+     * Returns an unsigned JWT for the test user expiring at the given time.
+     */
+    private static String jwt(long expirationSeconds) {
+        return encode("{\"alg\":\"none\"}") + "."
+                + encode("{\"username\":\"" + USER_ID + "\",\"exp\":" + expirationSeconds + "}")
+                + "." + encode("signature");
+    }
+
+    private static String encode(String section) {
+        return Base64.encodeToString(section.getBytes(StringUtils.UTF8),
+                Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+    }
+}
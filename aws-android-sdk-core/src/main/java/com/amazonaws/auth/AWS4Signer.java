@@ -32,7 +32,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -91,6 +93,25 @@ public class AWS4Signer extends AbstractAWSSigner
 
     protected static final Log log = LogFactory.getLog(AWS4Signer.class);
 
+    /** Maximum number of derived signing keys kept in the cache. */
+    private static final int SIGNING_KEY_CACHE_MAX_SIZE = 300;
+
+    /**
+     * Derived signing keys by fingerprint of the secret key and scope. A key
+     * is valid for a day, for a region and a service, so it's derived once
+     * per day rather than for every request. The least recently used keys are
+     * evicted.
+     */
+    private static final Map<String, byte[]> SIGNING_KEY_CACHE = Collections
+            .synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > SIGNING_KEY_CACHE_MAX_SIZE;
+                }
+            });
+
     @Override
     public void sign(Request<?> request, AWSCredentials credentials) {
         // annonymous credentials, don't sign
@@ -294,20 +315,37 @@ public class AWS4Signer extends AbstractAWSSigner
         final String stringToSign = getStringToSign(algorithm, timeStamp, scope,
                 getCanonicalRequest(request, contentSha256));
 
-        // AWS4 uses a series of derived keys, formed by hashing different
-        // pieces of data
-        final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
-                .getBytes(StringUtils.UTF8);
-        final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
-        final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
-        final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        final byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        final byte[] kSigning = getSigningKey(sanitizedCredentials, dateStamp, regionName,
+                serviceName, scope);
 
         final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
                 SigningAlgorithm.HmacSHA256);
         return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
     }
 
+    /**
+     * Returns the signing key of a scope, from the cache or derived from the
+     * secret key. The cache is keyed on a hash of the secret key so it doesn't
+     * hold secret keys.
+     */
+    private byte[] getSigningKey(AWSCredentials sanitizedCredentials, String dateStamp,
+            String regionName, String serviceName, String scope) {
+        final String secretKey = sanitizedCredentials.getAWSSecretKey();
+        final String cacheKey = BinaryUtils.toHex(hash(secretKey)) + "/" + scope;
+        byte[] kSigning = SIGNING_KEY_CACHE.get(cacheKey);
+        if (kSigning == null) {
+            // AWS4 uses a series of derived keys, formed by hashing different
+            // pieces of data
+            final byte[] kSecret = ("AWS4" + secretKey).getBytes(StringUtils.UTF8);
+            final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
+            final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
+            final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
+            kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+            SIGNING_KEY_CACHE.put(cacheKey, kSigning);
+        }
+        return kSigning;
+    }
+
     protected final String getTimeStamp(long dateMilli) {
         return DateUtils.format(TIME_PATTERN, new Date(dateMilli));
     }
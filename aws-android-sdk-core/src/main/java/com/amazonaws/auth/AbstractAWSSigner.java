@@ -119,7 +119,7 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] sign(byte[] data, byte[] key, SigningAlgorithm algorithm) {
         try {
-            final Mac mac = Mac.getInstance(algorithm.toString());
+            final Mac mac = algorithm.getMac();
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (final Exception e) {
@@ -200,14 +200,14 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     protected String getCanonicalizedQueryString(Map<String, String> parameters) {
 
+        // sorted by encoded key, the values are encoded straight into the
+        // builder
         final SortedMap<String, String> sorted = new TreeMap<String, String>();
 
         Iterator<Map.Entry<String, String>> pairs = parameters.entrySet().iterator();
         while (pairs.hasNext()) {
             final Map.Entry<String, String> pair = pairs.next();
-            final String key = pair.getKey();
-            final String value = pair.getValue();
-            sorted.put(HttpUtils.urlEncode(key, false), HttpUtils.urlEncode(value, false));
+            sorted.put(HttpUtils.urlEncode(pair.getKey(), false), pair.getValue());
         }
 
         final StringBuilder builder = new StringBuilder();
@@ -216,7 +216,7 @@ public abstract class AbstractAWSSigner implements Signer {
             final Map.Entry<String, String> pair = pairs.next();
             builder.append(pair.getKey());
             builder.append("=");
-            builder.append(pair.getValue());
+            HttpUtils.urlEncode(pair.getValue(), false, builder);
             if (pairs.hasNext()) {
                 builder.append("&");
             }
@@ -470,7 +470,10 @@ public class CognitoCachingCredentialsProvider
 
     @Override
     public AWSSessionCredentials getCredentials() {
-    	credentialsLock.writeLock().lock();
+        AWSSessionCredentials current = getCredentialsOrLock();
+        if (current != null) {
+            return current;
+        }
         try {
         	// return only if the credentials are valid
         	if (sessionCredentials == null) {
@@ -478,6 +481,7 @@ public class CognitoCachingCredentialsProvider
         	}
 
         	if ((sessionCredentialsExpiration != null) && !needsNewSession()) {
+        		publishSession();
         		return sessionCredentials;
         	}
         	// super will validate loaded credentials
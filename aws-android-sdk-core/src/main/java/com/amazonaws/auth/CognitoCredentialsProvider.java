@@ -39,6 +39,11 @@ import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import org.json.JSONObject;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.Date;
 import java.util.HashMap;
@@ -65,10 +70,26 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
     /** Default threshold for refreshing session credentials */
     public static final int DEFAULT_THRESHOLD_SECONDS = 500;
 
-    /** The current session credentials */
+    /**
+     * How long before the refresh threshold the background refresher starts a
+     * new session
+     */
+    private static final long BACKGROUND_REFRESH_LEAD_MILLIS = 60 * 1000L;
+
+    /** Delay before the background refresher retries a failed refresh */
+    private static final long BACKGROUND_REFRESH_RETRY_MILLIS = 30 * 1000L;
+
+    /**
+     * The current session credentials. A subclass assigning it while holding
+     * the write lock of {@link #credentialsLock} needs nothing else, the
+     * change is published by the next {@link #getCredentials()}.
+     */
     protected AWSSessionCredentials sessionCredentials;
 
-    /** The expiration time for the current session credentials */
+    /**
+     * The expiration time for the current session credentials. Changes are
+     * published the same way as changes of {@link #sessionCredentials}.
+     */
     protected Date sessionCredentialsExpiration;
 
     /** The current Token */
@@ -90,6 +111,65 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
 
     protected ReentrantReadWriteLock credentialsLock;
 
+    /**
+     * Copy of the current session credentials and their expiration, so valid
+     * credentials are returned without taking {@link #credentialsLock}.
+     * Replaced while holding the write lock.
+     */
+    private volatile Session session;
+
+    private volatile boolean backgroundRefreshEnabled;
+
+    /** Pending background refresh, guarded by the write lock */
+    private ScheduledFuture<?> backgroundRefresh;
+
+    /**
+     * Session credentials along with their expiration time.
+     */
+    private static final class Session {
+        final AWSSessionCredentials credentials;
+        final Date expirationDate;
+        final long expiration;
+
+        Session(AWSSessionCredentials credentials, Date expirationDate) {
+            this.credentials = credentials;
+            this.expirationDate = expirationDate;
+            this.expiration = expirationDate.getTime();
+        }
+
+        /**
+         * Whether this session is still the one of the given fields, which
+         * subclasses can change without publishing them.
+         */
+        boolean isOf(AWSSessionCredentials credentials, Date expirationDate) {
+            return this.credentials == credentials && this.expirationDate == expirationDate
+                    && expiration == expirationDate.getTime();
+        }
+
+        long timeRemaining() {
+            long currentTime = System.currentTimeMillis()
+                    - SDKGlobalConfiguration.getGlobalTimeOffset() * 1000;
+            return expiration - currentTime;
+        }
+    }
+
+    /**
+     * Holds the thread shared by all providers for refreshing credentials in
+     * the background, created the first time it's needed.
+     */
+    private static final class BackgroundRefresher {
+        static final ScheduledExecutorService EXECUTOR = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("android-sdk-cognito-credentials-refresh-thread");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
     /**
      * Constructs a new {@link CognitoCredentialsProvider}, which will use the
      * specified Amazon Cognito identity pool to make a request, using the basic
@@ -434,6 +514,7 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
         credentialsLock.writeLock().lock();
         try {
             sessionCredentialsExpiration = expiration;
+            publishSession();
         } finally {
             credentialsLock.writeLock().unlock();
         }
@@ -455,21 +536,156 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
     /**
      * If the current session has expired/credentials are invalid, a new session
      * is started, establishing the credentials. In either case, those
-     * credentials are returned
+     * credentials are returned. Credentials that don't need a refresh are
+     * returned without locking, and while one thread starts a new session
+     * before the current one expires, other threads keep getting the current
+     * credentials.
      */
     @Override
     public AWSSessionCredentials getCredentials() {
-        credentialsLock.writeLock().lock();
+        AWSSessionCredentials current = getCredentialsOrLock();
+        if (current != null) {
+            return current;
+        }
         try {
             if (needsNewSession()) {
                 startSession();
             }
+            if (!isSessionPublished()) {
+                publishSession();
+            }
             return sessionCredentials;
         } finally {
             credentialsLock.writeLock().unlock();
         }
     }
 
+    /**
+     * Returns the current session credentials if they don't need a refresh, or
+     * if they haven't expired yet and another thread holds the write lock of
+     * {@link #credentialsLock}, which is where new sessions are started.
+     * Otherwise, the write lock is acquired and null is returned, and the
+     * caller is responsible for starting a new session if still needed and
+     * for releasing the lock.
+     *
+     * @return the current credentials, or null if the write lock is held
+     */
+    AWSSessionCredentials getCredentialsOrLock() {
+        // A thread already holding the lock, or a subclass, may have changed
+        // the credentials without publishing them yet
+        Session current = session;
+        if (current != null && current.isOf(sessionCredentials, sessionCredentialsExpiration)
+                && !credentialsLock.isWriteLockedByCurrentThread()) {
+            long timeRemaining = current.timeRemaining();
+            if (timeRemaining >= refreshThreshold * 1000L) {
+                return current.credentials;
+            }
+            if (timeRemaining > 0) {
+                return credentialsLock.writeLock().tryLock() ? null : current.credentials;
+            }
+        }
+        credentialsLock.writeLock().lock();
+        return null;
+    }
+
+    /**
+     * Makes the current session credentials visible to
+     * {@link #getCredentials()} without locking, and schedules the background
+     * refresh of the new session. Must be called while holding the write lock
+     * of {@link #credentialsLock}.
+     */
+    void publishSession() {
+        if (sessionCredentials != null && sessionCredentialsExpiration != null) {
+            session = new Session(sessionCredentials, sessionCredentialsExpiration);
+        } else {
+            session = null;
+        }
+        scheduleBackgroundRefresh(-1);
+    }
+
+    /**
+     * Whether the published session is the one of the current session fields.
+     * Must be called while holding the write lock of {@link #credentialsLock}.
+     */
+    private boolean isSessionPublished() {
+        Session current = session;
+        if (current == null) {
+            return sessionCredentials == null || sessionCredentialsExpiration == null;
+        }
+        return current.isOf(sessionCredentials, sessionCredentialsExpiration);
+    }
+
+    /**
+     * Enables or disables starting new sessions on a background thread shortly
+     * before the current credentials reach the refresh threshold, so callers of
+     * {@link #getCredentials()} don't wait for them. Disabled by default.
+     *
+     * @param enabled whether to refresh credentials in the background
+     */
+    public void setBackgroundRefreshEnabled(boolean enabled) {
+        credentialsLock.writeLock().lock();
+        try {
+            backgroundRefreshEnabled = enabled;
+            scheduleBackgroundRefresh(-1);
+        } finally {
+            credentialsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether credentials are refreshed in the background
+     */
+    public boolean isBackgroundRefreshEnabled() {
+        return backgroundRefreshEnabled;
+    }
+
+    /**
+     * Replaces the pending background refresh. Must be called while holding
+     * the write lock of {@link #credentialsLock}.
+     *
+     * @param delay delay of the refresh in milliseconds, or -1 to refresh
+     *            ahead of the refresh threshold of the current session
+     */
+    private void scheduleBackgroundRefresh(long delay) {
+        if (backgroundRefresh != null) {
+            backgroundRefresh.cancel(false);
+            backgroundRefresh = null;
+        }
+        Session current = session;
+        if (!backgroundRefreshEnabled || current == null) {
+            return;
+        }
+        if (delay < 0) {
+            delay = Math.max(0, current.timeRemaining() - refreshThreshold * 1000L
+                    - BACKGROUND_REFRESH_LEAD_MILLIS);
+        }
+        backgroundRefresh = BackgroundRefresher.EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refreshInBackground();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh credentials in the background", e);
+            credentialsLock.writeLock().lock();
+            try {
+                // Callers start a new session themselves once the current one
+                // expires
+                Session current = session;
+                if (current != null && current.timeRemaining() > 0) {
+                    scheduleBackgroundRefresh(BACKGROUND_REFRESH_RETRY_MILLIS);
+                }
+            } finally {
+                credentialsLock.writeLock().unlock();
+            }
+        }
+    }
+
     /**
      * Set the duration of the session credentials created by this client in
      * seconds. Values must be supported by AssumeRoleWithWebIdentityRequest.
@@ -659,6 +875,7 @@ public class CognitoCredentialsProvider implements AWSCredentialsProvider {
         try {
             sessionCredentials = null;
             sessionCredentialsExpiration = null;
+            publishSession();
         } finally {
             credentialsLock.writeLock().unlock();
         }
@@ -55,7 +55,7 @@ public class HttpRequestFactory {
          * into "/%2F"
          */
         String uri = HttpUtils.appendUri(endpoint.toString(), request.getResourcePath(), true);
-        final String encodedParams = HttpUtils.encodeParameters(request);
+        final boolean hasParams = !request.getParameters().isEmpty();
         HttpMethodName method = request.getHttpMethod();
 
         /*
@@ -66,8 +66,9 @@ public class HttpRequestFactory {
         final boolean requestAlreadyHasPayload = request.getContent() != null;
         final boolean requestIsPost = method == HttpMethodName.POST;
         final boolean putParamsInUri = !requestIsPost || requestAlreadyHasPayload;
-        if (encodedParams != null && putParamsInUri) {
-            uri += "?" + encodedParams;
+        if (hasParams && putParamsInUri) {
+            final StringBuilder uriWithParams = new StringBuilder(uri).append('?');
+            uri = HttpUtils.encodeParameters(request, uriWithParams).toString();
         }
 
         // Configure headers from request. Additional headers will be added
@@ -92,8 +93,9 @@ public class HttpRequestFactory {
              * the best behavior is putting the params in the request body for
              * POST requests, but we can't do that for S3.
              */
-            if (request.getContent() == null && encodedParams != null) {
-                final byte[] contentBytes = encodedParams.getBytes(StringUtils.UTF8);
+            if (request.getContent() == null && hasParams) {
+                final byte[] contentBytes = HttpUtils.encodeParameters(request)
+                        .getBytes(StringUtils.UTF8);
                 is = new ByteArrayInputStream(contentBytes);
                 headers.put("Content-Length", String.valueOf(contentBytes.length));
             }
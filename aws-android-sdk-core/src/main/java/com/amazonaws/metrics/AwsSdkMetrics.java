@@ -761,7 +761,7 @@ public enum AwsSdkMetrics {
             metricTypes.add(Field.HttpClientRetryCount);
             metricTypes.add(Field.HttpRequestTime);
             metricTypes.add(Field.RequestCount);
-            // metricTypes.add(Field.RequestSigningTime);
+            metricTypes.add(Field.RequestSigningTime);
             // metricTypes.add(Field.ResponseProcessingTime);
             metricTypes.add(Field.RetryCount);
             metricTypes.add(Field.HttpClientSendRequestTime);
@@ -18,18 +18,27 @@ package com.amazonaws.regions;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A collection of metadata about a set of regions and the services they
- * contain.
+ * contain. The regions are indexed by name, by supported service and by
+ * service host when the metadata is created, so lookups don't scan the
+ * regions.
  *
  * @see RegionUtils
  */
 public class RegionMetadata {
 
     private final List<Region> regions;
+    private final Map<String, Region> regionsByName = new HashMap<String, Region>();
+    private final Map<String, List<Region>> regionsByService =
+            new HashMap<String, List<Region>>();
+    /** The first region with a service at each host, in list order. */
+    private final Map<String, Region> regionsByHost = new HashMap<String, Region>();
 
     /**
      * Creates a new RegionMetadata object from the given list of regions.
@@ -43,6 +52,31 @@ public class RegionMetadata {
 
         this.regions =
                 Collections.unmodifiableList(new ArrayList<Region>(regions));
+
+        for (Region region : this.regions) {
+            if (!regionsByName.containsKey(region.getName())) {
+                regionsByName.put(region.getName(), region);
+            }
+            for (Map.Entry<String, String> entry : region.getServiceEndpoints().entrySet()) {
+                List<Region> serviceRegions = regionsByService.get(entry.getKey());
+                if (serviceRegions == null) {
+                    serviceRegions = new ArrayList<Region>();
+                    regionsByService.put(entry.getKey(), serviceRegions);
+                }
+                serviceRegions.add(region);
+
+                String host;
+                try {
+                    host = getHost(entry.getValue());
+                } catch (IllegalArgumentException e) {
+                    // not found by endpoint, as when scanning the regions
+                    continue;
+                }
+                if (host != null && !regionsByHost.containsKey(host)) {
+                    regionsByHost.put(host, region);
+                }
+            }
+        }
     }
 
     /**
@@ -63,12 +97,7 @@ public class RegionMetadata {
      * @return the corresponding region, if it exists
      */
     public Region getRegion(final String name) {
-        for (Region region : regions) {
-            if (region.getName().equals(name)) {
-                return region;
-            }
-        }
-        return null;
+        return regionsByName.get(name);
     }
 
     /**
@@ -80,13 +109,10 @@ public class RegionMetadata {
      */
     public List<Region> getRegionsForService(final String service) {
         List<Region> results = new LinkedList<Region>();
-
-        for (Region region : regions) {
-            if (region.isServiceSupported(service)) {
-                results.add(region);
-            }
+        List<Region> serviceRegions = regionsByService.get(service);
+        if (serviceRegions != null) {
+            results.addAll(serviceRegions);
         }
-
         return results;
     }
 
@@ -104,19 +130,22 @@ public class RegionMetadata {
      *             one of the service URLs on record is malformed.
      */
     public Region getRegionByEndpoint(final String endpoint) {
-        String host = getHost(endpoint);
-
-        for (Region region : regions) {
-            for (String serviceEndpoint : region.getServiceEndpoints().values()) {
-
-                if (host.equals(getHost(serviceEndpoint))) {
-                    return region;
-                }
-            }
+        Region region = getRegionByHost(getHost(endpoint));
+        if (region == null) {
+            throw new IllegalArgumentException(
+                    "No region found with any service for endpoint " + endpoint);
         }
+        return region;
+    }
 
-        throw new IllegalArgumentException(
-                "No region found with any service for endpoint " + endpoint);
+    /**
+     * Returns the first region with any service at the host given.
+     *
+     * @param host the host of a service endpoint
+     * @return the corresponding region, or null if there's none
+     */
+    Region getRegionByHost(final String host) {
+        return host == null ? null : regionsByHost.get(host);
     }
 
     /**
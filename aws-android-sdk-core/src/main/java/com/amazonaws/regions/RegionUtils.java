@@ -27,15 +27,16 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
- * Utilities for working with regions.
+ * Utilities for working with regions. The regions are loaded once into an
+ * immutable, indexed {@link RegionMetadata}, so lookups don't lock or scan the
+ * regions.
  */
 public class RegionUtils {
 
-    private static List<Region> regions;
+    private static volatile RegionMetadata regionMetadata;
 
     // Use the same logger as the http client
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
@@ -43,12 +44,21 @@ public class RegionUtils {
     /**
      * @return a list of the available AWS regions.
      */
-    public static synchronized List<Region> getRegions() {
-        if (regions == null) {
-            init();
-        }
+    public static List<Region> getRegions() {
+        return getRegionMetadata().getRegions();
+    }
 
-        return regions;
+    private static RegionMetadata getRegionMetadata() {
+        RegionMetadata metadata = regionMetadata;
+        if (metadata == null) {
+            synchronized (RegionUtils.class) {
+                if (regionMetadata == null) {
+                    init();
+                }
+                metadata = regionMetadata;
+            }
+        }
+        return metadata;
     }
 
     /**
@@ -57,15 +67,8 @@ public class RegionUtils {
      *
      * @see ServiceAbbreviations
      */
-    @SuppressWarnings("checkstyle:hiddenfield")
-    public static synchronized List<Region> getRegionsForService(String serviceAbbreviation) {
-        List<Region> regions = new LinkedList<Region>();
-        for (Region r : getRegions()) {
-            if (r.isServiceSupported(serviceAbbreviation)) {
-                regions.add(r);
-            }
-        }
-        return regions;
+    public static List<Region> getRegionsForService(String serviceAbbreviation) {
+        return getRegionMetadata().getRegionsForService(serviceAbbreviation);
     }
 
     /**
@@ -74,13 +77,7 @@ public class RegionUtils {
      * null.
      */
     public static Region getRegion(String regionName) {
-        for (Region r : getRegions()) {
-            if (r.getName().equals(regionName)) {
-                return r;
-            }
-        }
-
-        return null;
+        return getRegionMetadata().getRegion(regionName);
     }
 
     /**
@@ -98,19 +95,12 @@ public class RegionUtils {
      */
     public static Region getRegionByEndpoint(String endpoint) {
         URI targetEndpointUri = getUriByEndpoint(endpoint);
-        String targetHost = targetEndpointUri.getHost();
-
-        for (Region region : getRegions()) {
-            for (String serviceEndpoint : region.getServiceEndpoints().values()) {
-                URI serviceEndpointUrl = getUriByEndpoint(serviceEndpoint);
-
-                if (serviceEndpointUrl.getHost().equals(targetHost))
-                    return region;
-            }
+        Region region = getRegionMetadata().getRegionByHost(targetEndpointUri.getHost());
+        if (region == null) {
+            throw new IllegalArgumentException("No region found with any service for endpoint "
+                    + endpoint);
         }
-
-        throw new IllegalArgumentException("No region found with any service for endpoint "
-                + endpoint);
+        return region;
     }
 
     /**
@@ -122,25 +112,24 @@ public class RegionUtils {
      * the defaults shipped with the SDK) into memory.
      */
     public static synchronized void init() {
+        List<Region> regions = null;
         if (System.getProperty(REGIONS_FILE_OVERRIDE_SYSTEM_PROPERTY) != null) {
             try {
-                loadRegionsFromOverrideFile();
+                regions = loadRegionsFromOverrideFile();
             } catch (FileNotFoundException e) {
                 throw new RuntimeException("Couldn't find regions override file specified", e);
             }
         }
 
-        // Fall back onto the version we ship with the SDK
-        if (regions == null) {
-            initSDKRegions();
-        }
-        // Throw out RuntimeException explicitly
-        if (regions == null) {
-            throw new RuntimeException("Failed to initialize the regions.");
+        if (regions != null) {
+            regionMetadata = new RegionMetadata(regions);
+        } else if (regionMetadata == null) {
+            // Fall back onto the version we ship with the SDK
+            regionMetadata = new RegionMetadata(initSDKRegions());
         }
     }
 
-    private static void loadRegionsFromOverrideFile() throws FileNotFoundException {
+    private static List<Region> loadRegionsFromOverrideFile() throws FileNotFoundException {
         String overrideFilePath = System.getProperty(REGIONS_FILE_OVERRIDE_SYSTEM_PROPERTY);
         if (log.isDebugEnabled()) {
             log.debug("Using local override of the regions file ("
@@ -149,7 +138,7 @@ public class RegionUtils {
         }
         File regionsFile = new File(overrideFilePath);
         FileInputStream override = new FileInputStream(regionsFile);
-        initRegions(override);
+        return initRegions(override);
     }
 
     /**
@@ -157,13 +146,15 @@ public class RegionUtils {
      *
      * @param regionsFile The input stream pointing to the retrieved region
      *            file.
+     * @return the regions, or null if they couldn't be parsed
      */
-    private static void initRegions(InputStream regionsFile) {
+    private static List<Region> initRegions(InputStream regionsFile) {
         try {
             RegionMetadataParser parser = new RegionMetadataParser();
-            regions = parser.parseRegionMetadata(regionsFile);
+            return parser.parseRegionMetadata(regionsFile);
         } catch (Exception e) {
             log.warn("Failed to parse regional endpoints", e);
+            return null;
         }
     }
 
@@ -171,11 +162,11 @@ public class RegionUtils {
      * Failsafe method to initialize the regions list from the list bundled with
      * the SDK, in case it cannot be fetched from the remote source.
      */
-    private static void initSDKRegions() {
+    private static List<Region> initSDKRegions() {
         if (log.isDebugEnabled()) {
             log.debug("Initializing the regions with default regions");
         }
-        regions = RegionDefaults.getRegions();
+        return RegionDefaults.getRegions();
     }
 
     /**
@@ -17,19 +17,34 @@ package com.amazonaws.transform;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.Base64;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonToken;
+import com.amazonaws.util.json.TypedJsonReads;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * SimpleTypeJsonUnmarshallers class.
  */
 public class SimpleTypeJsonUnmarshallers {
+
+    /**
+     * Consumes the next value if it's null.
+     *
+     * @return true if the next value was null
+     */
+    private static boolean nextNull(AwsJsonReader reader) throws IOException {
+        if (AwsJsonToken.VALUE_NULL == reader.peek()) {
+            reader.skipValue();
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Unmarshaller for String values.
      */
@@ -60,8 +75,8 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Double, JsonUnmarshallerContext> {
         @Override
         public Double unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String doubleString = unmarshallerContext.getReader().nextString();
-            return (doubleString == null) ? null : Double.parseDouble(doubleString);
+            AwsJsonReader reader = unmarshallerContext.getReader();
+            return nextNull(reader) ? null : TypedJsonReads.nextDouble(reader);
         }
 
         private static DoubleJsonUnmarshaller instance;
@@ -84,8 +99,15 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Integer, JsonUnmarshallerContext> {
         @Override
         public Integer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String intString = unmarshallerContext.getReader().nextString();
-            return (intString == null) ? null : Integer.parseInt(intString);
+            AwsJsonReader reader = unmarshallerContext.getReader();
+            if (nextNull(reader)) {
+                return null;
+            }
+            long l = TypedJsonReads.nextLong(reader);
+            if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value out of range for an int: " + l);
+            }
+            return (int) l;
         }
 
         private static IntegerJsonUnmarshaller instance;
@@ -156,8 +178,8 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Boolean, JsonUnmarshallerContext> {
         @Override
         public Boolean unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String booleanString = unmarshallerContext.getReader().nextString();
-            return (booleanString == null) ? null : Boolean.parseBoolean(booleanString);
+            AwsJsonReader reader = unmarshallerContext.getReader();
+            return nextNull(reader) ? null : TypedJsonReads.nextBoolean(reader);
         }
 
         private static BooleanJsonUnmarshaller instance;
@@ -203,8 +225,8 @@ public class SimpleTypeJsonUnmarshallers {
     public static class LongJsonUnmarshaller implements Unmarshaller<Long, JsonUnmarshallerContext> {
         @Override
         public Long unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String longString = unmarshallerContext.getReader().nextString();
-            return (longString == null) ? null : Long.parseLong(longString);
+            AwsJsonReader reader = unmarshallerContext.getReader();
+            return nextNull(reader) ? null : TypedJsonReads.nextLong(reader);
         }
 
         private static LongJsonUnmarshaller instance;
@@ -244,23 +266,21 @@ public class SimpleTypeJsonUnmarshallers {
     }
 
     /**
-     * Unmarshaller for Date values - JSON dates come in as epoch seconds.
+     * Unmarshaller for Date values - JSON dates come in as epoch seconds,
+     * with an optional fraction kept to the millisecond.
      */
     public static class DateJsonUnmarshaller implements Unmarshaller<Date, JsonUnmarshallerContext> {
 
-        private static final int DATE_MULTIPLIER = 1000;
         @Override
         public Date unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String dateString = unmarshallerContext.getReader().nextString();
-            if (dateString == null)
+            AwsJsonReader reader = unmarshallerContext.getReader();
+            if (nextNull(reader))
                 return null;
 
             try {
-                Number number = NumberFormat.getInstance(new Locale("en")).parse(dateString);
-                return new Date(number.longValue() * DATE_MULTIPLIER);
-            } catch (ParseException e) {
-                String errorMessage = "Unable to parse date '" + dateString + "':  "
-                        + e.getMessage();
+                return new Date(TypedJsonReads.nextEpochMillis(reader));
+            } catch (NumberFormatException e) {
+                String errorMessage = "Unable to parse date:  " + e.getMessage();
                 throw new AmazonClientException(errorMessage, e);
             }
         }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.transform;
+
+/**
+ * A psuedo-xpath expression compiled for
+ * {@link StaxUnmarshallerContext#testExpression(StaxPathExpression, int)}.
+ * The element names of the expression are interned, so matching it against
+ * the element stack of a context costs a depth check and a reference
+ * comparison per element name. Expressions are immutable and can be shared
+ * between threads.
+ */
+public final class StaxPathExpression {
+
+    private static final String ANY = ".";
+
+    private final String expression;
+    /** Element names, interned. */
+    private final String[] names;
+    /** Whether the expression matches any position, i.e. it's ".". */
+    private final boolean matchesAny;
+    /** Whether the expression names an attribute, which never matches. */
+    private final boolean attribute;
+
+    private StaxPathExpression(String expression) {
+        this.expression = expression;
+        this.matchesAny = ANY.equals(expression);
+        this.names = expression.split("/", -1);
+        boolean hasAttribute = false;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].intern();
+            hasAttribute |= names[i].startsWith("@");
+        }
+        this.attribute = hasAttribute;
+    }
+
+    /**
+     * Compiles an expression, e.g. "reservationSet/item".
+     *
+     * @param expression The psuedo-xpath expression to compile.
+     * @return The compiled expression.
+     */
+    public static StaxPathExpression compile(String expression) {
+        return new StaxPathExpression(expression);
+    }
+
+    /**
+     * Tests the expression against an element stack.
+     *
+     * @param stack The interned names of the open elements, from the document
+     *            element.
+     * @param depth The number of open elements.
+     * @param startingStackDepth The depth of the element matching the first
+     *            name of the expression.
+     * @return True if the last elements of the stack match the expression,
+     *         starting at startingStackDepth.
+     */
+    boolean matches(String[] stack, int depth, int startingStackDepth) {
+        if (matchesAny) {
+            return true;
+        }
+        // the starting depth is the depth of the first element name
+        if (attribute || depth != startingStackDepth + names.length - 1
+                || depth < names.length) {
+            return false;
+        }
+        for (int i = names.length - 1, j = depth - 1; i >= 0; i--, j--) {
+            if (names[i] != stack[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
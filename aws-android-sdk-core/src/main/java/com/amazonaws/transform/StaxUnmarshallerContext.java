@@ -19,12 +19,16 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains the unmarshalling state for the parsing of an XML response. The
@@ -36,13 +40,34 @@ import java.util.Map;
  */
 public class StaxUnmarshallerContext {
 
+    private static final int INITIAL_STACK_SIZE = 16;
+
+    /**
+     * Maximum number of expressions kept compiled. The generated unmarshallers
+     * only test constant expressions, far fewer than this, so it only limits
+     * callers testing expressions built at runtime.
+     */
+    private static final int MAX_COMPILED_EXPRESSIONS = 4096;
+
+    /** Expressions tested by name, compiled once. */
+    private static final Map<String, StaxPathExpression> EXPRESSIONS =
+            new ConcurrentHashMap<String, StaxPathExpression>();
+
     private int currentEventType;
     private final XmlPullParser xpp;
 
-    /** The deque stack. */
+    /**
+     * The paths of the open elements, deepest first, such as "/a/b" then "/a".
+     * A read-only view whose paths are only built when it is read.
+     */
     @SuppressWarnings("checkstyle:visibilitymodifier")
-    public final Deque<String> stack = new LinkedList<String>();
-    private String stackString = "";
+    public final Deque<String> stack = new PathStack();
+
+    /** Names of the open elements, interned. */
+    private String[] nameStack = new String[INITIAL_STACK_SIZE];
+    private int depth;
+    /** Interned element names by the names the parser returned. */
+    private final Map<String, String> internedNames = new HashMap<String, String>();
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -116,7 +141,7 @@ public class StaxUnmarshallerContext {
      *         document being parsed.
      */
     public int getCurrentDepth() {
-        return stack.size();
+        return depth;
     }
 
     /**
@@ -144,19 +169,42 @@ public class StaxUnmarshallerContext {
      *         the XML document, starting from the specified depth.
      */
     public boolean testExpression(String expression, int startingStackDepth) {
-        if (".".equals(expression))
-            return true;
-
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
-            // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
-                startingStackDepth++;
+        StaxPathExpression compiled = EXPRESSIONS.get(expression);
+        if (compiled == null) {
+            compiled = StaxPathExpression.compile(expression);
+            if (EXPRESSIONS.size() < MAX_COMPILED_EXPRESSIONS) {
+                EXPRESSIONS.put(expression, compiled);
             }
         }
+        return compiled.matches(nameStack, depth, startingStackDepth);
+    }
+
+    /**
+     * Tests the specified compiled expression against the current position in
+     * the XML document being parsed.
+     *
+     * @param expression The compiled psuedo-xpath expression to test.
+     * @return True if the expression matches the current document position,
+     *         otherwise false.
+     */
+    public boolean testExpression(StaxPathExpression expression) {
+        return expression.matches(nameStack, depth, depth);
+    }
 
-        return (getCurrentDepth() == startingStackDepth
-                && stackString.endsWith("/" + expression));
+    /**
+     * Tests the specified compiled expression against the current position in
+     * the XML document being parsed, and restricts the expression to matching
+     * at the specified stack depth.
+     *
+     * @param expression The compiled psuedo-xpath expression to test.
+     * @param startingStackDepth The depth in the stack representing where the
+     *            expression must start matching in order for this method to
+     *            return true.
+     * @return True if the specified expression matches the current position in
+     *         the XML document, starting from the specified depth.
+     */
+    public boolean testExpression(StaxPathExpression expression, int startingStackDepth) {
+        return expression.matches(nameStack, depth, startingStackDepth);
     }
 
     /**
@@ -192,7 +240,7 @@ public class StaxUnmarshallerContext {
         // look for meta data
         if (currentEventType == XmlPullParser.START_TAG) {
             for (MetadataExpression metadataExpression : metadataExpressions) {
-                if (testExpression(metadataExpression.expression,
+                if (metadataExpression.expression.matches(nameStack, depth,
                         metadataExpression.targetDepth)) {
                     metadata.put(metadataExpression.key, readText());
                     break;
@@ -241,12 +289,12 @@ public class StaxUnmarshallerContext {
     @SuppressWarnings("checkstyle:visibilitymodifier")
     private static class MetadataExpression {
 
-        public String expression;
+        public StaxPathExpression expression;
         public int targetDepth;
         public String key;
 
         public MetadataExpression(String expression, int targetDepth, String key) {
-            this.expression = expression;
+            this.expression = StaxPathExpression.compile(expression);
             this.targetDepth = targetDepth;
             this.key = key;
         }
@@ -254,11 +302,230 @@ public class StaxUnmarshallerContext {
 
     private void updateContext() {
         if (currentEventType == XmlPullParser.START_TAG) {
-            stackString += "/" + xpp.getName();
-            stack.push(stackString);
+            final String name = intern(xpp.getName());
+            if (depth == nameStack.length) {
+                nameStack = Arrays.copyOf(nameStack, depth * 2);
+            }
+            ((PathStack) stack).invalidate(depth);
+            nameStack[depth++] = name;
         } else if (currentEventType == XmlPullParser.END_TAG) {
-            stack.pop();
-            stackString = stack.isEmpty() ? "" : stack.peek();
+            nameStack[--depth] = null;
+        }
+    }
+
+    private String intern(String name) {
+        String interned = internedNames.get(name);
+        if (interned == null) {
+            interned = name.intern();
+            internedNames.put(name, interned);
+        }
+        return interned;
+    }
+
+    /**
+     * The paths of the open elements, built from {@link #nameStack} when
+     * read. Paths built once are kept until an element at their depth or
+     * above is replaced.
+     */
+    private final class PathStack extends AbstractCollection<String> implements Deque<String> {
+
+        /** Built paths, paths[i] is the path of the element at depth i + 1. */
+        private String[] paths = new String[INITIAL_STACK_SIZE];
+        /** Number of built paths that are still the paths of open elements. */
+        private int builtPaths;
+
+        /**
+         * Discards the paths at and below an index of the name stack, called
+         * when a new element is opened there.
+         */
+        void invalidate(int index) {
+            if (builtPaths > index) {
+                builtPaths = index;
+            }
+        }
+
+        /**
+         * Gets the path of an open element.
+         *
+         * @param index index of the element in the name stack
+         * @return the path of the element
+         */
+        private String path(int index) {
+            if (paths.length < depth) {
+                paths = Arrays.copyOf(paths, nameStack.length);
+            }
+            while (builtPaths <= index) {
+                final String parent = builtPaths == 0 ? "" : paths[builtPaths - 1];
+                paths[builtPaths] = parent + "/" + nameStack[builtPaths];
+                builtPaths++;
+            }
+            return paths[index];
+        }
+
+        @Override
+        public int size() {
+            return depth;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new PathIterator(depth - 1, -1);
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return new PathIterator(0, 1);
+        }
+
+        @Override
+        public String getFirst() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            return path(depth - 1);
+        }
+
+        @Override
+        public String getLast() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            return path(0);
+        }
+
+        @Override
+        public String peekFirst() {
+            return depth == 0 ? null : path(depth - 1);
+        }
+
+        @Override
+        public String peekLast() {
+            return depth == 0 ? null : path(0);
+        }
+
+        @Override
+        public String element() {
+            return getFirst();
+        }
+
+        @Override
+        public String peek() {
+            return peekFirst();
+        }
+
+        @Override
+        public void addFirst(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addLast(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerFirst(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerLast(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offer(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void push(String e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String removeFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String removeLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String poll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String pop() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Iterates the paths of the elements open when it was created.
+         */
+        private final class PathIterator implements Iterator<String> {
+            private final int end;
+            private final int step;
+            private int next;
+
+            PathIterator(int first, int step) {
+                this.next = first;
+                this.step = step;
+                this.end = step > 0 ? depth : -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != end;
+            }
+
+            @Override
+            public String next() {
+                if (next == end) {
+                    throw new NoSuchElementException();
+                }
+                final String path = path(next);
+                next += step;
+                return path;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
         }
     }
 }
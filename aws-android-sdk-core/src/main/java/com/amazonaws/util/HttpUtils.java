@@ -26,9 +26,7 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -41,26 +39,6 @@ public class HttpUtils {
     private static final int PORT_HTTPS = 443;
     private static final int HTTP_STATUS_OK = 200;
 
-    /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
-     */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
-    static {
-        final StringBuilder pattern = new StringBuilder();
-
-        pattern
-                .append(Pattern.quote("+"))
-                .append("|")
-                .append(Pattern.quote("*"))
-                .append("|")
-                .append(Pattern.quote("%7E"))
-                .append("|")
-                .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
-    }
-
     private static final Pattern DECODED_CHARACTERS_PATTERN;
     static {
         final StringBuilder decodePattern = new StringBuilder();
@@ -75,48 +53,38 @@ public class HttpUtils {
     }
 
     /**
-     * Encode a string for use in the path of a URL; uses URLEncoder.encode,
-     * (which encodes a string for use in the query portion of a URL), then
-     * applies some postfilters to fix things up per the RFC. Can optionally
-     * handle strings which are meant to encode a path (ie include '/'es which
-     * should NOT be escaped).
+     * Encode a string for use in the path of a URL, per RFC 3986: everything
+     * but the unreserved characters is percent-encoded. Can optionally handle
+     * strings which are meant to encode a path (ie include '/'es which should
+     * NOT be escaped).
      *
      * @param value the value to encode
      * @param path true if the value is intended to represent a path
-     * @return the encoded value
+     * @return the encoded value, or value itself if nothing needs to be
+     *         encoded
      */
     public static String urlEncode(final String value, final boolean path) {
         if (value == null) {
             return "";
         }
+        return (path ? PercentEncoder.RFC3986_PATH : PercentEncoder.RFC3986).encode(value);
+    }
 
-        try {
-            final String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            final Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            final StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
-
-                if ("+".equals(replacement)) {
-                    replacement = "%20";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                }
-                matcher.appendReplacement(buffer, replacement);
-            }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (final UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
+    /**
+     * Encode a string the same as {@link #urlEncode(String, boolean)}, into a
+     * builder.
+     *
+     * @param value the value to encode
+     * @param path true if the value is intended to represent a path
+     * @param builder the builder the encoded value is appended to
+     * @return the builder
+     */
+    public static StringBuilder urlEncode(final String value, final boolean path,
+            final StringBuilder builder) {
+        if (value == null) {
+            return builder;
         }
+        return (path ? PercentEncoder.RFC3986_PATH : PercentEncoder.RFC3986).encode(value, builder);
     }
 
     /**
@@ -188,25 +156,32 @@ public class HttpUtils {
         if (request.getParameters().isEmpty()) {
             return null;
         }
-        final StringBuilder sb = new StringBuilder();
+        return encodeParameters(request, new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends an encoded query string from all the parameters in the
+     * specified request to a builder.
+     *
+     * @param request The request containing the parameters to encode.
+     * @param sb the builder the query string is appended to
+     * @return the builder
+     */
+    public static StringBuilder encodeParameters(Request<?> request, StringBuilder sb) {
         boolean first = true;
-        try {
-            for (final Entry<String, String> entry : request.getParameters().entrySet()) {
-                final String encodedName = URLEncoder.encode(entry.getKey(), DEFAULT_ENCODING);
-                final String value = entry.getValue();
-                final String encodedValue = value == null ? "" : URLEncoder.encode(value,
-                        DEFAULT_ENCODING);
-                if (!first) {
-                    sb.append("&");
-                } else {
-                    first = false;
-                }
-                sb.append(encodedName).append("=").append(encodedValue);
+        for (final Entry<String, String> entry : request.getParameters().entrySet()) {
+            if (!first) {
+                sb.append("&");
+            } else {
+                first = false;
+            }
+            PercentEncoder.FORM.encode(entry.getKey(), sb).append("=");
+            final String value = entry.getValue();
+            if (value != null) {
+                PercentEncoder.FORM.encode(value, sb);
             }
-        } catch (final UnsupportedEncodingException e) {
-            throw new IllegalArgumentException(e);
         }
-        return sb.toString();
+        return sb;
     }
 
     /**
@@ -234,27 +209,28 @@ public class HttpUtils {
      */
     public static String appendUri(final String baseUri, String path,
             final boolean escapeDoubleSlash) {
-        String resultUri = baseUri;
-        if (path != null && path.length() > 0) {
-            if (path.startsWith("/")) {
-                // trim the trailing slash in baseUri, since the path already
-                // starts with a slash
-                if (resultUri.endsWith("/")) {
-                    resultUri = resultUri.substring(0, resultUri.length() - 1);
-                }
-            } else if (!resultUri.endsWith("/")) {
-                resultUri += "/";
-            }
-            String encodedPath = HttpUtils.urlEncode(path, true);
-            if (escapeDoubleSlash) {
-                encodedPath = encodedPath.replace("//", "/%2F");
-            }
-            resultUri += encodedPath;
-        } else if (!resultUri.endsWith("/")) {
-            resultUri += "/";
+        if (path == null || path.length() == 0) {
+            return baseUri.endsWith("/") ? baseUri : baseUri + "/";
         }
 
-        return resultUri;
+        final StringBuilder resultUri = new StringBuilder(baseUri.length() + path.length() + 1);
+        resultUri.append(baseUri);
+        if (path.startsWith("/")) {
+            // trim the trailing slash in baseUri, since the path already
+            // starts with a slash
+            if (baseUri.endsWith("/")) {
+                resultUri.setLength(resultUri.length() - 1);
+            }
+        } else if (!baseUri.endsWith("/")) {
+            resultUri.append('/');
+        }
+        if (escapeDoubleSlash && path.indexOf("//") >= 0) {
+            // '/' is the only character left as '/' by the encoding
+            resultUri.append(HttpUtils.urlEncode(path, true).replace("//", "/%2F"));
+        } else {
+            HttpUtils.urlEncode(path, true, resultUri);
+        }
+        return resultUri.toString();
     }
 
     /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+/**
+ * Percent-encodes strings in a single pass, going by a table of the ASCII
+ * characters that are left as they are. Other characters are encoded as
+ * UTF-8 bytes, with upper case hex digits. Unpaired surrogates are encoded as
+ * '?', the same as {@link java.net.URLEncoder}.
+ */
+public final class PercentEncoder {
+
+    private static final String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyz"
+            + "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "0123456789";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int ASCII_SIZE = 128;
+    private static final int TWO_BYTE_LIMIT = 0x800;
+    private static final int SIX_BITS = 0x3F;
+
+    /**
+     * Encodes everything but the unreserved characters of RFC 3986.
+     */
+    public static final PercentEncoder RFC3986 = new PercentEncoder("-_.~", false);
+
+    /**
+     * Encodes everything but the unreserved characters of RFC 3986 and '/',
+     * for paths.
+     */
+    public static final PercentEncoder RFC3986_PATH = new PercentEncoder("-_.~/", false);
+
+    /**
+     * Encodes for application/x-www-form-urlencoded, the same as
+     * {@link java.net.URLEncoder} with UTF-8.
+     */
+    public static final PercentEncoder FORM = new PercentEncoder("-_.*", true);
+
+    private final boolean[] safe = new boolean[ASCII_SIZE];
+    private final boolean spaceAsPlus;
+
+    /**
+     * @param safeCharacters ASCII characters left as they are, besides
+     *            letters and digits
+     * @param spaceAsPlus whether space is encoded as '+', if it's not a safe
+     *            character
+     */
+    public PercentEncoder(String safeCharacters, boolean spaceAsPlus) {
+        for (int i = 0; i < ALPHANUMERIC.length(); i++) {
+            safe[ALPHANUMERIC.charAt(i)] = true;
+        }
+        for (int i = 0; i < safeCharacters.length(); i++) {
+            final char c = safeCharacters.charAt(i);
+            if (c >= ASCII_SIZE) {
+                throw new IllegalArgumentException("Safe characters must be ASCII: " + c);
+            }
+            safe[c] = true;
+        }
+        this.spaceAsPlus = spaceAsPlus;
+    }
+
+    /**
+     * Encodes a string.
+     *
+     * @param value the string to encode, not null
+     * @return the encoded string, or value itself if nothing needs to be
+     *         encoded
+     */
+    public String encode(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= ASCII_SIZE || !safe[c]) {
+                // escaped characters take at least three characters
+                final StringBuilder builder = new StringBuilder(length + 2 * (length - i));
+                builder.append(value, 0, i);
+                encode(value, i, builder);
+                return builder.toString();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Encodes a string into a builder, without creating intermediate strings.
+     *
+     * @param value the string to encode, not null
+     * @param builder the builder the encoded string is appended to
+     * @return the builder
+     */
+    public StringBuilder encode(String value, StringBuilder builder) {
+        encode(value, 0, builder);
+        return builder;
+    }
+
+    private void encode(String value, int start, StringBuilder builder) {
+        final int length = value.length();
+        for (int i = start; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < ASCII_SIZE) {
+                if (safe[c]) {
+                    builder.append(c);
+                } else if (c == ' ' && spaceAsPlus) {
+                    builder.append('+');
+                } else {
+                    appendByte(builder, c);
+                }
+            } else if (c < TWO_BYTE_LIMIT) {
+                appendByte(builder, 0xC0 | (c >> 6));
+                appendByte(builder, 0x80 | (c & SIX_BITS));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendByte(builder, 0xF0 | (codePoint >> 18));
+                appendByte(builder, 0x80 | ((codePoint >> 12) & SIX_BITS));
+                appendByte(builder, 0x80 | ((codePoint >> 6) & SIX_BITS));
+                appendByte(builder, 0x80 | (codePoint & SIX_BITS));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogate, replaced when encoding UTF-8
+                appendByte(builder, '?');
+            } else {
+                appendByte(builder, 0xE0 | (c >> 12));
+                appendByte(builder, 0x80 | ((c >> 6) & SIX_BITS));
+                appendByte(builder, 0x80 | (c & SIX_BITS));
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder builder, int b) {
+        builder.append('%')
+                .append(HEX_DIGITS[(b >> 4) & 0xF])
+                .append(HEX_DIGITS[b & 0xF]);
+    }
+}
@@ -111,18 +111,15 @@ public class RuntimeHttpUtils {
         final StringBuilder url = new StringBuilder(request.getEndpoint().toString());
         url.append(urlPath);
 
-        StringBuilder queryParams = new StringBuilder();
+        boolean firstParam = true;
         final Map<String, String> requestParams = request.getParameters();
         for (final Map.Entry<String, String> entry : requestParams.entrySet()) {
-            queryParams = queryParams.length() > 0 ? queryParams
-                    .append("&") : queryParams.append("?");
-            queryParams.append(HttpUtils.urlEncode(entry.getKey(), false))
-                    .append("=")
-                    .append(HttpUtils.urlEncode(entry.getValue(), false));
+            url.append(firstParam ? '?' : '&');
+            firstParam = false;
+            HttpUtils.urlEncode(entry.getKey(), false, url).append("=");
+            HttpUtils.urlEncode(entry.getValue(), false, url);
         }
 
-        url.append(queryParams.toString());
-
         try {
             return new URL(url.toString());
         } catch (final MalformedURLException e) {
@@ -43,7 +43,8 @@ final class GsonFactory implements AwsJsonFactory {
         return new GsonWriter(out);
     }
 
-    private static final class GsonReader implements AwsJsonReader {
+    private static final class GsonReader implements TypedJsonReader {
+        private static final double MILLIS_IN_SECOND = 1000;
         private final JsonReader reader;
 
         public GsonReader(Reader in) {
@@ -100,6 +101,35 @@ final class GsonFactory implements AwsJsonFactory {
             return reader.nextString();
         }
 
+        @Override
+        public long nextLong() throws IOException {
+            if (JsonToken.NUMBER.equals(reader.peek())) {
+                return reader.nextLong();
+            }
+            return Long.parseLong(nextString());
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            if (JsonToken.NUMBER.equals(reader.peek())) {
+                return reader.nextDouble();
+            }
+            return Double.parseDouble(nextString());
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            if (JsonToken.BOOLEAN.equals(reader.peek())) {
+                return reader.nextBoolean();
+            }
+            return Boolean.parseBoolean(nextString());
+        }
+
+        @Override
+        public long nextEpochMillis() throws IOException {
+            return Math.round(nextDouble() * MILLIS_IN_SECOND);
+        }
+
         @Override
         public void skipValue() throws IOException {
             reader.skipValue();
@@ -46,8 +46,9 @@ final class JacksonFactory implements AwsJsonFactory {
         return new JacksonWriter(factory, out);
     }
 
-    private static final class JacksonReader implements AwsJsonReader {
+    private static final class JacksonReader implements TypedJsonReader {
 
+        private static final int MILLIS_IN_SECOND = 1000;
         private JsonParser reader;
         private JsonToken nextToken = null;
 
@@ -115,6 +116,52 @@ final class JacksonFactory implements AwsJsonFactory {
             return s;
         }
 
+        @Override
+        public long nextLong() throws IOException {
+            nextToken();
+            final long l = JsonToken.VALUE_NUMBER_INT == nextToken ? reader.getLongValue()
+                    : Long.parseLong(reader.getText());
+            clearToken();
+            return l;
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            nextToken();
+            final double d = JsonToken.VALUE_NUMBER_INT == nextToken
+                    || JsonToken.VALUE_NUMBER_FLOAT == nextToken ? reader.getDoubleValue()
+                    : Double.parseDouble(reader.getText());
+            clearToken();
+            return d;
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            nextToken();
+            final boolean b;
+            if (JsonToken.VALUE_TRUE == nextToken) {
+                b = true;
+            } else if (JsonToken.VALUE_FALSE == nextToken) {
+                b = false;
+            } else {
+                b = Boolean.parseBoolean(reader.getText());
+            }
+            clearToken();
+            return b;
+        }
+
+        @Override
+        public long nextEpochMillis() throws IOException {
+            nextToken();
+            if (JsonToken.VALUE_NUMBER_INT == nextToken) {
+                // whole seconds, without going through a double
+                final long seconds = reader.getLongValue();
+                clearToken();
+                return seconds * MILLIS_IN_SECOND;
+            }
+            return Math.round(nextDouble() * MILLIS_IN_SECOND);
+        }
+
         @Override
         public AwsJsonToken peek() throws IOException {
             nextToken();
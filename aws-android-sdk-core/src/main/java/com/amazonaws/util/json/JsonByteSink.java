@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A {@link Writer} that encodes the characters written to it as UTF-8 straight
+ * into a growing byte array. JSON marshallers write the body of a request
+ * through {@link JsonUtils#getJsonWriter(Writer)} into it, then send the bytes
+ * with {@link #toInputStream()} and {@link #size()}, without building the body
+ * as a String first. Malformed surrogates are encoded as '?', the same as
+ * {@link String#getBytes(java.nio.charset.Charset)}.
+ * <p>
+ * This class is not thread safe.
+ */
+public class JsonByteSink extends Writer {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    /** The most bytes a char takes, including a pending malformed surrogate. */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    private static final byte REPLACEMENT = '?';
+
+    private byte[] buf;
+    private int count;
+    /** A high surrogate waiting for its low surrogate, or 0. */
+    private char highSurrogate;
+
+    /**
+     * Creates a sink with the default initial capacity.
+     */
+    public JsonByteSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a sink.
+     *
+     * @param initialCapacity initial capacity in bytes
+     */
+    public JsonByteSink(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative initial capacity: " + initialCapacity);
+        }
+        buf = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int c) {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        if (off < 0 || len < 0 || off + len > cbuf.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        for (int i = off; i < off + len; i++) {
+            final char c = cbuf[i];
+            if (c < 0x80 && highSurrogate == 0 && count < buf.length) {
+                buf[count++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        if (off < 0 || len < 0 || off + len > str.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        for (int i = off; i < off + len; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80 && highSurrogate == 0 && count < buf.length) {
+                buf[count++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to flush, the bytes are already in the buffer.
+    }
+
+    /**
+     * Encodes a pending high surrogate without its low surrogate. The sink can
+     * still be written to.
+     */
+    @Override
+    public void close() {
+        finish();
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        finish();
+        return count;
+    }
+
+    /**
+     * @return a copy of the bytes written so far
+     */
+    public byte[] toByteArray() {
+        finish();
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Returns a stream over the bytes written so far, without copying them.
+     * The stream supports mark and reset, so the content can be read again
+     * when a request is retried. The sink must not be written to or reset
+     * while the stream is in use.
+     *
+     * @return a stream over the bytes written so far
+     */
+    public InputStream toInputStream() {
+        finish();
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /**
+     * Discards the bytes written so far, keeping the buffer for reuse.
+     */
+    public void reset() {
+        count = 0;
+        highSurrogate = 0;
+    }
+
+    private void encode(char c) {
+        ensureCapacity(count + MAX_BYTES_PER_CHAR);
+        if (highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buf[count++] = REPLACEMENT;
+        }
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[count++] = REPLACEMENT;
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void finish() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            ensureCapacity(count + 1);
+            buf[count++] = REPLACEMENT;
+        }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("JSON content is too large");
+        }
+        if (minCapacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(minCapacity, buf.length << 1));
+        }
+    }
+}
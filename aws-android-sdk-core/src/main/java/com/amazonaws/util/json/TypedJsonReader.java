@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import java.io.IOException;
+
+/**
+ * A reader of the built-in JSON engines that reads numbers and booleans
+ * straight from the parser. Use it through {@link TypedJsonReads}, which
+ * falls back to {@link AwsJsonReader#nextString()} for other readers.
+ */
+interface TypedJsonReader extends AwsJsonReader {
+
+    /**
+     * Gets the next value as a long without creating a {@link String} for
+     * it. A string value is parsed with {@link Long#parseLong(String)}. The
+     * next token must not be {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @return the next value as a long
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a long
+     */
+    long nextLong() throws IOException;
+
+    /**
+     * Gets the next value as a double. A string value is parsed with
+     * {@link Double#parseDouble(String)}. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @return the next value as a double
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a number
+     */
+    double nextDouble() throws IOException;
+
+    /**
+     * Gets the next value as a boolean. A string value is parsed with
+     * {@link Boolean#parseBoolean(String)}. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @return the next value as a boolean
+     * @throws IOException
+     */
+    boolean nextBoolean() throws IOException;
+
+    /**
+     * Gets the next value, a date in seconds since the epoch with an optional
+     * fraction, as milliseconds since the epoch. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @return the next value in milliseconds since the epoch
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a number
+     */
+    long nextEpochMillis() throws IOException;
+}
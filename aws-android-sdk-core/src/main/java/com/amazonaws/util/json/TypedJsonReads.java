@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import java.io.IOException;
+
+/**
+ * Reads numbers, booleans and dates from an {@link AwsJsonReader}. The
+ * readers of the built-in JSON engines return them without creating a
+ * {@link String}, other readers are read with
+ * {@link AwsJsonReader#nextString()} and the text is parsed. For internal use
+ * by the unmarshallers of the SDK.
+ */
+public final class TypedJsonReads {
+
+    private static final double MILLIS_IN_SECOND = 1000;
+
+    private TypedJsonReads() {
+    }
+
+    /**
+     * Gets the next value as a long. A string value is parsed with
+     * {@link Long#parseLong(String)}. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @param reader the JSON reader
+     * @return the next value as a long
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a long
+     */
+    public static long nextLong(AwsJsonReader reader) throws IOException {
+        if (reader instanceof TypedJsonReader) {
+            return ((TypedJsonReader) reader).nextLong();
+        }
+        return Long.parseLong(reader.nextString());
+    }
+
+    /**
+     * Gets the next value as a double. A string value is parsed with
+     * {@link Double#parseDouble(String)}. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @param reader the JSON reader
+     * @return the next value as a double
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a number
+     */
+    public static double nextDouble(AwsJsonReader reader) throws IOException {
+        if (reader instanceof TypedJsonReader) {
+            return ((TypedJsonReader) reader).nextDouble();
+        }
+        return Double.parseDouble(reader.nextString());
+    }
+
+    /**
+     * Gets the next value as a boolean. A string value is parsed with
+     * {@link Boolean#parseBoolean(String)}. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @param reader the JSON reader
+     * @return the next value as a boolean
+     * @throws IOException
+     */
+    public static boolean nextBoolean(AwsJsonReader reader) throws IOException {
+        if (reader instanceof TypedJsonReader) {
+            return ((TypedJsonReader) reader).nextBoolean();
+        }
+        return Boolean.parseBoolean(reader.nextString());
+    }
+
+    /**
+     * Gets the next value, a date in seconds since the epoch with an optional
+     * fraction, as milliseconds since the epoch. The next token must not be
+     * {@link AwsJsonToken#VALUE_NULL}.
+     *
+     * @param reader the JSON reader
+     * @return the next value in milliseconds since the epoch
+     * @throws IOException
+     * @throws NumberFormatException if the value isn't a number
+     */
+    public static long nextEpochMillis(AwsJsonReader reader) throws IOException {
+        if (reader instanceof TypedJsonReader) {
+            return ((TypedJsonReader) reader).nextEpochMillis();
+        }
+        return Math.round(Double.parseDouble(reader.nextString()) * MILLIS_IN_SECOND);
+    }
+}
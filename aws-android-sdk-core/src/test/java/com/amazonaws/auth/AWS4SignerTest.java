@@ -80,6 +80,41 @@ public class AWS4SignerTest {
                 request.getHeaders().get("Authorization"));
     }
 
+    @Test
+    public void testCachedSigningKeys() throws Exception {
+        final String EXPECTED_AUTHORIZATION_HEADER =
+                "AWS4-HMAC-SHA256 Credential=access/19810216/us-east-1/demo/aws4_request, SignedHeaders=host;x-amz-archive-description;x-amz-date, Signature=77fe7c02927966018667f21d1dc3dfad9057e58401cbb9ed64f1b7868288e35a";
+
+        final Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        signer.overrideDate(c.getTime());
+
+        // derive the key for the scope, then reuse it
+        for (int i = 0; i < 2; i++) {
+            final Request<?> request = generateBasicRequest();
+            signer.sign(request, new BasicAWSCredentials("access", "secret"));
+            assertEquals(EXPECTED_AUTHORIZATION_HEADER, request.getHeaders().get("Authorization"));
+        }
+
+        // another secret key for the same scope gets its own key
+        final Request<?> request = generateBasicRequest();
+        signer.sign(request, new BasicAWSCredentials("access", "other secret"));
+        assertFalse(EXPECTED_AUTHORIZATION_HEADER.equals(request.getHeaders().get("Authorization")));
+
+        // another date gets its own key
+        c.set(1981, 1, 17, 6, 30, 0);
+        signer.overrideDate(c.getTime());
+        final Request<?> nextDayRequest = generateBasicRequest();
+        signer.sign(nextDayRequest, new BasicAWSCredentials("access", "secret"));
+        assertTrue(nextDayRequest.getHeaders().get("Authorization")
+                .startsWith("AWS4-HMAC-SHA256 Credential=access/19810217/us-east-1/demo/"));
+        assertFalse(EXPECTED_AUTHORIZATION_HEADER.substring(
+                EXPECTED_AUTHORIZATION_HEADER.indexOf("Signature=")).equals(
+                nextDayRequest.getHeaders().get("Authorization").substring(
+                        nextDayRequest.getHeaders().get("Authorization").indexOf("Signature="))));
+    }
+
     @Test
     public void testPresigning() throws Exception {
         final String EXPECTED_AMZ_SIGNATURE = "909d8bc528fec51c0cc6daaa6c29291c519de10f77490d8af57872c29203ebdb";
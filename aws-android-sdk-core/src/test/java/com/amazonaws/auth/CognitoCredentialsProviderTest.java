@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CognitoCredentialsProviderTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final int THREADS = 8;
+
+    private StubProvider provider;
+    private ExecutorService executor;
+
+    /**
+     * Starts sessions without calling Cognito or STS. The expiration of each
+     * new session is taken from {@link #nextLifetime}.
+     */
+    private static class StubProvider extends CognitoCredentialsProvider {
+        final AtomicInteger sessions = new AtomicInteger();
+        volatile long nextLifetime = 60 * MINUTE;
+        volatile CountDownLatch startSessionCalled = new CountDownLatch(0);
+        volatile CountDownLatch finishSession = new CountDownLatch(0);
+
+        StubProvider() {
+            super((AWSCognitoIdentityProvider) null, null, null,
+                    (AWSSecurityTokenService) null);
+        }
+
+        @Override
+        protected void startSession() {
+            int session = sessions.incrementAndGet();
+            startSessionCalled.countDown();
+            try {
+                finishSession.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sessionCredentials = new BasicSessionCredentials("AK" + session, "SK", "ST");
+            setSessionCredentialsExpiration(
+                    new Date(System.currentTimeMillis() + nextLifetime));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        provider = new StubProvider();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        provider.setBackgroundRefreshEnabled(false);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testValidCredentialsAreReused() {
+        AWSSessionCredentials credentials = provider.getCredentials();
+        assertSame(credentials, provider.getCredentials());
+        assertEquals(1, provider.sessions.get());
+
+        provider.clearCredentials();
+        assertNotSame(credentials, provider.getCredentials());
+        assertEquals(2, provider.sessions.get());
+    }
+
+    @Test
+    public void testCredentialsAssignedBySubclassArePublished() {
+        AWSSessionCredentials credentials = provider.getCredentials();
+
+        AWSSessionCredentials assigned = new BasicSessionCredentials("AK", "SK", "ST");
+        provider.sessionCredentials = assigned;
+        assertSame(assigned, provider.getCredentials());
+        assertSame(assigned, provider.getCredentials());
+
+        // an expired date makes the next call start a new session
+        provider.sessionCredentialsExpiration = new Date(System.currentTimeMillis() - MINUTE);
+        AWSSessionCredentials renewed = provider.getCredentials();
+        assertNotSame(credentials, renewed);
+        assertNotSame(assigned, renewed);
+        assertSame(renewed, provider.getCredentials());
+        assertEquals(2, provider.sessions.get());
+    }
+
+    @Test
+    public void testOneThreadRefreshesWhileOthersUseValidCredentials() throws Exception {
+        provider.nextLifetime = 5 * MINUTE;
+        final AWSSessionCredentials expiring = provider.getCredentials();
+
+        provider.nextLifetime = 60 * MINUTE;
+        provider.startSessionCalled = new CountDownLatch(1);
+        provider.finishSession = new CountDownLatch(1);
+        Future<AWSSessionCredentials> refreshing = executor.submit(getCredentials());
+        assertTrue(provider.startSessionCalled.await(5, TimeUnit.SECONDS));
+
+        List<Future<AWSSessionCredentials>> others = new ArrayList<Future<AWSSessionCredentials>>();
+        for (int i = 0; i < THREADS - 1; i++) {
+            others.add(executor.submit(getCredentials()));
+        }
+        for (Future<AWSSessionCredentials> other : others) {
+            assertSame(expiring, other.get(5, TimeUnit.SECONDS));
+        }
+
+        provider.finishSession.countDown();
+        AWSSessionCredentials renewed = refreshing.get(5, TimeUnit.SECONDS);
+        assertNotSame(expiring, renewed);
+        assertSame(renewed, provider.getCredentials());
+        assertEquals(2, provider.sessions.get());
+    }
+
+    @Test
+    public void testExpiredCredentialsAreRefreshedOnce() throws Exception {
+        provider.nextLifetime = -MINUTE;
+        AWSSessionCredentials expired = provider.getCredentials();
+
+        provider.nextLifetime = 60 * MINUTE;
+        provider.startSessionCalled = new CountDownLatch(1);
+        provider.finishSession = new CountDownLatch(1);
+        List<Future<AWSSessionCredentials>> callers = new ArrayList<Future<AWSSessionCredentials>>();
+        for (int i = 0; i < THREADS; i++) {
+            callers.add(executor.submit(getCredentials()));
+        }
+        assertTrue(provider.startSessionCalled.await(5, TimeUnit.SECONDS));
+        provider.finishSession.countDown();
+
+        AWSSessionCredentials renewed = callers.get(0).get(5, TimeUnit.SECONDS);
+        assertNotSame(expired, renewed);
+        for (Future<AWSSessionCredentials> caller : callers) {
+            assertSame(renewed, caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, provider.sessions.get());
+    }
+
+    @Test
+    public void testBackgroundRefreshRenewsAheadOfThreshold() throws Exception {
+        provider.nextLifetime = 5 * MINUTE;
+        AWSSessionCredentials expiring = provider.getCredentials();
+
+        provider.nextLifetime = 60 * MINUTE;
+        provider.startSessionCalled = new CountDownLatch(1);
+        provider.setBackgroundRefreshEnabled(true);
+        assertTrue(provider.isBackgroundRefreshEnabled());
+        assertTrue(provider.startSessionCalled.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (provider.getSessionCredentitalsExpiration().getTime()
+                < System.currentTimeMillis() + 30 * MINUTE
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotSame(expiring, provider.getCredentials());
+        assertEquals(2, provider.sessions.get());
+    }
+
+    @Test
+    public void testContendedGetCredentialsPerformance() throws Exception {
+        final int iterations = 200000;
+        provider.getCredentials();
+
+        List<Callable<Void>> callers = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < THREADS; i++) {
+            callers.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = 0; j < iterations; j++) {
+                        provider.getCredentials();
+                    }
+                    return null;
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Future<Void> caller : executor.invokeAll(callers)) {
+            caller.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("getCredentials " + THREADS + " threads x " + iterations
+                + " calls elapsed: " + elapsed / 1000000 + "ms, "
+                + elapsed / ((long) THREADS * iterations) + "ns/call");
+        assertEquals(1, provider.sessions.get());
+    }
+
+    private Callable<AWSSessionCredentials> getCredentials() {
+        return new Callable<AWSSessionCredentials>() {
+            @Override
+            public AWSSessionCredentials call() {
+                return provider.getCredentials();
+            }
+        };
+    }
+}
@@ -16,11 +16,18 @@
 package com.amazonaws.regions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class RegionUtilsTest {
 
@@ -66,4 +73,44 @@ public class RegionUtilsTest {
 
     }
 
+    @Test
+    public void testGetRegionByEndpointReturnsFirstRegion() {
+        // sts.amazonaws.com is the endpoint of several regions
+        Region first = null;
+        for (Region region : RegionUtils.getRegions()) {
+            if ("sts.amazonaws.com".equals(region.getServiceEndpoint(ServiceAbbreviations.STS))) {
+                first = region;
+                break;
+            }
+        }
+        assertSame(first, RegionUtils.getRegionByEndpoint("https://sts.amazonaws.com"));
+    }
+
+    @Test
+    public void testGetRegion() {
+        for (Region region : RegionUtils.getRegions()) {
+            assertSame(region, RegionUtils.getRegion(region.getName()));
+        }
+        assertNull(RegionUtils.getRegion("bogus-region"));
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Region>> lookups = new ArrayList<Future<Region>>();
+        for (int i = 0; i < 1000; i++) {
+            lookups.add(executor.submit(new Callable<Region>() {
+                @Override
+                public Region call() {
+                    RegionUtils.getRegionsForService(ServiceAbbreviations.S3);
+                    return RegionUtils.getRegionByEndpoint("s3.us-west-2.amazonaws.com");
+                }
+            }));
+        }
+        for (Future<Region> lookup : lookups) {
+            assertEquals("us-west-2", lookup.get().getName());
+        }
+        executor.shutdown();
+    }
+
 }
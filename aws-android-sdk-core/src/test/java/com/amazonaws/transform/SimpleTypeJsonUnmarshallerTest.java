@@ -16,6 +16,7 @@
 package com.amazonaws.transform;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.util.Base64;
@@ -298,4 +299,44 @@ public class SimpleTypeJsonUnmarshallerTest {
         assertEquals(sUnmarshaller.unmarshall(context), "String");
     }
 
+    @Test
+    public void testDateJsonUnmarshallerKeepsMillis() throws Exception {
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(
+                JsonUtils.getJsonReader(new StringReader("{\"date\":1423875641.895}")));
+        context.getReader().beginObject();
+        context.getReader().nextName();
+
+        Date date = SimpleTypeJsonUnmarshallers.DateJsonUnmarshaller.getInstance()
+                .unmarshall(context);
+        assertEquals(1423875641895L, date.getTime());
+    }
+
+    @Test
+    public void testNullValues() throws Exception {
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(
+                JsonUtils.getJsonReader(new StringReader("[null,null,null,null,null,null,1]")));
+        context.getReader().beginArray();
+
+        assertNull(SimpleTypeJsonUnmarshallers.LongJsonUnmarshaller.getInstance().unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.DoubleJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.BooleanJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.DateJsonUnmarshaller.getInstance().unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.StringJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertEquals(Integer.valueOf(1), SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller
+                .getInstance().unmarshall(context));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntegerJsonUnmarshallerRejectsLong() throws Exception {
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(
+                JsonUtils.getJsonReader(new StringReader("[4294967296]")));
+        context.getReader().beginArray();
+        SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller.getInstance().unmarshall(context);
+    }
+
 }
@@ -28,7 +28,11 @@ import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class StaxUnmarshallerContextTest {
@@ -95,6 +99,13 @@ public class StaxUnmarshallerContextTest {
                 context.nextEvent() == XmlPullParser.START_TAG);
         assertTrue(context.getCurrentDepth() == 4);
 
+        // test the paths of the open elements
+        assertEquals(Arrays.asList("/DescribeImagesResponse/imageSet/item/id",
+                "/DescribeImagesResponse/imageSet/item", "/DescribeImagesResponse/imageSet",
+                "/DescribeImagesResponse"), new ArrayList<String>(context.stack));
+        assertEquals("/DescribeImagesResponse/imageSet/item/id", context.stack.peek());
+        assertEquals("/DescribeImagesResponse", context.stack.getLast());
+
         // test testExpression
         assertTrue(". always match", context.testExpression(".", 4));
         assertTrue(context.testExpression("id", 4));
@@ -103,6 +114,50 @@ public class StaxUnmarshallerContextTest {
         assertTrue(context.testExpression("imageSet/item/id", 2));
         assertFalse("depth not match", context.testExpression("imageSet/item/id", 3));
         assertFalse("expression not match", context.testExpression("imageSet/item_id", 2));
+        assertFalse("attributes never match", context.testExpression("id/@encoding", 4));
+
+        // test compiled expressions
+        assertTrue(context.testExpression(StaxPathExpression.compile("item/id"), 3));
+        assertTrue("default is current depth",
+                context.testExpression(StaxPathExpression.compile("id")));
+        assertFalse("depth not match",
+                context.testExpression(StaxPathExpression.compile("imageSet/item/id"), 3));
+        assertFalse("prefix not match",
+                context.testExpression(StaxPathExpression.compile("tem/id"), 3));
+    }
+
+    @Test
+    public void testStackFollowsOpenElements() throws Exception {
+        context = getContext("<a><b><c/></b><d><e/></d></a>", null);
+        assertTrue(context.stack.isEmpty());
+        assertNull(context.stack.peek());
+
+        context.nextEvent();
+        context.nextEvent();
+        context.nextEvent();
+        assertEquals("/a/b/c", context.stack.peek());
+        context.nextEvent();
+        context.nextEvent();
+        assertEquals("/a", context.stack.peek());
+        assertEquals(1, context.stack.size());
+
+        // paths read before are rebuilt for the elements opened since
+        context.nextEvent();
+        context.nextEvent();
+        assertEquals(Arrays.asList("/a/d/e", "/a/d", "/a"),
+                new ArrayList<String>(context.stack));
+        assertEquals(Arrays.asList("/a", "/a/d", "/a/d/e"),
+                toList(context.stack.descendingIterator()));
+        assertTrue(context.stack.contains("/a/d"));
+        assertFalse(context.stack.contains("/a/b"));
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
     }
 
     @Test
@@ -125,4 +180,142 @@ public class StaxUnmarshallerContextTest {
         assertNull("non existing key", context.getHeader("invalid key"));
         assertEquals("header value", "value", context.getHeader("key"));
     }
+    /**
+     * Members of a DescribeInstances response, in the order the generated
+     * unmarshallers test them. Members with a shape are structures or list
+     * items, the others are read as text.
+     */
+    private static final class Shape {
+        private final String[] members;
+        private final Map<String, Shape> shapes = new HashMap<String, Shape>();
+
+        Shape(String... members) {
+            this.members = members;
+        }
+
+        Shape with(String member, Shape shape) {
+            shapes.put(member, shape);
+            return this;
+        }
+    }
+
+    private static final Shape GROUP = new Shape("groupName", "groupId");
+    private static final Shape TAG = new Shape("key", "value");
+    private static final Shape STATE = new Shape("code", "name");
+    private static final Shape PLACEMENT = new Shape("availabilityZone", "groupName", "tenancy");
+    private static final Shape MONITORING = new Shape("state");
+    private static final Shape EBS = new Shape("volumeId", "status", "attachTime",
+            "deleteOnTermination");
+    private static final Shape BLOCK_DEVICE = new Shape("deviceName", "ebs").with("ebs", EBS);
+    private static final Shape INSTANCE = new Shape("instanceId", "imageId", "instanceState",
+            "privateDnsName", "dnsName", "reason", "keyName", "amiLaunchIndex", "productCodes/item",
+            "instanceType", "launchTime", "placement", "kernelId", "ramdiskId", "platform",
+            "monitoring", "subnetId", "vpcId", "privateIpAddress", "ipAddress", "stateReason",
+            "architecture", "rootDeviceType", "rootDeviceName", "blockDeviceMapping/item",
+            "virtualizationType", "instanceLifecycle", "spotInstanceRequestId", "clientToken",
+            "tagSet/item", "groupSet/item", "sourceDestCheck", "hypervisor", "ebsOptimized")
+            .with("instanceState", STATE).with("placement", PLACEMENT)
+            .with("monitoring", MONITORING).with("blockDeviceMapping/item", BLOCK_DEVICE)
+            .with("tagSet/item", TAG).with("groupSet/item", GROUP);
+    private static final Shape RESERVATION = new Shape("reservationId", "ownerId",
+            "requesterId", "groupSet/item", "instancesSet/item")
+            .with("groupSet/item", GROUP).with("instancesSet/item", INSTANCE);
+    private static final Shape RESPONSE = new Shape("reservationSet/item", "nextToken")
+            .with("reservationSet/item", RESERVATION);
+
+    private static int unmarshall(StaxUnmarshallerContext context, Shape shape) throws Exception {
+        int values = 0;
+        int originalDepth = context.getCurrentDepth();
+        int targetDepth = originalDepth + 1;
+        if (context.isStartOfDocument()) {
+            targetDepth += 1;
+        }
+        while (true) {
+            int xmlEvent = context.nextEvent();
+            if (xmlEvent == XmlPullParser.END_DOCUMENT) {
+                break;
+            }
+            if (xmlEvent == XmlPullParser.START_TAG) {
+                for (String member : shape.members) {
+                    if (context.testExpression(member, targetDepth)) {
+                        Shape memberShape = shape.shapes.get(member);
+                        if (memberShape == null) {
+                            context.readText();
+                            values++;
+                        } else {
+                            values += unmarshall(context, memberShape);
+                        }
+                        break;
+                    }
+                }
+            } else if (xmlEvent == XmlPullParser.END_TAG) {
+                if (context.getCurrentDepth() < originalDepth) {
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String describeInstancesResponse(int minLength) {
+        StringBuilder xml = new StringBuilder(minLength + 4096);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">")
+                .append("<requestId>8f7724cf-496f-496e-8fe3-example</requestId><reservationSet>");
+        for (int i = 0; xml.length() < minLength; i++) {
+            xml.append("<item><reservationId>r-").append(i).append("</reservationId>")
+                    .append("<ownerId>123456789012</ownerId><groupSet/><instancesSet>");
+            for (int j = 0; j < 2; j++) {
+                xml.append("<item><instanceId>i-").append(i).append('-').append(j)
+                        .append("</instanceId><imageId>ami-bff32ccc</imageId>")
+                        .append("<instanceState><code>16</code><name>running</name></instanceState>")
+                        .append("<privateDnsName>ip-192-168-1-88.eu-west-1.compute.internal</privateDnsName>")
+                        .append("<dnsName>ec2-54-194-252-215.eu-west-1.compute.amazonaws.com</dnsName>")
+                        .append("<reason/><keyName>my_keypair</keyName><amiLaunchIndex>0</amiLaunchIndex>")
+                        .append("<productCodes/><instanceType>t2.micro</instanceType>")
+                        .append("<launchTime>2018-05-08T16:46:19.000Z</launchTime>")
+                        .append("<placement><availabilityZone>eu-west-1c</availabilityZone>")
+                        .append("<groupName/><tenancy>default</tenancy></placement>")
+                        .append("<monitoring><state>disabled</state></monitoring>")
+                        .append("<subnetId>subnet-56f5f633</subnetId><vpcId>vpc-11112222</vpcId>")
+                        .append("<privateIpAddress>192.168.1.88</privateIpAddress>")
+                        .append("<ipAddress>54.194.252.215</ipAddress><sourceDestCheck>true</sourceDestCheck>")
+                        .append("<groupSet><item><groupId>sg-e4076980</groupId>")
+                        .append("<groupName>SecurityGroup1</groupName></item></groupSet>")
+                        .append("<architecture>x86_64</architecture><rootDeviceType>ebs</rootDeviceType>")
+                        .append("<rootDeviceName>/dev/xvda</rootDeviceName><blockDeviceMapping><item>")
+                        .append("<deviceName>/dev/xvda</deviceName><ebs><volumeId>vol-1234567890abcdef0")
+                        .append("</volumeId><status>attached</status>")
+                        .append("<attachTime>2015-12-22T10:44:09.000Z</attachTime>")
+                        .append("<deleteOnTermination>true</deleteOnTermination></ebs></item>")
+                        .append("</blockDeviceMapping><virtualizationType>hvm</virtualizationType>")
+                        .append("<clientToken>xMcwG14507example</clientToken><tagSet><item>")
+                        .append("<key>Name</key><value>Server_1</value></item></tagSet>")
+                        .append("<hypervisor>xen</hypervisor><ebsOptimized>false</ebsOptimized></item>");
+            }
+            xml.append("</instancesSet></item>");
+        }
+        return xml.append("</reservationSet></DescribeInstancesResponse>").toString();
+    }
+
+    @Test
+    public void testParsePerformance() throws Exception {
+        String xml = describeInstancesResponse(10 * 1024 * 1024);
+        int expected = 0;
+        // warm up
+        for (int i = 0; i < 3; i++) {
+            expected = unmarshall(getContext(xml, null), RESPONSE);
+        }
+        System.out.println("Unmarshall a " + xml.length() / 1024
+                + " KB DescribeInstances response 5 times");
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            int values = unmarshall(getContext(xml, null), RESPONSE);
+            assertTrue("values read", values > 0);
+            assertEquals("same values", expected, values);
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        System.out.println("Unmarshall elapsed: " + elapsed + "ms, "
+                + 5L * xml.length() / 1024 * 1000 / Math.max(1, elapsed) + " KB/s");
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+public class JsonByteSinkTest {
+
+    private static final String TEXT = "ascii, \u00e9t\u00e9, \u20ac, \u4e2d\u6587, "
+            + "\ud83d\ude00 and more";
+
+    @Test
+    public void testEncodesLikeString() throws IOException {
+        final JsonByteSink sink = new JsonByteSink(1);
+        sink.write(TEXT);
+        sink.close();
+        assertArrayEquals(TEXT.getBytes(UTF8), sink.toByteArray());
+        assertEquals(TEXT.getBytes(UTF8).length, sink.size());
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossWrites() throws IOException {
+        final JsonByteSink sink = new JsonByteSink();
+        sink.write("a\ud83d");
+        sink.write('\ude00');
+        sink.write("b".toCharArray());
+        assertArrayEquals("a\ud83d\ude00b".getBytes(UTF8), sink.toByteArray());
+    }
+
+    @Test
+    public void testMalformedSurrogates() throws IOException {
+        final String malformed = "\ude00a\ud83db\ud83d";
+        final JsonByteSink sink = new JsonByteSink();
+        sink.write(malformed);
+        sink.close();
+        assertArrayEquals(malformed.getBytes(UTF8), sink.toByteArray());
+    }
+
+    @Test
+    public void testJsonWriter() throws IOException {
+        final StringWriter stringWriter = new StringWriter();
+        writeJson(JsonUtils.getJsonWriter(stringWriter));
+        final JsonByteSink sink = new JsonByteSink();
+        writeJson(JsonUtils.getJsonWriter(sink));
+        assertArrayEquals(stringWriter.toString().getBytes(UTF8), sink.toByteArray());
+    }
+
+    @Test
+    public void testInputStreamIsRepeatable() throws IOException {
+        final JsonByteSink sink = new JsonByteSink();
+        sink.write(TEXT);
+        final InputStream in = sink.toInputStream();
+        assertTrue(in.markSupported());
+        in.mark(-1);
+        assertEquals(TEXT, IOUtils.toString(in));
+        in.reset();
+        assertEquals(TEXT, IOUtils.toString(in));
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        final JsonByteSink sink = new JsonByteSink();
+        sink.write("first\ud83d");
+        sink.reset();
+        sink.write("second");
+        assertArrayEquals("second".getBytes(UTF8), sink.toByteArray());
+    }
+
+    private static void writeJson(AwsJsonWriter writer) throws IOException {
+        writer.beginObject().name("text").value(TEXT).name("number").value(12.5)
+                .endObject().close();
+    }
+}
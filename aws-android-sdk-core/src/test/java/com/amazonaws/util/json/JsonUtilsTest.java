@@ -154,6 +154,65 @@ public class JsonUtilsTest {
         reader.endObject();
     }
 
+    @Test
+    public void testTypedReads() throws IOException {
+        final String json = "[123, \"-45\", 123.45, \"6.5e2\", true, \"TRUE\", \"no\","
+                + " 1423875641.895, 1423875641, \"1423875641.5\", 9223372036854775807]";
+        for (JsonEngine engine : JsonEngine.values()) {
+            JsonUtils.setJsonEngine(engine);
+            AwsJsonReader reader = JsonUtils.getJsonReader(new StringReader(json));
+            reader.beginArray();
+            assertEquals(engine + " long", 123L, TypedJsonReads.nextLong(reader));
+            assertEquals(engine + " long string", -45L, TypedJsonReads.nextLong(reader));
+            assertEquals(engine + " double", 123.45, TypedJsonReads.nextDouble(reader), 0);
+            assertEquals(engine + " double string", 650.0, TypedJsonReads.nextDouble(reader), 0);
+            assertTrue(engine + " boolean", TypedJsonReads.nextBoolean(reader));
+            assertTrue(engine + " boolean string", TypedJsonReads.nextBoolean(reader));
+            assertFalse(engine + " boolean other string", TypedJsonReads.nextBoolean(reader));
+            assertEquals(engine + " epoch", 1423875641895L,
+                    TypedJsonReads.nextEpochMillis(reader));
+            assertEquals(engine + " epoch seconds", 1423875641000L,
+                    TypedJsonReads.nextEpochMillis(reader));
+            assertEquals(engine + " epoch string", 1423875641500L,
+                    TypedJsonReads.nextEpochMillis(reader));
+            assertEquals(engine + " max long", Long.MAX_VALUE, TypedJsonReads.nextLong(reader));
+            assertFalse(reader.hasNext());
+            reader.endArray();
+            reader.close();
+        }
+        JsonUtils.setJsonEngine(JsonEngine.Gson);
+    }
+
+    @Test
+    public void testTypedReadsOfOtherReaders() throws IOException {
+        final String json = "[\"123\", \"6.5e2\", \"true\", \"1423875641.895\"]";
+        AwsJsonReader reader = new StringsOnlyReader(
+                JsonUtils.getJsonReader(new StringReader(json)));
+        reader.beginArray();
+        assertEquals(123L, TypedJsonReads.nextLong(reader));
+        assertEquals(650.0, TypedJsonReads.nextDouble(reader), 0);
+        assertTrue(TypedJsonReads.nextBoolean(reader));
+        assertEquals(1423875641895L, TypedJsonReads.nextEpochMillis(reader));
+        reader.endArray();
+        reader.close();
+    }
+
+    @Test
+    public void testTypedReadRejectsNonNumber() throws IOException {
+        for (JsonEngine engine : JsonEngine.values()) {
+            JsonUtils.setJsonEngine(engine);
+            AwsJsonReader reader = JsonUtils.getJsonReader(new StringReader("[\"abc\"]"));
+            reader.beginArray();
+            try {
+                TypedJsonReads.nextLong(reader);
+                fail(engine + " should not parse");
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+        JsonUtils.setJsonEngine(JsonEngine.Gson);
+    }
+
     @Test
     public void testJsonWriter() throws IOException {
         StringWriter out = new StringWriter();
@@ -226,6 +285,46 @@ public class JsonUtilsTest {
                 + (System.nanoTime() - start) / 1000000 + "ms");
     }
 
+    @Test
+    public void testTypedReadPerformance() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i > 0 ? "," : "").append(1423875641 + i).append(".895,").append(i);
+        }
+        String array = json.append("]").toString();
+
+        System.out.println("Read 5000 timestamps and 5000 longs 200 times");
+        for (JsonEngine engine : JsonEngine.values()) {
+            JsonUtils.setJsonEngine(engine);
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                AwsJsonReader reader = JsonUtils.getJsonReader(new StringReader(array));
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Double.parseDouble(reader.nextString());
+                    Long.parseLong(reader.nextString());
+                }
+                reader.endArray();
+            }
+            System.out.println(engine + " nextString and parse elapsed: "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+
+            start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                AwsJsonReader reader = JsonUtils.getJsonReader(new StringReader(array));
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    TypedJsonReads.nextEpochMillis(reader);
+                    TypedJsonReads.nextLong(reader);
+                }
+                reader.endArray();
+            }
+            System.out.println(engine + " typed reads elapsed: "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+        }
+        JsonUtils.setJsonEngine(JsonEngine.Gson);
+    }
+
     @Test
     public void testDate() throws IOException {
         Date d = new Date(1423875641895L);
@@ -277,4 +376,70 @@ public class JsonUtilsTest {
         }
         return ByteBuffer.wrap(bytes);
     }
+
+    /**
+     * A reader implemented outside the SDK, which only reads strings.
+     */
+    private static final class StringsOnlyReader implements AwsJsonReader {
+        private final AwsJsonReader in;
+
+        StringsOnlyReader(AwsJsonReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            in.beginArray();
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            in.endArray();
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            in.beginObject();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            in.endObject();
+        }
+
+        @Override
+        public boolean isContainer() throws IOException {
+            return in.isContainer();
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return in.hasNext();
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            return in.nextName();
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            return in.nextString();
+        }
+
+        @Override
+        public AwsJsonToken peek() throws IOException {
+            return in.peek();
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            in.skipValue();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
 }
@@ -99,6 +99,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Pre-defined strategies for mapping between Java types and DynamoDB types.
@@ -196,6 +198,11 @@ public final class ConversionSchemas {
         }
     }
 
+    /**
+     * Converts items through the {@link ItemSchema} of their class. The
+     * marshallers and unmarshallers of each getter are resolved once and read
+     * without locking, so a converter can be shared between threads.
+     */
     static class StandardItemConverter implements ItemConverter {
 
         private final MarshallerSet marshallerSet;
@@ -203,6 +210,11 @@ public final class ConversionSchemas {
         private final DynamoDBReflector reflector;
         private final S3ClientCache s3cc;
 
+        private final ConcurrentMap<Method, ArgumentMarshaller> marshallers =
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
+        private final ConcurrentMap<Method, ArgumentUnmarshaller> unmarshallers =
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
+
         public StandardItemConverter(
                 MarshallerSet marshallerSet,
                 UnmarshallerSet unmarshallerSet,
@@ -268,15 +280,14 @@ public final class ConversionSchemas {
             final Map<String, AttributeValue> result =
                     new HashMap<String, AttributeValue>();
 
-            for (final Method getter : reflector.getRelevantGetters(clazz)) {
-                final Object getterResult =
-                        ReflectionUtils.safeInvoke(getter, object);
+            for (final ItemSchema.Attribute attribute
+                    : reflector.getItemSchema(clazz).getAttributes()) {
+                final Object getterResult = attribute.get(object);
 
                 if (getterResult != null) {
-                    final AttributeValue value = convert(getter, getterResult);
+                    final AttributeValue value = convert(attribute.getGetter(), getterResult);
                     if (value != null) {
-                        final String name = reflector.getAttributeName(getter);
-                        result.put(name, value);
+                        result.put(attribute.getName(), value);
                     }
                 }
             }
@@ -285,11 +296,12 @@ public final class ConversionSchemas {
         }
 
         private ArgumentMarshaller getMarshaller(Method getter) {
-            ArgumentMarshaller marshaller =
-                    marshallerSet.getMarshaller(getter);
-
-            marshaller = augment(getter.getGenericReturnType(), marshaller);
-
+            ArgumentMarshaller marshaller = marshallers.get(getter);
+            if (marshaller == null) {
+                marshaller = marshallerSet.getMarshaller(getter);
+                marshaller = augment(getter.getGenericReturnType(), marshaller);
+                marshallers.put(getter, marshaller);
+            }
             return marshaller;
         }
 
@@ -413,11 +425,11 @@ public final class ConversionSchemas {
                 return result;
             }
 
-            for (final Method m : reflector.getRelevantGetters(clazz)) {
-                final String attributeName = reflector.getAttributeName(m);
-                final AttributeValue av = value.get(attributeName);
+            for (final ItemSchema.Attribute attribute
+                    : reflector.getItemSchema(clazz).getAttributes()) {
+                final AttributeValue av = value.get(attribute.getName());
                 if (av != null) {
-                    setValue(result, m, av);
+                    setValue(result, attribute, av);
                 }
             }
 
@@ -426,28 +438,29 @@ public final class ConversionSchemas {
 
         private void setValue(
                 Object target,
-                Method getter,
+                ItemSchema.Attribute attribute,
                 AttributeValue value) {
 
-            final Method setter = reflector.getSetter(getter);
+            final Method setter = attribute.getSetter();
             final ArgumentUnmarshaller unmarshaller =
-                    getUnmarshaller(getter, setter);
+                    getUnmarshaller(attribute.getGetter(), setter);
 
             final Object unmarshalled = unmarshall(unmarshaller, setter, value);
-            ReflectionUtils.safeInvoke(setter, target, unmarshalled);
+            attribute.set(target, unmarshalled);
         }
 
         private ArgumentUnmarshaller getUnmarshaller(
                 Method getter,
                 Method setter) {
 
-            ArgumentUnmarshaller unmarshaller =
-                    unmarshallerSet.getUnmarshaller(getter, setter);
-
-            unmarshaller = augment(
-                    setter.getGenericParameterTypes()[0], unmarshaller);
-
-            return new NullableUnmarshaller(unmarshaller);
+            ArgumentUnmarshaller unmarshaller = unmarshallers.get(getter);
+            if (unmarshaller == null) {
+                unmarshaller = unmarshallerSet.getUnmarshaller(getter, setter);
+                unmarshaller = new NullableUnmarshaller(augment(
+                        setter.getGenericParameterTypes()[0], unmarshaller));
+                unmarshallers.put(getter, unmarshaller);
+            }
+            return unmarshaller;
         }
 
         private ArgumentUnmarshaller getMemberUnmarshaller(Type type) {
@@ -1263,11 +1276,11 @@ public final class ConversionSchemas {
 
     static class CachingMarshallerSet implements MarshallerSet {
 
-        private final Map<Method, ArgumentMarshaller> cache =
-                new HashMap<Method, ArgumentMarshaller>();
+        private final ConcurrentMap<Method, ArgumentMarshaller> cache =
+                new ConcurrentHashMap<Method, ArgumentMarshaller>();
 
-        private final Map<Type, ArgumentMarshaller> memberCache =
-                new HashMap<Type, ArgumentMarshaller>();
+        private final ConcurrentMap<Type, ArgumentMarshaller> memberCache =
+                new ConcurrentHashMap<Type, ArgumentMarshaller>();
 
         private final MarshallerSet wrapped;
 
@@ -1277,40 +1290,36 @@ public final class ConversionSchemas {
 
         @Override
         public ArgumentMarshaller getMarshaller(Method getter) {
-            synchronized (cache) {
-                ArgumentMarshaller marshaler = cache.get(getter);
-                if (marshaler != null) {
-                    return marshaler;
-                }
-
-                marshaler = wrapped.getMarshaller(getter);
-                cache.put(getter, marshaler);
+            ArgumentMarshaller marshaler = cache.get(getter);
+            if (marshaler != null) {
                 return marshaler;
             }
+
+            marshaler = wrapped.getMarshaller(getter);
+            cache.put(getter, marshaler);
+            return marshaler;
         }
 
         @Override
         public ArgumentMarshaller getMemberMarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentMarshaller marshaller = memberCache.get(memberType);
-                if (marshaller != null) {
-                    return marshaller;
-                }
-
-                marshaller = wrapped.getMemberMarshaller(memberType);
-                memberCache.put(memberType, marshaller);
+            ArgumentMarshaller marshaller = memberCache.get(memberType);
+            if (marshaller != null) {
                 return marshaller;
             }
+
+            marshaller = wrapped.getMemberMarshaller(memberType);
+            memberCache.put(memberType, marshaller);
+            return marshaller;
         }
     }
 
     static class CachingUnmarshallerSet implements UnmarshallerSet {
 
-        private final Map<Method, ArgumentUnmarshaller> cache =
-                new HashMap<Method, ArgumentUnmarshaller>();
+        private final ConcurrentMap<Method, ArgumentUnmarshaller> cache =
+                new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
 
-        private final Map<Type, ArgumentUnmarshaller> memberCache =
-                new HashMap<Type, ArgumentUnmarshaller>();
+        private final ConcurrentMap<Type, ArgumentUnmarshaller> memberCache =
+                new ConcurrentHashMap<Type, ArgumentUnmarshaller>();
 
         private final UnmarshallerSet wrapped;
 
@@ -1323,30 +1332,26 @@ public final class ConversionSchemas {
                 Method getter,
                 Method setter) {
 
-            synchronized (cache) {
-                ArgumentUnmarshaller unmarshaler = cache.get(getter);
-                if (unmarshaler != null) {
-                    return unmarshaler;
-                }
-
-                unmarshaler = wrapped.getUnmarshaller(getter, setter);
-                cache.put(getter, unmarshaler);
+            ArgumentUnmarshaller unmarshaler = cache.get(getter);
+            if (unmarshaler != null) {
                 return unmarshaler;
             }
+
+            unmarshaler = wrapped.getUnmarshaller(getter, setter);
+            cache.put(getter, unmarshaler);
+            return unmarshaler;
         }
 
         @Override
         public ArgumentUnmarshaller getMemberUnmarshaller(Type memberType) {
-            synchronized (memberCache) {
-                ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
-                if (unmarshaller != null) {
-                    return unmarshaller;
-                }
-
-                unmarshaller = wrapped.getMemberUnmarshaller(memberType);
-                memberCache.put(memberType, unmarshaller);
+            ArgumentUnmarshaller unmarshaller = memberCache.get(memberType);
+            if (unmarshaller != null) {
                 return unmarshaller;
             }
+
+            unmarshaller = wrapped.getMemberUnmarshaller(memberType);
+            memberCache.put(memberType, unmarshaller);
+            return unmarshaller;
         }
     }
 
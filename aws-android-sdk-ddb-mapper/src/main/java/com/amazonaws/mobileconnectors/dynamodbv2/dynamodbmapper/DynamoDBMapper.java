@@ -78,6 +78,8 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Object mapper for domain-object interaction with DynamoDB.
@@ -179,6 +181,9 @@ public class DynamoDBMapper {
     private final AmazonDynamoDB db;
     private final DynamoDBMapperConfig config;
     private final DynamoDBReflector reflector = new DynamoDBReflector();
+    /** Converters of the standard conversion schemas used by this mapper. */
+    private final ConcurrentMap<ConversionSchema, ItemConverter> converters =
+            new ConcurrentHashMap<ConversionSchema, ItemConverter>();
     private final DynamoDBTableSchemaParser schemaParser = new DynamoDBTableSchemaParser();
     private final VersionIncrementor incrementor = new VersionIncrementor();
 
@@ -632,19 +637,19 @@ public class DynamoDBMapper {
             Class<T> clazz) {
 
         final Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
-        for (final Method keyGetter : reflector.getPrimaryKeyGetters(clazz)) {
-            final Object getterResult =
-                    ReflectionUtils.safeInvoke(keyGetter, keyObject);
+        for (final ItemSchema.Attribute keyAttribute
+                : reflector.getItemSchema(clazz).getKeyAttributes()) {
+            final Object getterResult = keyAttribute.get(keyObject);
 
             final AttributeValue keyAttributeValue =
-                    converter.convert(keyGetter, getterResult);
+                    converter.convert(keyAttribute.getGetter(), getterResult);
 
             if (keyAttributeValue == null) {
                 throw new DynamoDBMappingException(
-                        "Null key found for " + keyGetter);
+                        "Null key found for " + keyAttribute.getGetter());
             }
 
-            key.put(reflector.getAttributeName(keyGetter), keyAttributeValue);
+            key.put(keyAttribute.getName(), keyAttributeValue);
         }
 
         if (key.isEmpty()) {
@@ -693,8 +698,9 @@ public class DynamoDBMapper {
         }
         boolean seenHashKey = false;
         boolean seenRangeKey = false;
-        for (final Method getter : reflector.getPrimaryKeyGetters(clazz)) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class)) {
+        for (final ItemSchema.Attribute keyAttribute
+                : reflector.getItemSchema(clazz).getKeyAttributes()) {
+            if (keyAttribute.isHashKey()) {
                 if (seenHashKey) {
                     throw new DynamoDBMappingException(
                             "Found more than one method annotated with "
@@ -704,8 +710,8 @@ public class DynamoDBMapper {
                                     + ". Use load(Object) for tables with more than a single hash and range key.");
                 }
                 seenHashKey = true;
-                ReflectionUtils.safeInvoke(reflector.getSetter(getter), keyObject, hashKey);
-            } else if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)) {
+                keyAttribute.set(keyObject, hashKey);
+            } else if (keyAttribute.isRangeKey()) {
                 if (seenRangeKey) {
                     throw new DynamoDBMappingException(
                             "Found more than one method annotated with "
@@ -715,7 +721,7 @@ public class DynamoDBMapper {
                                     + ". Use load(Object) for tables with more than a single hash and range key.");
                 }
                 seenRangeKey = true;
-                ReflectionUtils.safeInvoke(reflector.getSetter(getter), keyObject, rangeKey);
+                keyAttribute.set(keyObject, rangeKey);
             }
         }
         if (!seenHashKey) {
@@ -924,22 +930,18 @@ public class DynamoDBMapper {
     }
 
     boolean needAutoGenerateAssignableKey(Class<?> clazz, Object object) {
-        final Collection<Method> keyGetters = reflector.getPrimaryKeyGetters(clazz);
+        final ItemSchema schema = reflector.getItemSchema(clazz);
         boolean forcePut = false;
         /*
          * Determine if there are any auto-assigned keys to assign. If so, force
          * a put and assign the keys.
          */
-        boolean hashKeyGetterFound = false;
-        for (final Method method : keyGetters) {
-            final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-            if (getterResult == null && reflector.isAssignableKey(method)) {
+        for (final ItemSchema.Attribute keyAttribute : schema.getKeyAttributes()) {
+            if (keyAttribute.isAssignableKey() && keyAttribute.get(object) == null) {
                 forcePut = true;
             }
-            if (ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBHashKey.class)) {
-                hashKeyGetterFound = true;
-            }
         }
+        final boolean hashKeyGetterFound = schema.getHashKey() != null;
         if (!hashKeyGetterFound) {
             throw new DynamoDBMappingException("No " + DynamoDBHashKey.class
                     + " annotation found in class " + clazz);
@@ -1212,16 +1214,17 @@ public class DynamoDBMapper {
          * The general workflow of a save operation.
          */
         public void execute() {
-            final Collection<Method> keyGetters = reflector.getPrimaryKeyGetters(clazz);
+            final ItemSchema schema = reflector.getItemSchema(clazz);
 
             /*
              * First handle keys
              */
-            for (final Method method : keyGetters) {
-                final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                final String attributeName = reflector.getAttributeName(method);
+            for (final ItemSchema.Attribute attribute : schema.getKeyAttributes()) {
+                final Method method = attribute.getGetter();
+                final Object getterResult = attribute.get(object);
+                final String attributeName = attribute.getName();
 
-                if (getterResult == null && reflector.isAssignableKey(method)) {
+                if (getterResult == null && attribute.isAssignableKey()) {
                     onAutoGenerateAssignableKey(method, attributeName);
                 }
 
@@ -1249,20 +1252,21 @@ public class DynamoDBMapper {
             /*
              * Next construct an update for every non-key property
              */
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
+            for (final ItemSchema.Attribute attribute : schema.getAttributes()) {
 
                 // Skip any key methods, since they are handled separately
-                if (keyGetters.contains(method)) {
+                if (attribute.isKey()) {
                     continue;
                 }
 
-                final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                final String attributeName = reflector.getAttributeName(method);
+                final Method method = attribute.getGetter();
+                final Object getterResult = attribute.get(object);
+                final String attributeName = attribute.getName();
 
                 /*
                  * If this is a versioned field, update it
                  */
-                if (reflector.isVersionAttributeGetter(method)) {
+                if (attribute.isVersion()) {
                     onVersionAttribute(method, getterResult, attributeName);
                 }
 
@@ -1540,21 +1544,18 @@ public class DynamoDBMapper {
          */
         final Map<String, ExpectedAttributeValue> internalAssertions = new HashMap<String, ExpectedAttributeValue>();
         if (config.getSaveBehavior() != SaveBehavior.CLOBBER) {
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
-
-                if (reflector.isVersionAttributeGetter(method)) {
-                    final Object getterResult = ReflectionUtils.safeInvoke(method, object);
-                    final String attributeName = reflector.getAttributeName(method);
+            final ItemSchema.Attribute version = reflector.getItemSchema(clazz).getVersion();
+            if (version != null) {
+                final Object getterResult = version.get(object);
 
-                    final ExpectedAttributeValue expected = new ExpectedAttributeValue();
-                    final AttributeValue currentValue = converter.convert(method, getterResult);
-                    expected.setExists(currentValue != null);
-                    if (currentValue != null) {
-                        expected.setValue(currentValue);
-                    }
-                    internalAssertions.put(attributeName, expected);
-                    break;
+                final ExpectedAttributeValue expected = new ExpectedAttributeValue();
+                final AttributeValue currentValue =
+                        converter.convert(version.getGetter(), getterResult);
+                expected.setExists(currentValue != null);
+                if (currentValue != null) {
+                    expected.setValue(currentValue);
                 }
+                internalAssertions.put(version.getName(), expected);
             }
         }
 
@@ -1735,14 +1736,15 @@ public class DynamoDBMapper {
             final Map<String, AttributeValue> attributeValues = new HashMap<String, AttributeValue>();
 
             // Look at every getter and construct a value object for it
-            for (final Method method : reflector.getRelevantGetters(clazz)) {
-                final Object getterResult =
-                        ReflectionUtils.safeInvoke(method, toWrite);
+            for (final ItemSchema.Attribute attribute
+                    : reflector.getItemSchema(clazz).getAttributes()) {
+                final Method method = attribute.getGetter();
+                final Object getterResult = attribute.get(toWrite);
 
-                final String attributeName = reflector.getAttributeName(method);
+                final String attributeName = attribute.getName();
 
                 AttributeValue currentValue = null;
-                if (getterResult == null && reflector.isAssignableKey(method)) {
+                if (getterResult == null && attribute.isAssignableKey()) {
                     currentValue = getAutoGeneratedKeyAttributeValue(converter, method);
                     inMemoryUpdates.add(new ValueUpdate(method, currentValue, toWrite, converter));
                 } else {
@@ -3184,11 +3186,28 @@ public class DynamoDBMapper {
     ItemConverter getConverter(DynamoDBMapperConfig config) {
         final ConversionSchema schema = config.getConversionSchema();
 
+        // The converters of the standard schemas resolve the marshallers of
+        // each getter once, so they are kept for the life of this mapper
+        final boolean standard = schema instanceof ConversionSchemas.StandardConversionSchema;
+        if (standard) {
+            final ItemConverter converter = converters.get(schema);
+            if (converter != null) {
+                return converter;
+            }
+        }
+
         final ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
                 .with(DynamoDBReflector.class, reflector)
                 .with(S3ClientCache.class, s3cc);
 
-        return schema.getConverter(params);
+        final ItemConverter converter = schema.getConverter(params);
+        if (standard) {
+            final ItemConverter existing = converters.putIfAbsent(schema, converter);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return converter;
     }
 
     private void pauseExponentially(int retries) {
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The mapped attributes of a class, with their names and key roles, resolved
+ * once by {@link DynamoDBReflector}. Attributes are in the order of
+ * {@link DynamoDBReflector#findRelevantGetters(Class)}. Schemas are immutable
+ * and shared between threads.
+ */
+final class ItemSchema {
+
+    /**
+     * A mapped attribute of a class.
+     */
+    static final class Attribute {
+
+        private final Method getter;
+        private final String name;
+        private final boolean hashKey;
+        private final boolean rangeKey;
+        private final boolean assignableKey;
+        private final boolean version;
+        /** Resolved when the attribute is first set. */
+        private volatile Method setter;
+
+        private Attribute(Method getter, DynamoDBReflector reflector) {
+            this.getter = getter;
+            this.name = reflector.getAttributeName(getter);
+            this.hashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBHashKey.class);
+            this.rangeKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBRangeKey.class);
+            this.assignableKey = reflector.isAssignableKey(getter);
+            this.version = reflector.isVersionAttributeGetter(getter);
+            makeAccessible(getter);
+        }
+
+        Method getGetter() {
+            return getter;
+        }
+
+        /**
+         * Returns the setter of the attribute.
+         *
+         * @throws DynamoDBMappingException if the class has no such setter.
+         */
+        Method getSetter() {
+            Method result = setter;
+            if (result == null) {
+                result = DynamoDBReflector.findSetter(getter);
+                makeAccessible(result);
+                setter = result;
+            }
+            return result;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isHashKey() {
+            return hashKey;
+        }
+
+        boolean isRangeKey() {
+            return rangeKey;
+        }
+
+        /**
+         * Returns whether the attribute is a hash or range key.
+         */
+        boolean isKey() {
+            return hashKey || rangeKey;
+        }
+
+        /**
+         * Returns whether the attribute is a key with an auto generated value.
+         */
+        boolean isAssignableKey() {
+            return assignableKey;
+        }
+
+        boolean isVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the value of the attribute in the item given.
+         */
+        Object get(Object item) {
+            return ReflectionUtils.safeInvoke(getter, item);
+        }
+
+        /**
+         * Sets the value of the attribute in the item given.
+         */
+        void set(Object item, Object value) {
+            ReflectionUtils.safeInvoke(getSetter(), item, value);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final List<Attribute> attributes;
+    private final List<Attribute> keyAttributes;
+    private final List<Method> getters;
+    private final List<Method> keyGetters;
+    private final Attribute hashKey;
+    private final Attribute rangeKey;
+    private final Attribute version;
+
+    ItemSchema(Class<?> clazz, DynamoDBReflector reflector) {
+        final List<Attribute> allAttributes = new ArrayList<Attribute>();
+        final List<Attribute> keys = new ArrayList<Attribute>();
+        final List<Method> allGetters = new ArrayList<Method>();
+        final List<Method> allKeyGetters = new ArrayList<Method>();
+        Attribute hash = null;
+        Attribute range = null;
+        Attribute versionAttribute = null;
+        for (final Method getter : DynamoDBReflector.findRelevantGetters(clazz)) {
+            final Attribute attribute = new Attribute(getter, reflector);
+            allAttributes.add(attribute);
+            allGetters.add(getter);
+            if (attribute.isKey()) {
+                keys.add(attribute);
+                allKeyGetters.add(getter);
+            }
+            if (hash == null && attribute.isHashKey()) {
+                hash = attribute;
+            }
+            if (range == null && attribute.isRangeKey()) {
+                range = attribute;
+            }
+            if (versionAttribute == null && attribute.isVersion()) {
+                versionAttribute = attribute;
+            }
+        }
+        this.attributes = Collections.unmodifiableList(allAttributes);
+        this.keyAttributes = Collections.unmodifiableList(keys);
+        this.getters = Collections.unmodifiableList(allGetters);
+        this.keyGetters = Collections.unmodifiableList(allKeyGetters);
+        this.hashKey = hash;
+        this.rangeKey = range;
+        this.version = versionAttribute;
+    }
+
+    /**
+     * Returns all the mapped attributes.
+     */
+    List<Attribute> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns the attributes annotated with {@link DynamoDBHashKey} or
+     * {@link DynamoDBRangeKey}.
+     */
+    List<Attribute> getKeyAttributes() {
+        return keyAttributes;
+    }
+
+    /**
+     * Returns the getters of all the mapped attributes.
+     */
+    List<Method> getGetters() {
+        return getters;
+    }
+
+    /**
+     * Returns the getters of the key attributes.
+     */
+    List<Method> getKeyGetters() {
+        return keyGetters;
+    }
+
+    /**
+     * Returns the first hash key attribute, or null if there's none.
+     */
+    Attribute getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Returns the first range key attribute, or null if there's none.
+     */
+    Attribute getRangeKey() {
+        return rangeKey;
+    }
+
+    /**
+     * Returns the first version attribute, or null if there's none.
+     */
+    Attribute getVersion() {
+        return version;
+    }
+
+    /**
+     * Skips the access checks of each call, where the security manager
+     * allows it. The mapped getters and setters are public anyway.
+     */
+    private static void makeAccessible(Method method) {
+        try {
+            method.setAccessible(true);
+        } catch (final SecurityException e) {
+            // invoked with access checks
+        }
+    }
+}
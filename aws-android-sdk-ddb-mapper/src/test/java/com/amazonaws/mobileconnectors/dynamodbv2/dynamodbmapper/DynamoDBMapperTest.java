@@ -19,7 +19,9 @@ import static org.easymock.EasyMock.anyObject;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -68,6 +70,18 @@ public class DynamoDBMapperTest {
         mapper = new DynamoDBMapper(mockClient);
     }
 
+    @Test
+    public void testConvertersAreKeptPerMapperAndSchema() {
+        final DynamoDBMapperConfig v1 = new DynamoDBMapperConfig(ConversionSchemas.V1);
+        final ItemConverter converter = mapper.getConverter(config);
+        assertSame(converter, mapper.getConverter(config));
+        assertNotSame(converter, mapper.getConverter(v1));
+        assertSame(mapper.getConverter(v1), mapper.getConverter(v1));
+
+        // another mapper has its own reflector and converters
+        assertNotSame(converter, new DynamoDBMapper(mockClient).getConverter(config));
+    }
+
     @Test
     public void testCreateKeyObjectTest() {
         IndexRangeKeyClass keyClass = mapper.createKeyObject(IndexRangeKeyClass.class,
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ItemSchemaTest {
+
+    @Test
+    public void testKeyRoles() {
+        DynamoDBReflector reflector = new DynamoDBReflector();
+        ItemSchema schema = reflector.getItemSchema(RangeKeyClass.class);
+
+        assertEquals(reflector.getRelevantGetters(RangeKeyClass.class).size(),
+                schema.getAttributes().size());
+        assertEquals("key", schema.getHashKey().getName());
+        assertEquals("rangeKey", schema.getRangeKey().getName());
+        assertEquals("version", schema.getVersion().getName());
+        assertEquals(2, schema.getKeyAttributes().size());
+        assertSame(schema, reflector.getItemSchema(RangeKeyClass.class));
+
+        for (ItemSchema.Attribute attribute : schema.getAttributes()) {
+            assertEquals(reflector.getAttributeName(attribute.getGetter()), attribute.getName());
+            assertEquals(attribute.isVersion(),
+                    reflector.isVersionAttributeGetter(attribute.getGetter()));
+            assertFalse(attribute.isAssignableKey());
+        }
+        assertTrue(schema.getAttributes().contains(schema.getHashKey()));
+    }
+
+    @Test
+    public void testAssignableKey() {
+        ItemSchema schema = new DynamoDBReflector().getItemSchema(HashKeyAutoGenerated.class);
+        assertTrue(schema.getHashKey().isAssignableKey());
+        assertFalse(schema.getRangeKey().isAssignableKey());
+        assertNull(schema.getVersion());
+    }
+
+    @Test
+    public void testAccessors() {
+        ItemSchema schema = new DynamoDBReflector().getItemSchema(RangeKeyClass.class);
+        RangeKeyClass item = new RangeKeyClass();
+        schema.getHashKey().set(item, 42L);
+        schema.getRangeKey().set(item, 1.5);
+        assertEquals(42L, item.getKey());
+        assertEquals(42L, schema.getHashKey().get(item));
+        assertEquals(1.5, schema.getRangeKey().get(item));
+    }
+
+    @Test
+    public void testConvertRoundTrip() {
+        ItemConverter converter = getConverter(new DynamoDBReflector());
+        RangeKeyClass item = newItem(7);
+
+        Map<String, AttributeValue> values = converter.convert(item);
+        assertEquals("7", values.get("key").getN());
+        assertEquals(2, values.get("integerSetAttribute").getNS().size());
+        assertEquals(item, converter.unconvert(RangeKeyClass.class, values));
+    }
+
+    /**
+     * Marshalls and unmarshalls 10k items with one converter, the way
+     * {@link DynamoDBMapper} keeps one per conversion schema, and prints the
+     * throughput.
+     */
+    @Test
+    public void testMarshallingPerformance() throws Exception {
+        final ItemConverter converter = getConverter(new DynamoDBReflector());
+        final List<RangeKeyClass> items = new ArrayList<RangeKeyClass>();
+        for (int i = 0; i < 10000; i++) {
+            items.add(newItem(i));
+        }
+        List<Map<String, AttributeValue>> converted = new ArrayList<Map<String, AttributeValue>>();
+        for (int i = 0; i < 3; i++) {
+            converted.clear();
+            for (RangeKeyClass item : items) {
+                converted.add(converter.convert(item));
+            }
+        }
+
+        final int rounds = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (RangeKeyClass item : items) {
+                converter.convert(item);
+            }
+        }
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println("Marshall 10000 items " + rounds + " times elapsed: " + elapsed
+                + "ms, " + rounds * items.size() * 1000L / elapsed + " items/s");
+
+        for (int i = 0; i < 3; i++) {
+            for (Map<String, AttributeValue> values : converted) {
+                converter.unconvert(RangeKeyClass.class, values);
+            }
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Map<String, AttributeValue> values : converted) {
+                converter.unconvert(RangeKeyClass.class, values);
+            }
+        }
+        elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println("Unmarshall 10000 items " + rounds + " times elapsed: " + elapsed
+                + "ms, " + rounds * converted.size() * 1000L / elapsed + " items/s");
+
+        // the same marshalling on several threads, as with parallel scans
+        final int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = 0; i < rounds; i++) {
+                        for (RangeKeyClass item : items) {
+                            converter.convert(item);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+        executor.shutdown();
+        System.out.println("Marshall 10000 items " + rounds + " times on " + threads
+                + " threads elapsed: " + elapsed + "ms, "
+                + threads * rounds * items.size() * 1000L / elapsed + " items/s");
+    }
+
+    private static ItemConverter getConverter(DynamoDBReflector reflector) {
+        return ConversionSchemas.V2_COMPATIBLE.getConverter(new ConversionSchema.Dependencies()
+                .with(DynamoDBReflector.class, reflector));
+    }
+
+    private static RangeKeyClass newItem(int i) {
+        RangeKeyClass item = new RangeKeyClass();
+        item.setKey(i);
+        item.setRangeKey(i / 2.0);
+        item.setVersion(Long.valueOf(i % 5));
+        item.setStringAttribute("item-" + i);
+        item.setBigDecimalAttribute(new BigDecimal(i).movePointLeft(2));
+        Set<Integer> integers = new HashSet<Integer>();
+        integers.add(i);
+        integers.add(i + 1);
+        item.setIntegerAttribute(integers);
+        Set<String> strings = new HashSet<String>();
+        strings.add("a" + i);
+        item.setStringSetAttribute(strings);
+        return item;
+    }
+}
@@ -39,6 +39,8 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -46,6 +48,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.List;
 import java.util.Map;
 
 import javax.net.SocketFactory;
@@ -81,6 +84,8 @@ public class AWSIotMqttManager {
     public static final Integer DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND = 100;
     /** Constant for milliseconds between queue publishes. */
     private static final Long DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES = 250L;
+    /** Shortest time between publishes from the offline queue at a draining rate. */
+    private static final long MIN_MILLIS_BETWEEN_QUEUE_DRAINS = 10L;
     /** Default value for "connection established" hysteresis timer. */
     private static final Integer DEFAULT_CONNECTION_STABILITY_TIME_SECONDS = 10;
 
@@ -115,6 +120,8 @@ public class AWSIotMqttManager {
      * to proved per-topic message arrived callbacks.
      */
     private final Map<String, AWSIotMqttTopic> topicListeners;
+    /** Subscriptions indexed by topic filter for message dispatch. */
+    private final TopicFilterTrie topicFilterTrie = new TopicFilterTrie();
     /**
      * Queue for messages attempted to publish while MQTT client was offline.
      * Republished upon reconnect.
@@ -149,6 +156,13 @@ public class AWSIotMqttManager {
     private boolean fullQueueKeepsOldest;
     /** Milliseconds between publishes when publishing queued messages (draining interval). */
     private long drainingInterval;
+    /**
+     * Messages per second published from the offline queue, or null to wait
+     * the draining interval between publishes.
+     */
+    private Integer drainingRate;
+    /** Stores the offline publish queue in a file, or null to keep it in memory only. */
+    private OfflinePublishStore offlinePublishStore;
     /** Was this disconnect requested by the user? */
     private boolean userDisconnect;
     /** Do we need to resubscribe upon reconnecting? */
@@ -403,6 +417,57 @@ public class AWSIotMqttManager {
         drainingInterval = interval;
     }
 
+    /**
+     * Get the "draining rate" (the number of messages per second sent from the offline queue when reconnected).
+     * @return messages per second, or null if messages are sent one per draining interval.
+     */
+    public Integer getDrainingRate() {
+        return drainingRate;
+    }
+
+    /**
+     * Set the "draining rate" (the number of messages per second sent from the offline queue when reconnected).
+     * Messages are published without waiting for the previous ones to be delivered, up to the
+     * MQTT client's limit of in-flight messages, instead of one per draining interval.
+     * @param messagesPerSecond messages per second, or null to send one message per draining interval.
+     */
+    public void setDrainingRate(Integer messagesPerSecond) {
+        if (messagesPerSecond != null && messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("Draining rate must be > 0");
+        }
+        drainingRate = messagesPerSecond;
+    }
+
+    /**
+     * Get the file in which the offline publish queue is stored.
+     * @return the file, or null if the queue is kept in memory only.
+     */
+    public File getOfflinePublishQueueFile() {
+        return offlinePublishStore == null ? null : offlinePublishStore.getFile();
+    }
+
+    /**
+     * Store the offline publish queue in a file, so queued messages are published after the
+     * application restarts. Messages queued by an earlier run are loaded on connect. Delivery
+     * callbacks are not stored, so they aren't called for messages loaded from the file.
+     * Call before connecting.
+     * @param file the file, in private application storage, or null to keep the queue in
+     *            memory only.
+     */
+    public void setOfflinePublishQueueFile(File file) {
+        if (offlinePublishStore != null) {
+            offlinePublishStore.close();
+            offlinePublishStore = null;
+        }
+        if (file != null) {
+            try {
+                offlinePublishStore = new OfflinePublishStore(file);
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to open the offline publish queue file.", e);
+            }
+        }
+    }
+
     /**
      * Keep the oldest messages when publish queue is full?
      * @return boolean true if set to keep oldest messages, false if set to keep newest.
@@ -815,7 +880,9 @@ public class AWSIotMqttManager {
             ", username: " + options.getUserName());
 
         topicListeners.clear();
+        topicFilterTrie.clear();
         mqttMessageQueue.clear();
+        loadOfflinePublishQueue();
 
         resetReconnect();
         userDisconnect = false;
@@ -891,6 +958,7 @@ public class AWSIotMqttManager {
         userDisconnect = true;
         reset();
         topicListeners.clear();
+        topicFilterTrie.clear();
         connectionState = MqttManagerConnectionState.Disconnected;
         userConnectionCallback();
         return true;
@@ -1087,6 +1155,7 @@ public class AWSIotMqttManager {
             }
             final AWSIotMqttTopic topicModel = new AWSIotMqttTopic(topic, qos, callback);
             topicListeners.put(topic, topicModel);
+            topicFilterTrie.put(topic, topicModel);
         }
     }
 
@@ -1108,6 +1177,7 @@ public class AWSIotMqttManager {
                 throw new AmazonClientException("Client error while unsubscribing.", e);
             }
             topicListeners.remove(topic);
+            topicFilterTrie.remove(topic);
         }
     }
 
@@ -1262,18 +1332,161 @@ public class AWSIotMqttManager {
                                     PublishMessageUserData publishMessageUserData) {
         final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData);
 
+        final OfflinePublishStore store = offlinePublishStore;
+        if (store == null) {
+            if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
+                if (fullQueueKeepsOldest) {
+                    notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                            publishMessageUserData.getUserData(),
+                            new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+                    return;
+                } else {
+                    mqttMessageQueue.remove(0);
+                }
+            }
+
+            mqttMessageQueue.add(message);
+            return;
+        }
+
+        final boolean queued;
+        // keep the file in the same order as the queue
+        synchronized (store) {
+            queued = queueMessage(message);
+        }
+        if (!queued) {
+            notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    publishMessageUserData.getUserData(),
+                    new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+        }
+    }
+
+    /**
+     * Add a message to the publishing queue and the offline publish queue
+     * file, evicting the oldest message from both if the queue is full and
+     * keeps the newest messages. Called with the lock of the file held.
+     *
+     * @return false if the queue is full and keeps the oldest messages.
+     */
+    private boolean queueMessage(AWSIotMqttQueueMessage message) {
         if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
             if (fullQueueKeepsOldest) {
-                notifyPublishResult(publishMessageUserData.getUserCallback(), AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                        publishMessageUserData.getUserData(),
-                        new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
-                return;
-            } else {
-                mqttMessageQueue.remove(0);
+                return false;
             }
+            pollQueuedMessage();
+        }
+        try {
+            offlinePublishStore.append(message);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to store the offline message, it is kept in memory only.", e);
         }
-
         mqttMessageQueue.add(message);
+        return true;
+    }
+
+    /**
+     * Load the messages stored in the offline publish queue file into the queue.
+     */
+    private void loadOfflinePublishQueue() {
+        if (offlinePublishStore == null) {
+            return;
+        }
+        synchronized (offlinePublishStore) {
+            try {
+                final List<AWSIotMqttQueueMessage> messages = offlinePublishStore.load();
+                // the file may hold more messages than the bound, e.g. if the bound was lowered
+                final int excess = messages.size() - offlinePublishQueueBound;
+                if (excess > 0) {
+                    if (fullQueueKeepsOldest) {
+                        offlinePublishStore.removeLast(excess);
+                        messages.subList(offlinePublishQueueBound, messages.size()).clear();
+                    } else {
+                        offlinePublishStore.removeFirst(excess);
+                        messages.subList(0, excess).clear();
+                    }
+                    LOGGER.warn("Dropped " + excess + " offline messages over the queue bound.");
+                }
+                mqttMessageQueue.addAll(messages);
+            } catch (final IOException e) {
+                LOGGER.error("Failed to load the offline publish queue file.", e);
+            }
+        }
+        if (!mqttMessageQueue.isEmpty()) {
+            LOGGER.info("Loaded " + mqttMessageQueue.size() + " offline messages.");
+        }
+    }
+
+    /**
+     * Remove the oldest message from the publishing queue, and from the
+     * offline publish queue file.
+     *
+     * @return the message, or null if the queue is empty.
+     */
+    private AWSIotMqttQueueMessage pollQueuedMessage() {
+        final AWSIotMqttQueueMessage message = mqttMessageQueue.poll();
+        if (message != null) {
+            removeStoredMessages(1);
+        }
+        return message;
+    }
+
+    /**
+     * Remove the oldest messages from the offline publish queue file, after
+     * they were polled from the publishing queue. The messages are counted
+     * from the start of the file, so this may run after messages were polled
+     * or appended by other threads.
+     *
+     * @param count the number of messages polled.
+     */
+    private void removeStoredMessages(int count) {
+        final OfflinePublishStore store = offlinePublishStore;
+        if (store == null || count == 0) {
+            return;
+        }
+        try {
+            store.removeFirst(count);
+        } catch (final IOException e) {
+            LOGGER.error("Failed to remove the messages from the offline publish queue file.", e);
+        }
+    }
+
+    /**
+     * Publish a message from the message queue.
+     *
+     * @param message the message.
+     * @throws MqttException if the MQTT client fails to publish.
+     */
+    private void publishQueuedMessage(AWSIotMqttQueueMessage message) throws MqttException {
+        if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
+            // this queued message has a callback, publish passing the user data
+            mqttClient
+                    .publish(message.getTopic(), message.getMessage(), message.getQos()
+                            .asInt(), false, message.getUserData(), null);
+        } else {
+            // this queued message does not have a callback
+            mqttClient
+                    .publish(message.getTopic(), message.getMessage(), message.getQos()
+                            .asInt(), false);
+        }
+    }
+
+    /**
+     * Notify the failure to publish a message from the message queue.
+     *
+     * @param message the message.
+     * @param e the exception of the MQTT client.
+     */
+    private void notifyQueuedMessageFailure(AWSIotMqttQueueMessage message, MqttException e) {
+        // Call this message a failure.  It is possible that this is due to a
+        // connection issue (we are in this path because the connection dropped),
+        // however there are also exceptions inherent to the message (valid topic),
+        // such that publishing this message would never succeed.  It is safer to
+        // remove the message from the queue and notify failure than to block
+        // the queue indefinitely.
+        notifyPublishResult(message.getUserData().getUserCallback(),
+                AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                message.getUserData().getUserData(),
+                new AmazonClientException("Client error while publishing.", e));
     }
 
     /**
@@ -1281,50 +1494,91 @@ public class AWSIotMqttManager {
      * Called to handle publishing messages accumulated in the message queue when the client was unable to publish.
      */
     void publishMessagesFromQueue() {
+        if (drainingRate != null) {
+            publishMessagesFromQueueAtRate();
+            return;
+        }
         if (connectionState == MqttManagerConnectionState.Connected &&
             mqttMessageQueue != null &&
             !mqttMessageQueue.isEmpty()) {
-            final AWSIotMqttQueueMessage message = mqttMessageQueue.poll();
+            final AWSIotMqttQueueMessage message = pollQueuedMessage();
             if (message != null) {
                 try {
-                    if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
-                        // this queued message has a callback, publish passing the user data
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false, message.getUserData(), null);
-                    } else {
-                        // this queued message does not have a callback
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false);
-                    }
+                    publishQueuedMessage(message);
                 } catch (final MqttException e) {
-                    // Call this message a failure.  It is possible that this is due to a
-                    // connection issue (we are in this path because the connection dropped),
-                    // however there are also exceptions inherent to the message (valid topic),
-                    // such that publishing this message would never succeed.  It is safer to
-                    // remove the message from the queue and notify failure than to block
-                    // the queue indefinitely.
-                    notifyPublishResult(message.getUserData().getUserCallback(),
-                            AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                            message.getUserData().getUserData(),
-                            new AmazonClientException("Client error while publishing.", e));
+                    notifyQueuedMessageFailure(message, e);
                 }
             }
 
-            (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    if (!mqttMessageQueue.isEmpty()) {
-                        if (connectionState == MqttManagerConnectionState.Connected) {
-                            publishMessagesFromQueue();
-                        }
-                    }
+            scheduleQueuedMessagesPublish(drainingInterval);
+        }
+    }
+
+    /**
+     * Publish messages from the message queue at the draining rate. Messages
+     * are published in batches without waiting for their delivery, until the
+     * MQTT client reaches its limit of in-flight messages. The rest are
+     * published by the next batch. The messages of a batch are removed from
+     * the offline publish queue file together, with one write of the file.
+     */
+    private void publishMessagesFromQueueAtRate() {
+        if (connectionState != MqttManagerConnectionState.Connected
+                || mqttMessageQueue.isEmpty()) {
+            return;
+        }
+        final long delay = Math.max(MIN_MILLIS_BETWEEN_QUEUE_DRAINS,
+                MILLIS_IN_ONE_SECOND / drainingRate);
+        final long batchSize = Math.max(1L, drainingRate * delay / MILLIS_IN_ONE_SECOND);
+        int polled = 0;
+        boolean stopped = false;
+        for (long i = 0; i < batchSize; i++) {
+            if (connectionState != MqttManagerConnectionState.Connected) {
+                stopped = true;
+                break;
+            }
+            final AWSIotMqttQueueMessage message = mqttMessageQueue.peek();
+            if (message == null) {
+                stopped = true;
+                break;
+            }
+            try {
+                publishQueuedMessage(message);
+            } catch (final MqttException e) {
+                if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                    // retry the message when deliveries have completed
+                    break;
                 }
-            }, drainingInterval);
+                notifyQueuedMessageFailure(message, e);
+            }
+            if (mqttMessageQueue.poll() != null) {
+                polled++;
+            }
+        }
+        removeStoredMessages(polled);
+
+        if (!stopped) {
+            scheduleQueuedMessagesPublish(delay);
         }
     }
 
+    /**
+     * Schedule the next publish of messages from the message queue.
+     *
+     * @param delay milliseconds until the next publish.
+     */
+    private void scheduleQueuedMessagesPublish(long delay) {
+        (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (!mqttMessageQueue.isEmpty()) {
+                    if (connectionState == MqttManagerConnectionState.Connected) {
+                        publishMessagesFromQueue();
+                    }
+                }
+            }
+        }, delay);
+    }
+
     /**
      * Setup the MQTT client calbacks. The Paho MQTT client exposes callbacks
      * for connection status, publish status and incoming messages. The Android
@@ -1358,16 +1612,7 @@ public class AWSIotMqttManager {
                 LOGGER.info("message arrived on topic: " + topic);
                 final byte[] data = mqttMessage.getPayload();
 
-                for (final String topicKey : topicListeners.keySet()) {
-                    if (isTopicMatch(topicKey, topic)) {
-                        final AWSIotMqttTopic topicModel = topicListeners.get(topicKey);
-                        if (topicModel != null) {
-                            if (topicModel.getCallback() != null) {
-                                topicModel.getCallback().onMessageArrived(topic, data);
-                            }
-                        }
-                    }
-                }
+                topicFilterTrie.dispatch(topic, data);
             }
 
             @Override
@@ -0,0 +1,314 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps the messages of the offline publish queue in a file, so they are
+ * published after the process restarts. Messages are appended to the file,
+ * and published messages are removed by moving a checkpoint, stored in a
+ * second file, past them. Both files are truncated when the queue is empty,
+ * and the file is compacted once the published records pass a threshold.
+ * <p>
+ * Each record is the length of the rest of the record, the topic in modified
+ * UTF-8, the QoS, the length of the payload and the payload. The delivery
+ * callbacks of messages aren't stored.
+ */
+class OfflinePublishStore {
+    private static final Log LOGGER = LogFactory.getLog(OfflinePublishStore.class);
+
+    /** Size of the length of a record. */
+    private static final int LENGTH_SIZE = 4;
+    /** Size of the checkpoint and its complement. */
+    private static final int CHECKPOINT_SIZE = 16;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    /** Size of the published records after which the file is compacted. */
+    static final long DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+    private final File file;
+    private final RandomAccessFile records;
+    private final RandomAccessFile checkpointFile;
+    private final long compactionThreshold;
+    /** Sizes of the stored records after the checkpoint, oldest first. */
+    private final LinkedList<Integer> recordSizes = new LinkedList<Integer>();
+    /** Position of the oldest message that hasn't been published. */
+    private long checkpoint;
+
+    /**
+     * Opens the store, creating the files if needed.
+     *
+     * @param file the file of the messages
+     * @throws IOException if the files can't be opened
+     */
+    OfflinePublishStore(File file) throws IOException {
+        this(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the store, creating the files if needed.
+     *
+     * @param file the file of the messages
+     * @param compactionThreshold size of the published records after which
+     *            the file is compacted
+     * @throws IOException if the files can't be opened
+     */
+    OfflinePublishStore(File file, long compactionThreshold) throws IOException {
+        this.file = file;
+        this.compactionThreshold = compactionThreshold;
+        records = new RandomAccessFile(file, "rw");
+        checkpointFile = new RandomAccessFile(new File(file.getPath() + CHECKPOINT_SUFFIX), "rw");
+    }
+
+    /**
+     * @return the file of the messages
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the messages that haven't been published. A record that was only
+     * partly written when the process died is discarded.
+     *
+     * @return the stored messages, oldest first
+     * @throws IOException if the files can't be read
+     */
+    synchronized List<AWSIotMqttQueueMessage> load() throws IOException {
+        recordSizes.clear();
+        checkpoint = checkpointFile.length() >= CHECKPOINT_SIZE ? readCheckpoint() : 0;
+        final long length = records.length();
+        if (checkpoint > length) {
+            checkpoint = length;
+        }
+
+        final List<AWSIotMqttQueueMessage> messages = new ArrayList<AWSIotMqttQueueMessage>();
+        long position = checkpoint;
+        records.seek(position);
+        while (position < length) {
+            final AWSIotMqttQueueMessage message;
+            final int recordLength;
+            try {
+                recordLength = records.readInt();
+                if (recordLength < 0 || position + LENGTH_SIZE + recordLength > length) {
+                    break;
+                }
+                final byte[] record = new byte[recordLength];
+                records.readFully(record);
+                message = decode(record);
+            } catch (final EOFException e) {
+                break;
+            } catch (final IOException e) {
+                LOGGER.warn("Discarding corrupted offline message at " + position, e);
+                break;
+            }
+            messages.add(message);
+            recordSizes.add(LENGTH_SIZE + recordLength);
+            position += LENGTH_SIZE + recordLength;
+        }
+        if (position < length) {
+            LOGGER.warn("Discarding " + (length - position) + " bytes of incomplete offline messages");
+            records.setLength(position);
+        }
+        if (messages.isEmpty()) {
+            truncate();
+        }
+        return messages;
+    }
+
+    /**
+     * Appends a message to the store.
+     *
+     * @param message the message
+     * @throws IOException if the message can't be written
+     */
+    synchronized void append(AWSIotMqttQueueMessage message) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                message.getMessage().length + message.getTopic().length() + LENGTH_SIZE * 3);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeUTF(message.getTopic());
+        out.writeByte(message.getQos().asInt());
+        out.writeInt(message.getMessage().length);
+        out.write(message.getMessage());
+        out.flush();
+
+        final byte[] record = bytes.toByteArray();
+        final int recordLength = record.length - LENGTH_SIZE;
+        record[0] = (byte) (recordLength >>> 24);
+        record[1] = (byte) (recordLength >>> 16);
+        record[2] = (byte) (recordLength >>> 8);
+        record[3] = (byte) recordLength;
+
+        records.seek(records.length());
+        records.write(record);
+        recordSizes.add(record.length);
+    }
+
+    /**
+     * Removes the oldest message after it's published.
+     *
+     * @throws IOException if the checkpoint can't be written
+     */
+    synchronized void removeFirst() throws IOException {
+        removeFirst(1);
+    }
+
+    /**
+     * Removes the oldest messages.
+     *
+     * @param count the number of messages to remove
+     * @throws IOException if the checkpoint can't be written
+     */
+    synchronized void removeFirst(int count) throws IOException {
+        if (recordSizes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < count && !recordSizes.isEmpty(); i++) {
+            checkpoint += recordSizes.removeFirst();
+        }
+        if (recordSizes.isEmpty()) {
+            truncate();
+        } else if (checkpoint >= compactionThreshold
+                && records.length() - checkpoint <= checkpoint) {
+            compact();
+        } else {
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Removes the newest messages.
+     *
+     * @param count the number of messages to remove
+     * @throws IOException if the file can't be truncated
+     */
+    synchronized void removeLast(int count) throws IOException {
+        long length = records.length();
+        for (int i = 0; i < count && !recordSizes.isEmpty(); i++) {
+            length -= recordSizes.removeLast();
+        }
+        if (recordSizes.isEmpty()) {
+            truncate();
+        } else {
+            records.setLength(length);
+        }
+    }
+
+    /**
+     * Removes all messages.
+     *
+     * @throws IOException if the files can't be truncated
+     */
+    synchronized void clear() throws IOException {
+        recordSizes.clear();
+        truncate();
+    }
+
+    /**
+     * Closes the files.
+     */
+    synchronized void close() {
+        try {
+            records.close();
+            checkpointFile.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close the offline publish queue file", e);
+        }
+    }
+
+    /**
+     * Moves the records after the checkpoint to the start of the file. They
+     * are only compacted when they fit before the checkpoint, so they're
+     * copied over published records, and the checkpoint is reset before the
+     * file is shortened. A crash while compacting publishes messages again
+     * rather than losing them.
+     */
+    private void compact() throws IOException {
+        final long length = records.length();
+        final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long from = checkpoint;
+        long to = 0;
+        while (from < length) {
+            final int count = (int) Math.min(buffer.length, length - from);
+            records.seek(from);
+            records.readFully(buffer, 0, count);
+            records.seek(to);
+            records.write(buffer, 0, count);
+            from += count;
+            to += count;
+        }
+        checkpoint = 0;
+        writeCheckpoint();
+        records.setLength(to);
+    }
+
+    private void truncate() throws IOException {
+        records.setLength(0);
+        checkpoint = 0;
+        writeCheckpoint();
+    }
+
+    /**
+     * The checkpoint is written with its complement, so a torn write is
+     * detected and the messages are published again rather than lost.
+     */
+    private void writeCheckpoint() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        buffer.putLong(checkpoint).putLong(~checkpoint);
+        checkpointFile.seek(0);
+        checkpointFile.write(buffer.array());
+    }
+
+    private long readCheckpoint() throws IOException {
+        checkpointFile.seek(0);
+        final long value = checkpointFile.readLong();
+        final long complement = checkpointFile.readLong();
+        if (value != ~complement || value < 0) {
+            LOGGER.warn("Offline publish queue checkpoint is corrupted, publishing all messages");
+            return 0;
+        }
+        return value;
+    }
+
+    private static AWSIotMqttQueueMessage decode(byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        final String topic = in.readUTF();
+        final AWSIotMqttQos qos = in.readByte() == 0 ? AWSIotMqttQos.QOS0 : AWSIotMqttQos.QOS1;
+        final int dataLength = in.readInt();
+        if (dataLength < 0 || dataLength > in.available()) {
+            throw new IOException("Invalid payload length " + dataLength);
+        }
+        final byte[] data = new byte[dataLength];
+        in.readFully(data);
+        return new AWSIotMqttQueueMessage(topic, data, qos, new PublishMessageUserData(null, null));
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subscriptions indexed by the levels of their topic filters, so the
+ * subscriptions matching the topic of a message are found in time proportional
+ * to the number of levels of the topic rather than the number of
+ * subscriptions. A "+" level matches any one level, a "#" level matches one or
+ * more remaining levels, the same as {@link AWSIotMqttManager#isTopicMatch}.
+ * Like it, trailing "/" separators of filters and topics are ignored, so
+ * "a/b/" matches the filters "a/b" and "a/+/" and "a/b" matches "a/b/".
+ * <p>
+ * Subscriptions are added and removed under a lock. Nodes are never changed
+ * in place where a reader could see them half-built, so messages are
+ * dispatched without locking and without allocating.
+ */
+class TopicFilterTrie {
+
+    private static final char LEVEL_SEPARATOR = '/';
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * A level of a topic filter.
+     */
+    private static final class Node {
+        /** Name of the level, null for the root and "+" levels. */
+        final String level;
+        /** Children with a literal level name, sorted by name. */
+        volatile Node[] children = NO_CHILDREN;
+        /** Child for a "+" level. */
+        volatile Node singleLevelChild;
+        /** Subscription whose filter ends at this level. */
+        volatile AWSIotMqttTopic subscription;
+        /** Subscription whose filter ends with a "#" below this level. */
+        volatile AWSIotMqttTopic multiLevelSubscription;
+
+        Node(String level) {
+            this.level = level;
+        }
+
+        boolean isEmpty() {
+            return children.length == 0 && singleLevelChild == null
+                    && subscription == null && multiLevelSubscription == null;
+        }
+    }
+
+    private volatile Node root = new Node(null);
+
+    /**
+     * Adds a subscription, replacing the one with the same topic filter.
+     *
+     * @param topicFilter topic filter of the subscription
+     * @param subscription the subscription
+     */
+    synchronized void put(String topicFilter, AWSIotMqttTopic subscription) {
+        final int length = trimmedLength(topicFilter);
+        Node node = root;
+        int start = 0;
+        while (true) {
+            final int end = levelEnd(topicFilter, start, length);
+            final String level = topicFilter.substring(start, end);
+            if (MULTI_LEVEL_WILDCARD.equals(level)) {
+                node.multiLevelSubscription = subscription;
+                return;
+            }
+            node = getOrAddChild(node, level);
+            if (end == length) {
+                node.subscription = subscription;
+                return;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Removes the subscription with a topic filter, along with the levels no
+     * other subscription uses.
+     *
+     * @param topicFilter topic filter of the subscription
+     */
+    synchronized void remove(String topicFilter) {
+        final int length = trimmedLength(topicFilter);
+        final List<Node> path = new ArrayList<Node>();
+        Node node = root;
+        int start = 0;
+        while (true) {
+            path.add(node);
+            final int end = levelEnd(topicFilter, start, length);
+            final String level = topicFilter.substring(start, end);
+            if (MULTI_LEVEL_WILDCARD.equals(level)) {
+                node.multiLevelSubscription = null;
+                break;
+            }
+            node = SINGLE_LEVEL_WILDCARD.equals(level) ? node.singleLevelChild
+                    : findChild(node.children, topicFilter, start, end);
+            if (node == null) {
+                return;
+            }
+            if (end == length) {
+                node.subscription = null;
+                path.add(node);
+                break;
+            }
+            start = end + 1;
+        }
+
+        for (int i = path.size() - 1; i > 0; i--) {
+            final Node child = path.get(i);
+            if (!child.isEmpty()) {
+                return;
+            }
+            removeChild(path.get(i - 1), child);
+        }
+    }
+
+    /**
+     * Removes all subscriptions.
+     */
+    synchronized void clear() {
+        root = new Node(null);
+    }
+
+    /**
+     * Calls the callbacks of the subscriptions matching a topic.
+     *
+     * @param topic topic of a message, without wildcards
+     * @param data payload of the message
+     */
+    void dispatch(String topic, byte[] data) {
+        dispatch(root, topic, 0, trimmedLength(topic), data);
+    }
+
+    private static void dispatch(Node node, String topic, int start, int length, byte[] data) {
+        notify(node.multiLevelSubscription, topic, data);
+
+        final int end = levelEnd(topic, start, length);
+        final Node child = findChild(node.children, topic, start, end);
+        final Node singleLevelChild = node.singleLevelChild;
+        if (end == length) {
+            if (child != null) {
+                notify(child.subscription, topic, data);
+            }
+            if (singleLevelChild != null) {
+                notify(singleLevelChild.subscription, topic, data);
+            }
+        } else {
+            if (child != null) {
+                dispatch(child, topic, end + 1, length, data);
+            }
+            if (singleLevelChild != null) {
+                dispatch(singleLevelChild, topic, end + 1, length, data);
+            }
+        }
+    }
+
+    private static void notify(AWSIotMqttTopic subscription, String topic, byte[] data) {
+        if (subscription != null && subscription.getCallback() != null) {
+            subscription.getCallback().onMessageArrived(topic, data);
+        }
+    }
+
+    /**
+     * Gets the end of a level of a topic or topic filter.
+     *
+     * @param topic the topic or topic filter
+     * @param start the start of the level
+     * @param length the length of the topic without trailing separators
+     * @return the index of the separator after the level, or length for the
+     *         last level
+     */
+    private static int levelEnd(String topic, int start, int length) {
+        final int end = topic.indexOf(LEVEL_SEPARATOR, start);
+        return end < 0 || end > length ? length : end;
+    }
+
+    /**
+     * Gets the length of a topic or topic filter without its trailing
+     * separators, which {@link String#split(String)} drops in
+     * {@link AWSIotMqttManager#isTopicMatch}.
+     */
+    private static int trimmedLength(String topic) {
+        int length = topic.length();
+        while (length > 0 && topic.charAt(length - 1) == LEVEL_SEPARATOR) {
+            length--;
+        }
+        return length;
+    }
+
+    private static Node getOrAddChild(Node node, String level) {
+        if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+            if (node.singleLevelChild == null) {
+                node.singleLevelChild = new Node(null);
+            }
+            return node.singleLevelChild;
+        }
+        final Node[] children = node.children;
+        final int index = search(children, level, 0, level.length());
+        if (index >= 0) {
+            return children[index];
+        }
+        final int insertion = -index - 1;
+        final Node child = new Node(level);
+        final Node[] newChildren = new Node[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, insertion);
+        newChildren[insertion] = child;
+        System.arraycopy(children, insertion, newChildren, insertion + 1,
+                children.length - insertion);
+        node.children = newChildren;
+        return child;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        if (parent.singleLevelChild == child) {
+            parent.singleLevelChild = null;
+            return;
+        }
+        final Node[] children = parent.children;
+        final int index = search(children, child.level, 0, child.level.length());
+        if (index < 0) {
+            return;
+        }
+        final Node[] newChildren = new Node[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+        parent.children = newChildren;
+    }
+
+    private static Node findChild(Node[] children, String topic, int start, int end) {
+        final int index = search(children, topic, start, end);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * Binary search of the children for a level of a topic.
+     *
+     * @return the index of the child, or (-(insertion point) - 1)
+     */
+    private static int search(Node[] children, String topic, int start, int end) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compare(children[mid].level, topic, start, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Compares a level name with the characters of a topic between start and
+     * end, the same as {@link String#compareTo(String)}.
+     */
+    private static int compare(String level, String topic, int start, int end) {
+        final int length = end - start;
+        final int min = Math.min(level.length(), length);
+        for (int i = 0; i < min; i++) {
+            final char a = level.charAt(i);
+            final char b = topic.charAt(start + i);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return level.length() - length;
+    }
+}
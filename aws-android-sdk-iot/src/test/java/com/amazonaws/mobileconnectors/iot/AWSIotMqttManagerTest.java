@@ -13,6 +13,7 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.util.StringUtils;
 
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.junit.After;
@@ -27,6 +28,7 @@ import java.io.File;
 import java.security.KeyPair;
 import java.security.KeyStore;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -2969,14 +2971,349 @@ public class AWSIotMqttManagerTest {
         }
     }
 
+    @Test
+    public void testOfflinePublishQueueDrainingRate() throws Exception {
+        MockMqttClient mockClient = new MockMqttClient();
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setDrainingRate(100);
+        assertEquals(Integer.valueOf(100), testClient.getDrainingRate());
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+        assertEquals(MqttManagerConnectionState.Reconnecting, testClient.getConnectionState());
+
+        for (int i = 0; i < 3; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS0);
+        }
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+
+        // cause reconnect attempt, the first publish occurs immediately
+        Robolectric.getUiThreadScheduler().advanceBy(4100);
+        mockClient.mockConnectSuccess();
+        assertEquals(1, mockClient.publishCalls);
+
+        // one message every 10 ms at 100 messages per second
+        Robolectric.getUiThreadScheduler().advanceBy(10);
+        assertEquals(2, mockClient.publishCalls);
+        Robolectric.getUiThreadScheduler().advanceBy(10);
+        assertEquals(3, mockClient.publishCalls);
+        assertEquals(0, testClient.getMqttMessageQueue().size());
+        assertEquals("test payload 2", new String(mockClient.mostRecentPublishPayload));
+    }
+
+    @Test
+    public void testOfflinePublishQueueDrainingRateWaitsForInflightWindow() throws Exception {
+        final int[] inflight = new int[1];
+        MockMqttClient mockClient = new MockMqttClient() {
+            @Override
+            public IMqttDeliveryToken publish(String topic, byte[] payload, int qos,
+                    boolean retained) throws MqttException {
+                if (inflight[0] >= 2) {
+                    throw new MqttException(MqttException.REASON_CODE_MAX_INFLIGHT);
+                }
+                inflight[0]++;
+                return super.publish(topic, payload, qos, retained);
+            }
+        };
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setDrainingRate(1000);
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        for (int i = 0; i < 5; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+        }
+
+        // the batch stops when the in-flight window is full
+        Robolectric.getUiThreadScheduler().advanceBy(4100);
+        mockClient.mockConnectSuccess();
+        assertEquals(2, mockClient.publishCalls);
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+
+        // deliveries complete, the rest are published in order
+        inflight[0] = 0;
+        Robolectric.getUiThreadScheduler().advanceBy(10);
+        inflight[0] = 0;
+        Robolectric.getUiThreadScheduler().advanceBy(10);
+        assertEquals(5, mockClient.publishCalls);
+        assertEquals(0, testClient.getMqttMessageQueue().size());
+        assertEquals("test payload 4", new String(mockClient.mostRecentPublishPayload));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetDrainingRateNotPositive() throws Exception {
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setDrainingRate(0);
+    }
+
+    @Test
+    public void testOfflinePublishQueueFile() throws Exception {
+        File queueFile = File.createTempFile("offline-publish-queue", null);
+        queueFile.deleteOnExit();
+        new File(queueFile.getPath() + ".checkpoint").deleteOnExit();
+
+        MockMqttClient mockClient = new MockMqttClient();
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setOfflinePublishQueueFile(queueFile);
+        assertEquals(queueFile, testClient.getOfflinePublishQueueFile());
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        for (int i = 0; i < 3; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+        }
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+        assertTrue(queueFile.length() > 0);
+
+        // a new client, as after a restart, publishes the stored messages
+        MockMqttClient restartedMockClient = new MockMqttClient();
+        AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        restartedClient.setMqttClient(restartedMockClient);
+        restartedClient.setOfflinePublishQueueFile(queueFile);
+        restartedClient.connect(testKeystore, csb);
+        assertEquals(3, restartedClient.getMqttMessageQueue().size());
+        checkOfflinePublishingQueue(restartedClient);
+        assertEquals(AWSIotMqttQos.QOS1,
+                restartedClient.getMqttMessageQueue().peek().getQos());
+
+        restartedMockClient.mockConnectSuccess();
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+        assertEquals(3, restartedMockClient.publishCalls);
+        assertEquals(0, restartedClient.getMqttMessageQueue().size());
+        assertEquals(0, queueFile.length());
+
+        testClient.setOfflinePublishQueueFile(null);
+        restartedClient.setOfflinePublishQueueFile(null);
+        assertEquals(null, restartedClient.getOfflinePublishQueueFile());
+    }
+
+    @Test
+    public void testOfflinePublishQueueFileKeepsNewestMessagesWithinBound() throws Exception {
+        File queueFile = File.createTempFile("offline-publish-queue", null);
+        queueFile.deleteOnExit();
+        new File(queueFile.getPath() + ".checkpoint").deleteOnExit();
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        MockMqttClient mockClient = new MockMqttClient();
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setOfflinePublishQueueFile(queueFile);
+        testClient.setOfflinePublishQueueBound(3);
+        testClient.setFullQueueToKeepNewestMessages();
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        // the oldest messages are evicted from the queue and the file
+        for (int i = 0; i < 5; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+        }
+        assertEquals(3, testClient.getMqttMessageQueue().size());
+        testClient.setOfflinePublishQueueFile(null);
+
+        MockMqttClient restartedMockClient = new MockMqttClient();
+        AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        restartedClient.setMqttClient(restartedMockClient);
+        restartedClient.setOfflinePublishQueueFile(queueFile);
+        restartedClient.setOfflinePublishQueueBound(3);
+        restartedClient.connect(testKeystore, csb);
+        assertEquals(3, restartedClient.getMqttMessageQueue().size());
+
+        restartedMockClient.mockConnectSuccess();
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+        assertEquals(Arrays.asList("test payload 2", "test payload 3", "test payload 4"),
+                restartedMockClient.publishedPayloads);
+        assertEquals(0, queueFile.length());
+        restartedClient.setOfflinePublishQueueFile(null);
+
+        // messages already published aren't loaded again
+        AWSIotMqttManager reloadedClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        reloadedClient.setMqttClient(new MockMqttClient());
+        reloadedClient.setOfflinePublishQueueFile(queueFile);
+        reloadedClient.connect(testKeystore, csb);
+        assertEquals(0, reloadedClient.getMqttMessageQueue().size());
+        reloadedClient.setOfflinePublishQueueFile(null);
+    }
+
+    @Test
+    public void testOfflinePublishQueueFileIsLoadedWithinBound() throws Exception {
+        File queueFile = File.createTempFile("offline-publish-queue", null);
+        queueFile.deleteOnExit();
+        new File(queueFile.getPath() + ".checkpoint").deleteOnExit();
+        OfflinePublishStore store = new OfflinePublishStore(queueFile);
+        store.load();
+        for (int i = 0; i < 5; i++) {
+            store.append(new AWSIotMqttQueueMessage("test/topic", ("test payload " + i).getBytes(),
+                    AWSIotMqttQos.QOS1, new PublishMessageUserData(null, null)));
+        }
+        store.close();
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+
+        // keeping the oldest messages drops the newest ones
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(new MockMqttClient());
+        testClient.setOfflinePublishQueueFile(queueFile);
+        testClient.setOfflinePublishQueueBound(4);
+        testClient.setFullQueueToKeepOldestMessages();
+        testClient.connect(testKeystore, new TestClientStatusCallback());
+        assertEquals(4, testClient.getMqttMessageQueue().size());
+        assertEquals("test payload 0",
+                new String(testClient.getMqttMessageQueue().peek().getMessage()));
+        testClient.setOfflinePublishQueueFile(null);
+
+        // keeping the newest messages drops the oldest ones
+        testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(new MockMqttClient());
+        testClient.setOfflinePublishQueueFile(queueFile);
+        testClient.setOfflinePublishQueueBound(2);
+        testClient.connect(testKeystore, new TestClientStatusCallback());
+        assertEquals(2, testClient.getMqttMessageQueue().size());
+        assertEquals("test payload 2",
+                new String(testClient.getMqttMessageQueue().peek().getMessage()));
+        testClient.setOfflinePublishQueueFile(null);
+    }
+
+    @Test
+    public void testOfflinePublishQueueFileLimitNewest() throws Exception {
+        File queueFile = File.createTempFile("offline-publish-queue", null);
+        queueFile.deleteOnExit();
+        new File(queueFile.getPath() + ".checkpoint").deleteOnExit();
+        MockMqttClient mockClient = new MockMqttClient();
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setOfflinePublishQueueFile(queueFile);
+        testClient.setOfflinePublishQueueBound(10);
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper.getIotKeystore(CERT_ID, KEYSTORE_PATH,
+                KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        for (int i = 0; i <= 9; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS0);
+        }
+        assertEquals(10, testClient.getMqttMessageQueue().size());
+
+        // queue is now full - the oldest message is evicted from the queue and the file
+        testClient.publishString("test payload 10", "test/topic", AWSIotMqttQos.QOS0);
+        assertEquals(10, testClient.getMqttMessageQueue().size());
+        checkOfflinePublishingQueue(testClient, 1);
+        testClient.setOfflinePublishQueueFile(null);
+
+        AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        restartedClient.setMqttClient(new MockMqttClient());
+        restartedClient.setOfflinePublishQueueFile(queueFile);
+        restartedClient.setOfflinePublishQueueBound(10);
+        restartedClient.connect(testKeystore, csb);
+        assertEquals(10, restartedClient.getMqttMessageQueue().size());
+        checkOfflinePublishingQueue(restartedClient, 1);
+        restartedClient.setOfflinePublishQueueFile(null);
+    }
+
+    @Test
+    public void testOfflinePublishQueueFileDrainingRate() throws Exception {
+        File queueFile = File.createTempFile("offline-publish-queue", null);
+        queueFile.deleteOnExit();
+        new File(queueFile.getPath() + ".checkpoint").deleteOnExit();
+        final int[] inflight = new int[1];
+        MockMqttClient mockClient = new MockMqttClient() {
+            @Override
+            public IMqttDeliveryToken publish(String topic, byte[] payload, int qos,
+                    boolean retained) throws MqttException {
+                if (inflight[0] >= 3) {
+                    throw new MqttException(MqttException.REASON_CODE_MAX_INFLIGHT);
+                }
+                inflight[0]++;
+                return super.publish(topic, payload, qos, retained);
+            }
+        };
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setOfflinePublishQueueFile(queueFile);
+        testClient.setDrainingRate(1000);
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+
+        for (int i = 0; i < 5; i++) {
+            testClient.publishString("test payload " + i, "test/topic", AWSIotMqttQos.QOS1);
+        }
+
+        // the published part of the batch is removed from the file
+        Robolectric.getUiThreadScheduler().advanceBy(4100);
+        mockClient.mockConnectSuccess();
+        assertEquals(3, mockClient.publishCalls);
+        assertEquals(2, testClient.getMqttMessageQueue().size());
+        testClient.setOfflinePublishQueueFile(null);
+
+        AWSIotMqttManager restartedClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        restartedClient.setMqttClient(new MockMqttClient());
+        restartedClient.setOfflinePublishQueueFile(queueFile);
+        restartedClient.connect(testKeystore, csb);
+        checkOfflinePublishingQueue(restartedClient, 3);
+        assertEquals(2, restartedClient.getMqttMessageQueue().size());
+        restartedClient.setOfflinePublishQueueFile(null);
+    }
+
     /**
      * This method checks if the offline publishing queue has the right
      * payload data. The queue is cloned in order to be polled for verification.
      */
     private void checkOfflinePublishingQueue(AWSIotMqttManager testClient) {
+        checkOfflinePublishingQueue(testClient, 0);
+    }
+
+    private void checkOfflinePublishingQueue(AWSIotMqttManager testClient, int first) {
         ConcurrentLinkedQueue<AWSIotMqttQueueMessage> queue = 
             new ConcurrentLinkedQueue<AWSIotMqttQueueMessage>(testClient.getMqttMessageQueue());
-        int i = 0;
+        int i = first;
         while (!queue.isEmpty()) {
             AWSIotMqttQueueMessage message = queue.poll();
             System.out.println("Message = " + new String(message.getMessage()));
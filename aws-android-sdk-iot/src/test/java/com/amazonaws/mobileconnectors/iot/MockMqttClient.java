@@ -3,7 +3,9 @@ package com.amazonaws.mobileconnectors.iot;
 
 import org.eclipse.paho.client.mqttv3.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class MockMqttClient extends MqttAsyncClient {
     public int connectCalls = 0;
@@ -18,6 +20,7 @@ public class MockMqttClient extends MqttAsyncClient {
     public boolean mostRecentPublishRetained;
     public Object mostRecentPublishUserContext;
     public IMqttActionListener mostRecentPublishCallback;
+    public List<String> publishedPayloads = new ArrayList<String>();
     public boolean isConnected;
     public MqttCallback mockCallback;
     public IMqttActionListener mockConnectionStatusCallback;
@@ -74,6 +77,7 @@ public class MockMqttClient extends MqttAsyncClient {
         mostRecentPublishPayload = payload;
         mostRecentPublishQoS = qos;
         mostRecentPublishRetained = retained;
+        publishedPayloads.add(new String(payload));
         return testDeliveryToken;
     }
 
@@ -88,6 +92,7 @@ public class MockMqttClient extends MqttAsyncClient {
         mostRecentPublishPayload = payload;
         mostRecentPublishQoS = qos;
         mostRecentPublishRetained = retained;
+        publishedPayloads.add(new String(payload));
         mostRecentPublishUserContext = userContext;
         mostRecentPublishCallback = callback;
         return testDeliveryToken;
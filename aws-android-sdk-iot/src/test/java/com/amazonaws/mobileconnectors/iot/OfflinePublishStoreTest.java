@@ -0,0 +1,154 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class OfflinePublishStoreTest {
+
+    File file;
+    OfflinePublishStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("offline-publish-queue", null);
+        store = new OfflinePublishStore(file);
+        assertTrue(store.load().isEmpty());
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        file.delete();
+        new File(file.getPath() + ".checkpoint").delete();
+    }
+
+    @Test
+    public void testMessagesAreLoadedInOrder() throws Exception {
+        store.append(message("topic/0", "payload 0", AWSIotMqttQos.QOS0));
+        store.append(message("topic/1", "", AWSIotMqttQos.QOS1));
+        store.close();
+
+        store = new OfflinePublishStore(file);
+        final List<AWSIotMqttQueueMessage> messages = store.load();
+        assertEquals(2, messages.size());
+        assertEquals("topic/0", messages.get(0).getTopic());
+        assertEquals("payload 0", new String(messages.get(0).getMessage()));
+        assertEquals(AWSIotMqttQos.QOS0, messages.get(0).getQos());
+        assertEquals("topic/1", messages.get(1).getTopic());
+        assertEquals(0, messages.get(1).getMessage().length);
+        assertEquals(AWSIotMqttQos.QOS1, messages.get(1).getQos());
+        assertNull(messages.get(1).getUserData().getUserCallback());
+    }
+
+    @Test
+    public void testRemovedMessagesAreNotLoaded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            store.append(message("topic", "payload " + i, AWSIotMqttQos.QOS1));
+        }
+        store.removeFirst();
+        store.close();
+
+        store = new OfflinePublishStore(file);
+        List<AWSIotMqttQueueMessage> messages = store.load();
+        assertEquals(2, messages.size());
+        assertEquals("payload 1", new String(messages.get(0).getMessage()));
+
+        store.removeFirst();
+        store.append(message("topic", "payload 3", AWSIotMqttQos.QOS1));
+        messages = store.load();
+        assertEquals(2, messages.size());
+        assertEquals("payload 2", new String(messages.get(0).getMessage()));
+        assertEquals("payload 3", new String(messages.get(1).getMessage()));
+    }
+
+    @Test
+    public void testFileIsTruncatedWhenEmpty() throws Exception {
+        store.append(message("topic", "payload 0", AWSIotMqttQos.QOS0));
+        store.append(message("topic", "payload 1", AWSIotMqttQos.QOS0));
+        store.removeFirst();
+        assertTrue(file.length() > 0);
+        store.removeFirst();
+        assertEquals(0, file.length());
+
+        store.append(message("topic", "payload 2", AWSIotMqttQos.QOS0));
+        store.clear();
+        assertEquals(0, file.length());
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void testRemoveOldestAndNewestMessages() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            store.append(message("topic", "payload " + i, AWSIotMqttQos.QOS1));
+        }
+        store.removeFirst(2);
+        store.removeLast(2);
+        store.close();
+
+        store = new OfflinePublishStore(file);
+        List<AWSIotMqttQueueMessage> messages = store.load();
+        assertEquals(2, messages.size());
+        assertEquals("payload 2", new String(messages.get(0).getMessage()));
+        assertEquals("payload 3", new String(messages.get(1).getMessage()));
+
+        store.removeLast(5);
+        assertEquals(0, file.length());
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws Exception {
+        store.append(message("topic", "payload 0", AWSIotMqttQos.QOS0));
+        store.append(message("topic", "payload 1", AWSIotMqttQos.QOS0));
+        store.close();
+        final long length = file.length();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(length - 3);
+        raf.close();
+
+        store = new OfflinePublishStore(file);
+        final List<AWSIotMqttQueueMessage> messages = store.load();
+        assertEquals(1, messages.size());
+        assertEquals("payload 0", new String(messages.get(0).getMessage()));
+        assertTrue(file.length() < length - 3);
+    }
+
+    @Test
+    public void testFileIsCompacted() throws Exception {
+        store.close();
+        store = new OfflinePublishStore(file, 1024);
+        assertTrue(store.load().isEmpty());
+        store.append(message("topic", "payload 0", AWSIotMqttQos.QOS1));
+        store.append(message("topic", "payload 1", AWSIotMqttQos.QOS1));
+        long largest = 0;
+        for (int i = 2; i < 1000; i++) {
+            store.append(message("topic", "payload " + i, AWSIotMqttQos.QOS1));
+            store.removeFirst();
+            largest = Math.max(largest, file.length());
+        }
+        // the published records are dropped once they pass the threshold
+        assertTrue(largest < 2 * 1024);
+        store.close();
+
+        store = new OfflinePublishStore(file);
+        final List<AWSIotMqttQueueMessage> messages = store.load();
+        assertEquals(2, messages.size());
+        assertEquals("payload 998", new String(messages.get(0).getMessage()));
+        assertEquals("payload 999", new String(messages.get(1).getMessage()));
+    }
+
+    private static AWSIotMqttQueueMessage message(String topic, String payload,
+            AWSIotMqttQos qos) {
+        return new AWSIotMqttQueueMessage(topic, payload.getBytes(), qos,
+                new PublishMessageUserData(null, null));
+    }
+}
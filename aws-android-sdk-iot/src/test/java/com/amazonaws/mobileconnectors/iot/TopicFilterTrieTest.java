@@ -0,0 +1,114 @@
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TopicFilterTrieTest {
+
+    private static final List<String> TOPIC_FILTERS = Arrays.asList(
+            "test", "test/1", "test/1/2", "#", "test/+", "test/+/1", "test/+/+/+/+",
+            "+", "+/1", "+/1/+", "test/#", "test/1/#", "other/+/#", "a/b", "a/+/", "a/b//c/");
+    private static final List<String> TOPICS = Arrays.asList(
+            "test", "test/1", "test/12", "test/1/1", "test/1/2", "test/1/2/3", "test/1/2/3/4",
+            "test/1/2/3/4/5", "nottest/1", "A/1/B", "test/test/test", "not/1", "other",
+            "other/1", "other/1/2", "te", "a/b", "a/b/", "a/b//", "a/b//c", "a/b/c/");
+
+    TopicFilterTrie trie;
+    List<String> received;
+
+    @Before
+    public void setUp() {
+        trie = new TopicFilterTrie();
+        received = new ArrayList<String>();
+        for (final String topicFilter : TOPIC_FILTERS) {
+            subscribe(topicFilter);
+        }
+    }
+
+    @Test
+    public void dispatchMatchesIsTopicMatch() {
+        for (final String topic : TOPICS) {
+            received.clear();
+            trie.dispatch(topic, new byte[0]);
+
+            final Set<String> expected = new HashSet<String>();
+            for (final String topicFilter : TOPIC_FILTERS) {
+                if (AWSIotMqttManager.isTopicMatch(topicFilter, topic)) {
+                    expected.add(topicFilter + " " + topic);
+                }
+            }
+            assertEquals(topic, expected.size(), received.size());
+            assertEquals(topic, expected, new HashSet<String>(received));
+        }
+    }
+
+    @Test
+    public void trailingSeparatorsAreIgnored() {
+        trie.dispatch("a/b/", new byte[0]);
+        assertEquals(new HashSet<String>(Arrays.asList("a/b a/b/", "a/+/ a/b/", "# a/b/")),
+                new HashSet<String>(received));
+
+        received.clear();
+        trie.dispatch("a/b", new byte[0]);
+        assertEquals(new HashSet<String>(Arrays.asList("a/b a/b", "a/+/ a/b", "# a/b")),
+                new HashSet<String>(received));
+    }
+
+    @Test
+    public void putReplacesSubscription() {
+        trie.put("test/1", new AWSIotMqttTopic("test/1", AWSIotMqttQos.QOS0,
+                new AWSIotMqttNewMessageCallback() {
+                    @Override
+                    public void onMessageArrived(String topic, byte[] data) {
+                        received.add("replaced " + topic);
+                    }
+                }));
+        trie.dispatch("test/1", new byte[0]);
+        assertTrue(received.contains("replaced test/1"));
+        assertTrue(!received.contains("test/1 test/1"));
+    }
+
+    @Test
+    public void removeKeepsOtherSubscriptions() {
+        trie.remove("test/1");
+        trie.remove("test/#");
+        trie.remove("#");
+        trie.remove("not/subscribed");
+        trie.dispatch("test/1/2", new byte[0]);
+        assertEquals(new HashSet<String>(Arrays.asList("test/1/2 test/1/2",
+                "test/1/# test/1/2", "+/1/+ test/1/2")), new HashSet<String>(received));
+
+        received.clear();
+        trie.dispatch("test/1", new byte[0]);
+        assertEquals(new HashSet<String>(Arrays.asList("test/+ test/1", "+/1 test/1")),
+                new HashSet<String>(received));
+    }
+
+    @Test
+    public void clearRemovesAllSubscriptions() {
+        trie.clear();
+        for (final String topic : TOPICS) {
+            trie.dispatch(topic, new byte[0]);
+        }
+        assertTrue(received.isEmpty());
+    }
+
+    private void subscribe(final String topicFilter) {
+        trie.put(topicFilter, new AWSIotMqttTopic(topicFilter, AWSIotMqttQos.QOS0,
+                new AWSIotMqttNewMessageCallback() {
+                    @Override
+                    public void onMessageArrived(String topic, byte[] data) {
+                        received.add(topicFilter + " " + topic);
+                    }
+                }));
+    }
+}
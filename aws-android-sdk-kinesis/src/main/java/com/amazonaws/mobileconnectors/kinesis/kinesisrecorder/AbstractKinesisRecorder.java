@@ -17,15 +17,26 @@ package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 
 import com.amazonaws.AmazonClientException;
-import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordStore.RecordIterator;
 import com.amazonaws.util.StringUtils;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract class for Amazon Kinesis recorders. It manages local file store
@@ -45,13 +56,23 @@ public abstract class AbstractKinesisRecorder {
      * Maximum size in bytes of records in PutRecordBatch.
      */
     private static final int MAX_BATCH_RECORDS_SIZE_BYTES = 512 * 1024;
+    /**
+     * Time an idle sender thread is kept, in seconds.
+     */
+    private static final long SENDER_KEEP_ALIVE_SECONDS = 60;
 
     /**
      * The configurable options for Kinesis Recorder, includes the
      * ClientConfiguration of the low level client.
      */
     protected KinesisRecorderConfig config;
-    protected FileRecordStore recordStore;
+    protected RecordStore recordStore;
+
+    /**
+     * Sends concurrent batches. Created on the first concurrent submission,
+     * guarded by this recorder.
+     */
+    private ThreadPoolExecutor senderExecutor;
 
     /**
      * Gets the sender to send saved records.
@@ -66,7 +87,7 @@ public abstract class AbstractKinesisRecorder {
      * @param recordStore local file store that keeps Kinesis records
      * @param config configuration
      */
-    protected AbstractKinesisRecorder(FileRecordStore recordStore, KinesisRecorderConfig config) {
+    protected AbstractKinesisRecorder(RecordStore recordStore, KinesisRecorderConfig config) {
         if (recordStore == null) {
             throw new IllegalArgumentException("Record store can't be null");
         }
@@ -74,6 +95,28 @@ public abstract class AbstractKinesisRecorder {
         this.config = config;
     }
 
+    /**
+     * Creates the local record store as configured. With segmented storage
+     * enabled, records left in the line based record file are moved into the
+     * segmented store.
+     *
+     * @param directory working directory
+     * @param recordFileName name of the record file
+     * @param config configuration
+     * @return a {@link RecordStore}
+     */
+    static RecordStore newRecordStore(File directory, String recordFileName,
+            KinesisRecorderConfig config) {
+        if (!config.isSegmentedStorageEnabled()) {
+            return new FileRecordStore(directory, recordFileName, config.getMaxStorageSize());
+        }
+        final SegmentedFileRecordStore recordStore = new SegmentedFileRecordStore(directory,
+                recordFileName, config.getMaxStorageSize(), config.getStorageSegmentSize());
+        recordStore.importRecords(new File(new File(directory, Constants.RECORDS_DIRECTORY),
+                recordFileName));
+        return recordStore;
+    }
+
     /**
      * Saves a string to local storage to be sent later. It's a convenient
      * method to save the UTF-8 encoded bytes of the string.
@@ -97,7 +140,7 @@ public abstract class AbstractKinesisRecorder {
      */
     public void saveRecord(byte[] data, String streamName) {
         try {
-            recordStore.put(FileRecordParser.asString(streamName, data));
+            recordStore.put(streamName, data);
         } catch (final IOException e) {
             throw new AmazonClientException("Error saving record", e);
         }
@@ -110,7 +153,9 @@ public abstract class AbstractKinesisRecorder {
      * Requests that fail due to other reasons (such as the request being
      * invalid) will be deleted. Note: Since KinesisRecorder uses synchronous
      * methods to make calls to Amazon Kinesis, do not call submitAll() on the
-     * main thread of your application.
+     * main thread of your application. See
+     * {@link KinesisRecorderConfig#withMaxConcurrentBatches(int)} to send
+     * several batches at once.
      *
      * @throws AmazonClientException Thrown if there was an unrecoverable error
      *             during submission. Note: If the request appears to be
@@ -120,7 +165,12 @@ public abstract class AbstractKinesisRecorder {
     public synchronized void submitAllRecords() {
         final RecordSender sender = getRecordSender();
         final RecordIterator iterator = recordStore.iterator();
-        final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
+        final int maxConcurrentBatches = config.getMaxConcurrentBatches();
+        if (maxConcurrentBatches > 1) {
+            submitAllRecordsConcurrently(sender, iterator, maxConcurrentBatches);
+            return;
+        }
+        final List<ByteBuffer> data = new ArrayList<ByteBuffer>(MAX_RECORDS_PER_BATCH);
         int retry = 0;
         int count = 0;
         boolean unknownErrorRetried = false;
@@ -134,7 +184,7 @@ public abstract class AbstractKinesisRecorder {
 
                 try {
 
-                    List<byte[]> failures = null;
+                    List<ByteBuffer> failures = null;
                     try {
                         failures = sender.sendBatch(streamName, data);
                     } catch (AmazonClientException ace) {
@@ -171,8 +221,8 @@ public abstract class AbstractKinesisRecorder {
                         retry++;
                     }
                     if (!failures.isEmpty()) {
-                        for (final byte[] bytes : failures) {
-                            saveRecord(bytes, streamName);
+                        for (final ByteBuffer bytes : failures) {
+                            saveRecord(RecordStore.toBytes(bytes), streamName);
                         }
                     }
 
@@ -184,11 +234,7 @@ public abstract class AbstractKinesisRecorder {
                     } else {
 
                         // Data is dead and should be added to dead letter queue
-                        try {
-                            this.config.getDeadLetterListener().onRecordsDropped(streamName, data);
-                        } catch (Exception e) {
-                            LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
-                        }
+                        notifyRecordsDropped(streamName, data);
 
                         try {
                             iterator.removeReadRecords();
@@ -216,9 +262,220 @@ public abstract class AbstractKinesisRecorder {
         }
     }
 
+    /**
+     * Sends batches with up to maxConcurrentBatches of them in flight, in the
+     * order they are read from the store. Results are handled in the same
+     * order, so read records are only removed up to the end of an unbroken run
+     * of acknowledged batches. Once a batch fails with a recoverable error, it
+     * and every batch read after it are kept, even if some of those went
+     * through, as duplicates are preferred to lost records.
+     */
+    private void submitAllRecordsConcurrently(final RecordSender sender,
+            final RecordIterator iterator, int maxConcurrentBatches) {
+        final ThreadPoolExecutor executor = getSenderExecutor(maxConcurrentBatches);
+        final LinkedList<PendingBatch> pending = new LinkedList<PendingBatch>();
+        int retry = 0;
+        int count = 0;
+        boolean unknownErrorRetried = false;
+        // no new batch is read after the first failure
+        boolean reading = true;
+        // no record is removed after a batch that is kept
+        boolean removing = true;
+        AmazonClientException failure = null;
+        try {
+            while (true) {
+                while (reading && retry < MAX_RETRY_COUNT && pending.size() < maxConcurrentBatches
+                        && iterator.hasNext()) {
+                    final List<ByteBuffer> data = new ArrayList<ByteBuffer>(MAX_RECORDS_PER_BATCH);
+                    final String streamName = nextBatch(iterator, data, MAX_RECORDS_PER_BATCH,
+                            MAX_BATCH_RECORDS_SIZE_BYTES);
+                    if (streamName == null || data.isEmpty()) {
+                        break;
+                    }
+                    final Future<List<ByteBuffer>> result = executor
+                            .submit(new Callable<List<ByteBuffer>>() {
+                                @Override
+                                public List<ByteBuffer> call() {
+                                    return sender.sendBatch(streamName, data);
+                                }
+                            });
+                    pending.add(new PendingBatch(streamName, data, iterator.position(), result));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+
+                final PendingBatch batch = pending.removeFirst();
+                List<ByteBuffer> failures = null;
+                try {
+                    failures = batch.awaitFailures();
+                } catch (final AmazonClientException ace) {
+                    if (!unknownErrorRetried
+                            && ace.getMessage() != null
+                            && ace.getMessage().contains("Unable to unmarshall error response")) {
+                        // Retry once for unforeseen error, possible kinesis error without shape
+                        unknownErrorRetried = true;
+                        failures = batch.data;
+                    } else {
+                        reading = false;
+                        if (failure == null) {
+                            failure = ace;
+                        }
+                        if (!removing) {
+                            // kept along with the batch that failed before it
+                            continue;
+                        }
+                        if (sender.isRecoverable(ace)) {
+                            removing = false;
+                            LOGGER.error(
+                                    "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
+                                    ace);
+                        } else {
+                            notifyRecordsDropped(batch.streamName, batch.data);
+                            removeReadRecords(iterator, batch.position, "Failed to drop bad records.");
+                            LOGGER.error(
+                                    "ServiceException in submit all, the request is presumed to be the cause and will be dropped",
+                                    ace);
+                        }
+                        continue;
+                    }
+                }
+                if (!removing) {
+                    continue;
+                }
+
+                final int successCount = batch.data.size() - failures.size();
+                count += successCount;
+                removeReadRecords(iterator, batch.position, "Failed to remove read records");
+                if (successCount == 0) {
+                    // no record went through, increase retry count.
+                    retry++;
+                }
+                for (final ByteBuffer bytes : failures) {
+                    saveRecord(RecordStore.toBytes(bytes), batch.streamName);
+                }
+            }
+        } finally {
+            // batches still in flight after an error are abandoned
+            for (final PendingBatch batch : pending) {
+                batch.result.cancel(true);
+            }
+            LOGGER.debug(String.format("submitAllRecords sent %d records", count));
+            try {
+                iterator.close();
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to close record file", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets the threads sending concurrent batches, sized for the given number
+     * of batches in flight. Idle threads time out, so the pool costs nothing
+     * between submissions.
+     */
+    private ThreadPoolExecutor getSenderExecutor(int maxConcurrentBatches) {
+        if (senderExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            senderExecutor = new ThreadPoolExecutor(maxConcurrentBatches, maxConcurrentBatches,
+                    SENDER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r,
+                                    "KinesisRecorder-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            senderExecutor.allowCoreThreadTimeOut(true);
+        } else if (senderExecutor.getMaximumPoolSize() < maxConcurrentBatches) {
+            senderExecutor.setMaximumPoolSize(maxConcurrentBatches);
+            senderExecutor.setCorePoolSize(maxConcurrentBatches);
+        } else if (senderExecutor.getMaximumPoolSize() > maxConcurrentBatches) {
+            senderExecutor.setCorePoolSize(maxConcurrentBatches);
+            senderExecutor.setMaximumPoolSize(maxConcurrentBatches);
+        }
+        return senderExecutor;
+    }
+
+    /**
+     * Stops the threads that send concurrent batches. Call it when the
+     * recorder is no longer used. A later submission starts new threads.
+     */
+    public synchronized void shutdown() {
+        if (senderExecutor != null) {
+            senderExecutor.shutdown();
+            senderExecutor = null;
+        }
+    }
+
+    private static void removeReadRecords(RecordIterator iterator, Object position,
+            String errorMessage) {
+        try {
+            iterator.removeReadRecords(position);
+        } catch (final IOException e) {
+            throw new AmazonClientException(errorMessage, e);
+        }
+    }
+
+    private void notifyRecordsDropped(String streamName, List<ByteBuffer> data) {
+        try {
+            final List<byte[]> deadData = new ArrayList<byte[]>(data.size());
+            for (final ByteBuffer bytes : data) {
+                deadData.add(RecordStore.toBytes(bytes));
+            }
+            this.config.getDeadLetterListener().onRecordsDropped(streamName, deadData);
+        } catch (Exception e) {
+            LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
+        }
+    }
+
+    /**
+     * A batch that is being sent, with the store position right after it.
+     */
+    private static final class PendingBatch {
+        private final String streamName;
+        private final List<ByteBuffer> data;
+        private final Object position;
+        private final Future<List<ByteBuffer>> result;
+
+        PendingBatch(String streamName, List<ByteBuffer> data, Object position,
+                Future<List<ByteBuffer>> result) {
+            this.streamName = streamName;
+            this.data = data;
+            this.position = position;
+            this.result = result;
+        }
+
+        /**
+         * Waits for the batch to be sent.
+         *
+         * @return the records that failed
+         */
+        List<ByteBuffer> awaitFailures() {
+            try {
+                return result.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while sending records", e);
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new AmazonClientException("Failed to send records", cause);
+            }
+        }
+    }
+
     /**
      * Reads a batch of records belong to the same stream into a list. If data
-     * is read successfully, the stream name is returned.
+     * is read successfully, the stream name is returned. The data may be
+     * read-only slices of a buffer shared by the records.
      *
      * @param iterator record iterator
      * @param data a list to hold data.
@@ -227,37 +484,34 @@ public abstract class AbstractKinesisRecorder {
      *            record that brings the total size over this threshold.
      * @return the stream name that the batch belongs to
      */
-    protected String nextBatch(RecordIterator iterator, List<byte[]> data, int maxCount,
+    protected String nextBatch(RecordIterator iterator, List<ByteBuffer> data, int maxCount,
             int maxSize) {
         data.clear();
 
         String lastStreamName = null;
         int size = 0;
         int count = 0;
-        final FileRecordParser frp = new FileRecordParser();
+        final StoredRecord record = new StoredRecord();
         while (iterator.hasNext() && count < maxCount && size < maxSize) {
-            final String line = iterator.peek();
-            if (line == null || line.isEmpty()) {
-                iterator.next();
-                continue;
-            }
-            // parse a line. Skip in case of corrupted data
+            // read a record. Skip in case of corrupted data
             try {
-                frp.parse(line);
+                if (!iterator.peekRecord(record)) {
+                    break;
+                }
             } catch (final Exception e) {
-                LOGGER.warn("Failed to read line. Skip.", e);
-                iterator.next();
+                LOGGER.warn("Failed to read record. Skip.", e);
+                iterator.skip();
                 continue;
             }
 
             // check whether it belongs to previous batch
-            if (lastStreamName == null || lastStreamName.equals(frp.streamName)) {
-                data.add(frp.bytes);
+            if (lastStreamName == null || lastStreamName.equals(record.streamName)) {
+                data.add(record.data);
                 // update counter
                 count++;
-                size += frp.bytes.length;
-                lastStreamName = frp.streamName;
-                iterator.next();
+                size += record.data.remaining();
+                lastStreamName = record.streamName;
+                iterator.skip();
             } else {
                 break;
             }
@@ -33,6 +33,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -40,7 +42,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * the Android disk. Currently it stores each request as a JSON object
  * representing it's properties. One request per line.
  */
-class FileRecordStore {
+class FileRecordStore extends RecordStore {
     private static final Log LOGGER = LogFactory.getLog(FileRecordStore.class);
     private final ReentrantLock accessLock = new ReentrantLock(true);
 
@@ -72,6 +74,11 @@ class FileRecordStore {
         }
     }
 
+    @Override
+    public boolean put(String streamName, byte[] data) throws IOException {
+        return put(FileRecordParser.asString(streamName, data));
+    }
+
     public boolean put(final String record) throws IOException {
         boolean success = false;
         BufferedWriter writer = null;
@@ -94,6 +101,7 @@ class FileRecordStore {
         return success;
     }
 
+    @Override
     public long getFileSize() {
         return recordFile == null ? 0 : recordFile.length();
     }
@@ -195,13 +203,17 @@ class FileRecordStore {
         return recordFile;
     }
 
+    @Override
     public RecordIterator iterator() {
         return new RecordIterator();
 
     }
 
-    public class RecordIterator implements java.util.Iterator<String> {
+    public class RecordIterator extends RecordStore.RecordIterator implements Iterator<String> {
+        private final FileRecordParser parser = new FileRecordParser();
         int linesRead = 0;
+        /** Lines removed by removeReadRecords(Object) since the last reset. **/
+        int linesRemoved = 0;
         String nextBuffer = null;
         BufferedReader reader = null;
         boolean isEndOfFile = false;
@@ -327,12 +339,34 @@ class FileRecordStore {
             }
         }
 
+        @Override
+        public boolean peekRecord(StoredRecord record) {
+            String line = peek();
+            while (line != null && line.isEmpty()) {
+                next();
+                line = peek();
+            }
+            if (line == null) {
+                return false;
+            }
+            parser.parse(line);
+            record.streamName = parser.streamName;
+            record.data = ByteBuffer.wrap(parser.bytes);
+            return true;
+        }
+
+        @Override
+        public void skip() {
+            next();
+        }
+
         @Override
         public void remove() {
             throw new UnsupportedOperationException(
                     "The remove() operation is not supported for this iterator");
         }
 
+        @Override
         public void removeReadRecords() throws IOException {
             accessLock.lock();
             try {
@@ -343,6 +377,36 @@ class FileRecordStore {
             }
         }
 
+        @Override
+        public Object position() {
+            return Integer.valueOf(linesRemoved + linesRead);
+        }
+
+        @Override
+        public void removeReadRecords(Object position) throws IOException {
+            accessLock.lock();
+            try {
+                final int lines = ((Integer) position).intValue() - linesRemoved;
+                if (lines <= 0) {
+                    return;
+                }
+                deleteReadRecords(lines);
+
+                // The lines consumed after the position are now at the start of
+                // the file. Read past them again to continue where we were.
+                final int consumed = linesRead - lines;
+                final int removed = linesRemoved + lines;
+                resetReader();
+                while (linesRead < consumed && next() != null) {
+                    // skip
+                }
+                linesRemoved = removed;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
         public void removeAllRecords() throws IOException {
             accessLock.lock();
             try {
@@ -356,10 +420,12 @@ class FileRecordStore {
         private void resetReader() throws IOException {
             tryCloseReader();
             linesRead = 0;
+            linesRemoved = 0;
             nextBuffer = null;
             isEndOfFile = false;
         }
 
+        @Override
         public void close() throws IOException {
             tryCloseReader();
         }
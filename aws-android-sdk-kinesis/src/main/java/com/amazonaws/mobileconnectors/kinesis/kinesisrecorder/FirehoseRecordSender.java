@@ -49,7 +49,7 @@ class FirehoseRecordSender implements RecordSender {
     }
 
     @Override
-    public List<byte[]> sendBatch(String streamName, List<byte[]> data) {
+    public List<ByteBuffer> sendBatch(String streamName, List<ByteBuffer> data) {
         if (data == null || data.isEmpty()) {
             return Collections.emptyList();
         }
@@ -57,9 +57,9 @@ class FirehoseRecordSender implements RecordSender {
         final PutRecordBatchRequest request = new PutRecordBatchRequest();
         request.setDeliveryStreamName(streamName);
         final List<Record> records = new ArrayList<Record>(data.size());
-        for (final byte[] d : data) {
+        for (final ByteBuffer d : data) {
             final Record r = new Record();
-            r.setData(ByteBuffer.wrap(d));
+            r.setData(d);
             records.add(r);
         }
         request.setRecords(records);
@@ -68,7 +68,7 @@ class FirehoseRecordSender implements RecordSender {
         final PutRecordBatchResult result = client.putRecordBatch(request);
 
         final int size = result.getRequestResponses().size();
-        final List<byte[]> failures = new ArrayList<byte[]>(result.getFailedPutCount());
+        final List<ByteBuffer> failures = new ArrayList<ByteBuffer>(result.getFailedPutCount());
         for (int i = 0; i < size; i++) {
             // Error code is either ServiceUnavailable or InternalFailure
             if (result.getRequestResponses().get(i).getErrorCode() != null) {
@@ -160,8 +160,7 @@ public class KinesisFirehoseRecorder extends AbstractKinesisRecorder {
      */
     public KinesisFirehoseRecorder(File directory, Regions region,
             AWSCredentialsProvider credentialsProvider, KinesisRecorderConfig config) {
-        super(new FileRecordStore(directory, RECORD_FILE_NAME,
-                config.getMaxStorageSize()), config);
+        super(newRecordStore(directory, RECORD_FILE_NAME, config), config);
 
         AmazonKinesisFirehose client = new AmazonKinesisFirehoseClient(credentialsProvider,
                 config.getClientConfiguration());
@@ -177,7 +176,7 @@ public class KinesisFirehoseRecorder extends AbstractKinesisRecorder {
      * @param recordStore record store
      * @param config configuration
      */
-    KinesisFirehoseRecorder(FirehoseRecordSender sender, FileRecordStore recordStore,
+    KinesisFirehoseRecorder(FirehoseRecordSender sender, RecordStore recordStore,
             KinesisRecorderConfig config) {
         super(recordStore, config);
         this.sender = sender;
@@ -24,7 +24,11 @@ import com.amazonaws.ClientConfiguration;
 public class KinesisRecorderConfig {
 
     private static final long DEFAUT_MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long DEFAULT_STORAGE_SEGMENT_SIZE = 256 * 1024L;
     private long maxStorageSize = DEFAUT_MAX_STORAGE_SIZE;
+    private boolean segmentedStorageEnabled = false;
+    private long storageSegmentSize = DEFAULT_STORAGE_SEGMENT_SIZE;
+    private int maxConcurrentBatches = 1;
     private final ClientConfiguration clientConfiguration;
     private String partitionKey;
     private DeadLetterListener mDeadLetterListener;
@@ -61,6 +65,9 @@ public class KinesisRecorderConfig {
         this.maxStorageSize = other.getMaxStorageSize();
         this.clientConfiguration = new ClientConfiguration(other.getClientConfiguration());
         this.partitionKey = other.partitionKey;
+        this.segmentedStorageEnabled = other.segmentedStorageEnabled;
+        this.storageSegmentSize = other.storageSegmentSize;
+        this.maxConcurrentBatches = other.maxConcurrentBatches;
     }
 
     /**
@@ -94,6 +101,80 @@ public class KinesisRecorderConfig {
         return this.maxStorageSize;
     }
 
+    /**
+     * Sets whether records are stored in an append-only log of segment files
+     * instead of a single file. With segmented storage, records are kept in a
+     * compact binary format rather than as Base64 encoded text, and sent
+     * records are removed by deleting whole segments and advancing a read
+     * checkpoint, rather than by rewriting the remaining records. Records left
+     * in the single file are moved into the segments when the recorder is
+     * created.
+     *
+     * @param enabled true to use segmented storage.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withSegmentedStorage(boolean enabled) {
+        this.segmentedStorageEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * @return Whether records are stored in segment files.
+     */
+    public boolean isSegmentedStorageEnabled() {
+        return this.segmentedStorageEnabled;
+    }
+
+    /**
+     * Sets the size in bytes after which segmented storage starts a new
+     * segment file. Defaults to 256KiB.
+     *
+     * @param segmentSize the segment size.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withStorageSegmentSize(long segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.storageSegmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * @return The size in bytes after which segmented storage starts a new
+     *         segment file.
+     */
+    public long getStorageSegmentSize() {
+        return this.storageSegmentSize;
+    }
+
+    /**
+     * Sets the maximum number of batches that submitAllRecords() keeps in
+     * flight at once. Batches are sent in parallel, including batches for
+     * different streams, but records are only removed from the device once
+     * every batch read before them has been acknowledged, so a failure never
+     * loses records that were read later. Defaults to 1, which sends one batch
+     * at a time.
+     *
+     * @param maxBatches the maximum number of concurrent batches.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withMaxConcurrentBatches(int maxBatches) {
+        if (maxBatches <= 0) {
+            throw new IllegalArgumentException("Max concurrent batches must be positive");
+        }
+        this.maxConcurrentBatches = maxBatches;
+        return this;
+    }
+
+    /**
+     * @return The maximum number of batches that submitAllRecords() keeps in
+     *         flight at once.
+     */
+    public int getMaxConcurrentBatches() {
+        return this.maxConcurrentBatches;
+    }
+
     /**
      * Returns the {@link DeadLetterListener} that will respond to records being dropped.
      * @return the {@link DeadLetterListener} that will respond to records being dropped.
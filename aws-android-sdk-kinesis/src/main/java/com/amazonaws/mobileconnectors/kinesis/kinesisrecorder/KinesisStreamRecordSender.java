@@ -64,7 +64,7 @@ class KinesisStreamRecordSender implements RecordSender {
     }
 
     @Override
-    public List<byte[]> sendBatch(String streamName, List<byte[]> data) {
+    public List<ByteBuffer> sendBatch(String streamName, List<ByteBuffer> data) {
         if (data == null || data.isEmpty()) {
             return Collections.emptyList();
         }
@@ -72,11 +72,11 @@ class KinesisStreamRecordSender implements RecordSender {
         final PutRecordsRequest request = new PutRecordsRequest();
         request.setStreamName(streamName);
         final List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>(data.size());
-        for (final byte[] d : data) {
+        for (final ByteBuffer d : data) {
             final String partKey = StringUtils.isBlank(this.partitionKey)
                     ? UUID.randomUUID().toString() : this.partitionKey;
             final PutRecordsRequestEntry r = new PutRecordsRequestEntry();
-            r.setData(ByteBuffer.wrap(d));
+            r.setData(d);
             r.setPartitionKey(partKey);
             records.add(r);
         }
@@ -86,7 +86,7 @@ class KinesisStreamRecordSender implements RecordSender {
         final PutRecordsResult result = client.putRecords(request);
 
         final int size = result.getRecords().size();
-        final List<byte[]> failures = new ArrayList<byte[]>(result.getFailedRecordCount());
+        final List<ByteBuffer> failures = new ArrayList<ByteBuffer>(result.getFailedRecordCount());
         for (int i = 0; i < size; i++) {
             if (result.getRecords().get(i).getErrorCode() != null) {
                 // always retry failed record
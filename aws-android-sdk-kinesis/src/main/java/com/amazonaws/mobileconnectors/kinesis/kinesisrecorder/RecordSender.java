@@ -17,6 +17,7 @@ package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 import com.amazonaws.AmazonClientException;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -26,12 +27,14 @@ interface RecordSender {
     /**
      * Sends a batch of data to the given stream. If some data is rejected by
      * the server and is retryable, it should be added to the return list.
+     * The buffers may be slices of a buffer shared with other records and
+     * must not be modified.
      *
      * @param streamName stream name
      * @param data a list of data to be sent
      * @return a list to data that is failed to send
      */
-    List<byte[]> sendBatch(String streamName, List<byte[]> data);
+    List<ByteBuffer> sendBatch(String streamName, List<ByteBuffer> data);
 
     /**
      * Tests whether an exception is recoverable. If true, the list of data
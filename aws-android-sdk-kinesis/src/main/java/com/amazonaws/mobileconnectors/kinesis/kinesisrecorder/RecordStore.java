@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A local store of serialized Kinesis records that {@link AbstractKinesisRecorder}
+ * saves records into and later reads them back from, in the order they were
+ * saved.
+ */
+abstract class RecordStore {
+
+    /**
+     * Appends a record to the store.
+     *
+     * @param streamName the stream the record is sent to
+     * @param data the data of the record
+     * @return true if the record is stored, false if it would exceed the
+     *         maximum storage size
+     * @throws IOException if the record can't be written
+     */
+    public abstract boolean put(String streamName, byte[] data) throws IOException;
+
+    /**
+     * @return the number of bytes taken by the records in the store.
+     */
+    public abstract long getFileSize();
+
+    /**
+     * @return an iterator over the records in the store, oldest first.
+     */
+    public abstract RecordIterator iterator();
+
+    /**
+     * Iterates over the records of a {@link RecordStore}. Records that are
+     * consumed through {@link #skip()} are kept until
+     * {@link #removeReadRecords()} or {@link #removeReadRecords(Object)} is
+     * called.
+     */
+    public abstract static class RecordIterator {
+
+        /**
+         * @return true if there is another record to read.
+         */
+        public abstract boolean hasNext();
+
+        /**
+         * Reads the next record without consuming it.
+         *
+         * @param record receives the stream name and the data of the record
+         * @return false if there is no next record
+         * @throws IllegalArgumentException if the next record is corrupted
+         */
+        public abstract boolean peekRecord(StoredRecord record);
+
+        /**
+         * Consumes the next record.
+         */
+        public abstract void skip();
+
+        /**
+         * Removes all records that have been consumed by {@link #skip()}.
+         *
+         * @throws IOException if the store can't be updated
+         */
+        public abstract void removeReadRecords() throws IOException;
+
+        /**
+         * @return an opaque position right after the records consumed so far,
+         *         for {@link #removeReadRecords(Object)}
+         */
+        public abstract Object position();
+
+        /**
+         * Removes the records consumed before a position returned by
+         * {@link #position()}. Unlike {@link #removeReadRecords()}, the
+         * iterator keeps reading from where it is, so records consumed after
+         * the position can still be removed later.
+         *
+         * @param position a position returned by {@link #position()} since the
+         *            last {@link #removeReadRecords()}
+         * @throws IOException if the store can't be updated
+         */
+        public abstract void removeReadRecords(Object position) throws IOException;
+
+        /**
+         * Removes all records from the store.
+         *
+         * @throws IOException if the store can't be updated
+         */
+        public abstract void removeAllRecords() throws IOException;
+
+        /**
+         * Releases the resources held by this iterator.
+         *
+         * @throws IOException if the underlying file can't be closed
+         */
+        public abstract void close() throws IOException;
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer without changing its position.
+     *
+     * @param buffer a buffer
+     * @return the remaining bytes
+     */
+    static byte[] toBytes(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,846 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.StringUtils;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The SegmentedFileRecordStore is an append-only {@link RecordStore}. Records
+ * are appended to a chain of segment files of bounded size. A checkpoint file
+ * remembers how far the records have been consumed, and a segment is deleted
+ * as a whole once all of its records are consumed, so that removing read
+ * records never rewrites the unread ones.
+ * <p>
+ * Records are stored in a compact binary format. Each segment is a sequence
+ * of frames:
+ *
+ * <pre>
+ * int   payload length
+ * byte  frame type, either a stream name or a record
+ * short stream id
+ * byte[] payload, the UTF-8 stream name or the raw record data
+ * int   CRC32 of type, stream id and payload
+ * </pre>
+ *
+ * A stream name frame assigns an id to a stream name the first time the name
+ * is used in a segment, and record frames refer to the stream by that id. The
+ * data of the records read back are slices of the segment buffer.
+ * <p>
+ * The writer of the active segment is kept open between puts. Puts that happen
+ * concurrently share one flush (group commit), so a put costs no more than one
+ * buffered write.
+ */
+class SegmentedFileRecordStore extends RecordStore {
+    private static final Log LOGGER = LogFactory.getLog(SegmentedFileRecordStore.class);
+
+    /** Suffix of the directory that holds the segments and the checkpoint. **/
+    private static final String SEGMENTS_DIRECTORY_SUFFIX = ".segments";
+    private static final String SEGMENT_FILE_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint";
+    private static final String CHECKPOINT_DELIMITER = ",";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte FRAME_TYPE_STREAM_NAME = 1;
+    private static final byte FRAME_TYPE_RECORD = 2;
+    /** Payload length, frame type and stream id. **/
+    private static final int FRAME_HEADER_SIZE = 7;
+    /** The CRC32 of the frame. **/
+    private static final int FRAME_TRAILER_SIZE = 4;
+    private static final int FRAME_OVERHEAD = FRAME_HEADER_SIZE + FRAME_TRAILER_SIZE;
+    private static final int MAX_STREAMS_PER_SEGMENT = Short.MAX_VALUE;
+
+    private final ReentrantLock accessLock = new ReentrantLock(true);
+    /** Serializes flushes so that one flush commits all pending puts. **/
+    private final Object flushLock = new Object();
+
+    /** The FileManager used for interacting with the FS. **/
+    private final FileManager fileManager;
+    private final File segmentsDirectory;
+    private final long maxStorageSize;
+    private final long segmentSize;
+
+    // The following fields are guarded by accessLock.
+    private long activeSegment;
+    private long activeSegmentLength;
+    /** Ids of the stream names defined in the active segment. **/
+    private final Map<String, Integer> streamIds = new HashMap<String, Integer>();
+    private long checkpointSegment;
+    private long checkpointOffset;
+    private long storedBytes;
+    private OutputStream writer;
+    private long appendedSequence;
+    private final byte[] frameHeader = new byte[FRAME_HEADER_SIZE];
+    private final byte[] frameTrailer = new byte[FRAME_TRAILER_SIZE];
+    private final CRC32 writeCrc = new CRC32();
+
+    // Guarded by flushLock.
+    private long flushedSequence;
+
+    /**
+     * Creates the SegmentedFileRecordStore.
+     *
+     * @param workDirectory The directory (which the store is only used for the
+     *            KinesisRecorder) to use to store requests in
+     * @param recordFileName Name of the record file, used to name the segment
+     *            directory
+     * @param maxStorageSize Maximum storage size in bytes
+     * @param segmentSize Size in bytes after which a new segment is started
+     */
+    public SegmentedFileRecordStore(File workDirectory, String recordFileName,
+            long maxStorageSize, long segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.fileManager = new FileManager(workDirectory);
+        this.maxStorageSize = maxStorageSize;
+        this.segmentSize = segmentSize;
+        this.segmentsDirectory = fileManager.createDirectory(Constants.RECORDS_DIRECTORY
+                + File.separator + recordFileName + SEGMENTS_DIRECTORY_SUFFIX);
+        if (segmentsDirectory == null) {
+            throw new AmazonClientException("Failed to create file store");
+        }
+        try {
+            recover();
+        } catch (final IOException ioe) {
+            throw new AmazonClientException("Failed to create file store", ioe);
+        }
+    }
+
+    @Override
+    public boolean put(String streamName, byte[] data) throws IOException {
+        final long sequence;
+        accessLock.lock();
+        try {
+            Integer streamId = streamIds.get(streamName);
+            byte[] name = streamId == null ? streamName.getBytes(StringUtils.UTF8) : null;
+            long length = frameLength(data.length) + (name == null ? 0 : frameLength(name.length));
+            if (activeSegmentLength > 0 && (activeSegmentLength + length > segmentSize
+                    || (streamId == null && streamIds.size() >= MAX_STREAMS_PER_SEGMENT))) {
+                rollSegment();
+                if (streamId != null) {
+                    // stream ids are only valid within a segment
+                    streamId = null;
+                    name = streamName.getBytes(StringUtils.UTF8);
+                    length += frameLength(name.length);
+                }
+            }
+            if (storedBytes + length > maxStorageSize) {
+                return false;
+            }
+
+            final OutputStream out = tryInitializeWriter();
+            if (streamId == null) {
+                streamId = streamIds.size();
+                writeFrame(out, FRAME_TYPE_STREAM_NAME, streamId, name);
+                streamIds.put(streamName, streamId);
+            }
+            writeFrame(out, FRAME_TYPE_RECORD, streamId, data);
+            activeSegmentLength += length;
+            storedBytes += length;
+            sequence = ++appendedSequence;
+        } finally {
+            accessLock.unlock();
+        }
+
+        commit(sequence);
+        return true;
+    }
+
+    @Override
+    public long getFileSize() {
+        accessLock.lock();
+        try {
+            return storedBytes;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    @Override
+    public SegmentIterator iterator() {
+        return new SegmentIterator();
+    }
+
+    /**
+     * Moves records out of a line based record file into this store and
+     * deletes the file afterwards. Lines may be records written by
+     * {@link FileRecordStore} or JSON records written by earlier versions.
+     * Lines that can't be parsed and records that don't fit into the store are
+     * dropped.
+     *
+     * @param recordFile a line based record file
+     */
+    void importRecords(File recordFile) {
+        if (!recordFile.isFile()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    fileManager.newInputStream(recordFile), StringUtils.UTF8));
+            final FileRecordParser parser = new FileRecordParser();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final boolean stored;
+                try {
+                    if (line.startsWith("{")) {
+                        final JSONObject json = new JSONObject(line);
+                        stored = put(JSONRecordAdapter.getStreamName(json),
+                                toBytes(JSONRecordAdapter.getData(json)));
+                    } else {
+                        parser.parse(line);
+                        stored = put(parser.streamName, parser.bytes);
+                    }
+                } catch (final Exception e) {
+                    LOGGER.warn("Failed to read line. Skip.", e);
+                    continue;
+                }
+                if (!stored) {
+                    LOGGER.warn("Record store is full, dropping remaining records of "
+                            + recordFile.getName());
+                    break;
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Failed to import records from " + recordFile.getName(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    LOGGER.error("failed to close reader", e);
+                }
+            }
+        }
+        if (!recordFile.delete()) {
+            LOGGER.error("Failed to delete imported record file");
+        }
+    }
+
+    /**
+     * Flushes the writer unless a concurrent put has already flushed past the
+     * given sequence number. Must be called without holding accessLock.
+     */
+    private void commit(long sequence) throws IOException {
+        synchronized (flushLock) {
+            if (flushedSequence >= sequence) {
+                return;
+            }
+            final OutputStream out;
+            final long target;
+            accessLock.lock();
+            try {
+                out = writer;
+                target = appendedSequence;
+            } finally {
+                accessLock.unlock();
+            }
+            // Segments that were rolled over were flushed when closed.
+            if (out != null) {
+                out.flush();
+            }
+            flushedSequence = target;
+        }
+    }
+
+    private static long frameLength(int payloadLength) {
+        return FRAME_OVERHEAD + (long) payloadLength;
+    }
+
+    private void writeFrame(OutputStream out, byte type, int streamId, byte[] payload)
+            throws IOException {
+        putInt(frameHeader, 0, payload.length);
+        frameHeader[4] = type;
+        frameHeader[5] = (byte) (streamId >>> 8);
+        frameHeader[6] = (byte) streamId;
+        writeCrc.reset();
+        writeCrc.update(frameHeader, 4, FRAME_HEADER_SIZE - 4);
+        writeCrc.update(payload, 0, payload.length);
+        putInt(frameTrailer, 0, (int) writeCrc.getValue());
+
+        out.write(frameHeader);
+        out.write(payload);
+        out.write(frameTrailer);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    /**
+     * Validates the frame at the given offset.
+     *
+     * @return the length of the frame, or -1 if the frame is incomplete or
+     *         corrupted
+     */
+    private static int validFrameLength(byte[] bytes, int offset, int limit, CRC32 crc) {
+        if (limit - offset < FRAME_OVERHEAD) {
+            return -1;
+        }
+        final int payloadLength = getInt(bytes, offset);
+        if (payloadLength < 0 || payloadLength > limit - offset - FRAME_OVERHEAD) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(bytes, offset + 4, FRAME_HEADER_SIZE - 4 + payloadLength);
+        final int trailer = offset + FRAME_HEADER_SIZE + payloadLength;
+        if ((int) crc.getValue() != getInt(bytes, trailer)) {
+            return -1;
+        }
+        return FRAME_OVERHEAD + payloadLength;
+    }
+
+    private static int streamIdOf(byte[] bytes, int frameOffset) {
+        return ((bytes[frameOffset + 5] & 0xff) << 8) | (bytes[frameOffset + 6] & 0xff);
+    }
+
+    private byte[] readSegment(File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final InputStream in = fileManager.newInputStream(file);
+        try {
+            int length = 0;
+            while (length < bytes.length) {
+                final int read = in.read(bytes, length, bytes.length - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+            if (length < bytes.length) {
+                final byte[] shorter = new byte[length];
+                System.arraycopy(bytes, 0, shorter, 0, length);
+                return shorter;
+            }
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private OutputStream tryInitializeWriter() throws IOException {
+        if (writer == null) {
+            writer = new BufferedOutputStream(
+                    fileManager.newOutputStream(segmentFile(activeSegment), true), BUFFER_SIZE);
+        }
+        return writer;
+    }
+
+    private void flushWriter() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        closeWriter();
+        activeSegment++;
+        activeSegmentLength = 0;
+        streamIds.clear();
+    }
+
+    private File segmentFile(long segment) {
+        return new File(segmentsDirectory, segment + SEGMENT_FILE_SUFFIX);
+    }
+
+    private File checkpointFile() {
+        return new File(segmentsDirectory, CHECKPOINT_FILE_NAME);
+    }
+
+    /**
+     * Restores the state of the store from the segments and the checkpoint on
+     * disk, dropping segments that were consumed but not yet deleted.
+     */
+    private void recover() throws IOException {
+        readCheckpoint();
+
+        final List<Long> segments = listSegments();
+        for (final Long segment : segments) {
+            if (segment < checkpointSegment) {
+                fileManager.deleteFile(segmentFile(segment));
+            }
+        }
+        segments.clear();
+        segments.addAll(listSegments());
+
+        if (segments.isEmpty()) {
+            activeSegment = checkpointSegment;
+            checkpointOffset = 0;
+        } else {
+            if (segments.get(0) > checkpointSegment) {
+                checkpointSegment = segments.get(0);
+                checkpointOffset = 0;
+            }
+            activeSegment = segments.get(segments.size() - 1);
+        }
+
+        recoverActiveSegment();
+        updateStoredBytes(segments);
+    }
+
+    /**
+     * Rebuilds the stream ids of the active segment and truncates the segment
+     * after the last complete frame in case the last write was torn, so that
+     * appended records are readable.
+     */
+    private void recoverActiveSegment() throws IOException {
+        final File file = segmentFile(activeSegment);
+        activeSegmentLength = 0;
+        streamIds.clear();
+        if (!file.isFile()) {
+            return;
+        }
+
+        final byte[] bytes = readSegment(file);
+        final CRC32 crc = new CRC32();
+        int offset = 0;
+        int frameLength;
+        while ((frameLength = validFrameLength(bytes, offset, bytes.length, crc)) > 0) {
+            if (bytes[offset + 4] == FRAME_TYPE_STREAM_NAME) {
+                streamIds.put(new String(bytes, offset + FRAME_HEADER_SIZE,
+                        frameLength - FRAME_OVERHEAD, StringUtils.UTF8),
+                        streamIdOf(bytes, offset));
+            }
+            offset += frameLength;
+        }
+        activeSegmentLength = offset;
+
+        if (offset < file.length()) {
+            LOGGER.warn("Truncating incomplete record at the end of segment " + activeSegment);
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(offset);
+            } finally {
+                raf.close();
+            }
+            if (checkpointSegment == activeSegment && checkpointOffset > offset) {
+                checkpointOffset = offset;
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes of the unread records, which are all bytes from the
+     * checkpoint to the end of the active segment.
+     */
+    private void updateStoredBytes(List<Long> segments) {
+        long bytes = activeSegmentLength;
+        for (final Long segment : segments) {
+            if (segment >= checkpointSegment && segment != activeSegment) {
+                bytes += segmentFile(segment).length();
+            }
+        }
+        storedBytes = Math.max(0, bytes - checkpointOffset);
+    }
+
+    private List<Long> listSegments() {
+        final List<Long> segments = new ArrayList<Long>();
+        for (final File file : fileManager.listFilesInDirectory(segmentsDirectory)) {
+            final String name = file.getName();
+            if (!name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                continue;
+            }
+            try {
+                segments.add(Long.valueOf(name.substring(0,
+                        name.length() - SEGMENT_FILE_SUFFIX.length())));
+            } catch (final NumberFormatException e) {
+                LOGGER.warn("Ignoring unexpected file " + name);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private void readCheckpoint() {
+        checkpointSegment = 0;
+        checkpointOffset = 0;
+        final File file = checkpointFile();
+        if (!file.isFile()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(fileManager.newInputStream(file),
+                    StringUtils.UTF8));
+            final String line = reader.readLine();
+            if (line != null) {
+                final String[] parts = line.split(CHECKPOINT_DELIMITER);
+                checkpointSegment = Long.parseLong(parts[0]);
+                checkpointOffset = Long.parseLong(parts[1]);
+            }
+        } catch (final Exception e) {
+            // Without a checkpoint records are sent again rather than lost.
+            LOGGER.warn("Failed to read checkpoint, starting from the first segment", e);
+            checkpointSegment = 0;
+            checkpointOffset = 0;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    LOGGER.error("failed to close reader", e);
+                }
+            }
+        }
+    }
+
+    private void writeCheckpoint(long segment, long offset) throws IOException {
+        final File tempFile = new File(segmentsDirectory, CHECKPOINT_FILE_NAME + ".tmp");
+        final Writer out = new OutputStreamWriter(fileManager.newOutputStream(tempFile, false),
+                StringUtils.UTF8);
+        try {
+            out.write(segment + CHECKPOINT_DELIMITER + offset);
+        } finally {
+            out.close();
+        }
+
+        final File checkpoint = checkpointFile();
+        if (!tempFile.renameTo(checkpoint)
+                && (!checkpoint.delete() || !tempFile.renameTo(checkpoint))) {
+            throw new IOException("Failed to persist read checkpoint");
+        }
+        checkpointSegment = segment;
+        checkpointOffset = offset;
+    }
+
+    /**
+     * Moves the checkpoint to the given position and deletes the segments
+     * before it. When every record has been consumed the store starts over
+     * with a new, empty segment.
+     */
+    private void advanceCheckpoint(long segment, long offset) throws IOException {
+        long newSegment = segment;
+        long newOffset = offset;
+        if (segment == activeSegment && activeSegmentLength > 0
+                && offset >= activeSegmentLength) {
+            rollSegment();
+            newSegment = activeSegment;
+            newOffset = 0;
+        }
+
+        // The checkpoint is persisted first so that a crash can at worst
+        // leave behind segments that are deleted on the next start.
+        writeCheckpoint(newSegment, newOffset);
+        final List<Long> segments = listSegments();
+        for (final Long s : segments) {
+            if (s < newSegment && !fileManager.deleteFile(segmentFile(s))) {
+                LOGGER.error("Failed to delete consumed segment " + s);
+            }
+        }
+        updateStoredBytes(segments);
+    }
+
+    private void deleteAllSegments() throws IOException {
+        rollSegment();
+        writeCheckpoint(activeSegment, 0);
+        storedBytes = 0;
+        for (final Long s : listSegments()) {
+            if (s < activeSegment && !fileManager.deleteFile(segmentFile(s))) {
+                LOGGER.error("Failed to delete segment " + s);
+            }
+        }
+    }
+
+    /**
+     * Iterates over the records from the checkpoint onwards. A segment is
+     * loaded into memory as a whole and records are handed out as slices of
+     * it.
+     */
+    class SegmentIterator extends RecordIterator {
+        private final CRC32 readCrc = new CRC32();
+        /** Stream names of the loaded segment, indexed by stream id. **/
+        private final List<String> streamNames = new ArrayList<String>();
+
+        private byte[] segment;
+        private boolean isEndOfData = false;
+        /** The loaded segment and the offset of the next frame in it. **/
+        private long readerSegment = -1;
+        private int readerOffset;
+        /** Records that start before this offset were consumed already. **/
+        private long skipUntil;
+
+        private boolean hasBuffered;
+        private final StoredRecord nextRecord = new StoredRecord();
+        private long nextSegment;
+        private int nextOffset;
+
+        /** Position after the last record consumed by skip(). **/
+        private long consumedSegment = -1;
+        private long consumedOffset;
+
+        private boolean tryLoadSegment() throws IOException {
+            if (segment != null) {
+                return true;
+            }
+            if (isEndOfData) {
+                return false;
+            }
+            if (readerSegment < 0) {
+                readerSegment = checkpointSegment;
+                skipUntil = checkpointOffset;
+                consumedSegment = checkpointSegment;
+                consumedOffset = checkpointOffset;
+            }
+            while (readerSegment <= activeSegment) {
+                if (readerSegment == activeSegment) {
+                    flushWriter();
+                }
+                final File file = segmentFile(readerSegment);
+                if (file.isFile() && file.length() > skipUntil) {
+                    segment = readSegment(file);
+                    readerOffset = 0;
+                    streamNames.clear();
+                    return true;
+                }
+                if (readerSegment == activeSegment) {
+                    break;
+                }
+                readerSegment++;
+                skipUntil = 0;
+            }
+            isEndOfData = true;
+            return false;
+        }
+
+        private boolean bufferNext() throws IOException {
+            while (!hasBuffered && tryLoadSegment()) {
+                int frameLength = 0;
+                while (!hasBuffered && readerOffset < segment.length) {
+                    frameLength = validFrameLength(segment, readerOffset, segment.length,
+                            readCrc);
+                    if (frameLength < 0) {
+                        break;
+                    }
+                    readFrame(frameLength);
+                }
+                if (hasBuffered) {
+                    break;
+                }
+                if (frameLength < 0) {
+                    LOGGER.warn("Skipping corrupted records at the end of segment "
+                            + readerSegment);
+                }
+
+                // end of the loaded segment
+                segment = null;
+                if (readerSegment >= activeSegment) {
+                    isEndOfData = true;
+                } else {
+                    readerSegment++;
+                    skipUntil = 0;
+                }
+            }
+            return hasBuffered;
+        }
+
+        private void readFrame(int frameLength) {
+            final int frameOffset = readerOffset;
+            final int payloadLength = frameLength - FRAME_OVERHEAD;
+            final int streamId = streamIdOf(segment, frameOffset);
+            readerOffset += frameLength;
+
+            if (segment[frameOffset + 4] == FRAME_TYPE_STREAM_NAME) {
+                while (streamNames.size() <= streamId) {
+                    streamNames.add(null);
+                }
+                streamNames.set(streamId, new String(segment, frameOffset + FRAME_HEADER_SIZE,
+                        payloadLength, StringUtils.UTF8));
+            } else if (segment[frameOffset + 4] == FRAME_TYPE_RECORD
+                    && frameOffset >= skipUntil) {
+                final String streamName = streamId < streamNames.size()
+                        ? streamNames.get(streamId) : null;
+                if (streamName == null) {
+                    LOGGER.warn("Skipping record of unknown stream " + streamId);
+                    return;
+                }
+                nextRecord.streamName = streamName;
+                nextRecord.data = ByteBuffer.wrap(segment, frameOffset + FRAME_HEADER_SIZE,
+                        payloadLength).slice();
+                nextSegment = readerSegment;
+                nextOffset = readerOffset;
+                hasBuffered = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            accessLock.lock();
+            try {
+                return bufferNext();
+            } catch (final IOException ioe) {
+                throw new AmazonClientException("IO Error", ioe);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean peekRecord(StoredRecord record) {
+            accessLock.lock();
+            try {
+                if (!bufferNext()) {
+                    return false;
+                }
+                record.streamName = nextRecord.streamName;
+                record.data = nextRecord.data;
+                return true;
+            } catch (final IOException ioe) {
+                throw new AmazonClientException("IO Error", ioe);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void skip() {
+            accessLock.lock();
+            try {
+                if (bufferNext()) {
+                    hasBuffered = false;
+                    consumedSegment = nextSegment;
+                    consumedOffset = nextOffset;
+                }
+            } catch (final IOException ioe) {
+                throw new AmazonClientException("IO Error", ioe);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeReadRecords() throws IOException {
+            accessLock.lock();
+            try {
+                if (consumedSegment >= 0) {
+                    advanceCheckpoint(consumedSegment, consumedOffset);
+                }
+                resetReader();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public Object position() {
+            accessLock.lock();
+            try {
+                if (consumedSegment < 0) {
+                    return new Position(checkpointSegment, checkpointOffset);
+                }
+                return new Position(consumedSegment, consumedOffset);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeReadRecords(Object position) throws IOException {
+            accessLock.lock();
+            try {
+                final Position p = (Position) position;
+                // The checkpoint never moves backwards, it may have rolled past
+                // the position already.
+                if (p.segment > checkpointSegment
+                        || (p.segment == checkpointSegment && p.offset > checkpointOffset)) {
+                    advanceCheckpoint(p.segment, p.offset);
+                }
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeAllRecords() throws IOException {
+            accessLock.lock();
+            try {
+                deleteAllSegments();
+                resetReader();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        private void resetReader() {
+            segment = null;
+            readerSegment = -1;
+            readerOffset = 0;
+            consumedSegment = -1;
+            hasBuffered = false;
+            isEndOfData = false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            segment = null;
+        }
+    }
+
+    /** A position between two records: a segment and an offset in it. **/
+    private static final class Position {
+        private final long segment;
+        private final long offset;
+
+        Position(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
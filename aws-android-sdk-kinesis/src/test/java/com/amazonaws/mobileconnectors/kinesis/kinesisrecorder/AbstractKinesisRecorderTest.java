@@ -24,7 +24,7 @@ import static org.junit.Assert.fail;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordStore.RecordIterator;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -33,15 +33,21 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -59,7 +65,7 @@ public class AbstractKinesisRecorderTest {
     static class MockAbstractKinesisRecorder extends AbstractKinesisRecorder {
         private RecordSender sender;
 
-        protected MockAbstractKinesisRecorder(FileRecordStore recordStore,
+        protected MockAbstractKinesisRecorder(RecordStore recordStore,
                 KinesisRecorderConfig config) {
             super(recordStore, config);
         }
@@ -112,7 +118,7 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), STREAM_NAME);
         }
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         RecordIterator iterator;
 
         iterator = recorder.recordStore.iterator();
@@ -145,7 +151,7 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), anotherStream);
         }
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
 
         // read all data
         RecordIterator iterator = recorder.recordStore.iterator();
@@ -184,7 +190,7 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), anotherStream);
         }
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
 
         // read all data
         RecordIterator iterator = recorder.recordStore.iterator();
@@ -213,12 +219,35 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), anotherStream);
         }
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
-                .thenReturn(new ArrayList<byte[]>());
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
+                .thenReturn(new ArrayList<ByteBuffer>());
         recorder.submitAllRecords();
         assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
     }
 
+    @Test
+    public void testSubmitAllRecordsWithSegmentedStorage() throws IOException {
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withSegmentedStorage(true)
+                .withStorageSegmentSize(4 * 1024);
+        MockAbstractKinesisRecorder segmentedRecorder = new MockAbstractKinesisRecorder(
+                AbstractKinesisRecorder.newRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+                        config), config);
+        segmentedRecorder.setRecordSender(sender);
+        for (int i = 0; i < 10; i++) {
+            segmentedRecorder.saveRecord(randomBytes(1024), STREAM_NAME);
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
+                // one of the records fails, but succeeds the next time
+                .thenReturn(Arrays.asList(ByteBuffer.wrap(randomBytes(1024))))
+                .thenReturn(new ArrayList<ByteBuffer>());
+        segmentedRecorder.submitAllRecords();
+        assertEquals("records removed", 0, segmentedRecorder.getDiskBytesUsed());
+        Mockito.verify(sender, Mockito.times(2))
+                .sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class));
+    }
+
     @Test
     public void testSubmitAllRecordsWithRecoverableFailures() {
         for (int i = 0; i < 10; i++) {
@@ -226,7 +255,7 @@ public class AbstractKinesisRecorderTest {
         }
         long size = recorder.getDiskBytesUsed();
         AmazonServiceException ase = new AmazonServiceException("some failures");
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
                 .thenThrow(ase);
         Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
         try {
@@ -248,7 +277,7 @@ public class AbstractKinesisRecorderTest {
         }
         long size = recorder.getDiskBytesUsed();
         AmazonServiceException ase = new AmazonServiceException("Unable to unmarshall error response");
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
                 .thenThrow(ase);
         Mockito.when(sender.isRecoverable(ase)).thenReturn(false);
         try {
@@ -280,7 +309,7 @@ public class AbstractKinesisRecorderTest {
             recorder.saveRecord(randomBytes(1024), STREAM_NAME);
         }
         AmazonServiceException ase = new AmazonServiceException("some failures");
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
                 .thenThrow(ase);
         Mockito.when(sender.isRecoverable(ase)).thenReturn(false);
         try {
@@ -297,10 +326,10 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), STREAM_NAME);
         }
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
                 // one of the records fails, but succeeds the next time
-                .thenReturn(Arrays.asList(randomBytes(1024)))
-                .thenReturn(new ArrayList<byte[]>());
+                .thenReturn(Arrays.asList(ByteBuffer.wrap(randomBytes(1024))))
+                .thenReturn(new ArrayList<ByteBuffer>());
         recorder.submitAllRecords();
         assertEquals("records removed", 0, recorder.getDiskBytesUsed());
     }
@@ -310,13 +339,149 @@ public class AbstractKinesisRecorderTest {
         for (int i = 0; i < 10; i++) {
             recorder.saveRecord(randomBytes(1024), STREAM_NAME);
         }
-        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
                 // one of the records always failes
-                .thenReturn(Arrays.asList(randomBytes(1024)));
+                .thenReturn(Arrays.asList(ByteBuffer.wrap(randomBytes(1024))));
         recorder.submitAllRecords();
         assertTrue("records not removed", recorder.getDiskBytesUsed() > 0);
     }
 
+    @Test
+    public void testSubmitAllRecordsConcurrently() throws IOException {
+        AbstractKinesisRecorder concurrentRecorder = newConcurrentRecorder(false);
+        for (String streamName : Arrays.asList("a", "b", "a", "c")) {
+            for (int i = 0; i < 10; i++) {
+                concurrentRecorder.saveRecord(randomBytes(1024), streamName);
+            }
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
+                .thenReturn(new ArrayList<ByteBuffer>());
+        concurrentRecorder.submitAllRecords();
+        assertEquals("no records after submitAllRecords", 0,
+                concurrentRecorder.getDiskBytesUsed());
+        Mockito.verify(sender, Mockito.times(4))
+                .sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class));
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyReusesSenderThreads() throws IOException {
+        AbstractKinesisRecorder concurrentRecorder = newConcurrentRecorder(false);
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
+                .thenAnswer(new Answer<List<ByteBuffer>>() {
+                    @Override
+                    public List<ByteBuffer> answer(InvocationOnMock invocation) {
+                        threads.add(Thread.currentThread().getName());
+                        return new ArrayList<ByteBuffer>();
+                    }
+                });
+        for (int round = 0; round < 5; round++) {
+            for (String streamName : Arrays.asList("a", "b", "c", "d")) {
+                for (int i = 0; i < 10; i++) {
+                    concurrentRecorder.saveRecord(randomBytes(1024), streamName);
+                }
+            }
+            concurrentRecorder.submitAllRecords();
+        }
+        assertEquals("no records after submitAllRecords", 0,
+                concurrentRecorder.getDiskBytesUsed());
+        // 20 batches, never more threads than batches in flight
+        assertTrue("sender threads reused: " + threads, threads.size() <= 3);
+
+        concurrentRecorder.shutdown();
+        concurrentRecorder.saveRecord(randomBytes(1024), "a");
+        concurrentRecorder.submitAllRecords();
+        assertEquals("records sent after shutdown", 0, concurrentRecorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyKeepsBatchesAfterRecoverableFailure()
+            throws IOException {
+        for (boolean segmented : new boolean[] {false, true}) {
+            AbstractKinesisRecorder concurrentRecorder = newConcurrentRecorder(segmented);
+            for (String streamName : Arrays.asList("a", "b", "c")) {
+                for (int i = 0; i < 10; i++) {
+                    concurrentRecorder.saveRecord(randomBytes(1024), streamName);
+                }
+            }
+            AmazonServiceException ase = new AmazonServiceException("some failures");
+            Mockito.reset(sender);
+            Mockito.when(sender.sendBatch(Mockito.anyString(),
+                    Mockito.anyListOf(ByteBuffer.class)))
+                    .thenReturn(new ArrayList<ByteBuffer>());
+            Mockito.when(sender.sendBatch(Mockito.eq("b"), Mockito.anyListOf(ByteBuffer.class)))
+                    .thenThrow(ase);
+            Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+            try {
+                concurrentRecorder.submitAllRecords();
+                fail("Should throw exception");
+            } catch (AmazonClientException ace) {
+                assertSame("same exception", ase, ace);
+            }
+            // c went through, but it is kept as it was read after b
+            assertEquals("records of b and c kept", Arrays.asList("b", "c"),
+                    storedStreams(concurrentRecorder));
+        }
+        Mockito.verifyZeroInteractions(deadLetterListener);
+    }
+
+    @Test
+    public void testSubmitAllRecordsConcurrentlyWithNonRecoverableFailure() throws IOException {
+        AbstractKinesisRecorder concurrentRecorder = newConcurrentRecorder(true);
+        for (String streamName : Arrays.asList("a", "b", "c")) {
+            for (int i = 0; i < 10; i++) {
+                concurrentRecorder.saveRecord(randomBytes(1024), streamName);
+            }
+        }
+        AmazonServiceException ase = new AmazonServiceException("some failures");
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(ByteBuffer.class)))
+                .thenReturn(new ArrayList<ByteBuffer>());
+        Mockito.when(sender.sendBatch(Mockito.eq("b"), Mockito.anyListOf(ByteBuffer.class)))
+                .thenThrow(ase);
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(false);
+        try {
+            concurrentRecorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+
+        ArgumentCaptor<List> dataCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(deadLetterListener, Mockito.times(1))
+                .onRecordsDropped(Mockito.eq("b"), dataCaptor.capture());
+        assertEquals("records of b dropped", 10, dataCaptor.getValue().size());
+        assertEquals("records removed", 0, concurrentRecorder.getDiskBytesUsed());
+    }
+
+    private AbstractKinesisRecorder newConcurrentRecorder(boolean segmented) throws IOException {
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withSegmentedStorage(segmented)
+                .withMaxConcurrentBatches(3);
+        MockAbstractKinesisRecorder concurrentRecorder = new MockAbstractKinesisRecorder(
+                AbstractKinesisRecorder.newRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+                        config), config);
+        concurrentRecorder.setRecordSender(sender);
+        return concurrentRecorder;
+    }
+
+    /**
+     * Lists the stream of each run of stored records.
+     */
+    private List<String> storedStreams(AbstractKinesisRecorder recorder) throws IOException {
+        List<String> streams = new ArrayList<String>();
+        RecordIterator iterator = recorder.recordStore.iterator();
+        StoredRecord record = new StoredRecord();
+        while (iterator.peekRecord(record)) {
+            if (streams.isEmpty() || !record.streamName.equals(streams.get(streams.size() - 1))) {
+                streams.add(record.streamName);
+            }
+            iterator.skip();
+        }
+        iterator.close();
+        return streams;
+    }
+
     private byte[] randomBytes(int length) {
         byte[] data = new byte[length];
         new Random().nextBytes(data);
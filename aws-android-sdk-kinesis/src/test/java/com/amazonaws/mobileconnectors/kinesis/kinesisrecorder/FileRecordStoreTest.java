@@ -155,6 +155,34 @@ public class FileRecordStoreTest {
 
     }
 
+    @Test
+    public void testRemoveReadRecordsBeforePosition_keepsReading() throws IOException {
+        FileManager fileManager = new FileManager(TEST_DIRECTORY);
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        for (int i = 1; i <= 6; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+
+        RecordIterator iter = recordStore.iterator();
+        iter.next();
+        iter.next();
+        Object first = iter.position();
+        iter.next();
+        Object second = iter.position();
+        iter.next();
+
+        iter.removeReadRecords(first);
+        assertEquals(4, getNumberOfLinesInFile(fileManager));
+        assertEquals("5", iter.next());
+
+        iter.removeReadRecords(second);
+        assertEquals(3, getNumberOfLinesInFile(fileManager));
+        assertEquals("6", iter.next());
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
     @Test
     public void
             testWhenRecordssFileIsMissingAndRecordssDirectoryIsReadOnly_error() throws IOException {
@@ -36,6 +36,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -69,12 +70,12 @@ public class FirehoseRecordSenderTest {
         result.setRequestResponses(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecordBatch(any(PutRecordBatchRequest.class))).thenReturn(result);
-        List<byte[]> failures = sender.sendBatch(streamName, data);
+        List<ByteBuffer> failures = sender.sendBatch(streamName, data);
 
         ArgumentCaptor<PutRecordBatchRequest> argument = ArgumentCaptor
                 .forClass(PutRecordBatchRequest.class);
@@ -109,17 +110,17 @@ public class FirehoseRecordSenderTest {
         result.setRequestResponses(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecordBatch(any(PutRecordBatchRequest.class))).thenReturn(result);
-        List<byte[]> failures = sender.sendBatch(streamName, data);
+        List<ByteBuffer> failures = sender.sendBatch(streamName, data);
 
         assertTrue("has 5 failures", failures.size() == 5);
         for (int i = 0; i < 5; i++) {
             String failedRecordString = "record" + (i * 2 + 1);
-            assertEquals(failedRecordString, new String(failures.get(i), StringUtils.UTF8));
+            assertEquals(failedRecordString, new String(failures.get(i).array(), StringUtils.UTF8));
         }
     }
 
@@ -140,9 +141,9 @@ public class FirehoseRecordSenderTest {
         result.setRequestResponses(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecordBatch(any(PutRecordBatchRequest.class))).thenThrow(
                 new InvalidArgumentException("invalid argument"));
@@ -58,11 +58,19 @@ public class KinesisRecorderConfigTest {
     public void copyConstructor() {
         KinesisRecorderConfig kConfig = new KinesisRecorderConfig();
         kConfig.withMaxStorageSize(5);
+        kConfig.withSegmentedStorage(true).withStorageSegmentSize(1024);
+        kConfig.withMaxConcurrentBatches(4);
 
         KinesisRecorderConfig copiedConfig = new KinesisRecorderConfig(kConfig);
 
         assertEquals(kConfig.getMaxStorageSize(),
                 copiedConfig.getMaxStorageSize());
+        assertEquals(kConfig.isSegmentedStorageEnabled(),
+                copiedConfig.isSegmentedStorageEnabled());
+        assertEquals(kConfig.getStorageSegmentSize(),
+                copiedConfig.getStorageSegmentSize());
+        assertEquals(kConfig.getMaxConcurrentBatches(),
+                copiedConfig.getMaxConcurrentBatches());
 
     }
 
@@ -72,6 +80,14 @@ public class KinesisRecorderConfigTest {
         KinesisRecorderConfig kConfig = new KinesisRecorderConfig();
         kConfig.withMaxStorageSize(100);
         assertEquals(kConfig.getMaxStorageSize(), 100);
+        assertEquals(kConfig.isSegmentedStorageEnabled(), false);
+        kConfig.withSegmentedStorage(true);
+        assertEquals(kConfig.isSegmentedStorageEnabled(), true);
+        kConfig.withStorageSegmentSize(1024);
+        assertEquals(kConfig.getStorageSegmentSize(), 1024);
+        assertEquals(kConfig.getMaxConcurrentBatches(), 1);
+        kConfig.withMaxConcurrentBatches(4);
+        assertEquals(kConfig.getMaxConcurrentBatches(), 4);
     }
 
 }
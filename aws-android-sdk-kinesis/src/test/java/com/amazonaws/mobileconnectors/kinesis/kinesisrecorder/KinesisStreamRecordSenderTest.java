@@ -39,6 +39,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashSet;
@@ -74,12 +75,12 @@ public class KinesisStreamRecordSenderTest {
         result.setRecords(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecords(any(PutRecordsRequest.class))).thenReturn(result);
-        List<byte[]> failures = sender.sendBatch(streamName, data);
+        List<ByteBuffer> failures = sender.sendBatch(streamName, data);
 
         ArgumentCaptor<PutRecordsRequest> argument = ArgumentCaptor
                 .forClass(PutRecordsRequest.class);
@@ -126,17 +127,17 @@ public class KinesisStreamRecordSenderTest {
         result.setRecords(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecords(any(PutRecordsRequest.class))).thenReturn(result);
-        List<byte[]> failures = sender.sendBatch(streamName, data);
+        List<ByteBuffer> failures = sender.sendBatch(streamName, data);
 
         assertTrue("has 5 failures", failures.size() == 5);
         for (int i = 0; i < 5; i++) {
             String failedRecordString = "record" + (i * 2 + 1);
-            assertEquals(failedRecordString, new String(failures.get(i), StringUtils.UTF8));
+            assertEquals(failedRecordString, new String(failures.get(i).array(), StringUtils.UTF8));
         }
     }
 
@@ -157,9 +158,9 @@ public class KinesisStreamRecordSenderTest {
         result.setRecords(entries);
 
         // create data
-        List<byte[]> data = new ArrayList<byte[]>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
         for (int i = 0; i < count; i++) {
-            data.add(("record" + i).getBytes(StringUtils.UTF8));
+            data.add(ByteBuffer.wrap(("record" + i).getBytes(StringUtils.UTF8)));
         }
         Mockito.when(client.putRecords(any(PutRecordsRequest.class))).thenThrow(
                 new InvalidArgumentException("invalid argument"));
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2010-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.RecordStore.RecordIterator;
+import com.amazonaws.services.kinesis.model.PutRecordRequest;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SegmentedFileRecordStoreTest {
+
+    private static final File TEST_DIRECTORY = new File("SegmentedFileRecordStoreTest");
+    private static final String RECORDER_FILE_NAME = "segmented_records";
+    private static final File SEGMENTS_DIRECTORY = new File(new File(TEST_DIRECTORY,
+            Constants.RECORDS_DIRECTORY), RECORDER_FILE_NAME + ".segments");
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long SEGMENT_SIZE = 1024L;
+    private static final String STREAM_NAME = "stream";
+    /** Frame header and CRC. */
+    private static final int FRAME_OVERHEAD = 11;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+    }
+
+    @After
+    public void teardown() {
+        delete(TEST_DIRECTORY);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    private SegmentedFileRecordStore newStore(long maxStorageSize, long segmentSize) {
+        return new SegmentedFileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME, maxStorageSize,
+                segmentSize);
+    }
+
+    private static byte[] bytes(String data) {
+        return data.getBytes(StringUtils.UTF8);
+    }
+
+    private static String nextData(RecordIterator iter) {
+        StoredRecord record = new StoredRecord();
+        assertTrue("has next record", iter.peekRecord(record));
+        iter.skip();
+        return new String(RecordStore.toBytes(record.data), StringUtils.UTF8);
+    }
+
+    @Test
+    public void testPutIterateAndRemove() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        for (int i = 1; i <= 10; i++) {
+            recordStore.put(STREAM_NAME, bytes(String.valueOf(i)));
+        }
+        long size = recordStore.getFileSize();
+        assertEquals(FRAME_OVERHEAD + STREAM_NAME.length() + 10 * FRAME_OVERHEAD + 11, size);
+
+        RecordIterator iter = recordStore.iterator();
+        StoredRecord record = new StoredRecord();
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(iter.peekRecord(record));
+            assertEquals(STREAM_NAME, record.streamName);
+            assertEquals(String.valueOf(i),
+                    new String(RecordStore.toBytes(record.data), StringUtils.UTF8));
+            iter.skip();
+        }
+        iter.removeReadRecords();
+        // "6" to "10" are left
+        assertEquals(5 * FRAME_OVERHEAD + 6, recordStore.getFileSize());
+
+        for (int i = 6; i <= 10; i++) {
+            assertEquals(String.valueOf(i), nextData(iter));
+        }
+        assertFalse(iter.hasNext());
+        iter.removeReadRecords();
+        assertEquals(0, recordStore.getFileSize());
+
+        iter = recordStore.iterator();
+        assertFalse(iter.hasNext());
+        assertFalse(iter.peekRecord(record));
+
+        recordStore.put(STREAM_NAME, bytes("11"));
+        iter = recordStore.iterator();
+        assertTrue(iter.peekRecord(record));
+        assertTrue(iter.peekRecord(record));
+        assertEquals("11", nextData(iter));
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testRecordsAreSlicesOfTheSegment() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        recordStore.put(STREAM_NAME, bytes("first"));
+        recordStore.put(STREAM_NAME, bytes("second"));
+
+        RecordIterator iter = recordStore.iterator();
+        StoredRecord first = new StoredRecord();
+        StoredRecord second = new StoredRecord();
+        iter.peekRecord(first);
+        iter.skip();
+        iter.peekRecord(second);
+        assertSame(first.data.array(), second.data.array());
+        assertEquals(5, first.data.remaining());
+        assertEquals(6, second.data.remaining());
+        iter.close();
+    }
+
+    @Test
+    public void testMultipleStreams() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put("stream" + (i % 3), bytes(String.valueOf(i)));
+        }
+
+        RecordIterator iter = recordStore.iterator();
+        StoredRecord record = new StoredRecord();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(iter.peekRecord(record));
+            assertEquals("stream" + (i % 3), record.streamName);
+            assertEquals(String.valueOf(i), nextData(iter));
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testConsumedSegmentsAreDeleted() throws IOException {
+        // a stream name frame and two records of 10 bytes fit in a segment
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        for (int i = 0; i < 20; i++) {
+            recordStore.put(STREAM_NAME, bytes(String.format("record%04d", i)));
+        }
+        assertEquals(10, countSegments());
+
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 9; i++) {
+            assertEquals(String.format("record%04d", i), nextData(iter));
+        }
+        iter.removeReadRecords();
+        // the segment holding records 8 and 9 is still half unread
+        assertEquals(6, countSegments());
+        assertEquals(5 * (FRAME_OVERHEAD + STREAM_NAME.length()) + 11 * (FRAME_OVERHEAD + 10),
+                recordStore.getFileSize());
+        assertEquals("record0009", nextData(iter));
+        iter.close();
+    }
+
+    @Test
+    public void testCheckpointSurvivesRestart() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put(STREAM_NAME, bytes(String.valueOf(i)));
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 3; i++) {
+            nextData(iter);
+        }
+        iter.removeReadRecords();
+        iter.close();
+        long size = recordStore.getFileSize();
+
+        recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        assertEquals(size, recordStore.getFileSize());
+        recordStore.put(STREAM_NAME, bytes("10"));
+        iter = recordStore.iterator();
+        for (int i = 3; i <= 10; i++) {
+            assertEquals(String.valueOf(i), nextData(iter));
+        }
+        assertFalse(iter.hasNext());
+        iter.removeReadRecords();
+        iter.close();
+
+        recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        assertEquals(0, recordStore.getFileSize());
+        assertFalse(recordStore.iterator().hasNext());
+    }
+
+    @Test
+    public void testTornWriteIsTruncatedOnRestart() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        recordStore.put(STREAM_NAME, bytes("first"));
+        long size = recordStore.getFileSize();
+
+        // simulate a crash in the middle of writing a record
+        OutputStream out = new FileOutputStream(new File(SEGMENTS_DIRECTORY, "0.log"), true);
+        out.write(new byte[] {
+                0, 0, 0, 10, 2, 0
+        });
+        out.close();
+
+        recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        assertEquals(size, recordStore.getFileSize());
+        recordStore.put(STREAM_NAME, bytes("third"));
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("first", nextData(iter));
+        assertEquals("third", nextData(iter));
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testCorruptedRecordSkipsRestOfSegment() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        for (int i = 0; i < 4; i++) {
+            recordStore.put(STREAM_NAME, bytes(String.format("record%04d", i)));
+        }
+        // flip a data byte of the first record
+        RandomAccessFile raf = new RandomAccessFile(new File(SEGMENTS_DIRECTORY, "0.log"), "rw");
+        raf.seek(FRAME_OVERHEAD + STREAM_NAME.length() + 7);
+        raf.write('x');
+        raf.close();
+
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("record0002", nextData(iter));
+        assertEquals("record0003", nextData(iter));
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testWhenWritingExceedsMaxStorageSize_noMoreRecordsWritten() throws IOException {
+        // stream name frame and 4 records of 10 bytes
+        long maxStorageSize = FRAME_OVERHEAD + STREAM_NAME.length() + 4 * (FRAME_OVERHEAD + 10);
+        SegmentedFileRecordStore recordStore = newStore(maxStorageSize, SEGMENT_SIZE);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(recordStore.put(STREAM_NAME, bytes("0123456789")));
+        }
+        assertEquals(maxStorageSize, recordStore.getFileSize());
+        assertFalse(recordStore.put(STREAM_NAME, bytes("0123456789")));
+        assertEquals(maxStorageSize, recordStore.getFileSize());
+
+        RecordIterator iter = recordStore.iterator();
+        nextData(iter);
+        iter.removeReadRecords();
+        assertTrue(recordStore.put(STREAM_NAME, bytes("0123456789")));
+        iter.close();
+    }
+
+    @Test
+    public void testRemoveAllRecords() throws IOException {
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, 64L);
+        for (int i = 0; i < 10; i++) {
+            recordStore.put(STREAM_NAME, bytes(String.valueOf(i)));
+        }
+        RecordIterator iter = recordStore.iterator();
+        nextData(iter);
+        iter.removeAllRecords();
+        assertEquals(0, recordStore.getFileSize());
+        assertEquals(0, countSegments());
+        assertFalse(iter.hasNext());
+
+        recordStore.put(STREAM_NAME, bytes("after"));
+        iter = recordStore.iterator();
+        assertEquals("after", nextData(iter));
+        iter.close();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testImportRecords() throws IOException {
+        FileRecordStore fileRecordStore = new FileRecordStore(TEST_DIRECTORY, RECORDER_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        for (int i = 0; i < 5; i++) {
+            fileRecordStore.put(STREAM_NAME, bytes(String.valueOf(i)));
+        }
+        // a record written by earlier versions
+        PutRecordRequest request = new PutRecordRequest()
+                .withStreamName("json_stream")
+                .withPartitionKey("key")
+                .withData(ByteBuffer.wrap(bytes("json")));
+        fileRecordStore.put(new JSONRecordAdapter().translateFromRecord(request).toString());
+        fileRecordStore.put("corrupted line");
+
+        SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        File recordFile = new File(new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY),
+                RECORDER_FILE_NAME);
+        recordStore.importRecords(recordFile);
+        assertFalse(recordFile.exists());
+
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(String.valueOf(i), nextData(iter));
+        }
+        StoredRecord record = new StoredRecord();
+        assertTrue(iter.peekRecord(record));
+        assertEquals("json_stream", record.streamName);
+        assertEquals("json", nextData(iter));
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testPutEventsFromMultipleThreads_nothingLost() throws Exception {
+        final SegmentedFileRecordStore recordStore = newStore(MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        final CountDownLatch latch = new CountDownLatch(10000);
+        ExecutorService threadPool = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 10000; i++) {
+            final String recordStr = "" + i;
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        recordStore.put(STREAM_NAME + (recordStr.length() % 2),
+                                bytes(recordStr));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        latch.await();
+        threadPool.shutdown();
+
+        final List<Long> recordList = new ArrayList<Long>();
+        RecordIterator iter = recordStore.iterator();
+        StoredRecord record = new StoredRecord();
+        while (iter.peekRecord(record)) {
+            String data = nextData(iter);
+            assertEquals(STREAM_NAME + (data.length() % 2), record.streamName);
+            recordList.add(Long.valueOf(data));
+        }
+        iter.close();
+
+        Collections.sort(recordList);
+        assertEquals(10000, recordList.size());
+        for (int i = 0; i < 10000; ++i) {
+            assertEquals(Long.valueOf(i), recordList.get(i));
+        }
+    }
+
+    private int countSegments() {
+        int count = 0;
+        for (File file : SEGMENTS_DIRECTORY.listFiles()) {
+            if (file.getName().endsWith(".log")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -23,6 +23,7 @@ import com.amazonaws.kinesisvideo.model.Response;
 import com.amazonaws.kinesisvideo.model.ResponseStatus;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,7 +33,6 @@ import java.util.Map;
 
 public final class ChunkDecoder {
     private static final int HEX_RADIX = 16;
-    private static final int MAX_BUFFER_BYTES = 128 * 128;
     private static final int BUFFER_SIZE = 4 * 1024;
     private static final String LINE_DELIMITER = "\r\n";
     private static final String PAYLOAD_DELIMITER = "\r\n\r\n";
@@ -47,6 +47,13 @@ public final class ChunkDecoder {
     }
 
     private static Map<String, String> parseHeaders(final InputStream inputStream) {
+        if (inputStream instanceof ChunkedResponseReader) {
+            try {
+                return ((ChunkedResponseReader) inputStream).readHeaders();
+            } catch (final Throwable e) {
+                throw new RuntimeException("Exception while decoding headers ! ", e);
+            }
+        }
 
         String[] headerParts;
         final Map<String, String> headers = new HashMap<String, String>();
@@ -73,7 +80,9 @@ public final class ChunkDecoder {
 
     private static ResponseStatus parseStatusLine(final InputStream inputStream) {
         try {
-            final String statusLine = readInputStream(inputStream, LINE_DELIMITER.getBytes(StandardCharsets.UTF_8));
+            final String statusLine = inputStream instanceof ChunkedResponseReader
+                    ? ((ChunkedResponseReader) inputStream).readStatusLine()
+                    : readInputStream(inputStream, LINE_DELIMITER.getBytes(StandardCharsets.UTF_8));
             final String[] statusLineArray = statusLine.split("\\s");
 
             return ResponseStatus
@@ -102,15 +111,42 @@ public final class ChunkDecoder {
         return builder.toString();
     }
 
+    /**
+     * Reads up to and including the delimiter. The stream is read one byte at
+     * a time so nothing after the delimiter is consumed, wrap it in a
+     * {@link ChunkedResponseReader} to read it in bulk instead.
+     */
     private static String readInputStream(final InputStream inputStream, final byte[] delimiter)
             throws IOException {
 
-        final byte[] buffer = new byte[BUFFER_SIZE];
-        int result = 0, offset = 0;
-        do {
-            result = inputStream.read(buffer, offset++, 1);
-        } while (result > -1 && arrayIndexOf(buffer, 0, offset, delimiter) == -1);
-        return new String(buffer, 0 , offset, StandardCharsets.UTF_8);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int offset = 0;
+        int result;
+        while ((result = inputStream.read()) > -1) {
+            if (offset == buffer.length) {
+                final byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, offset);
+                buffer = larger;
+            }
+            buffer[offset++] = (byte) result;
+            // only the last bytes can complete the delimiter
+            if (endsWith(buffer, offset, delimiter)) {
+                break;
+            }
+        }
+        return new String(buffer, 0, offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean endsWith(final byte[] buffer, final int length, final byte[] suffix) {
+        if (length < suffix.length) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (buffer[length - suffix.length + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static int arrayIndexOf(final byte[] haystack, final int tail, final int head, final byte[] needle) {
@@ -133,18 +169,52 @@ public final class ChunkDecoder {
         return -1;
     }
 
+    /**
+     * Parses the hexadecimal chunk size between tail and head of a ring
+     * buffer, ignoring surrounding whitespace, without copying it.
+     *
+     * @throws NumberFormatException if the size isn't a hexadecimal int
+     */
     public static int parseChunkSize(final byte[] buffer, final int tail, final int head) {
-        byte[] tmp;
-        if (tail < head) {
-            tmp = new byte[head - tail];
-            System.arraycopy(buffer, tail, tmp, 0, head - tail);
-        } else {
-            final int len = head + buffer.length - tail;
-            tmp = new byte[len];
-            System.arraycopy(buffer, tail, tmp, 0, buffer.length - tail);
-            System.arraycopy(buffer, 0, tmp, buffer.length - tail, head);
+        final int length = tail < head ? head - tail : head + buffer.length - tail;
+        int start = 0;
+        int end = length;
+        while (start < end && (buffer[(tail + start) % buffer.length] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[(tail + end - 1) % buffer.length] & 0xff) <= ' ') {
+            end--;
         }
-        return Integer.parseInt(new String(tmp, 0, tmp.length, StandardCharsets.UTF_8).trim(), HEX_RADIX);
+        if (start == end) {
+            throw new NumberFormatException("Empty chunk size");
+        }
+        boolean negative = false;
+        final byte sign = buffer[(tail + start) % buffer.length];
+        if (sign == '-' || sign == '+') {
+            negative = sign == '-';
+            start++;
+            if (start == end) {
+                throw new NumberFormatException("Invalid chunk size");
+            }
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = Character.digit(buffer[(tail + i) % buffer.length], HEX_RADIX);
+            if (digit < 0) {
+                throw new NumberFormatException("Invalid chunk size");
+            }
+            value = value * HEX_RADIX + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Chunk size out of range");
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Chunk size out of range");
+        }
+        return (int) value;
     }
 
     public static Response parseStatusLineAndHeaders(final InputStream inputStream) {
@@ -181,42 +251,36 @@ public final class ChunkDecoder {
 
     public static Integer decodeAckInResponseBody(final InputStream inputStream,
                                                   final Consumer<String> ackTimestampConsumer) {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII));
-        String line;
-        int chunkSize;
-        int numBytesRead, offset, ackCount = 0;
+        final ChunkedResponseReader reader = inputStream instanceof ChunkedResponseReader
+                ? (ChunkedResponseReader) inputStream : new ChunkedResponseReader(inputStream);
+        // holds a chunk that comes in several slices
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        int ackCount = 0;
 
         try {
-            skipResponseHeaders(reader);
-            line = skipEmptyLines(reader);
-
-            // Parse chunk data
-            LOG.debug("Chunk size: " + line);
-            do {
-                chunkSize = Integer.parseInt(line.trim(), HEX_RADIX);
-                if (chunkSize == 0) {
-                    break;
-                }
+            reader.readStatusLine();
+            reader.readHeaders();
 
-                final char[] buff = new char[MAX_BUFFER_BYTES];
-                offset = 0;
-                do {
-                    numBytesRead = reader.read(buff, offset, chunkSize + 2 - offset);
-                    if (numBytesRead < 0) {
-                        throw new RuntimeException("Unexpected end of stream while reading chunked data");
-                    }
-
-                    offset += numBytesRead;
-                } while (offset < chunkSize + 2);
+            while (reader.nextChunkSlice()) {
+                if (!reader.isEndOfChunk()) {
+                    pending.write(reader.getSliceArray(), reader.getSliceOffset(), reader.getSliceLength());
+                    continue;
+                }
 
                 // send the ack string to ack consumer with the exact number of bytes
-                final String chunk = new String(buff, 0, chunkSize);
+                final String chunk;
+                if (pending.size() == 0) {
+                    chunk = new String(reader.getSliceArray(), reader.getSliceOffset(),
+                            reader.getSliceLength(), StandardCharsets.US_ASCII);
+                } else {
+                    pending.write(reader.getSliceArray(), reader.getSliceOffset(), reader.getSliceLength());
+                    chunk = new String(pending.toByteArray(), StandardCharsets.US_ASCII);
+                    pending.reset();
+                }
                 LOG.debug("Chunk: " + chunk);
                 ackTimestampConsumer.accept(chunk);
-
-                line = reader.readLine();
-                LOG.debug("Chunk size: " + line);
-            } while (line != null);
+                ackCount++;
+            }
         } catch (final Throwable e) {
             throw new RuntimeException("Exception while decoding Ack in response ! ", e);
         }
@@ -224,60 +288,4 @@ public final class ChunkDecoder {
         return ackCount;
     }
 
-    private static String skipEmptyLines(final BufferedReader reader) throws Throwable {
-        String line;
-
-        do {
-            line = reader.readLine();
-        }
-        while (line != null && line.isEmpty());
-
-        return line;
-    }
-
-    /**
-     * Read and throw aways all raw bytes for the response headers.
-     * <p>
-     * FIXME we could have a function to read and parse response instead
-     * The caller could just not throw away the return value. This will be
-     * useful for ChunkDecoder::decodeHeaders
-     *
-     * @param reader
-     * @return
-     * @throws Throwable
-     */
-    private static String skipResponseHeaders(final BufferedReader reader) throws Throwable {
-        String line;
-
-        line = skipEmptyLines(reader);
-        LOG.debug("Skip header: " + line);
-        if (isStatusLine(line)) {
-            do {
-                line = reader.readLine();
-                LOG.debug("Skip header: " + line);
-            }
-            while (isNotBlank(line));
-        }
-
-        return line;
-    }
-
-    private static boolean isNotBlank(final CharSequence cs) {
-        final int strLen = cs == null ? 0 : cs.length();
-        if (cs == null || strLen == 0) {
-            return false;
-        }
-        for (int i = 0; i < strLen; i++) {
-            if (!Character.isWhitespace(cs.charAt(i))) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean isStatusLine(final String line) {
-        // FIXME
-        return true;
-    }
-
 }
@@ -0,0 +1,367 @@
+/**
+ * Copyright 2019 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.encoding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads an HTTP/1.1 response with a chunked body through a ring buffer that's
+ * filled with bulk reads. The status line and the headers are read line by
+ * line, the payload of the chunks is returned as slices of the ring buffer,
+ * without copying.
+ * <p>
+ * The reader is also an {@link InputStream} over the raw bytes that follow
+ * what was read so far, so the rest of the response can be handed to code
+ * that expects the underlying stream. Raw reads and chunk slices shouldn't be
+ * mixed.
+ */
+public final class ChunkedResponseReader extends InputStream {
+    private static final int DEFAULT_BUFFER_SIZE = 4 * 1024;
+    private static final int HEX_RADIX = 16;
+
+    private static final int STATE_SIZE = 0;
+    private static final int STATE_EXTENSION = 1;
+    private static final int STATE_DATA = 2;
+    private static final int STATE_DATA_END = 3;
+    private static final int STATE_TRAILER = 4;
+    private static final int STATE_DONE = 5;
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    /** Index of the first buffered byte. */
+    private int head;
+    /** Number of buffered bytes. */
+    private int size;
+    private boolean endOfStream;
+
+    private int state = STATE_SIZE;
+    private long chunkSize;
+    private boolean chunkSizeRead;
+    private long chunkRemaining;
+    private int trailerLineLength;
+
+    private int sliceOffset;
+    private int sliceLength;
+    private boolean endOfChunk;
+
+    public ChunkedResponseReader(final InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param inputStream response to read
+     * @param bufferSize size of the ring buffer, which bounds the length of
+     *            the status line and of each header line
+     */
+    public ChunkedResponseReader(final InputStream inputStream, final int bufferSize) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("inputStream can't be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the status line, skipping empty lines before it.
+     *
+     * @return the status line, without the line delimiter
+     * @throws IOException if the stream ends before a line is read
+     */
+    public String readStatusLine() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                throw new EOFException("Unexpected end of stream while reading status line");
+            }
+        } while (line.isEmpty());
+        return line;
+    }
+
+    /**
+     * Reads the headers, up to and including the empty line that ends them.
+     *
+     * @return the headers, with their names and values trimmed
+     * @throws IOException if the stream ends before the headers do
+     */
+    public Map<String, String> readHeaders() throws IOException {
+        final Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon >= 0) {
+                headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Unexpected end of stream while reading headers");
+        }
+        return headers;
+    }
+
+    /**
+     * Reads a line ended by LF, or CRLF.
+     *
+     * @return the line without its delimiter, or null if the stream ended
+     *         first
+     * @throws IOException if the line doesn't fit in the buffer
+     */
+    String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (; scanned < size; scanned++) {
+                if (byteAt(scanned) == '\n') {
+                    final int length = scanned > 0 && byteAt(scanned - 1) == '\r' ? scanned - 1 : scanned;
+                    final String line = decode(length);
+                    consume(scanned + 1);
+                    return line;
+                }
+            }
+            if (size == buffer.length) {
+                throw new IOException("Line is longer than " + buffer.length + " bytes");
+            }
+            if (!fill()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next slice of chunk payload. A chunk comes in several
+     * slices if it doesn't fit in what's buffered, or wraps around the end of
+     * the ring buffer. Empty lines before the first chunk size are skipped.
+     *
+     * @return true if a slice is available from {@link #getSliceArray()},
+     *         false once the last chunk and the trailer were read, or the
+     *         stream ended between chunks
+     * @throws IOException if the stream ends early or the chunked encoding is
+     *             invalid
+     */
+    public boolean nextChunkSlice() throws IOException {
+        while (state != STATE_DONE) {
+            if (size == 0 && !fill()) {
+                if ((state == STATE_SIZE && !chunkSizeRead) || state == STATE_TRAILER) {
+                    // the stream was closed between chunks
+                    state = STATE_DONE;
+                    break;
+                }
+                throw new EOFException("Unexpected end of stream while reading chunked data");
+            }
+            if (state == STATE_DATA) {
+                final int length = (int) Math.min(Math.min(size, buffer.length - head), chunkRemaining);
+                sliceOffset = head;
+                sliceLength = length;
+                chunkRemaining -= length;
+                endOfChunk = chunkRemaining == 0;
+                if (endOfChunk) {
+                    state = STATE_DATA_END;
+                }
+                // The bytes aren't overwritten until the buffer is filled
+                // again, by the next call.
+                consume(length);
+                return true;
+            }
+            final int b = buffer[head];
+            consume(1);
+            switch (state) {
+                case STATE_SIZE:
+                    readChunkSize(b);
+                    break;
+                case STATE_EXTENSION:
+                    if (b == '\n') {
+                        endChunkSizeLine();
+                    }
+                    break;
+                case STATE_DATA_END:
+                    if (b == '\n') {
+                        state = STATE_SIZE;
+                        chunkSize = 0;
+                        chunkSizeRead = false;
+                    } else if (b != '\r') {
+                        throw new IOException("Chunk data isn't followed by a line delimiter");
+                    }
+                    break;
+                case STATE_TRAILER:
+                    if (b == '\n') {
+                        if (trailerLineLength == 0) {
+                            state = STATE_DONE;
+                        }
+                        trailerLineLength = 0;
+                    } else if (b != '\r') {
+                        trailerLineLength++;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+        return false;
+    }
+
+    private void readChunkSize(final int b) throws IOException {
+        final int digit = Character.digit(b, HEX_RADIX);
+        if (digit >= 0) {
+            chunkSize = chunkSize * HEX_RADIX + digit;
+            if (chunkSize > Integer.MAX_VALUE) {
+                throw new IOException("Chunk size is too large");
+            }
+            chunkSizeRead = true;
+        } else if (b == '\n') {
+            if (chunkSizeRead) {
+                endChunkSizeLine();
+            }
+        } else if (b == ';') {
+            state = STATE_EXTENSION;
+        } else if (b != '\r' && b != ' ' && b != '\t') {
+            throw new IOException("Invalid chunk size");
+        }
+    }
+
+    private void endChunkSizeLine() throws IOException {
+        if (!chunkSizeRead) {
+            throw new IOException("Missing chunk size");
+        }
+        if (chunkSize == 0) {
+            state = STATE_TRAILER;
+            trailerLineLength = 0;
+        } else {
+            state = STATE_DATA;
+            chunkRemaining = chunkSize;
+        }
+    }
+
+    /**
+     * @return the array holding the current slice, valid until the next call
+     *         to {@link #nextChunkSlice()}
+     */
+    public byte[] getSliceArray() {
+        return buffer;
+    }
+
+    /**
+     * @return the offset of the current slice in {@link #getSliceArray()}
+     */
+    public int getSliceOffset() {
+        return sliceOffset;
+    }
+
+    /**
+     * @return the length of the current slice
+     */
+    public int getSliceLength() {
+        return sliceLength;
+    }
+
+    /**
+     * @return whether the current slice ends its chunk
+     */
+    public boolean isEndOfChunk() {
+        return endOfChunk;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (size == 0 && !fill()) {
+            return -1;
+        }
+        final int b = buffer[head] & 0xff;
+        consume(1);
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (size == 0) {
+            // nothing buffered, read straight into the caller's array
+            return endOfStream ? -1 : inputStream.read(b, off, len);
+        }
+        final int length = Math.min(len, Math.min(size, buffer.length - head));
+        System.arraycopy(buffer, head, b, off, length);
+        consume(length);
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return size + inputStream.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Reads into the free space after the buffered bytes, with a single read.
+     *
+     * @return false if the stream ended
+     */
+    private boolean fill() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        if (size == 0) {
+            head = 0;
+        }
+        final int tail = head + size < buffer.length ? head + size : head + size - buffer.length;
+        final int free = tail >= head ? buffer.length - tail : head - tail;
+        final int read = inputStream.read(buffer, tail, free);
+        if (read < 0) {
+            endOfStream = true;
+            return false;
+        }
+        size += read;
+        return true;
+    }
+
+    private byte byteAt(final int index) {
+        final int i = head + index;
+        return buffer[i < buffer.length ? i : i - buffer.length];
+    }
+
+    private void consume(final int count) {
+        head += count;
+        if (head >= buffer.length) {
+            head -= buffer.length;
+        }
+        size -= count;
+    }
+
+    private String decode(final int length) {
+        if (head + length <= buffer.length) {
+            return new String(buffer, head, length, StandardCharsets.UTF_8);
+        }
+        // the line wraps around the end of the buffer
+        final byte[] line = new byte[length];
+        final int first = buffer.length - head;
+        System.arraycopy(buffer, head, line, 0, first);
+        System.arraycopy(buffer, 0, line, first, length - first);
+        return new String(line, StandardCharsets.UTF_8);
+    }
+}
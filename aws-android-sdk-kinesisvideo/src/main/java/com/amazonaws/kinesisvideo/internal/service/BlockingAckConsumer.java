@@ -21,6 +21,7 @@ import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.common.function.Consumer;
 import com.amazonaws.kinesisvideo.common.logging.Log;
 import com.amazonaws.kinesisvideo.encoding.ChunkDecoder;
+import com.amazonaws.kinesisvideo.encoding.ChunkedResponseReader;
 import com.amazonaws.kinesisvideo.model.ResponseStatus;
 import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
 import com.amazonaws.kinesisvideo.internal.service.exception.AccessDeniedException;
@@ -58,15 +59,18 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     @Override
     public void accept(final @NonNull InputStream inputStream) {
         checkNotNull(inputStream);
+        // Reads the response in bulk, the reader hands the bytes after the
+        // headers on to the ACK consumer.
+        final ChunkedResponseReader reader = new ChunkedResponseReader(inputStream);
 
         // Await for the header
         try {
-            final ResponseStatus responseStatus = ChunkDecoder.readStatusLine(inputStream);
+            final ResponseStatus responseStatus = ChunkDecoder.readStatusLine(reader);
             final int responseCode = responseStatus.getStatusCode();
             switch (responseCode) {
                 case HTTP_OK:
                     log.debug(String.format("PutMedia call for stream %s return OK with request id %s",
-                            kinesisVideoProducerStream.getStreamName(), ChunkDecoder.decodeHeaders(inputStream)));
+                            kinesisVideoProducerStream.getStreamName(), ChunkDecoder.decodeHeaders(reader)));
                     break;
                 case HTTP_BAD_REQUEST:
                     throw new AmazonServiceException("PutMedia call returned bad request: "
@@ -89,7 +93,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
 
         // Forward to the origin if no exceptions have been thrown
         if (storedException == null) {
-            inputStreamConsumer.accept(inputStream);
+            inputStreamConsumer.accept(reader);
         }
     }
 
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import android.database.Cursor;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent;
+import com.amazonaws.services.pinpoint.model.Event;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads stored events into batches for PutEvents requests. A batch holds as
+ * many events as fit in the maximum submission size, going by the stored size
+ * of each event in UTF-8 bytes, and always at least one event.
+ */
+class EventBatchBuilder {
+
+    private static final Log log = LogFactory.getLog(EventBatchBuilder.class);
+    private static final int JSON_COLUMN_INDEX = EventTable.COLUMN_INDEX.JSON.getValue();
+    private static final int ID_COLUMN_INDEX = EventTable.COLUMN_INDEX.ID.getValue();
+    private static final int SIZE_COLUMN_INDEX = EventTable.COLUMN_INDEX.SIZE.getValue();
+
+    private final EventRecorder eventRecorder;
+    private final long maxBatchSize;
+
+    /**
+     * Events of a PutEvents request, with the database rows they were read
+     * from.
+     */
+    static class Batch {
+        /** Events by event id. */
+        final Map<String, Event> events = new HashMap<String, Event>();
+        /** Database ids of the events by event id. */
+        final Map<String, Integer> rowIds = new HashMap<String, Integer>();
+        /** Rows to delete once the batch is submitted, with their known size. */
+        final HashMap<Integer, Integer> idsAndSizeToDelete;
+        /** Size of the events in UTF-8 bytes. */
+        long size;
+        /** Whether some events weren't delivered and are kept to be sent again. */
+        boolean retryable;
+
+        Batch(final HashMap<Integer, Integer> idsAndSizeToDelete) {
+            this.idsAndSizeToDelete = idsAndSizeToDelete;
+        }
+
+        /**
+         * Keeps an event in the database to be sent again.
+         *
+         * @param eventId id of the event
+         */
+        void retry(final String eventId) {
+            final Integer rowId = rowIds.get(eventId);
+            if (rowId != null) {
+                idsAndSizeToDelete.remove(rowId);
+            }
+            retryable = true;
+        }
+
+        /**
+         * Keeps all the events in the database to be sent again. Rows that
+         * couldn't be read are still deleted.
+         */
+        void retryAll() {
+            for (final Integer rowId : rowIds.values()) {
+                idsAndSizeToDelete.remove(rowId);
+            }
+            retryable = true;
+        }
+
+        private void add(final String eventId, final Event event, final Integer rowId) {
+            events.put(eventId, event);
+            if (rowId != null) {
+                rowIds.put(eventId, rowId);
+            }
+        }
+    }
+
+    EventBatchBuilder(final EventRecorder eventRecorder, final long maxBatchSize) {
+        this.eventRecorder = eventRecorder;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Reads the next batch of events, starting at the current row of the
+     * cursor. Rows that can't be read are added to the rows to delete but not
+     * to the events.
+     *
+     * @param cursor cursor over the event table, on a row
+     * @return the batch, with the cursor left on the first row not read, or
+     *         after the last row
+     */
+    Batch next(final Cursor cursor) {
+        final Batch batch = new Batch(new HashMap<Integer, Integer>());
+        do {
+            if (!readRow(cursor, batch)) {
+                break;
+            }
+        } while (cursor.moveToNext());
+        return batch;
+    }
+
+    /**
+     * @return false if the row doesn't fit in the batch and wasn't read
+     */
+    private boolean readRow(final Cursor cursor, final Batch batch) {
+        Integer rowId = null;
+        Integer size = null;
+        try {
+            if (cursor.isNull(ID_COLUMN_INDEX)) {
+                log.error("Column 'ID' for event was NULL.");
+                return true;
+            }
+            rowId = cursor.getInt(ID_COLUMN_INDEX);
+
+            if (cursor.isNull(SIZE_COLUMN_INDEX)) {
+                log.error("Column 'SIZE' for event was NULL.");
+            } else {
+                size = cursor.getInt(SIZE_COLUMN_INDEX);
+                if (!fits(batch, size)) {
+                    rowId = null;
+                    return false;
+                }
+            }
+
+            if (cursor.isNull(JSON_COLUMN_INDEX)) {
+                log.error(String.format(Locale.US,
+                    "Event from DB with ID=%d and SiZE=%d contained a NULL message.", rowId, size));
+                return true;
+            }
+            final String message = cursor.getString(JSON_COLUMN_INDEX);
+            final int messageSize = PinpointDBUtil.getUtf8Length(message);
+            if (size == null) {
+                if (!fits(batch, messageSize)) {
+                    rowId = null;
+                    return false;
+                }
+            } else if (messageSize != size) {
+                log.warn(String.format(Locale.US,
+                    "Message with ID=%d has a size mismatch. DBMsgSize=%d DBSizeCol=%d",
+                    rowId, messageSize, size));
+                // The total size is recalculated once this row is removed
+                size = null;
+            }
+            batch.size += messageSize;
+
+            // The row is parsed into a JSONObject because translateToEvent
+            // defines how each stored field is read.
+            try {
+                final AnalyticsEvent internalEvent = AnalyticsEvent.translateToEvent(new JSONObject(message));
+                final Event event = new Event();
+                eventRecorder.buildEventPayload(internalEvent, event);
+                batch.add(internalEvent.getEventId(), event, rowId);
+            } catch (final JSONException e) {
+                // Do not log JSONException due to potentially sensitive information
+                log.error(String.format(Locale.US,
+                    "Unable to deserialize event JSON for event with ID=%d.", rowId));
+            }
+        } catch (final Exception ex) {
+            log.error("Failed accessing cursor to get next event.", ex);
+        } finally {
+            // Rows that were read are deleted whether or not they were valid,
+            // so corrupted items don't stay in the database.
+            if (rowId != null) {
+                batch.idsAndSizeToDelete.put(rowId, size);
+            }
+        }
+        return true;
+    }
+
+    private boolean fits(final Batch batch, final long size) {
+        return batch.idsAndSizeToDelete.isEmpty() || batch.size + size <= maxBatchSize;
+    }
+
+    /**
+     * Builds a batch from events that were already read from the database.
+     *
+     * @param eventArray events as JSON, linked to their database id with
+     *            {@link EventRecorder#DATABASE_ID_KEY}
+     * @param idsAndSizeToDelete rows to delete once the batch is submitted
+     * @return the batch
+     */
+    Batch fromJSONArray(final JSONArray eventArray, final HashMap<Integer, Integer> idsAndSizeToDelete) {
+        final Batch batch = new Batch(idsAndSizeToDelete);
+        for (int i = 0; i < eventArray.length(); i++) {
+            try {
+                final JSONObject eventJSON = eventArray.getJSONObject(i);
+                final AnalyticsEvent internalEvent = AnalyticsEvent.translateToEvent(eventJSON);
+                final Event event = new Event();
+                eventRecorder.buildEventPayload(internalEvent, event);
+                batch.add(internalEvent.getEventId(), event,
+                    eventJSON.has(EventRecorder.DATABASE_ID_KEY)
+                        ? Integer.valueOf(eventJSON.getInt(EventRecorder.DATABASE_ID_KEY)) : null);
+            } catch (final JSONException jsonException) {
+                // Do not log JSONException due to potentially sensitive information
+                log.error("Stored event was invalid JSON.", jsonException);
+            }
+        }
+        return batch;
+    }
+}
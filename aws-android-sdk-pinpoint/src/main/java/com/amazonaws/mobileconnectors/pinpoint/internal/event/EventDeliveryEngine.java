@@ -0,0 +1,302 @@
+/**
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.mobileconnectors.pinpoint.internal.core.PinpointContext;
+import com.amazonaws.mobileconnectors.pinpoint.internal.core.configuration.AndroidPreferencesConfiguration;
+import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfile;
+
+/**
+ * Delivers the stored events with several PutEvents requests in flight.
+ * Delivery goes on in rounds of up to maxSubmissionAllowed requests for as
+ * long as the stored events exceed the drain watermark, and backs off when
+ * events are kept to be retried, e.g. when requests are throttled. The retry
+ * is scheduled instead of blocking the thread, and the drain stays scheduled
+ * until it runs.
+ * <p>
+ * Rows are read and deleted on the thread running the drain, which is the
+ * thread calling {@link #drain()} or, for retries, the retry thread. Only
+ * the requests are sent on other threads.
+ */
+class EventDeliveryEngine {
+
+    static final String KEY_MAX_IN_FLIGHT_SUBMISSIONS = "maxInFlightSubmissions";
+    static final int DEFAULT_MAX_IN_FLIGHT_SUBMISSIONS = 2;
+    static final String KEY_DRAIN_WATERMARK = "drainWatermark";
+    static final long DEFAULT_DRAIN_WATERMARK = EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE;
+    static final long INITIAL_BACKOFF_MILLIS = 1000;
+    static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+    /** Rounds in a row that keep events to be retried before giving up. */
+    static final int MAX_RETRIES = 3;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final Log log = LogFactory.getLog(EventDeliveryEngine.class);
+
+    private final EventRecorder eventRecorder;
+    private final PinpointDBUtil dbUtil;
+    private final PinpointContext pinpointContext;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    /** Whether events were submitted since the last round started. */
+    private final AtomicBoolean requested = new AtomicBoolean();
+    /** Whether a drain is queued or running. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    EventDeliveryEngine(final EventRecorder eventRecorder, final PinpointDBUtil dbUtil,
+                        final PinpointContext pinpointContext) {
+        this(eventRecorder, dbUtil, pinpointContext, RetryScheduler.EXECUTOR);
+    }
+
+    EventDeliveryEngine(final EventRecorder eventRecorder, final PinpointDBUtil dbUtil,
+                        final PinpointContext pinpointContext,
+                        final ScheduledExecutorService retryScheduler) {
+        this.eventRecorder = eventRecorder;
+        this.dbUtil = dbUtil;
+        this.pinpointContext = pinpointContext;
+        this.retryScheduler = retryScheduler;
+        // at most maxInFlightSubmissions requests run at once, idle threads time out
+        this.requestExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new DaemonThreadFactory("pinpoint-event-request-thread-"));
+    }
+
+    /**
+     * Holds the thread shared by all engines for delivering events again
+     * after backing off, created the first time it's needed.
+     */
+    private static final class RetryScheduler {
+        static final ScheduledExecutorService EXECUTOR = Executors
+            .newSingleThreadScheduledExecutor(new DaemonThreadFactory("pinpoint-event-retry-thread-"));
+    }
+
+    /**
+     * Names the threads with a prefix and a number, and makes them daemons
+     * so they don't keep the process alive.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+        private final String namePrefix;
+
+        DaemonThreadFactory(final String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setName(namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Records that the stored events should be delivered.
+     *
+     * @return true if the caller must run {@link #drain()}, false if a drain
+     *         that's queued or running delivers the events
+     */
+    boolean request() {
+        requested.set(true);
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Delivers the stored events until no more were requested, or until a
+     * retry is scheduled. If delivery throws, the drain is no longer
+     * scheduled, so the next request starts another one.
+     */
+    void drain() {
+        drain(false, INITIAL_BACKOFF_MILLIS, 0);
+    }
+
+    /**
+     * @param retry whether the backlog is delivered even if no events were
+     *            requested since
+     * @param backoff the delay before the next retry
+     * @param retries the rounds in a row that kept events to be retried
+     */
+    private void drain(boolean retry, long backoff, int retries) {
+        boolean retryScheduled = false;
+        do {
+            try {
+                while (!retryScheduled && (retry || requested.getAndSet(false))) {
+                    retryScheduled = deliverBacklog(backoff, retries);
+                    retry = false;
+                    backoff = INITIAL_BACKOFF_MILLIS;
+                    retries = 0;
+                }
+            } finally {
+                if (!retryScheduled) {
+                    scheduled.set(false);
+                }
+            }
+            // A request between the last check and clearing the flag didn't
+            // schedule a drain, so this one goes on.
+        } while (!retryScheduled && requested.get() && scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * @return true if a retry was scheduled to deliver the rest
+     */
+    private boolean deliverBacklog(long backoff, int retries) {
+        final AndroidPreferencesConfiguration configuration = pinpointContext.getConfiguration();
+        final long watermark = configuration.optLong(KEY_DRAIN_WATERMARK, DEFAULT_DRAIN_WATERMARK);
+        while (true) {
+            final Round round = deliverRound();
+            if (round.retryable) {
+                if (retries >= MAX_RETRIES) {
+                    log.warn("Events kept for retry after " + MAX_RETRIES + " attempts, stopping delivery.");
+                    return false;
+                }
+                return scheduleRetry(backoff, retries + 1);
+            }
+            backoff = INITIAL_BACKOFF_MILLIS;
+            retries = 0;
+            if (round.deleted == 0 || dbUtil.getTotalSize() <= watermark) {
+                return false;
+            }
+        }
+    }
+
+    private boolean scheduleRetry(final long backoff, final int retries) {
+        log.info(String.format(Locale.US, "Backing off %d ms before delivering events again.", backoff));
+        final long nextBackoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        try {
+            retryScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    drain(true, nextBackoff, retries);
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            log.error("Unable to schedule the retry, stopping delivery.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of a round of requests.
+     */
+    private static class Round {
+        int deleted;
+        boolean retryable;
+    }
+
+    private Round deliverRound() {
+        final long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        final AndroidPreferencesConfiguration configuration = pinpointContext.getConfiguration();
+        final int maxSubmissions = configuration.optInt(EventRecorder.KEY_MAX_SUBMISSIONS_ALLOWED,
+            EventRecorder.DEFAULT_MAX_SUBMISSIONS_ALLOWED);
+        final int maxInFlight = Math.max(1, configuration.optInt(KEY_MAX_IN_FLIGHT_SUBMISSIONS,
+            DEFAULT_MAX_IN_FLIGHT_SUBMISSIONS));
+        final EventBatchBuilder batchBuilder = new EventBatchBuilder(eventRecorder, configuration.optLong(
+            EventRecorder.KEY_MAX_SUBMISSION_SIZE, EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE));
+        final CompletionService<EventBatchBuilder.Batch> requests =
+            new ExecutorCompletionService<EventBatchBuilder.Batch>(requestExecutor);
+
+        final Round round = new Round();
+        int submissions = 0;
+        int inFlight = 0;
+        boolean interrupted = false;
+        Cursor cursor = null;
+        try {
+            cursor = dbUtil.queryAllEvents();
+            if (!cursor.moveToFirst()) {
+                log.info("No events available to submit.");
+                return round;
+            }
+            final EndpointProfile endpoint = pinpointContext.getTargetingClient().currentEndpoint();
+            while (true) {
+                while (!round.retryable && inFlight < maxInFlight && submissions < maxSubmissions
+                        && !cursor.isAfterLast()) {
+                    final EventBatchBuilder.Batch batch = batchBuilder.next(cursor);
+                    if (batch.events.isEmpty()) {
+                        // only rows that couldn't be read
+                        round.deleted += delete(batch);
+                        continue;
+                    }
+                    requests.submit(new Callable<EventBatchBuilder.Batch>() {
+                        @Override
+                        public EventBatchBuilder.Batch call() {
+                            eventRecorder.submitBatch(batch, endpoint);
+                            return batch;
+                        }
+                    });
+                    inFlight++;
+                    submissions++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                // The rows of requests in flight are deleted once they
+                // complete, even if this thread is interrupted.
+                try {
+                    final EventBatchBuilder.Batch batch = requests.take().get();
+                    inFlight--;
+                    round.deleted += delete(batch);
+                    round.retryable |= batch.retryable;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    inFlight--;
+                    round.retryable = true;
+                    log.error("Unable to successfully deliver events to server.", e.getCause());
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info(String.format(Locale.US, "Time of attemptDelivery: %d, submissions: %d",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - start, submissions));
+        return round;
+    }
+
+    private int delete(final EventBatchBuilder.Batch batch) {
+        try {
+            return dbUtil.deleteEvents(batch.idsAndSizeToDelete);
+        } catch (final SQLException exc) {
+            log.error("Failed to delete " + batch.idsAndSizeToDelete.size() + " events.", exc);
+            return 0;
+        }
+    }
+}
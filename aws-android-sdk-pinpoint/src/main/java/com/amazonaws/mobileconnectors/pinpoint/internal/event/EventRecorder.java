@@ -87,11 +87,13 @@ public class EventRecorder {
     private final PinpointDBUtil dbUtil;
     private final ExecutorService submissionRunnableQueue;
     private final PinpointContext pinpointContext;
+    private final EventDeliveryEngine deliveryEngine;
 
     EventRecorder(final PinpointContext pinpointContext, final PinpointDBUtil dbUtil, final ExecutorService submissionRunnableQueue) {
         this.pinpointContext = pinpointContext;
         this.dbUtil = dbUtil;
         this.submissionRunnableQueue = submissionRunnableQueue;
+        this.deliveryEngine = new EventDeliveryEngine(this, dbUtil, pinpointContext);
     }
 
     /**
@@ -209,10 +211,11 @@ public class EventRecorder {
                         "Unable to deserialize event JSON for event with ID=%d.", rowId));
                 }
 
-                if (size != null && message.length() != size) {
+                final int messageSize = PinpointDBUtil.getUtf8Length(message);
+                if (size != null && messageSize != size) {
                     log.warn(String.format(Locale.US,
                         "Message with ID=%d has a size mismatch. DBMsgSize=%d DBSizeCol=%d",
-                        rowId, message.length(), size));
+                        rowId, messageSize, size));
                     // In this case we had a size in the DB, but it didn't match the size of the message in the DB.
                     // We set the size as null so the total size will end up recalculated from the remaining
                     // items in the database after this item is removed.
@@ -233,36 +236,23 @@ public class EventRecorder {
         return null;
     }
 
+    /**
+     * Delivers the stored events in the background. Calls made while a
+     * delivery is queued or running are picked up by that delivery, which
+     * keeps going until the stored events are under the drain watermark.
+     */
     public void submitEvents() {
+        if (!deliveryEngine.request()) {
+            return;
+        }
         submissionRunnableQueue.execute(new Runnable() {
             @Override
             public void run() {
-                processEvents();
+                deliveryEngine.drain();
             }
         });
     }
 
-    JSONArray getBatchOfEvents(final Cursor cursor, final HashMap<Integer, Integer> idsAndSizeToDelete) {
-        final JSONArray eventArray = new JSONArray();
-        long currentRequestSize = 0;
-        long eventLength;
-        final long maxRequestSize = pinpointContext.getConfiguration().optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
-
-        do {
-            JSONObject json = readEventFromCursor(cursor, idsAndSizeToDelete);
-            if (json != null) {
-                eventLength = json.length();
-                currentRequestSize += eventLength;
-                eventArray.put(json);
-            }
-            if (currentRequestSize > maxRequestSize) {
-                break;
-            }
-        } while (cursor.moveToNext());
-
-        return eventArray;
-    }
-
     public List<JSONObject> getAllEvents() {
         final List<JSONObject> events = new ArrayList<JSONObject>();
         Cursor cursor = null;
@@ -282,70 +272,17 @@ public class EventRecorder {
         return events;
     }
 
-    Map<String,Set<String>> processEvents() {
-        final long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
-
-        Cursor cursor = null;
-
-        try {
-            cursor = dbUtil.queryAllEvents();
-
-            if (!cursor.moveToFirst()) {
-                // if the cursor is empty there is nothing to do.
-                log.info("No events available to submit.");
-                return null;
-            }
-
-            Map<String,Set<String>> totalProcessedEvents = new HashMap<String,Set<String>>();
-            Map<String,Set<String>> processedEvents;
-            Set<String> successfulEventIds = new HashSet<String>();
-            Set<String> failedEventIds = new HashSet<String>();
-            totalProcessedEvents.put(SUCCESSFUL_EVENT_IDS, successfulEventIds);
-            totalProcessedEvents.put(FAILED_EVENT_IDS, failedEventIds);
-
-            int submissions = 0;
-            final long maxSubmissionsAllowed = pinpointContext
-                .getConfiguration()
-                .optInt(KEY_MAX_SUBMISSIONS_ALLOWED, DEFAULT_MAX_SUBMISSIONS_ALLOWED);
-
-            do {
-                final HashMap<Integer, Integer> batchIdsAndSizeToDelete = new HashMap<Integer, Integer>();
-                final JSONArray events = this.getBatchOfEvents(cursor, batchIdsAndSizeToDelete);
-                if (batchIdsAndSizeToDelete.size() > 0) {
-                    processedEvents = submitEventsAndEndpoint(events, batchIdsAndSizeToDelete);
-                    totalProcessedEvents.get(FAILED_EVENT_IDS).addAll(processedEvents.get(FAILED_EVENT_IDS));
-                    totalProcessedEvents.get(SUCCESSFUL_EVENT_IDS).addAll(processedEvents.get(SUCCESSFUL_EVENT_IDS));
-                    submissions++;
-                }
-                for(Integer id : batchIdsAndSizeToDelete.keySet()) {
-                    try{
-                        dbUtil.deleteEvent(id, batchIdsAndSizeToDelete.get(id));
-                    } catch (final IllegalArgumentException exc) {
-                        log.error("Failed to delete event: " + id, exc);
-                    }
-                }
-                if (submissions >= maxSubmissionsAllowed) {
-                    break;
-                }
-            } while (cursor.moveToNext());
-
-            log.info(String.format(Locale.US, "Time of attemptDelivery: %d",
-                TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - start));
-            return totalProcessedEvents;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-
-    }
-
     public Map<String,Set<String>> submitEventsAndEndpoint(final JSONArray eventArray, final HashMap<Integer, Integer> batchIdsAndSizeToDelete) {
         return submitEventsAndEndpoint(eventArray, batchIdsAndSizeToDelete, pinpointContext.getTargetingClient().currentEndpoint());
     }
 
     public Map<String,Set<String>> submitEventsAndEndpoint(final JSONArray eventArray, final HashMap<Integer, Integer> batchIdsAndSizeToDelete, EndpointProfile endpoint) {
+        final long maxRequestSize = pinpointContext.getConfiguration().optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
+        return submitBatch(new EventBatchBuilder(this, maxRequestSize).fromJSONArray(eventArray, batchIdsAndSizeToDelete), endpoint);
+    }
 
+    Map<String,Set<String>> submitBatch(final EventBatchBuilder.Batch batch, final EndpointProfile endpoint) {
+        final HashMap<Integer, Integer> batchIdsAndSizeToDelete = batch.idsAndSizeToDelete;
         Map<String,Set<String>> processedEvents = new HashMap<String,Set<String>>();
         Set<String> successfulEventIds = new HashSet<String>();
         Set<String> failedEventIds = new HashSet<String>();
@@ -354,11 +291,11 @@ public class EventRecorder {
         if (endpoint == null) {
             log.warn("Endpoint profile is null, failed to submit events.");
             batchIdsAndSizeToDelete.clear();
-            addAllEventIdsToSet(eventArray, failedEventIds);
+            failedEventIds.addAll(batch.events.keySet());
             return processedEvents;
         }
         // package them into an putEvents request
-        PutEventsRequest request = this.createRecordEventsRequest(eventArray, endpoint);
+        PutEventsRequest request = this.createRecordEventsRequest(batch.events, endpoint);
         request.getRequestClientOptions().appendUserAgent(USER_AGENT);
 
         try {
@@ -368,21 +305,22 @@ public class EventRecorder {
             //process endpoint response.
             processEndpointResponse(endpoint, resultResponse);
             //request accepted, checking each event item in the response.
-            processEventsResponse(eventArray, endpoint, resultResponse, batchIdsAndSizeToDelete, successfulEventIds, failedEventIds);
+            processEventsResponse(batch, endpoint, resultResponse, successfulEventIds, failedEventIds);
             log.info(String.format("Successful submission of %d events.", batchIdsAndSizeToDelete.size()));
         } catch (final AmazonServiceException amazonServiceException) {
             //This is service level exception, we also have item level exception.
             log.error("AmazonServiceException occured during send of put event ", amazonServiceException);
             final String errorCode = amazonServiceException.getErrorCode();
             if (!isRetryable(errorCode)) {
-                addAllEventIdsToSet(eventArray, failedEventIds);
+                failedEventIds.addAll(batch.events.keySet());
                 log.error(
                     String.format("Failed to submit events to EventService: statusCode: " +
                             amazonServiceException.getStatusCode() + " errorCode: ", errorCode),
                         amazonServiceException);
-                log.error(String.format("Failed submission of %d events, events will be removed", eventArray.length()),
+                log.error(String.format("Failed submission of %d events, events will be removed", batch.events.size()),
                         amazonServiceException);
             } else {
+                batch.retryAll();
                 log.error(
                         String.format("Unable to successfully deliver events to server. " +
                                 "Events will be saved, error is likely recoverable. " +
@@ -391,22 +329,13 @@ public class EventRecorder {
                         amazonServiceException);
             }
         } catch (final Exception exception) {
+            batch.retryAll();
             log.error("Unable to successfully deliver events to server. " +
                     "Events will be saved, error likely recoverable." + exception.getMessage(), exception);
         }
         return processedEvents;
     }
 
-    private void addAllEventIdsToSet(JSONArray eventArray, Set<String> failedEventIds) {
-        for(int i = 0; i < eventArray.length(); i++) {
-            try {
-                failedEventIds.add(eventArray.getJSONObject(i).getString(EVENT_ID));
-            } catch (JSONException e) {
-                log.error("Failed to get event id while processing event item response.", e);
-            }
-        }
-    }
-
     private void processEndpointResponse(EndpointProfile endpoint, PutEventsResult resultResponse) {
         final EndpointItemResponse endpointItemResponse = resultResponse
                 .getEventsResponse()
@@ -421,35 +350,29 @@ public class EventRecorder {
         }
     }
 
-    private void processEventsResponse(final JSONArray eventArray, EndpointProfile endpointProfile, final PutEventsResult resultResponse, final HashMap<Integer, Integer> batchIdsAndSizeToDelete, Set<String> successfulEventIds, Set<String> failedEventIds) {
-        String eventId;
+    private void processEventsResponse(final EventBatchBuilder.Batch batch, EndpointProfile endpointProfile, final PutEventsResult resultResponse, Set<String> successfulEventIds, Set<String> failedEventIds) {
+        final Map<String, EventItemResponse> eventItemResponses = resultResponse
+                .getEventsResponse()
+                .getResults()
+                .get(endpointProfile.getEndpointId())
+                .getEventsItemResponse();
         EventItemResponse responseMessage;
 
-        for(int i = 0; i < eventArray.length(); i++) {
-            try {
-                eventId = eventArray.getJSONObject(i).getString(EVENT_ID);
-                responseMessage = resultResponse
-                        .getEventsResponse()
-                        .getResults()
-                        .get(endpointProfile.getEndpointId())
-                        .getEventsItemResponse()
-                        .get(eventId);
-                if (responseMessage.getMessage().equalsIgnoreCase("Accepted")) {
-                    successfulEventIds.add(eventId);
-                    log.info(String.format("Successful submit event with event id %s", eventId));
-                } else if (isRetryable(responseMessage.getMessage())) {
-                    //Item level exception, retryable, removed from batchIdsAndSizeToDelete
-                    batchIdsAndSizeToDelete.remove(eventArray.getJSONObject(i).getInt(DATABASE_ID_KEY));
-                    log.warn(String.format("Unable to successfully deliver event to server. Event will be saved. Event id %s", eventId));
-                } else {
-                    //Item level exception, not retryable
-                    failedEventIds.add(eventId);
-                    log.error(
-                            String.format("Failed to submitEvents to EventService: statusCode: %s Status Message: %s",
-                                    responseMessage.getStatusCode(), responseMessage.getMessage()));
-                }
-            } catch (JSONException e) {
-                log.error("Failed to get event id while processing event item response.", e);
+        for (final String eventId : batch.events.keySet()) {
+            responseMessage = eventItemResponses.get(eventId);
+            if (responseMessage.getMessage().equalsIgnoreCase("Accepted")) {
+                successfulEventIds.add(eventId);
+                log.info(String.format("Successful submit event with event id %s", eventId));
+            } else if (isRetryable(responseMessage.getMessage())) {
+                //Item level exception, retryable, removed from batchIdsAndSizeToDelete
+                batch.retry(eventId);
+                log.warn(String.format("Unable to successfully deliver event to server. Event will be saved. Event id %s", eventId));
+            } else {
+                //Item level exception, not retryable
+                failedEventIds.add(eventId);
+                log.error(
+                        String.format("Failed to submitEvents to EventService: statusCode: %s Status Message: %s",
+                                responseMessage.getStatusCode(), responseMessage.getMessage()));
             }
         }
     }
@@ -464,12 +387,12 @@ public class EventRecorder {
     }
 
     /**
-     * @param events
+     * @param eventsMap
      * @param endpointProfile
      *
      * @return the request to put event
      */
-    private PutEventsRequest createRecordEventsRequest(final JSONArray events,
+    private PutEventsRequest createRecordEventsRequest(final Map<String, Event> eventsMap,
                                                        final EndpointProfile endpointProfile) {
 
         final PutEventsRequest putRequest = new PutEventsRequest().withApplicationId(endpointProfile.getApplicationId());
@@ -477,29 +400,10 @@ public class EventRecorder {
         final Map<String, EventsBatch> eventsBatchMap = new HashMap<String, EventsBatch>();
         final EventsBatch eventsBatch = new EventsBatch();
         final PublicEndpoint endpoint = new PublicEndpoint();
-        final Map<String,Event> eventsMap = new HashMap<String, Event>();
 
         // build endpoint payload
         buildEndpointPayload(endpointProfile, endpoint);
 
-        for (int i = 0; i < events.length(); i++) {
-            JSONObject eventJSON = null;
-            AnalyticsEvent internalEvent = null;
-            try {
-                eventJSON = events.getJSONObject(i);
-                internalEvent = AnalyticsEvent.translateToEvent(eventJSON);
-            } catch (final JSONException jsonException) {
-                // Do not log JSONException due to potentially sensitive information
-                log.error("Stored event was invalid JSON.", jsonException);
-                continue;
-            }
-
-            // build event payload
-            final Event event = new Event();
-            buildEventPayload(internalEvent, event);
-            eventsMap.put(internalEvent.getEventId(), event);
-        }
-
         // build request payload, could also build with only endpoint payload
         buildRequestPayload(putRequest, endpointId, eventsBatchMap, eventsBatch, endpoint, eventsMap);
 
@@ -24,6 +24,9 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.text.TextUtils;
 
+import java.util.Iterator;
+import java.util.Map;
+
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_SIZE;
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.TABLE_EVENT;
 
@@ -35,6 +38,8 @@ public class PinpointDBBase {
     private static final int EVENTS = 10;
     private static final int EVENT_ID = 20;
     private static final String BASE_PATH = "events";
+    /** Maximum number of ids in the "where" clause of one delete. */
+    private static final int MAX_IDS_PER_DELETE = 500;
     private final Context context;
     private final Uri contentUri;
     private final UriMatcher uriMatcher;
@@ -235,4 +240,54 @@ public class PinpointDBBase {
         }
         return rowsDeleted;
     }
+
+    /**
+     * Deletes records by id in a single transaction.
+     *
+     * @param idsAndSizes Ids of the records to delete, with their known size
+     *            (If known).
+     * @return Number of rows deleted.
+     */
+    public int deleteByIds(final Map<Integer, Integer> idsAndSizes) {
+        if (idsAndSizes.isEmpty()) {
+            return 0;
+        }
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        final long size = getTotalSize();
+        long knownSize = 0;
+        boolean sizesKnown = true;
+        int rowsDeleted = 0;
+        final Iterator<Map.Entry<Integer, Integer>> entries = idsAndSizes.entrySet().iterator();
+        final StringBuilder selection = new StringBuilder();
+        db.beginTransaction();
+        try {
+            while (entries.hasNext()) {
+                selection.setLength(0);
+                selection.append(EventTable.COLUMN_ID).append(" IN (");
+                for (int i = 0; i < MAX_IDS_PER_DELETE && entries.hasNext(); i++) {
+                    final Map.Entry<Integer, Integer> entry = entries.next();
+                    if (i > 0) {
+                        selection.append(',');
+                    }
+                    selection.append(entry.getKey().intValue());
+                    if (entry.getValue() != null) {
+                        knownSize += entry.getValue();
+                    } else {
+                        sizesKnown = false;
+                    }
+                }
+                selection.append(')');
+                rowsDeleted += db.delete(TABLE_EVENT, selection.toString(), null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (sizesKnown && rowsDeleted == idsAndSizes.size()) {
+            totalSize = size - knownSize;
+        } else {
+            totalSize = -1;
+        }
+        return rowsDeleted;
+    }
 }
@@ -21,6 +21,8 @@ import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.Map;
+
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_ID;
 import static com.amazonaws.mobileconnectors.pinpoint.internal.event.EventTable.COLUMN_SIZE;
 
@@ -68,7 +70,7 @@ public class PinpointDBUtil {
         ContentValues values = new ContentValues();
         String json = event.toJSONObject().toString();
         values.put(EventTable.COLUMN_JSON, json);
-        values.put(COLUMN_SIZE, json.length());
+        values.put(COLUMN_SIZE, getUtf8Length(json));
         return values;
     }
 
@@ -112,6 +114,17 @@ public class PinpointDBUtil {
         return pinpointDBBase.delete(getEventUri(id), null, null, size);
     }
 
+    /**
+     * Deletes the events with the given ids in a single transaction.
+     *
+     * @param idsAndSizes The ids of the events to be deleted, with their known
+     *            size or null.
+     * @return Number of rows deleted.
+     */
+    public int deleteEvents(final Map<Integer, Integer> idsAndSizes) {
+        return pinpointDBBase.deleteByIds(idsAndSizes);
+    }
+
     /**
      * Gets the Uri of the event table.
      *
@@ -134,4 +147,30 @@ public class PinpointDBUtil {
     public long getTotalSize() {
         return pinpointDBBase.getTotalSize();
     }
+
+    /**
+     * Gets the size of a string encoded in UTF-8, which is the size stored
+     * for an event.
+     *
+     * @param value The string.
+     * @return Size in bytes.
+     */
+    static int getUtf8Length(final String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
 }
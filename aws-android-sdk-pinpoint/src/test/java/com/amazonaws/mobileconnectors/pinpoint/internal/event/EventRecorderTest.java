@@ -19,10 +19,15 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.amazonaws.logging.Log;
 import com.amazonaws.mobileconnectors.pinpoint.targeting.TargetingClient;
 import com.amazonaws.mobileconnectors.pinpoint.targeting.endpointProfile.EndpointProfile;
+import com.amazonaws.services.pinpoint.AmazonPinpoint;
 import com.amazonaws.services.pinpoint.model.BadRequestException;
 import com.amazonaws.services.pinpoint.model.EndpointItemResponse;
 import com.amazonaws.services.pinpoint.model.Event;
@@ -41,9 +46,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.modules.junit4.PowerMockRunnerDelegate;
@@ -55,6 +63,7 @@ import org.robolectric.annotation.Config;
 import com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent;
 import com.amazonaws.mobileconnectors.pinpoint.analytics.utils.AnalyticsContextBuilder;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.PinpointContext;
+import com.amazonaws.mobileconnectors.pinpoint.internal.core.configuration.AndroidPreferencesConfiguration;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.system.MockAppDetails;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.system.MockDeviceDetails;
 import com.amazonaws.services.pinpointanalytics.AmazonPinpointAnalyticsClient;
@@ -62,11 +71,19 @@ import android.database.Cursor;
 import android.net.Uri;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -96,7 +113,12 @@ public class EventRecorderTest {
     AmazonPinpointAnalyticsClient mockAnalyticsService;
     @Mock
     ExecutorService submissionRunnable;
+    @Mock
+    ScheduledExecutorService retryScheduler;
     private PinpointDBUtil dbUtil;
+    private EventDeliveryEngine deliveryEngine;
+    /** Events accepted by {@link #acceptAllEvents()}. */
+    private final AtomicInteger acceptedEvents = new AtomicInteger();
 
     @Before
     public void setup() {
@@ -122,6 +144,11 @@ public class EventRecorderTest {
                                             .getApplicationContext());
         eventRecorder = new EventRecorder(mockContext, dbUtil,
                                                  submissionRunnable);
+        deliveryEngine = new EventDeliveryEngine(eventRecorder, dbUtil, mockContext, retryScheduler);
+        configureDelivery(EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE,
+                          EventRecorder.DEFAULT_MAX_SUBMISSIONS_ALLOWED,
+                          EventDeliveryEngine.DEFAULT_MAX_IN_FLIGHT_SUBMISSIONS,
+                          EventDeliveryEngine.DEFAULT_DRAIN_WATERMARK);
     }
 
     @After
@@ -208,9 +235,10 @@ public class EventRecorderTest {
         when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class))).thenThrow(badRequestException);
         //before processing events
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
-        eventRecorder.processEvents();
+        drainEvents();
         //not retryable, removed from db.
         assertTrue(dbUtil.queryAllEvents().getCount() == 0);
+        verify(retryScheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
     }
 
     @Test
@@ -220,7 +248,7 @@ public class EventRecorderTest {
         attrValues.add("TestValue");
         mockContext.getTargetingClient().addAttribute("Test", attrValues);
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
-        eventRecorder.processEvents();
+        drainEvents();
         //should not delete any events since endpoint profile is null.
         //putEvents API only accept request with endpoint profile.
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
@@ -249,7 +277,7 @@ public class EventRecorderTest {
         when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class))).thenReturn(putEventsResult);
         //before processing events
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
-        eventRecorder.processEvents();
+        drainEvents();
         //putEvents API only accept request with endpoint profile.
         assertTrue(dbUtil.queryAllEvents().getCount() == 0);
     }
@@ -276,9 +304,11 @@ public class EventRecorderTest {
         when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class))).thenReturn(putEventsResult);
         //before processing events
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
-        eventRecorder.processEvents();
+        drainEvents();
         //retryable, not removed from db.
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
+        verify(retryScheduler).schedule(any(Runnable.class),
+                                        eq(EventDeliveryEngine.INITIAL_BACKOFF_MILLIS), eq(TimeUnit.MILLISECONDS));
     }
 
     @Test
@@ -303,7 +333,7 @@ public class EventRecorderTest {
         when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class))).thenReturn(putEventsResult);
         //before processing events
         assertTrue(dbUtil.queryAllEvents().getCount() == 1);
-        eventRecorder.processEvents();
+        drainEvents();
         //not retryable, removed from db.
         assertTrue(dbUtil.queryAllEvents().getCount() == 0);
     }
@@ -332,4 +362,227 @@ public class EventRecorderTest {
         }
         assertTrue(dbUtil.getTotalSize() == 0);
     }
+
+    @Test
+    public void testBatchesArePackedBySize() {
+        for (int i = 0; i < 10; i++) {
+            dbUtil.saveEvent(newEvent());
+        }
+        final long maxBatchSize = 3 * largestEventSize();
+        final EventBatchBuilder batchBuilder = new EventBatchBuilder(eventRecorder, maxBatchSize);
+        final Cursor cursor = dbUtil.queryAllEvents();
+        assertTrue(cursor.moveToFirst());
+        final int[] expectedBatches = {3, 3, 3, 1};
+        long totalSize = 0;
+        for (final int expected : expectedBatches) {
+            assertFalse(cursor.isAfterLast());
+            final EventBatchBuilder.Batch batch = batchBuilder.next(cursor);
+            assertEquals(expected, batch.events.size());
+            assertEquals(expected, batch.idsAndSizeToDelete.size());
+            assertTrue(batch.size <= maxBatchSize);
+            totalSize += batch.size;
+        }
+        assertTrue(cursor.isAfterLast());
+        assertEquals(dbUtil.getTotalSize(), totalSize);
+        cursor.close();
+    }
+
+    @Test
+    public void testProcessEventWithAPIRetryableError() {
+        InternalServerErrorException internalServerErrorException = new InternalServerErrorException("InternalServerErrorException");
+        internalServerErrorException.setErrorCode("InternalServerErrorException");
+        eventRecorder.recordEvent(analyticsEvent);
+        when(mockContext.getTargetingClient().currentEndpoint()).thenReturn(endpointProfile);
+        when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class))).thenThrow(internalServerErrorException);
+        assertTrue(dbUtil.queryAllEvents().getCount() == 1);
+        drainEvents();
+        //retryable, not removed from db.
+        assertTrue(dbUtil.queryAllEvents().getCount() == 1);
+        verify(retryScheduler).schedule(any(Runnable.class),
+                                        eq(EventDeliveryEngine.INITIAL_BACKOFF_MILLIS), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDeliveryDrainsBacklogAboveWatermark() {
+        for (int i = 0; i < 2000; i++) {
+            dbUtil.saveEvent(newEvent());
+        }
+        acceptAllEvents();
+        assertTrue(deliveryEngine.request());
+        // a request while the delivery is scheduled doesn't start another one
+        assertFalse(deliveryEngine.request());
+        deliveryEngine.drain();
+        // more than maxSubmissionAllowed requests are sent until the backlog is under the watermark
+        assertTrue(dbUtil.getTotalSize() <= EventDeliveryEngine.DEFAULT_DRAIN_WATERMARK);
+        assertTrue(deliveryEngine.request());
+    }
+
+    @Test
+    public void testConcurrentBatchesRetryAfterBackoff() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            dbUtil.saveEvent(newEvent());
+        }
+        // two batches of two events, sent at once
+        configureDelivery(2 * largestEventSize(), EventRecorder.DEFAULT_MAX_SUBMISSIONS_ALLOWED, 2, 0);
+        acceptAllEvents();
+        final CyclicBarrier bothInFlight = new CyclicBarrier(2);
+        final AtomicInteger requests = new AtomicInteger();
+        final Answer<PutEventsResult> accept = acceptingAnswer();
+        final AmazonPinpoint pinpointClient = mockContext.getPinpointServiceClient();
+        doAnswer(new Answer<PutEventsResult>() {
+            @Override
+            public PutEventsResult answer(InvocationOnMock invocation) throws Throwable {
+                final int request = requests.incrementAndGet();
+                if (request <= 2) {
+                    bothInFlight.await(5, TimeUnit.SECONDS);
+                }
+                if (request == 1) {
+                    final InternalServerErrorException throttled = new InternalServerErrorException("Throttled");
+                    throttled.setErrorCode("ThrottlingException");
+                    throw throttled;
+                }
+                return accept.answer(invocation);
+            }
+        }).when(pinpointClient).putEvents(any(PutEventsRequest.class));
+
+        drainEvents();
+        // the throttled batch is kept, and retried after backing off
+        assertEquals(2, dbUtil.queryAllEvents().getCount());
+        assertEquals(2, acceptedEvents.get());
+        final ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(retryScheduler).schedule(retry.capture(),
+                                        eq(EventDeliveryEngine.INITIAL_BACKOFF_MILLIS), eq(TimeUnit.MILLISECONDS));
+        // the drain stays scheduled until the retry runs
+        assertFalse(deliveryEngine.request());
+
+        retry.getValue().run();
+        assertEquals(0, dbUtil.queryAllEvents().getCount());
+        assertEquals(4, acceptedEvents.get());
+        assertEquals(3, requests.get());
+        assertTrue(deliveryEngine.request());
+    }
+
+    @Test
+    public void testDeliveryResumesAfterFailedDrain() {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(submissionRunnable).execute(any(Runnable.class));
+        acceptAllEvents();
+        when(mockContext.getTargetingClient().currentEndpoint())
+            .thenThrow(new IllegalStateException("endpoint unavailable"))
+            .thenReturn(endpointProfile);
+        eventRecorder.recordEvent(analyticsEvent);
+
+        try {
+            eventRecorder.submitEvents();
+            fail("the first delivery should fail");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, dbUtil.queryAllEvents().getCount());
+
+        // the failed drain doesn't keep later submissions from delivering
+        eventRecorder.submitEvents();
+        assertEquals(0, dbUtil.queryAllEvents().getCount());
+    }
+
+    @Test
+    public void testDrainEventsPerformance() {
+        final int events = 50000;
+        for (int i = 0; i < events; i++) {
+            dbUtil.saveEvent(newEvent());
+        }
+        acceptAllEvents();
+        // delivers everything in one drain
+        configureDelivery(EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE,
+                          EventRecorder.DEFAULT_MAX_SUBMISSIONS_ALLOWED,
+                          EventDeliveryEngine.DEFAULT_MAX_IN_FLIGHT_SUBMISSIONS, 0);
+
+        final long start = System.currentTimeMillis();
+        drainEvents();
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.println("drain " + events + " events elapsed: " + elapsed + "ms");
+        assertEquals(events, acceptedEvents.get());
+        assertEquals(0, dbUtil.queryAllEvents().getCount());
+    }
+
+    /**
+     * Delivers the stored events with {@link #deliveryEngine} on this thread.
+     */
+    private void drainEvents() {
+        assertTrue(deliveryEngine.request());
+        deliveryEngine.drain();
+    }
+
+    private void configureDelivery(final long maxSubmissionSize, final int maxSubmissions,
+                                   final int maxInFlight, final long watermark) {
+        final AndroidPreferencesConfiguration configuration = mockContext.getConfiguration();
+        when(configuration.optLong(eq(EventRecorder.KEY_MAX_SUBMISSION_SIZE), anyLong()))
+            .thenReturn(maxSubmissionSize);
+        when(configuration.optInt(eq(EventRecorder.KEY_MAX_SUBMISSIONS_ALLOWED), anyInt()))
+            .thenReturn(maxSubmissions);
+        when(configuration.optInt(eq(EventDeliveryEngine.KEY_MAX_IN_FLIGHT_SUBMISSIONS), anyInt()))
+            .thenReturn(maxInFlight);
+        when(configuration.optLong(eq(EventDeliveryEngine.KEY_DRAIN_WATERMARK), anyLong()))
+            .thenReturn(watermark);
+    }
+
+    private void acceptAllEvents() {
+        when(mockContext.getTargetingClient().currentEndpoint()).thenReturn(endpointProfile);
+        when(mockContext.getPinpointServiceClient().putEvents(any(PutEventsRequest.class)))
+            .thenAnswer(acceptingAnswer());
+    }
+
+    /**
+     * Accepts every event of the request, counting them in
+     * {@link #acceptedEvents}.
+     */
+    private Answer<PutEventsResult> acceptingAnswer() {
+        return new Answer<PutEventsResult>() {
+            @Override
+            public PutEventsResult answer(InvocationOnMock invocation) {
+                final PutEventsRequest request = (PutEventsRequest) invocation.getArguments()[0];
+                final ItemResponse response = new ItemResponse()
+                    .withEndpointItemResponse(new EndpointItemResponse().withStatusCode(202).withMessage("Accepted"));
+                for (final String eventId : request.getEventsRequest().getBatchItem()
+                        .get(endpointProfile.getEndpointId()).getEvents().keySet()) {
+                    response.addEventsItemResponseEntry(eventId,
+                        new EventItemResponse().withStatusCode(202).withMessage("Accepted"));
+                    acceptedEvents.incrementAndGet();
+                }
+                return new PutEventsResult().withEventsResponse(
+                    new EventsResponse().addResultsEntry(endpointProfile.getEndpointId(), response));
+            }
+        };
+    }
+
+    /**
+     * Returns the size of the largest stored event. The sizes differ by a few
+     * bytes with the length of the hash code in hex.
+     */
+    private long largestEventSize() {
+        long largest = 0;
+        final Cursor cursor = dbUtil.queryAllEvents();
+        while (cursor.moveToNext()) {
+            largest = Math.max(largest, cursor.getInt(EventTable.COLUMN_INDEX.SIZE.getValue()));
+        }
+        cursor.close();
+        return largest;
+    }
+
+    private AnalyticsEvent newEvent() {
+        final AnalyticsEvent event = AnalyticsEvent.newInstance(mockContext, SESSION_ID,
+                                                                SESSION_START,
+                                                                SESSION_END,
+                                                                SESSION_DURATION,
+                                                                TIME_STAMP,
+                                                                EVENT_NAME);
+        event.addAttribute("key1", "value1");
+        return event;
+    }
 }
@@ -27,12 +27,17 @@ import com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent;
 import com.amazonaws.mobileconnectors.pinpoint.analytics.utils.AnalyticsContextBuilder;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.PinpointContext;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.system.MockDeviceDetails;
+import com.amazonaws.util.StringUtils;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk=23)
@@ -156,4 +161,35 @@ public class PinpointDBUtilTest {
         assertEquals(c2.getCount(), 0);
         c2.close();
     }
+
+    @Test
+    public void testDeleteEvents() {
+        AnalyticsEvent analyticsEvent = AnalyticsEvent.newInstance(mockContext,
+                                                                          SESSION_ID,
+                                                                          SESSION_START,
+                                                                          SESSION_END,
+                                                                          SESSION_DURATION,
+                                                                          TIME_STAMP,
+                                                                          EVENT_NAME);
+        analyticsEvent.addAttribute("key", "\u00e9\u20ac");
+        final Map<Integer, Integer> idsAndSizes = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 1200; i++) {
+            Uri uri = dbUtil.saveEvent(analyticsEvent);
+            idsAndSizes.put(Integer.parseInt(uri.getLastPathSegment()), null);
+        }
+        Uri kept = dbUtil.saveEvent(analyticsEvent);
+        final long eventSize = dbUtil.getTotalSize() / 1201;
+        assertEquals(analyticsEvent.toJSONObject().toString().getBytes(StringUtils.UTF8).length, eventSize);
+        for (Integer id : idsAndSizes.keySet()) {
+            idsAndSizes.put(id, (int) eventSize);
+        }
+
+        assertEquals(1200, dbUtil.deleteEvents(idsAndSizes));
+        Cursor c = dbUtil.queryAllEvents();
+        assertEquals(c.getCount(), 1);
+        assertTrue(c.moveToNext());
+        assertEquals(Integer.parseInt(kept.getLastPathSegment()), c.getInt(EventTable.COLUMN_INDEX.ID.getValue()));
+        c.close();
+        assertEquals(eventSize, dbUtil.getTotalSize());
+    }
 }
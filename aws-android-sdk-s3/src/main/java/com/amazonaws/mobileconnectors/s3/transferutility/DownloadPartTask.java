@@ -0,0 +1,180 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads the byte range of a part of a multipart download and writes it to
+ * the file at the same offset.
+ */
+class DownloadPartTask implements Callable<Boolean> {
+    private static final Log LOGGER = LogFactory.getLog(DownloadPartTask.class);
+    private static final int SIXTEEN_KB = 1024 * 16;
+
+    private final TransferRecord part;
+    private final String eTag;
+    private final AmazonS3 s3;
+    private final TransferDBUtil dbUtil;
+    private final ProgressListener progressListener;
+
+    /**
+     * @param part the part record with the byte range to download
+     * @param eTag the ETag of the object when the download started, or null
+     * @param s3 Low-level S3 client
+     * @param dbUtil database util
+     * @param progressListener listener of the progress of the main download
+     */
+    public DownloadPartTask(TransferRecord part,
+                            String eTag,
+                            AmazonS3 s3,
+                            TransferDBUtil dbUtil,
+                            ProgressListener progressListener) {
+        this.part = part;
+        this.eTag = eTag;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+        this.progressListener = progressListener;
+    }
+
+    /*
+     * Runs part download task and returns whether successfully downloaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        final GetObjectRequest request = new GetObjectRequest(part.bucketName, part.key);
+        request.setRange(part.rangeStart, part.rangeLast);
+        if (eTag != null) {
+            // parts of an object that has changed must not be mixed
+            request.setMatchingETagConstraints(Collections.singletonList(eTag));
+        }
+        TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+        request.setGeneralProgressListener(progressListener);
+
+        try {
+            final S3Object object = s3.getObject(request);
+            if (object == null) {
+                throw new AmazonClientException("The object has changed since download "
+                        + part.mainUploadId + " started");
+            }
+            writeToFile(object.getObjectContent(), new File(part.file), part.rangeStart,
+                    part.bytesTotal);
+            dbUtil.updateState(part.id, TransferState.PART_COMPLETED);
+            return true;
+        } catch (final Exception e) {
+            // Check if network is not connected, set the state to WAITING_FOR_NETWORK.
+            try {
+                if (TransferNetworkLossHandler.getInstance() != null &&
+                    !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                    LOGGER.info("Thread: [" + Thread.currentThread().getId() + "]: Network wasn't available.");
+                    dbUtil.updateState(part.id, TransferState.WAITING_FOR_NETWORK);
+                    LOGGER.debug("Network Connection Interrupted: " +
+                            "Moving the TransferState to WAITING_FOR_NETWORK");
+                    return false;
+                }
+            } catch (TransferUtilityException transferUtilityException) {
+                LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+            }
+
+            // If the thread that is executing the transfer is interrupted
+            // because of a user initiated pause, do not throw exception or
+            // set the state to FAILED. An interrupt while writing closes the
+            // file channel.
+            if (RetryUtils.isInterrupted(e)
+                    || e.getCause() instanceof ClosedByInterruptException) {
+                LOGGER.error("Download part interrupted: " + e.getMessage());
+                return false;
+            }
+
+            // In other cases, set the transfer state to FAILED.
+            dbUtil.updateState(part.id, TransferState.FAILED);
+            LOGGER.error("Encountered error downloading part ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the stream data into the file at the given position. The data is
+     * forced to the storage device before the part is marked as completed.
+     *
+     * @param is     input stream
+     * @param file   file to be written
+     * @param offset position of the first byte in the file
+     * @param length number of bytes expected from the stream
+     */
+    private void writeToFile(InputStream is, File file, long offset, long length) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            final FileChannel channel = raf.getChannel();
+            final byte[] buffer = new byte[SIXTEEN_KB];
+            long position = offset;
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+            if (position - offset != length) {
+                throw new IOException("Expected " + length + " bytes of part "
+                        + part.partNumber + " but got " + (position - offset));
+            }
+            channel.force(false);
+        } catch (final SocketTimeoutException socketTimeoutException) {
+            String errorString = "SocketTimeoutException: Unable to retrieve contents over network: "
+                    + socketTimeoutException.getMessage();
+            LOGGER.error(errorString);
+            throw new AmazonClientException(errorString, socketTimeoutException);
+        } catch (final IOException e) {
+            throw new AmazonClientException("Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+            try {
+                if (is != null) {
+                    is.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+}
@@ -18,7 +18,9 @@ package com.amazonaws.mobileconnectors.s3.transferutility;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 
 import com.amazonaws.logging.Log;
@@ -30,12 +32,22 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Performs download operation and returns a Boolean value indicating whether
  * the file has been downloaded successfully.
+ *
+ * A multipart download is split into byte ranges, which are downloaded in
+ * parallel and written to the file at their offsets. Completed ranges are
+ * recorded in the database, so a resumed download only fetches the missing
+ * ones.
  */
 class DownloadTask implements Callable<Boolean> {
 
@@ -44,6 +56,7 @@ class DownloadTask implements Callable<Boolean> {
 
     private final AmazonS3 s3;
     private final TransferRecord download;
+    private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
 
     /**
@@ -52,11 +65,16 @@ class DownloadTask implements Callable<Boolean> {
      * @param download A TransferRecord object storing all the information of the
      *                 download
      * @param s3       Low-level S3 client
+     * @param dbUtil   database util
      * @param updater  status updater
      */
-    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferStatusUpdater updater) {
+    public DownloadTask(TransferRecord download,
+                        AmazonS3 s3,
+                        TransferDBUtil dbUtil,
+                        TransferStatusUpdater updater) {
         this.download = download;
         this.s3 = s3;
+        this.dbUtil = dbUtil;
         this.updater = updater;
     }
 
@@ -77,6 +95,9 @@ class DownloadTask implements Callable<Boolean> {
         }
 
         updater.updateState(download.id, TransferState.IN_PROGRESS);
+        if (download.isMultipart == 1) {
+            return downloadMultipartAndWaitForCompletion();
+        }
 
         final GetObjectRequest getObjectRequest = new GetObjectRequest(download.bucketName, download.key);
         TransferUtility.appendTransferServiceUserAgentString(getObjectRequest);
@@ -107,38 +128,196 @@ class DownloadTask implements Callable<Boolean> {
             updater.updateState(download.id, TransferState.COMPLETED);
             return true;
         } catch (final Exception e) {
-            // Check if network is not connected, set the state to WAITING_FOR_NETWORK.
-            try {
-                if (TransferNetworkLossHandler.getInstance() != null && 
-                    !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
-                    LOGGER.info("Thread:[" + Thread.currentThread().getId() + "]: Network wasn't available.");
-                    /*
-                     * Network connection is being interrupted. Moving the TransferState to
-                     * WAITING_FOR_NETWORK till the network availability resumes.
-                     */
+            return handleDownloadException(e);
+        }
+    }
+
+    private Boolean downloadMultipartAndWaitForCompletion() {
+        final File file = new File(download.file);
+        List<TransferRecord> parts;
+        try {
+            parts = dbUtil.getDownloadPartRecordsFromDB(download.id);
+            if (parts.isEmpty()) {
+                /*
+                 * The object hasn't been split into parts yet. Its size and
+                 * ETag are fetched first, then a record is created for the
+                 * byte range of each part.
+                 */
+                final GetObjectMetadataRequest metadataRequest = new GetObjectMetadataRequest(
+                        download.bucketName, download.key);
+                TransferUtility.appendMultipartTransferServiceUserAgentString(metadataRequest);
+                final ObjectMetadata metadata = s3.getObjectMetadata(metadataRequest);
+                final long bytesTotal = metadata.getContentLength();
+                createFile(file, bytesTotal);
+                if (bytesTotal == 0) {
+                    updater.updateProgress(download.id, 0, 0);
+                    updater.updateState(download.id, TransferState.COMPLETED);
+                    return true;
+                }
+                download.eTag = metadata.getETag();
+                dbUtil.updateETag(download.id, download.eTag);
+                dbUtil.updateBytesTotalForDownload(download.id, bytesTotal);
+                dbUtil.insertDownloadPartRecords(download.id, download.bucketName, download.key,
+                        file, bytesTotal, TransferScheduler.getPartSize(bytesTotal));
+                parts = dbUtil.getDownloadPartRecordsFromDB(download.id);
+            }
+        } catch (final Exception e) {
+            return handleDownloadException(e);
+        }
+
+        long bytesTotal = 0;
+        long bytesAlreadyTransferred = 0;
+        final List<TransferRecord> remainingParts = new ArrayList<TransferRecord>();
+        for (final TransferRecord part : parts) {
+            bytesTotal += part.bytesTotal;
+            if (TransferState.PART_COMPLETED.equals(part.state)) {
+                bytesAlreadyTransferred += part.bytesTotal;
+            } else {
+                remainingParts.add(part);
+            }
+        }
+        if (bytesAlreadyTransferred > 0) {
+            LOGGER.debug(String.format("Resume transfer %d from %d bytes",
+                    download.id, bytesAlreadyTransferred));
+        }
+        updater.updateProgress(download.id, bytesAlreadyTransferred, bytesTotal);
+
+        LOGGER.info("Multipart download " + download.id + " in " + remainingParts.size()
+                + " parts.");
+        final ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        final TransferScheduler scheduler = new TransferScheduler();
+
+        try {
+            for (final TransferRecord part : remainingParts) {
+                if (scheduler.hasFailedPart()) {
+                    break;
+                }
+                futures.add(scheduler.submitPart(new DownloadPartTask(part, download.eTag,
+                        s3, dbUtil, updater.newProgressListener(download.id)), part.bytesTotal));
+            }
+
+            boolean isSuccess = true;
+            for (final Future<Boolean> f : futures) {
+                // DownloadPartTask returns false when it's interrupted by user
+                // and the state is set by caller
+                final boolean b = f.get();
+                isSuccess &= b;
+            }
+            if (!isSuccess) {
+                // Set the TransferState to WAITING_FOR_NETWORK if the individual parts
+                // were waiting for network
+                if (dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id)) {
+                    LOGGER.debug("Network Connection Interrupted: Transfer " + download.id
+                            + " waits for network");
                     updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
-                    LOGGER.debug("Network Connection Interrupted: " + "Moving the TransferState to WAITING_FOR_NETWORK");
-                    return false;
                 }
-            } catch (TransferUtilityException transferUtilityException) {
-                LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+                return false;
+            }
+        } catch (final InterruptedException e) {
+            /*
+             * Future.get() will catch InterruptedException, but it's not a
+             * failure, it may be caused by a pause operation from applications.
+             */
+            for (final Future<?> f : futures) {
+                f.cancel(true);
+            }
+            if (TransferState.PAUSED.equals(download.state)) {
+                LOGGER.debug("Transfer " + download.id + " is interrupted by user");
+                return false;
+            }
+            LOGGER.error("Error encountered during multipart download: " + download.id
+                    + " due to " + e.getMessage(), e);
+            updater.updateState(download.id, TransferState.FAILED);
+            updater.throwError(download.id, e);
+            return false;
+        } catch (final ExecutionException ee) {
+            for (final Future<?> f : futures) {
+                f.cancel(true);
             }
+            if (dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id)) {
+                LOGGER.debug("Network Connection Interrupted: Transfer " + download.id
+                        + " waits for network");
+                updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                return false;
+            }
+            return handleDownloadException((Exception) ee.getCause());
+        }
 
-            // If the thread that is executing the transfer is interrupted
-            // because of a user initiated pause, do not throw exception or
-            // set the state to FAILED.
-            if (RetryUtils.isInterrupted(e) && 
-                TransferState.PAUSED.equals(download.state)) {
-                LOGGER.error("Download interrupted: " + e.getMessage());
+        updater.updateProgress(download.id, bytesTotal, bytesTotal);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
+    }
+
+    /**
+     * Creates the file to download to with its final size, so that parts can
+     * be written at their offsets in any order.
+     *
+     * @param file   file to be created
+     * @param length size of the file
+     */
+    private static void createFile(File file, long length) {
+        // attempt to create the parent if it doesn't exist
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            parentDirectory.mkdirs();
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+        } catch (final IOException e) {
+            throw new AmazonClientException("Unable to create file: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+
+    /**
+     * Handles a failed download, unless it's caused by network loss or a user
+     * initiated pause.
+     *
+     * @param e the cause of the failure
+     * @return false
+     */
+    private Boolean handleDownloadException(Exception e) {
+        // Check if network is not connected, set the state to WAITING_FOR_NETWORK.
+        try {
+            if (TransferNetworkLossHandler.getInstance() != null && 
+                !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                LOGGER.info("Thread:[" + Thread.currentThread().getId() + "]: Network wasn't available.");
+                /*
+                 * Network connection is being interrupted. Moving the TransferState to
+                 * WAITING_FOR_NETWORK till the network availability resumes.
+                 */
+                updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+                LOGGER.debug("Network Connection Interrupted: " + "Moving the TransferState to WAITING_FOR_NETWORK");
                 return false;
             }
+        } catch (TransferUtilityException transferUtilityException) {
+            LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+        }
 
-            // In other cases, set the transfer state to FAILED.
-            LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
-            updater.throwError(download.id, e);
-            updater.updateState(download.id, TransferState.FAILED);
+        // If the thread that is executing the transfer is interrupted
+        // because of a user initiated pause, do not throw exception or
+        // set the state to FAILED.
+        if (RetryUtils.isInterrupted(e) && 
+            TransferState.PAUSED.equals(download.state)) {
+            LOGGER.error("Download interrupted: " + e.getMessage());
             return false;
         }
+
+        // In other cases, set the transfer state to FAILED.
+        LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
+        updater.throwError(download.id, e);
+        updater.updateState(download.id, TransferState.FAILED);
+        return false;
     }
 
     /**
@@ -27,6 +27,8 @@ import android.text.TextUtils;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
+import java.util.Map;
+
 /**
  * Provides methods to access database through which applications can interact
  * with transfer tasks.
@@ -203,6 +205,28 @@ class TransferDBBase {
         return rowsUpdated;
     }
 
+    /**
+     * Updates several records in one transaction.
+     *
+     * @param valuesById The values to update, keyed by the id of the record.
+     * @return Number of rows updated.
+     */
+    public synchronized int bulkUpdate(Map<Integer, ContentValues> valuesById) {
+        int rowsUpdated = 0;
+        ensureDatabaseOpen();
+        database.beginTransaction();
+        try {
+            for (final Map.Entry<Integer, ContentValues> entry : valuesById.entrySet()) {
+                rowsUpdated += database.update(TransferTable.TABLE_TRANSFER, entry.getValue(),
+                        TransferTable.COLUMN_ID + "=" + entry.getKey(), null);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return rowsUpdated;
+    }
+
     /**
      * Deletes a record in the table.
      *
@@ -269,6 +293,26 @@ class TransferDBBase {
         return mainUploadId;
     }
 
+    /**
+     * Inserts records in one transaction. Unlike
+     * {@link #bulkInsert(Uri, ContentValues[])}, none of the records is a main
+     * record, and a failure is thrown after rolling back the transaction.
+     *
+     * @param valuesArray A array of values to insert.
+     */
+    public void bulkInsertParts(ContentValues[] valuesArray) {
+        ensureDatabaseOpen();
+        database.beginTransaction();
+        try {
+            for (final ContentValues values : valuesArray) {
+                database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, values);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
     private void ensureDatabaseOpen() {
         // close and reopen database.
         synchronized (LOCK) {
@@ -31,7 +31,9 @@ import com.amazonaws.logging.LogFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides methods to conveniently perform database operations.
@@ -145,6 +147,61 @@ class TransferDBUtil {
                 new ObjectMetadata());
     }
 
+    /**
+     * Inserts a download record into database that is downloaded in parts.
+     * The part records are inserted once the size of the object is known.
+     *
+     * @param bucket The name of the bucket to download from.
+     * @param key The key of the object to download.
+     * @param file The file to download to.
+     * @return An Uri of the record inserted.
+     */
+    public Uri insertMultipartDownloadRecord(String bucket, String key, File file) {
+        final ContentValues values = generateContentValuesForSinglePartTransfer(
+                TransferType.DOWNLOAD, bucket, key, file, new ObjectMetadata(), null);
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        return transferDBBase.insert(transferDBBase.getContentUri(), values);
+    }
+
+    /**
+     * Inserts the part records of a multipart download, one per byte range of
+     * the object. The records are inserted in one transaction.
+     *
+     * @param mainDownloadId The id of the download record.
+     * @param bucket The name of the bucket to download from.
+     * @param key The key of the object to download.
+     * @param file The file to download to.
+     * @param objectSize The size of the object in bytes.
+     * @param partSize The size of a part in bytes.
+     */
+    public void insertDownloadPartRecords(int mainDownloadId, String bucket, String key,
+            File file, long objectSize, long partSize) {
+        final int partCount = (int) Math.ceil((double) objectSize / (double) partSize);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        long rangeStart = 0;
+        for (int i = 0; i < partCount; i++) {
+            final long bytesForPart = Math.min(partSize, objectSize - rangeStart);
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainDownloadId);
+            values.put(TransferTable.COLUMN_TYPE, TransferType.DOWNLOAD.toString());
+            values.put(TransferTable.COLUMN_STATE, TransferState.WAITING.toString());
+            values.put(TransferTable.COLUMN_BUCKET_NAME, bucket);
+            values.put(TransferTable.COLUMN_KEY, key);
+            values.put(TransferTable.COLUMN_FILE, file.getAbsolutePath());
+            values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+            values.put(TransferTable.COLUMN_BYTES_TOTAL, bytesForPart);
+            values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+            values.put(TransferTable.COLUMN_PART_NUM, i + 1);
+            values.put(TransferTable.COLUMN_IS_LAST_PART, i == partCount - 1 ? 1 : 0);
+            values.put(TransferTable.COLUMN_IS_ENCRYPTED, 0);
+            values.put(TransferTable.COLUMN_DATA_RANGE_START, rangeStart);
+            values.put(TransferTable.COLUMN_DATA_RANGE_LAST, rangeStart + bytesForPart - 1);
+            valuesArray[i] = values;
+            rangeStart += bytesForPart;
+        }
+        transferDBBase.bulkInsertParts(valuesArray);
+    }
+
     /**
      * Inserts multiple records at a time.
      *
@@ -184,6 +241,23 @@ class TransferDBUtil {
         return transferDBBase.update(getRecordUri(id), values, null, null);
     }
 
+    /**
+     * Updates the current bytes of several transfer records in one
+     * transaction.
+     *
+     * @param bytesById The bytes currently transferred, keyed by transfer id
+     * @return Number of rows updated.
+     */
+    public int updateBytesTransferred(Map<Integer, Long> bytesById) {
+        final Map<Integer, ContentValues> valuesById = new HashMap<Integer, ContentValues>();
+        for (final Map.Entry<Integer, Long> entry : bytesById.entrySet()) {
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_BYTES_CURRENT, entry.getValue());
+            valuesById.put(entry.getKey(), values);
+        }
+        return transferDBBase.bulkUpdate(valuesById);
+    }
+
     /**
      * Updates the total bytes of a download record.
      *
@@ -508,13 +582,33 @@ class TransferDBUtil {
     }
 
     /**
-     * Deletes the record with the given id.
+     * Deletes the record with the given id, and the part records of the
+     * transfer if it's a multipart upload or download.
      *
      * @param id The id of the transfer to be deleted.
      * @return Number of rows deleted.
      */
     public int deleteTransferRecords(int id) {
-        return transferDBBase.delete(getRecordUri(id), null, null);
+        final String transferId = String.valueOf(id);
+        return transferDBBase.delete(transferDBBase.getContentUri(),
+                TransferTable.COLUMN_ID + "=? OR " + TransferTable.COLUMN_MAIN_UPLOAD_ID + "=?",
+                new String[] {
+                        transferId, transferId
+                });
+    }
+
+    /**
+     * Deletes the part records of a multipart upload or download, keeping its
+     * main record.
+     *
+     * @param mainTransferId The id of the main record of the transfer.
+     * @return Number of rows deleted.
+     */
+    public int deletePartRecords(int mainTransferId) {
+        return transferDBBase.delete(transferDBBase.getContentUri(),
+                TransferTable.COLUMN_MAIN_UPLOAD_ID + "=?", new String[] {
+                    String.valueOf(mainTransferId)
+                });
     }
 
     /**
@@ -596,6 +690,33 @@ class TransferDBUtil {
         return list;
     }
 
+    /**
+     * Queries the part records of a multipart download, in the order of their
+     * byte ranges.
+     *
+     * @param mainDownloadId The id of the download record.
+     * @return A list of the part records, empty if there is none yet
+     */
+    public List<TransferRecord> getDownloadPartRecordsFromDB(int mainDownloadId) {
+        final List<TransferRecord> list = new ArrayList<TransferRecord>();
+        Cursor c = null;
+        try {
+            c = transferDBBase.query(getPartUri(mainDownloadId), null, null, null,
+                    TransferTable.COLUMN_PART_NUM);
+            while (c.moveToNext()) {
+                final TransferRecord part = new TransferRecord(
+                        c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_ID)));
+                part.updateFromDB(c);
+                list.add(part);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return list;
+    }
+
     /**
      * Queries waiting for network partUpload tasks of a multipart upload and returns
      * true if one such partUpload tasks
@@ -166,7 +166,7 @@ class TransferRecord {
         if (!isRunning() && checkIsReadyToRun()) {
             if (type.equals(TransferType.DOWNLOAD)) {
                 submittedTask = TransferThreadPool
-                        .submitTask(new DownloadTask(this, s3, updater));
+                        .submitTask(new DownloadTask(this, s3, dbUtil, updater));
             } else {
                 submittedTask = TransferThreadPool
                         .submitTask(new UploadTask(this, s3, dbUtil, updater));
@@ -210,7 +210,7 @@ class TransferRecord {
                 submittedTask.cancel(true);
             }
             // additional cleanups
-            if (isMultipart == 1) {
+            if (isMultipart == 1 && TransferType.UPLOAD.equals(type)) {
                 new Thread(new Runnable() {
                     @Override
                     public void run() {
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static com.amazonaws.services.s3.internal.Constants.GB;
+import static com.amazonaws.services.s3.internal.Constants.KB;
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schedules the parts of a multipart transfer. The size of the parts is picked
+ * from the size of the object. The number of parts in flight starts small and
+ * is adjusted from the measured throughput and failures of the parts. All
+ * transfers share a budget of bytes in flight, which is handed out in order of
+ * request, so the parts of a large transfer can't starve a small one.
+ */
+class TransferScheduler {
+    private static final Log LOGGER = LogFactory.getLog(TransferScheduler.class);
+
+    /**
+     * The minimum size of a part, except the last one, allowed by S3.
+     */
+    static final long MINIMUM_PART_SIZE = TransferUtility.MINIMUM_UPLOAD_PART_SIZE;
+    /**
+     * The maximum size of a part allowed by S3.
+     */
+    static final long MAXIMUM_PART_SIZE = 5 * GB;
+    /**
+     * Objects are split into about this many parts, unless the parts would be
+     * smaller than the minimum. Fewer, larger parts of large objects save
+     * requests and database records, while staying well under the limit of
+     * {@link com.amazonaws.services.s3.internal.Constants#MAXIMUM_UPLOAD_PARTS}.
+     */
+    private static final int TARGET_PART_COUNT = 1000;
+    /**
+     * Part sizes are rounded up to a multiple of this.
+     */
+    private static final long PART_SIZE_ALIGNMENT = MB;
+
+    /**
+     * Bytes of parts in flight across all transfers, in KB.
+     */
+    private static final int BYTE_BUDGET_KB = (int) (8 * MINIMUM_PART_SIZE / KB);
+    private static final Semaphore BYTE_BUDGET = new Semaphore(BYTE_BUDGET_KB, true);
+
+    private static final int INITIAL_CONCURRENCY = 2;
+    /**
+     * Weight of the latest part in the average part throughput.
+     */
+    private static final double THROUGHPUT_WEIGHT = 0.25;
+    /**
+     * A part this much slower than the average indicates congestion.
+     */
+    private static final double SLOW_PART_RATIO = 0.5;
+    /**
+     * A part at least this fast relative to the average allows one more part
+     * in flight.
+     */
+    private static final double FAST_PART_RATIO = 0.8;
+
+    private final int maxConcurrency;
+    private int concurrency = INITIAL_CONCURRENCY;
+    private int partsInFlight;
+    /** Average bytes per nanosecond of a part, 0 until a part completes. **/
+    private double averageThroughput;
+    private boolean failed;
+
+    TransferScheduler() {
+        this(TransferThreadPool.getPartTaskPoolSize());
+    }
+
+    TransferScheduler(int maxConcurrency) {
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+        this.concurrency = Math.min(INITIAL_CONCURRENCY, this.maxConcurrency);
+    }
+
+    /**
+     * Picks the part size of a multipart transfer.
+     *
+     * @param objectSize size of the object in bytes
+     * @return the part size in bytes
+     */
+    static long getPartSize(long objectSize) {
+        long partSize = Math.max(ceilDiv(objectSize, TARGET_PART_COUNT),
+                ceilDiv(objectSize, MAXIMUM_UPLOAD_PARTS));
+        partSize = ceilDiv(partSize, PART_SIZE_ALIGNMENT) * PART_SIZE_ALIGNMENT;
+        return Math.min(Math.max(partSize, MINIMUM_PART_SIZE), MAXIMUM_PART_SIZE);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
+
+    /**
+     * Submits a part task to the part thread pool. It blocks until the number
+     * of parts in flight of this transfer is below its current limit and the
+     * size of the part fits in the shared byte budget.
+     *
+     * @param task a part task, which returns false if it's interrupted or
+     *            waits for network
+     * @param partSize size of the part in bytes
+     * @return the future of the task
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    Future<Boolean> submitPart(final Callable<Boolean> task, final long partSize)
+            throws InterruptedException {
+        synchronized (this) {
+            while (partsInFlight >= concurrency) {
+                wait();
+            }
+            partsInFlight++;
+        }
+        final int budget = (int) Math.min(ceilDiv(partSize, KB), BYTE_BUDGET_KB);
+        try {
+            BYTE_BUDGET.acquire(budget);
+        } catch (final InterruptedException e) {
+            onPartDone(0, 0, false);
+            throw e;
+        }
+
+        // Claimed by whichever comes first: the part running, or the part
+        // being cancelled or discarded before it ran, e.g. when its transfer
+        // is paused. Either way the budget is released exactly once.
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        final Callable<Boolean> part = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                if (!claimed.compareAndSet(false, true)) {
+                    return false;
+                }
+                final long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    final Boolean result = task.call();
+                    success = Boolean.TRUE.equals(result);
+                    return result;
+                } finally {
+                    BYTE_BUDGET.release(budget);
+                    onPartDone(partSize, System.nanoTime() - start, success);
+                }
+            }
+        };
+        return TransferThreadPool.submitPartTask(new FutureTask<Boolean>(part) {
+            @Override
+            protected void done() {
+                if (claimed.compareAndSet(false, true)) {
+                    BYTE_BUDGET.release(budget);
+                    onPartDone(0, 0, false);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the bytes of the shared budget not held by parts, in KB
+     */
+    static int getAvailableBudget() {
+        return BYTE_BUDGET.availablePermits();
+    }
+
+    /**
+     * @return the size of the shared budget, in KB
+     */
+    static int getBudget() {
+        return BYTE_BUDGET_KB;
+    }
+
+    /**
+     * @return true if a part has failed, was interrupted, or waits for
+     *         network, in which case no more parts should be submitted
+     */
+    synchronized boolean hasFailedPart() {
+        return failed;
+    }
+
+    /**
+     * @return the current limit of parts in flight
+     */
+    synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Adjusts the limit of parts in flight after a part is done. A failure
+     * halves it. A part about as fast as the average raises it by one, as
+     * more parts in flight haven't slowed each other down, while a much slower
+     * part lowers it by one.
+     */
+    synchronized void onPartDone(long bytes, long nanos, boolean success) {
+        partsInFlight--;
+        if (!success) {
+            failed = true;
+            concurrency = Math.max(1, concurrency / 2);
+        } else if (nanos > 0) {
+            final double throughput = (double) bytes / nanos;
+            if (averageThroughput == 0) {
+                averageThroughput = throughput;
+            }
+            if (throughput >= averageThroughput * FAST_PART_RATIO) {
+                concurrency = Math.min(maxConcurrency, concurrency + 1);
+            } else if (throughput < averageThroughput * SLOW_PART_RATIO) {
+                concurrency = Math.max(1, concurrency - 1);
+            }
+            averageThroughput += THROUGHPUT_WEIGHT * (throughput - averageThroughput);
+        }
+        LOGGER.debug("Parts in flight: " + partsInFlight + ", limit: " + concurrency);
+        notifyAll();
+    }
+}
@@ -31,7 +31,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class that tracks active transfers. It has a static map that holds weak
@@ -51,6 +60,15 @@ class TransferStatusUpdater {
      * listeners too often.
      */
     private static final int UPDATE_THRESHOLD_MS = 1000;
+    /**
+     * The interval to write the progress of transfers into database in
+     * milliseconds. State changes are written immediately.
+     */
+    private static final int PROGRESS_FLUSH_INTERVAL_MS = 1000;
+    /**
+     * The last notification time of a transfer that hasn't been notified.
+     */
+    private static final long NEVER = -1;
 
     /**
      * A map of listeners.
@@ -62,10 +80,24 @@ class TransferStatusUpdater {
      */
     private final Map<Integer, TransferRecord> transfers;
     /**
-     * A map of transfer to its last update time to prevent events from being
-     * fired too often.
+     * A map of transfer to its progress. Progress is updated without locking
+     * and written into database in batches.
      */
-    private final Map<Integer, Long> lastUpdateTime;
+    private final ConcurrentMap<Integer, Progress> progress;
+    /**
+     * Writes progress into database in the background.
+     */
+    private final ScheduledExecutorService progressFlusher;
+    /**
+     * Whether a write of progress is scheduled.
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushProgress();
+        }
+    };
     /**
      * Database util to update transfer status.
      */
@@ -88,8 +120,16 @@ class TransferStatusUpdater {
     TransferStatusUpdater(TransferDBUtil dbUtilInstance) {
         dbUtil = dbUtilInstance;
         mainHandler = new Handler(Looper.getMainLooper());
-        transfers = new HashMap<Integer, TransferRecord>();
-        lastUpdateTime = new HashMap<Integer, Long>();
+        transfers = new ConcurrentHashMap<Integer, TransferRecord>();
+        progress = new ConcurrentHashMap<Integer, Progress>();
+        progressFlusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "TransferProgressFlusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -142,7 +182,7 @@ class TransferStatusUpdater {
     synchronized void removeTransfer(int id) {
         transfers.remove(id);
         LISTENERS.remove(id);
-        lastUpdateTime.remove(id);
+        progress.remove(id);
     }
     
     /**
@@ -182,6 +222,12 @@ class TransferStatusUpdater {
         } else {
             shouldNotNotify |= newState.equals(transfer.state);
             transfer.state = newState;
+            // the progress is saved along with the state
+            final Progress p = progress.get(id);
+            if (p != null) {
+                p.dirty.set(false);
+                transfer.bytesCurrent = p.bytesCurrent.get();
+            }
             // save to database
             if (dbUtil.updateTransferRecord(transfer) == 0) {
                 LOGGER.warn("Failed to update the status of transfer " + id);
@@ -196,6 +242,9 @@ class TransferStatusUpdater {
         // when the transfer completed successfully.
         if (TransferState.COMPLETED.equals(newState)) {
             removeTransferRecordFromDB(id);
+        } else if (TransferState.CANCELED.equals(newState)) {
+            // a canceled transfer can't be resumed, its parts are of no use
+            dbUtil.deletePartRecords(id);
         }
 
         final List<TransferListener> list = LISTENERS.get(id);
@@ -225,50 +274,118 @@ class TransferStatusUpdater {
     /**
      * Updates the transfer progress of a transfer. It will trigger
      * {@link TransferListener#onProgressChanged(int, long, long)} of associated
-     * LISTENERS if the update exceeds either time threshold.
+     * LISTENERS if the update exceeds either time threshold. The progress is
+     * kept in memory and written into database periodically, along with the
+     * progress of other transfers.
      *
      * @param id id of the transfer
      * @param bytesCurrent current transferred bytes
      * @param bytesTotal total bytes
      */
-    synchronized void updateProgress(final int id, final long bytesCurrent, final long bytesTotal) {
+    void updateProgress(final int id, final long bytesCurrent, final long bytesTotal) {
+        final Progress p = getProgress(id);
+        p.bytesCurrent.set(bytesCurrent);
+        p.bytesTotal = bytesTotal;
+        publishProgress(id, p, bytesCurrent, bytesTotal);
+    }
+
+    private Progress getProgress(int id) {
+        Progress p = progress.get(id);
+        if (p == null) {
+            p = new Progress();
+            final TransferRecord transfer = transfers.get(id);
+            if (transfer != null) {
+                p.bytesCurrent.set(transfer.bytesCurrent);
+                p.bytesTotal = transfer.bytesTotal;
+            }
+            final Progress existing = progress.putIfAbsent(id, p);
+            if (existing != null) {
+                p = existing;
+            }
+        }
+        return p;
+    }
+
+    private void publishProgress(final int id, Progress p, final long bytesCurrent,
+            final long bytesTotal) {
         final TransferRecord transfer = transfers.get(id);
         if (transfer != null) {
             transfer.bytesCurrent = bytesCurrent;
             transfer.bytesTotal = bytesTotal;
         }
 
+        // update bytes transferred so that the transfer observer may pick it
+        // up.
+        p.dirty.set(true);
+        scheduleFlush();
+
         // Don't fire off the update too frequently, but still fire when it
         // comes to the last byte.
         final long timeInMillis = System.currentTimeMillis();
-
-        // update bytes transferred so that the transfer observer may pick it
-        // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+        if (bytesCurrent == bytesTotal) {
+            p.lastUpdateTime.set(timeInMillis);
+        } else {
+            final long lastUpdateTime = p.lastUpdateTime.get();
+            if ((lastUpdateTime != NEVER && timeInMillis - lastUpdateTime <= UPDATE_THRESHOLD_MS)
+                    || !p.lastUpdateTime.compareAndSet(lastUpdateTime, timeInMillis)) {
+                return;
+            }
+        }
 
         // invoke LISTENERS
-        final List<TransferListener> list = LISTENERS.get(id);
+        final List<TransferListener> list;
+        synchronized (LISTENERS) {
+            list = LISTENERS.get(id);
+        }
         if (list == null || list.isEmpty()) {
             return;
         }
+        for (final TransferListener l : list) {
+            // invoke on main thread
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    l.onProgressChanged(id, bytesCurrent, bytesTotal);
+                }
+            });
+        }
+    }
 
-        if (!lastUpdateTime.containsKey(id) ||
-            timeInMillis - lastUpdateTime.get(id) > UPDATE_THRESHOLD_MS ||
-            bytesCurrent == bytesTotal) {
-            lastUpdateTime.put(id, timeInMillis);
-
-            for (final TransferListener l : list) {
-                // invoke on main thread
-                mainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onProgressChanged(id, bytesCurrent, bytesTotal);
-                    }
-                });
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                progressFlusher.schedule(flushTask, PROGRESS_FLUSH_INTERVAL_MS,
+                        TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                flushScheduled.set(false);
+                LOGGER.warn("Failed to schedule saving the progress of transfers", e);
             }
         }
     }
 
+    /**
+     * Writes the progress of all transfers updated since the last write into
+     * database in one transaction.
+     */
+    void flushProgress() {
+        flushScheduled.set(false);
+        final Map<Integer, Long> bytesById = new HashMap<Integer, Long>();
+        for (final Map.Entry<Integer, Progress> entry : progress.entrySet()) {
+            final Progress p = entry.getValue();
+            if (p.dirty.getAndSet(false)) {
+                bytesById.put(entry.getKey(), p.bytesCurrent.get());
+            }
+        }
+        if (bytesById.isEmpty()) {
+            return;
+        }
+        try {
+            dbUtil.updateBytesTransferred(bytesById);
+        } catch (final RuntimeException e) {
+            LOGGER.error("Failed to save the progress of transfers", e);
+        }
+    }
+
     /**
      * Throws an error to transfer. It triggers
      * {@link TransferListener#onError(int, Exception)} of associated LISTENERS.
@@ -300,7 +417,7 @@ class TransferStatusUpdater {
     synchronized void clear() {
         LISTENERS.clear();
         transfers.clear();
-        lastUpdateTime.clear();
+        progress.clear();
     }
 
     /**
@@ -347,12 +464,31 @@ class TransferStatusUpdater {
         }
     }
 
+    /**
+     * The progress of a transfer.
+     */
+    private static final class Progress {
+        private final AtomicLong bytesCurrent = new AtomicLong();
+        private volatile long bytesTotal;
+        /*
+         * Whether the progress has changed since it was last written into
+         * database.
+         */
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        /*
+         * The last time listeners were notified, to prevent events from being
+         * fired too often.
+         */
+        private final AtomicLong lastUpdateTime = new AtomicLong(NEVER);
+    }
+
     /**
      * A helper class that updates transfer progress.
      */
     private class TransferProgressListener implements ProgressListener {
 
         private final TransferRecord transfer;
+        private final Progress progress;
         /*
          * Current transfer progress per task. In a multipart upload, this value
          * is per upload part task. The purpose is to reset the progress upon a
@@ -360,22 +496,25 @@ class TransferStatusUpdater {
          */
         private long bytesCurrent;
 
-        public TransferProgressListener(TransferRecord transfer) {
+        public TransferProgressListener(TransferRecord transfer, Progress progress) {
             this.transfer = transfer;
+            this.progress = progress;
         }
 
         @Override
         public synchronized void progressChanged(ProgressEvent progressEvent) {
+            long delta;
             if (progressEvent.getEventCode() == ProgressEvent.RESET_EVENT_CODE) {
                 // Reset will discard what's been transferred, so subtract the
                 // bytes transferred in this task from the total progress.
-                transfer.bytesCurrent -= bytesCurrent;
+                delta = -bytesCurrent;
                 bytesCurrent = 0;
             } else {
-                bytesCurrent += progressEvent.getBytesTransferred();
-                transfer.bytesCurrent += progressEvent.getBytesTransferred();
+                delta = progressEvent.getBytesTransferred();
+                bytesCurrent += delta;
             }
-            updateProgress(transfer.id, transfer.bytesCurrent, transfer.bytesTotal);
+            final long current = progress.bytesCurrent.addAndGet(delta);
+            publishProgress(transfer.id, progress, current, progress.bytesTotal);
         }
     }
 
@@ -391,7 +530,7 @@ class TransferStatusUpdater {
         if (transfer == null) {
             throw new IllegalArgumentException("transfer " + id + " doesn't exist");
         }
-        return new TransferProgressListener(transfer);
+        return new TransferProgressListener(transfer, getProgress(id));
     }
 }
 
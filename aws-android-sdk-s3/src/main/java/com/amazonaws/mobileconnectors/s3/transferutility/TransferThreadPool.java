@@ -15,10 +15,13 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -31,6 +34,7 @@ class TransferThreadPool {
 
     private static ExecutorService executorMainTask;
     private static ExecutorService executorPartTask;
+    private static int partTaskPoolSize;
 
     static synchronized void init(final int transferThreadPoolSize) {
         LOGGER.debug("Initializing the thread pool of size: " + transferThreadPoolSize);
@@ -42,12 +46,32 @@ class TransferThreadPool {
         }
         if (executorPartTask == null) {
             executorPartTask = buildExecutor(poolSize);
+            partTaskPoolSize = poolSize;
         }
     }
 
+    /**
+     * @return the number of threads that run part tasks
+     */
+    static synchronized int getPartTaskPoolSize() {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        return partTaskPoolSize;
+    }
+
+    /**
+     * Submits a task that transfers a part, or wraps one, to the threads that
+     * run part tasks. The task is cancelled if it's discarded, or still queued
+     * when the pool is shut down, so it always completes.
+     */
+    static <T> Future<T> submitPartTask(RunnableFuture<T> task) {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        executorPartTask.execute(task);
+        return task;
+    }
+
     public static <T> Future<T> submitTask(Callable<T> c) {
         init(TransferUtilityOptions.getDefaultThreadPoolSize());
-        if (c instanceof UploadPartTask) {
+        if (c instanceof UploadPartTask || c instanceof DownloadPartTask) {
             return executorPartTask.submit(c);
         } else {
             return executorMainTask.submit(c);
@@ -77,14 +101,26 @@ class TransferThreadPool {
             // Wait for existing tasks
             if (!executor.awaitTermination(WAIT_TIME, TimeUnit.MILLISECONDS)) {
                 // Cancel tasks in execution
-                executor.shutdownNow();
+                cancelAll(executor.shutdownNow());
             }
         } catch (final InterruptedException ie) {
-            executor.shutdownNow();
+            cancelAll(executor.shutdownNow());
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Cancels tasks that never ran, so whoever waits on them or holds
+     * resources for them is notified.
+     */
+    private static void cancelAll(List<Runnable> tasks) {
+        for (final Runnable task : tasks) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
     private static ExecutorService buildExecutor(int maxThreadsAllowed) {
         /*
          * Create a bounded thread pool for executing transfers; it creates
@@ -97,7 +133,14 @@ class TransferThreadPool {
          * It's safe to discard tasks, as they are saved in database and will be
          * recovered on next database scan.
          */
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setRejectedExecutionHandler(new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                if (task instanceof Future) {
+                    ((Future<?>) task).cancel(false);
+                }
+            }
+        });
         executor.allowCoreThreadTimeOut(true);
         return executor;
     }
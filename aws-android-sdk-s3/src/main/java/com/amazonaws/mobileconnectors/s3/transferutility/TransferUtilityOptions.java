@@ -64,6 +64,12 @@ public class TransferUtilityOptions implements Serializable {
      * Number of threads in the pool for the all the transfers.
      */
     private int transferThreadPoolSize;
+
+    /**
+     * Whether downloads are split into byte ranges that are downloaded in
+     * parallel.
+     */
+    private boolean multipartDownloadEnabled;
     
     /**
      * Constructor that sets the options to the
@@ -124,6 +130,29 @@ public class TransferUtilityOptions implements Serializable {
         }
     }
     
+    /**
+     * Retrieve whether downloads are split into parts.
+     *
+     * @return the multipartDownloadEnabled
+     */
+    public boolean isMultipartDownloadEnabled() {
+        return multipartDownloadEnabled;
+    }
+
+    /**
+     * Set whether downloads are split into parts. A multipart download fetches
+     * byte ranges of the object in parallel, like a multipart upload, and
+     * writes each of them at its offset in the file. Completed parts are kept
+     * in the transfer database, so a resumed download only fetches the missing
+     * parts. Parts are at least 5MB. Defaults to false, which downloads the
+     * object in one request.
+     *
+     * @param multipartDownloadEnabled the multipartDownloadEnabled to set
+     */
+    public void setMultipartDownloadEnabled(final boolean multipartDownloadEnabled) {
+        this.multipartDownloadEnabled = multipartDownloadEnabled;
+    }
+
     /**
      * Return the default thread pool size.
      * 
@@ -144,13 +144,19 @@ class UploadTask implements Callable<Boolean> {
                 upload.multipartId);
         LOGGER.info("Multipart upload " + upload.id + " in " + requestList.size() + " parts.");
         final ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
-        for (final UploadPartRequest request : requestList) {
-            TransferUtility.appendMultipartTransferServiceUserAgentString(request);
-            request.setGeneralProgressListener(updater.newProgressListener(upload.id));
-            futures.add(TransferThreadPool.submitTask(new UploadPartTask(request, s3, dbUtil)));
-        }
+        final TransferScheduler scheduler = new TransferScheduler();
 
         try {
+            for (final UploadPartRequest request : requestList) {
+                if (scheduler.hasFailedPart()) {
+                    break;
+                }
+                TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+                request.setGeneralProgressListener(updater.newProgressListener(upload.id));
+                futures.add(scheduler.submitPart(new UploadPartTask(request, s3, dbUtil),
+                        request.getPartSize()));
+            }
+
             boolean isSuccess = true;
             /*
              * Future.get() will block the current thread until the method
@@ -5230,8 +5230,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         Iterator<Tag> tagIter = tagging.getTagSet().iterator();
         while (tagIter.hasNext()) {
             Tag tag = tagIter.next();
-            sb.append(S3HttpUtils.urlEncode(tag.getKey(), false)).append('=')
-                    .append(S3HttpUtils.urlEncode(tag.getValue(), false));
+            S3HttpUtils.urlEncode(tag.getKey(), false, sb).append('=');
+            S3HttpUtils.urlEncode(tag.getValue(), false, sb);
             if (tagIter.hasNext()) {
                 sb.append("&");
             }
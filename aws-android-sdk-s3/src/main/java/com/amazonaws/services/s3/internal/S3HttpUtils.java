@@ -14,51 +14,26 @@
  */
 package com.amazonaws.services.s3.internal;
 
+import com.amazonaws.util.PercentEncoder;
+
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class S3HttpUtils {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
 
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
+     * Encodes the same as URLEncoder.encode(), then leaves space and '~' as
+     * they are and encodes '*'.
      */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
-    static {
-        final StringBuilder pattern = new StringBuilder();
-
-        pattern
-                .append(Pattern.quote("+"))
-                .append("|")
-                .append(Pattern.quote("*"))
-                .append("|")
-                .append(Pattern.quote("%7E"))
-                .append("|")
-                .append(Pattern.quote("%2F"))
-                .append("|")
-                .append(Pattern.quote("%3A"))
-                .append("|")
-                .append(Pattern.quote("%27"))
-                .append("|")
-                .append(Pattern.quote("%28"))
-                .append("|")
-                .append(Pattern.quote("%29"))
-                .append("|")
-                .append(Pattern.quote("%21"))
-                .append("|")
-                .append(Pattern.quote("%5B"))
-                .append("|")
-                .append(Pattern.quote("%5D"))
-                .append("|")
-                .append(Pattern.quote("%24"));
+    private static final PercentEncoder ENCODER = new PercentEncoder("-_.~ ", false);
 
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
-    }
+    /**
+     * Encodes the same as {@link #ENCODER}, and leaves the characters S3
+     * allows in paths as they are.
+     */
+    private static final PercentEncoder PATH_ENCODER = new PercentEncoder("-_.~ /:'()![]", false);
 
     /**
      * Encode the URL String or part of URL
@@ -71,48 +46,24 @@ public final class S3HttpUtils {
         if (value == null) {
             return "";
         }
+        return (path ? PATH_ENCODER : ENCODER).encode(value);
+    }
 
-        try {
-            final String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            final Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            final StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
-
-                if ("+".equals(replacement)) {
-                    replacement = " ";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                } else if (path && "%3A".equals(replacement)) {
-                    replacement = ":";
-                } else if (path && "%27".equals(replacement)) {
-                    replacement = "'";
-                } else if (path && "%28".equals(replacement)) {
-                    replacement = "(";
-                } else if (path && "%29".equals(replacement)) {
-                    replacement = ")";
-                } else if (path && "%21".equals(replacement)) {
-                    replacement = "!";
-                } else if (path && "%5B".equals(replacement)) {
-                    replacement = "[";
-                } else if (path && "%5D".equals(replacement)) {
-                    replacement = "]";
-                }
-                matcher.appendReplacement(buffer, replacement);
-            }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (final UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
+    /**
+     * Encode the URL String or part of URL into a builder, the same as
+     * {@link #urlEncode(String, boolean)}.
+     *
+     * @param value Entire or part of the URL
+     * @param path True if value is a path
+     * @param builder The builder the encoded string is appended to
+     * @return The builder
+     */
+    public static StringBuilder urlEncode(final String value, final boolean path,
+            final StringBuilder builder) {
+        if (value == null) {
+            return builder;
         }
+        return (path ? PATH_ENCODER : ENCODER).encode(value, builder);
     }
 
     /**
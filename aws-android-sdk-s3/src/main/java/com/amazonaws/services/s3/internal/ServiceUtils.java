@@ -49,6 +49,7 @@ import java.net.URL;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.net.ssl.SSLProtocolException;
 
@@ -199,23 +200,19 @@ public class ServiceUtils {
         // we treat consecutive "/"s in AmazonS3Client#presignRequest(...)
         String urlPath = "/" + resourcePath;
         urlPath = urlPath.replaceAll("(?<=/)/", "%2F");
-        String urlString = request.getEndpoint() + urlPath;
+        final StringBuilder urlString = new StringBuilder(request.getEndpoint().toString())
+                .append(urlPath);
 
         boolean firstParam = true;
-        for (final String param : request.getParameters().keySet()) {
-            if (firstParam) {
-                urlString += "?";
-                firstParam = false;
-            } else {
-                urlString += "&";
-            }
-
-            final String value = request.getParameters().get(param);
-            urlString += param + "=" + S3HttpUtils.urlEncode(value, false);
+        for (final Map.Entry<String, String> param : request.getParameters().entrySet()) {
+            urlString.append(firstParam ? '?' : '&');
+            firstParam = false;
+            urlString.append(param.getKey()).append('=');
+            S3HttpUtils.urlEncode(param.getValue(), false, urlString);
         }
 
         try {
-            return new URL(urlString);
+            return new URL(urlString.toString());
         } catch (final MalformedURLException e) {
             throw new AmazonClientException(
                     "Unable to convert request to well formed URL: " + e.getMessage(), e);
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Replaces carriage return (\r) characters in a UTF-8 XML document with
+ * explicit XML character entities as the document is read, to prevent the SAX
+ * parser from misinterpreting 0x0D characters as 0x0A. In UTF-8 the 0x0D byte
+ * only ever encodes a carriage return, so the bytes are escaped without
+ * decoding the document.
+ * <p>
+ * The wrapped stream is closed once it's read to the end.
+ */
+class CarriageReturnEscapingInputStream extends FilterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] ESCAPED_CARRIAGE_RETURN = {
+            '&', '#', '0', '1', '3', ';'
+    };
+
+    /** Bytes read from the wrapped stream and not returned yet. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /** Position in the escape sequence being returned, or -1 if none. */
+    private int escapePosition = -1;
+    private boolean closed;
+
+    CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (escapePosition >= 0) {
+                b[off + count++] = ESCAPED_CARRIAGE_RETURN[escapePosition++];
+                if (escapePosition == ESCAPED_CARRIAGE_RETURN.length) {
+                    escapePosition = -1;
+                }
+                continue;
+            }
+            if (position == limit) {
+                // Return what's ready rather than block for more
+                if (count > 0 || !fill()) {
+                    break;
+                }
+            }
+            final int max = Math.min(limit, position + len - count);
+            int end = position;
+            while (end < max && buffer[end] != CARRIAGE_RETURN) {
+                end++;
+            }
+            System.arraycopy(buffer, position, b, off + count, end - position);
+            count += end - position;
+            position = end;
+            if (position < limit && buffer[position] == CARRIAGE_RETURN) {
+                position++;
+                escapePosition = 0;
+            }
+        }
+        return count > 0 ? count : -1;
+    }
+
+    private boolean fill() throws IOException {
+        if (closed) {
+            return false;
+        }
+        final int read = in.read(buffer, 0, buffer.length);
+        if (read == -1) {
+            closed = true;
+            in.close();
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final byte[] skipped = new byte[(int) Math.min(n, BUFFER_SIZE)];
+        long total = 0;
+        while (total < n) {
+            final int read = read(skipped, 0, (int) Math.min(n - total, skipped.length));
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position + (closed ? 0 : in.available());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+}
@@ -18,8 +18,6 @@
 
 package com.amazonaws.services.s3.model.transform;
 
-import static com.amazonaws.util.StringUtils.UTF8;
-
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
@@ -123,7 +121,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -141,7 +138,19 @@ import java.util.Map;
 public class XmlResponsesSaxParser {
     private static final Log log = LogFactory.getLog(XmlResponsesSaxParser.class);
 
-    private XMLReader xr = null;
+    /**
+     * Creating an XML reader looks up and loads the SAX driver, so each thread
+     * reuses its reader for the documents it parses.
+     */
+    private static final ThreadLocal<XMLReader> XML_READER = new ThreadLocal<XMLReader>() {
+        @Override
+        protected XMLReader initialValue() {
+            return createXmlReader();
+        }
+    };
+
+    /** Replaces the handler of a reusable reader once a document is parsed. */
+    private static final DefaultHandler NO_HANDLER = new DefaultHandler();
 
     private final boolean sanitizeXmlDocument = true;
 
@@ -152,13 +161,17 @@ public class XmlResponsesSaxParser {
      */
     public XmlResponsesSaxParser() throws AmazonClientException {
         // Ensure we can load the XML Reader.
+        XML_READER.get();
+    }
+
+    private static XMLReader createXmlReader() {
         try {
-            xr = XMLReaderFactory.createXMLReader();
+            return XMLReaderFactory.createXMLReader();
         } catch (final SAXException e) {
             System.setProperty("org.xml.sax.driver", "org.xmlpull.v1.sax2.Driver");
             try {
                 // Try once more...
-                xr = XMLReaderFactory.createXMLReader();
+                return XMLReaderFactory.createXMLReader();
             } catch (final SAXException e2) {
                 throw new AmazonClientException(
                         "Couldn't initialize a sax driver for the XMLReader", e);
@@ -185,14 +198,24 @@ public class XmlResponsesSaxParser {
 
             final BufferedReader breader = new BufferedReader(new InputStreamReader(inputStream,
                     Constants.DEFAULT_ENCODING));
+            final XMLReader xr = XML_READER.get();
             xr.setContentHandler(handler);
             xr.setErrorHandler(handler);
-            xr.parse(new InputSource(breader));
+            try {
+                xr.parse(new InputSource(breader));
+            } finally {
+                xr.setContentHandler(NO_HANDLER);
+                xr.setErrorHandler(NO_HANDLER);
+            }
 
         } catch (final IOException e) {
+            // The reader may be left mid-document, so the next parse on this
+            // thread gets a new one
+            XML_READER.remove();
             throw e;
 
         } catch (final Throwable t) {
+            XML_READER.remove();
             try {
                 inputStream.close();
             } catch (final IOException e) {
@@ -205,6 +228,19 @@ public class XmlResponsesSaxParser {
         }
     }
 
+    /**
+     * Wraps a response so carriage return (\r) characters are replaced with
+     * explicit XML character entities as the parser reads it, to prevent the
+     * SAX parser from misinterpreting 0x0D characters as 0x0A and being unable
+     * to parse the XML. The document isn't copied into memory first.
+     *
+     * @param handler the handler the document is destined for
+     * @param inputStream the UTF-8 encoded XML document
+     * @return the sanitized document, which closes the response stream once
+     *         read to the end
+     * @throws IOException declared for compatibility, the response is only read
+     *             when the document is parsed
+     */
     protected InputStream sanitizeXmlDocument(DefaultHandler handler, InputStream inputStream)
             throws IOException {
 
@@ -216,57 +252,7 @@ public class XmlResponsesSaxParser {
             if (log.isDebugEnabled()) {
                 log.debug("Sanitizing XML document destined for handler " + handler.getClass());
             }
-
-            InputStream sanitizedInputStream = null;
-
-            try {
-
-                /*
-                 * Read object listing XML document from input stream provided
-                 * into a string buffer, so we can replace troublesome
-                 * characters before sending the document to the XML parser.
-                 */
-                final StringBuilder listingDocBuffer = new StringBuilder();
-                final BufferedReader br = new BufferedReader(
-                        new InputStreamReader(inputStream, Constants.DEFAULT_ENCODING));
-
-                final char[] buf = new char[8192];
-                int read = -1;
-                while ((read = br.read(buf)) != -1) {
-                    listingDocBuffer.append(buf, 0, read);
-                }
-                br.close();
-
-                /*
-                 * Replace any carriage return (\r) characters with explicit XML
-                 * character entities, to prevent the SAX parser from
-                 * misinterpreting 0x0D characters as 0x0A and being unable to
-                 * parse the XML.
-                 */
-                final String listingDoc = listingDocBuffer.toString().replaceAll("\r", "&#013;");
-
-                sanitizedInputStream = new ByteArrayInputStream(
-                        listingDoc.getBytes(UTF8));
-
-            } catch (final IOException e) {
-                throw e;
-
-            } catch (final Throwable t) {
-                try {
-                    inputStream.close();
-                } catch (final IOException e) {
-                    if (log.isErrorEnabled()) {
-                        log.error(
-                                "Unable to close response InputStream after failure sanitizing XML document",
-                                e);
-                    }
-                }
-                throw new AmazonClientException(
-                        "Failed to sanitize XML document destined for handler "
-                                + handler.getClass(),
-                        t);
-            }
-            return sanitizedInputStream;
+            return new CarriageReturnEscapingInputStream(inputStream);
         }
     }
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransferSchedulerTest {
+
+    private static final long PART_SIZE = TransferScheduler.MINIMUM_PART_SIZE;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        unblock.countDown();
+        TransferThreadPool.closeThreadPool();
+    }
+
+    @Test
+    public void testPartSize() {
+        assertEquals(PART_SIZE, TransferScheduler.getPartSize(1));
+        assertEquals(PART_SIZE, TransferScheduler.getPartSize(5000L * PART_SIZE / 1000));
+        assertEquals(10L * 1024 * 1024,
+                TransferScheduler.getPartSize(10000L * 1024 * 1024));
+    }
+
+    @Test
+    public void testCancelledQueuedPartsReleaseBudget() throws Exception {
+        blockPartThreads();
+        final AtomicInteger runs = new AtomicInteger();
+        final TransferScheduler scheduler = new TransferScheduler();
+        final List<Future<Boolean>> parts = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < scheduler.getConcurrency(); i++) {
+            parts.add(scheduler.submitPart(countingPart(runs), PART_SIZE));
+        }
+        assertTrue(TransferScheduler.getAvailableBudget() < TransferScheduler.getBudget());
+
+        // as when the transfer is paused
+        for (final Future<Boolean> part : parts) {
+            part.cancel(true);
+        }
+        assertEquals(TransferScheduler.getBudget(), TransferScheduler.getAvailableBudget());
+        assertTrue(scheduler.hasFailedPart());
+
+        // the slots of the cancelled parts are free again
+        final Future<Boolean> part = scheduler.submitPart(countingPart(runs), PART_SIZE);
+        unblock.countDown();
+        assertTrue(part.get());
+        assertEquals(1, runs.get());
+        assertEquals(TransferScheduler.getBudget(), TransferScheduler.getAvailableBudget());
+    }
+
+    @Test
+    public void testQueuedPartsReleaseBudgetOnShutdown() throws Exception {
+        blockPartThreads();
+        final AtomicInteger runs = new AtomicInteger();
+        final TransferScheduler scheduler = new TransferScheduler();
+        final List<Future<Boolean>> parts = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < scheduler.getConcurrency(); i++) {
+            parts.add(scheduler.submitPart(countingPart(runs), PART_SIZE));
+        }
+
+        TransferThreadPool.closeThreadPool();
+        for (final Future<Boolean> part : parts) {
+            assertTrue(part.isCancelled());
+        }
+        assertEquals(0, runs.get());
+        assertEquals(TransferScheduler.getBudget(), TransferScheduler.getAvailableBudget());
+    }
+
+    @Test
+    public void testCompletedPartsReleaseBudgetOnce() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final TransferScheduler scheduler = new TransferScheduler();
+        final List<Future<Boolean>> parts = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 10; i++) {
+            parts.add(scheduler.submitPart(countingPart(runs), PART_SIZE));
+        }
+        for (final Future<Boolean> part : parts) {
+            assertTrue(part.get());
+            // cancelling a completed part doesn't release its budget again
+            assertFalse(part.cancel(true));
+        }
+        assertEquals(10, runs.get());
+        assertFalse(scheduler.hasFailedPart());
+        assertEquals(TransferScheduler.getBudget(), TransferScheduler.getAvailableBudget());
+    }
+
+    /**
+     * Occupies every part thread until the test ends, so parts submitted
+     * meanwhile stay queued.
+     */
+    private void blockPartThreads() throws InterruptedException {
+        final int threads = TransferThreadPool.getPartTaskPoolSize();
+        final CountDownLatch started = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            TransferThreadPool.submitPartTask(new FutureTask<Boolean>(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    started.countDown();
+                    unblock.await();
+                    return true;
+                }
+            }));
+        }
+        started.await();
+    }
+
+    private static Callable<Boolean> countingPart(final AtomicInteger runs) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                runs.incrementAndGet();
+                return true;
+            }
+        };
+    }
+}
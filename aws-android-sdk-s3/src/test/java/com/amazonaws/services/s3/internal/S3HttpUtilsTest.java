@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+
+public class S3HttpUtilsTest {
+
+    private static final String[] KEYS = {
+            "photos/2019/10/18/IMG_0001.jpg",
+            "user uploads/My Document (1).pdf",
+            "backups/db+snapshot*final~v2.tar",
+            "prices/$100 [draft]!:'x'.csv",
+            "reports/Q3 r\u00e9sum\u00e9 & notes.docx",
+            "emoji/\ud83d\ude00 smile.png",
+            "a/b//c",
+            "100%-done?yes=1&no=0#frag"
+    };
+
+    @Test
+    public void testUrlEncodeMatchesFixedUpURLEncoder() throws Exception {
+        for (final String key : KEYS) {
+            assertEquals(key, referenceEncode(key, false), S3HttpUtils.urlEncode(key, false));
+            assertEquals(key, referenceEncode(key, true), S3HttpUtils.urlEncode(key, true));
+        }
+    }
+
+    @Test
+    public void testUrlEncodeIntoBuilder() {
+        final StringBuilder builder = new StringBuilder("tag=");
+        S3HttpUtils.urlEncode("a b*", false, builder);
+        assertEquals("tag=a b%2A", builder.toString());
+        assertEquals("", S3HttpUtils.urlEncode(null, true));
+    }
+
+    /**
+     * The encoding S3HttpUtils.urlEncode did with URLEncoder and fix ups.
+     */
+    private static String referenceEncode(String value, boolean path) throws Exception {
+        String encoded = URLEncoder.encode(value, "UTF-8")
+                .replace("+", " ").replace("*", "%2A").replace("%7E", "~");
+        if (path) {
+            final String[][] pathCharacters = {
+                    {"%2F", "/"}, {"%3A", ":"}, {"%27", "'"}, {"%28", "("},
+                    {"%29", ")"}, {"%21", "!"}, {"%5B", "["}, {"%5D", "]"}
+            };
+            for (final String[] pair : pathCharacters) {
+                encoded = encoded.replace(pair[0], pair[1]);
+            }
+        }
+        return encoded;
+    }
+}
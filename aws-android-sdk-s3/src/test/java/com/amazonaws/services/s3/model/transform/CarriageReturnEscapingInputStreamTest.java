@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.model.transform;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CarriageReturnEscapingInputStreamTest {
+
+    private static final String LISTING = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix></Prefix><Marker></Marker><MaxKeys>1000</MaxKeys>"
+            + "<IsTruncated>false</IsTruncated>"
+            + "<Contents><Key>line\r\nbreak \u00e9\u20ac\r</Key>"
+            + "<LastModified>2019-01-01T00:00:00.000Z</LastModified>"
+            + "<ETag>&quot;etag&quot;</ETag><Size>1</Size><StorageClass>STANDARD</StorageClass>"
+            + "</Contents></ListBucketResult>";
+
+    @Test
+    public void testEscapesCarriageReturns() throws IOException {
+        final String document = "\r<a>\r\r\u00e9\rb\r</a>\r";
+        final String expected = document.replace("\r", "&#013;");
+        for (int bufferSize = 1; bufferSize <= 16; bufferSize++) {
+            assertEquals("buffer size " + bufferSize, expected, escape(document, bufferSize));
+        }
+    }
+
+    @Test
+    public void testSingleByteReads() throws IOException {
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream("a\rb".getBytes(UTF8)));
+        final StringBuilder escaped = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            escaped.append((char) b);
+        }
+        assertEquals("a&#013;b", escaped.toString());
+    }
+
+    @Test
+    public void testClosesStreamAtEnd() throws IOException {
+        final boolean[] closed = new boolean[1];
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream("\r".getBytes(UTF8)) {
+                    @Override
+                    public void close() {
+                        closed[0] = true;
+                    }
+                });
+        assertEquals(6, in.skip(10));
+        assertEquals(-1, in.read());
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    public void testParsesListingWithCarriageReturns() throws IOException {
+        final ObjectListing listing = new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(
+                        new ByteArrayInputStream(LISTING.getBytes(UTF8)), false)
+                .getObjectListing();
+        assertEquals(1, listing.getObjectSummaries().size());
+        assertEquals("line\r\nbreak \u00e9\u20ac\r",
+                listing.getObjectSummaries().get(0).getKey());
+
+        // The reader of this thread is reused for the next document
+        assertEquals("bucket", new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(
+                        new ByteArrayInputStream(LISTING.getBytes(UTF8)), false)
+                .getObjectListing().getBucketName());
+    }
+
+    private static String escape(String document, int bufferSize) throws IOException {
+        final InputStream in = new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream(document.getBytes(UTF8)));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = in.read(buffer, 0, bufferSize)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF8);
+    }
+}